@@ -0,0 +1,49 @@
+package br.com.brncalmeida.clubepao.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.brncalmeida.clubepao.model.Periodo;
+import br.com.brncalmeida.clubepao.utils.Util;
+
+/**
+ * Cálculo de dias úteis e montagem do período (semanas) por tamanho do período.
+ * 
+ * @author bruno.almeida
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CalendarioBenchmark {
+
+	private static final LocalDate DATA_INICIAL = new LocalDate(2014, 4, 14);
+
+	@Param({ "1", "6", "12", "24" })
+	private int meses;
+
+	@Benchmark
+	public Set<LocalDate> buscarDiasUteis() {
+		return Util.buscarDiasUteis(DATA_INICIAL, DATA_INICIAL.plusMonths(meses));
+	}
+
+	@Benchmark
+	public Periodo criarPeriodo() {
+		return new Periodo(DATA_INICIAL, DATA_INICIAL.plusMonths(meses));
+	}
+}
@@ -0,0 +1,68 @@
+package br.com.brncalmeida.clubepao.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.brncalmeida.clubepao.dao.VersaoMembros;
+import br.com.brncalmeida.clubepao.model.Disponibilidade;
+import br.com.brncalmeida.clubepao.model.MassaMembros;
+import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.model.MembroResumo;
+import br.com.brncalmeida.clubepao.services.IndiceMembros;
+import br.com.brncalmeida.clubepao.services.PaginaMembros;
+
+/**
+ * Listagem de membros por qtd de membros: lista completa ({@link MembroDaoEmMemoria#listarResumo(String)}) x página do índice em memória ({@link IndiceMembros}),
+ * sem banco de dados.
+ * 
+ * @author bruno.almeida
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IndiceMembrosBenchmark {
+
+	@Param({ "1000", "10000", "50000" })
+	private int qtdMembros;
+
+	private MembroDaoEmMemoria dao;
+	private IndiceMembros indice;
+
+	@Setup
+	public void criarIndice() {
+		dao = new MembroDaoEmMemoria(MassaMembros.criarMembros(qtdMembros, MassaMembros.SEMENTE));
+		indice = new IndiceMembros(new VersaoMembros());
+		indice.buscar(dao, Membro.CLUBE_PADRAO, null, null, 0, 1);
+	}
+
+	@Benchmark
+	public List<MembroResumo> listarTodos() {
+		return dao.listarResumo(Membro.CLUBE_PADRAO);
+	}
+
+	@Benchmark
+	public PaginaMembros primeiraPagina() {
+		return indice.buscar(dao, Membro.CLUBE_PADRAO, null, null, 0, 50);
+	}
+
+	@Benchmark
+	public PaginaMembros buscarPorPrefixoEDisponibilidade() {
+		return indice.buscar(dao, Membro.CLUBE_PADRAO, "membro 1", Disponibilidade.QUARTA, 50, 50);
+	}
+}
@@ -0,0 +1,122 @@
+package br.com.brncalmeida.clubepao.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import br.com.brncalmeida.clubepao.dao.MembroDao;
+import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.model.MembroResumo;
+
+/**
+ * {@link MembroDao} em memória para os benchmarks da planilha: as leituras vêm de uma população fixa e as escritas são apenas contadas, mantendo a
+ * população constante entre as invocações.
+ * 
+ * @author bruno.almeida
+ * 
+ */
+public class MembroDaoEmMemoria implements MembroDao {
+
+	private final List<Membro> membros;
+	private long qtdEscritas;
+
+	public MembroDaoEmMemoria(List<Membro> membros) {
+		this.membros = membros;
+	}
+
+	public long getQtdEscritas() {
+		return qtdEscritas;
+	}
+
+	public void add(Membro membro) {
+		qtdEscritas++;
+	}
+
+	public void addAll(List<Membro> membros) {
+		qtdEscritas += membros.size();
+	}
+
+	public int addEmLote(List<Membro> membros) {
+		qtdEscritas += membros.size();
+		return membros.size();
+	}
+
+	public void remove(Membro membro) {
+		qtdEscritas++;
+	}
+
+	public void removeAll(List<Membro> membros) {
+		qtdEscritas += membros.size();
+	}
+
+	public int removerTodos(String clube) {
+		qtdEscritas++;
+		return listarTodos(clube).size();
+	}
+
+	public void refresh(Membro membro) {
+	}
+
+	public void update(Membro membro) {
+		qtdEscritas++;
+	}
+
+	public Membro getById(long id) {
+		for (Membro membro : membros) {
+			if (membro.getId() == id)
+				return membro;
+		}
+		return null;
+	}
+
+	public List<Membro> listarTodos(String clube) {
+		List<Membro> encontrados = new ArrayList<Membro>();
+		for (Membro membro : membros) {
+			if (membro.getClube().equals(clube))
+				encontrados.add(membro);
+		}
+		return encontrados;
+	}
+
+	public List<Membro> listarParaProgramacao(String clube) {
+		List<Membro> encontrados = new ArrayList<Membro>();
+		for (Membro membro : membros) {
+			if (membro.getClube().equals(clube))
+				encontrados.add(membro.copiar());
+		}
+		return encontrados;
+	}
+
+	public List<String> listarClubes() {
+		Set<String> clubes = new TreeSet<String>();
+		for (Membro membro : membros) {
+			clubes.add(membro.getClube());
+		}
+		return new ArrayList<String>(clubes);
+	}
+
+	public List<MembroResumo> listarResumo(String clube) {
+		List<MembroResumo> resumos = new ArrayList<MembroResumo>(membros.size());
+		for (Membro membro : listarTodos(clube)) {
+			resumos.add(new MembroResumo(membro.getId(), membro.getNome(), membro.getEmail(), membro.getMascaraDisponibilidades()));
+		}
+		return resumos;
+	}
+
+	public List<Membro> listarPaginado(String clube, long ultimoId, int qtd) {
+		// população ordenada por id
+		List<Membro> pagina = new ArrayList<Membro>(qtd);
+		for (Membro membro : membros) {
+			if (pagina.size() == qtd)
+				break;
+			if (membro.getId() > ultimoId && membro.getClube().equals(clube))
+				pagina.add(membro);
+		}
+		return pagina;
+	}
+
+	public long contarTodos(String clube) {
+		return listarTodos(clube).size();
+	}
+}
@@ -0,0 +1,83 @@
+package br.com.brncalmeida.clubepao.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.brncalmeida.clubepao.model.MassaMembros;
+import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.services.ExcelFileService.ReportExcelService;
+import br.com.brncalmeida.clubepao.services.impl.DefaultExcelFileService;
+import br.com.caelum.vraptor.util.test.MockLocalization;
+
+/**
+ * Importação e exportação da planilha de membros por qtd de membros, sem banco de dados ({@link MembroDaoEmMemoria}).
+ * 
+ * @author bruno.almeida
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PlanilhaBenchmark {
+
+	@Param({ "100", "1000", "10000", "100000" })
+	private int qtdMembros;
+
+	private DefaultExcelFileService service;
+	private byte[] planilha;
+
+	@Setup
+	public void criarPlanilha() throws IOException {
+		service = new DefaultExcelFileService(new MembroDaoEmMemoria(MassaMembros.criarMembros(qtdMembros, MassaMembros.SEMENTE)), new MockLocalization());
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		service.escreverPlanilhaAtual(stream, Membro.CLUBE_PADRAO);
+		planilha = stream.toByteArray();
+	}
+
+	@Benchmark
+	public ReportExcelService importar() throws IOException {
+		return service.parse(new ByteArrayInputStream(planilha), true, Membro.CLUBE_PADRAO);
+	}
+
+	@Benchmark
+	public long exportar() throws IOException {
+		ContadorBytes saida = new ContadorBytes();
+		service.escreverPlanilhaAtual(saida, Membro.CLUBE_PADRAO);
+		return saida.qtd;
+	}
+
+	/**
+	 * descarta a planilha exportada, contando somente os bytes escritos
+	 */
+	private static class ContadorBytes extends OutputStream {
+		private long qtd;
+
+		@Override
+		public void write(int b) {
+			qtd++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			qtd += len;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package br.com.brncalmeida.clubepao.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.brncalmeida.clubepao.model.Alocador;
+import br.com.brncalmeida.clubepao.model.AlocadorFluxo;
+import br.com.brncalmeida.clubepao.model.AlocadorIndexado;
+import br.com.brncalmeida.clubepao.model.AlocadorParalelo;
+import br.com.brncalmeida.clubepao.model.AlocadorSequencial;
+import br.com.brncalmeida.clubepao.model.MassaMembros;
+import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.model.Schedule;
+
+/**
+ * Geração da programação ({@link Schedule}) por qtd de membros, tamanho do período e algoritmo de alocação.
+ * 
+ * @author bruno.almeida
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScheduleBenchmark {
+
+	private static final LocalDate DATA_INICIAL = new LocalDate(2014, 4, 14);
+
+	@Param({ "100", "1000", "10000", "100000" })
+	private int qtdMembros;
+
+	@Param({ "1", "6", "24" })
+	private int meses;
+
+	@Param({ "indexado", "sequencial", "fluxo", "paralelo" })
+	private String alocador;
+
+	private List<Membro> populacao;
+	private List<Membro> membros;
+	private ForkJoinPool pool;
+
+	/**
+	 * população gerada uma única vez por combinação de parâmetros, junto com o pool da alocação paralela (uma thread por processador visível)
+	 */
+	@Setup(Level.Trial)
+	public void criarMembros() {
+		populacao = MassaMembros.criarMembros(qtdMembros, MassaMembros.SEMENTE);
+		pool = new ForkJoinPool();
+	}
+
+	@TearDown(Level.Trial)
+	public void encerrarPool() {
+		pool.shutdown();
+	}
+
+	/**
+	 * a geração altera os dias programados dos membros, por isso cada invocação recebe cópias da população (sem sortear as disponibilidades novamente)
+	 */
+	@Setup(Level.Invocation)
+	public void copiarMembros() {
+		membros = MassaMembros.copiar(populacao);
+	}
+
+	@Benchmark
+	public Schedule gerarProgramacao() {
+		Alocador algoritmo;
+		if ("sequencial".equals(alocador))
+			algoritmo = new AlocadorSequencial();
+		else if ("fluxo".equals(alocador))
+			algoritmo = new AlocadorFluxo();
+		else if ("paralelo".equals(alocador))
+			algoritmo = new AlocadorParalelo(pool);
+		else
+			algoritmo = new AlocadorIndexado();
+		return new Schedule(DATA_INICIAL, DATA_INICIAL.plusMonths(meses), membros, algoritmo);
+	}
+}
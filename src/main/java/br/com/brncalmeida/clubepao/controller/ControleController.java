@@ -1,12 +1,28 @@
 package br.com.brncalmeida.clubepao.controller;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.joda.time.LocalDate;
 
 import br.com.brncalmeida.clubepao.dao.MembroDao;
+import br.com.brncalmeida.clubepao.dao.ProgramacaoDao;
+import br.com.brncalmeida.clubepao.dao.VersaoMembros;
+import br.com.brncalmeida.clubepao.dao.VersaoProgramacoes;
+import br.com.brncalmeida.clubepao.interceptor.CacheHttp;
 import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.model.ProgramacaoSalva;
 import br.com.brncalmeida.clubepao.model.Schedule;
+import br.com.brncalmeida.clubepao.services.CacheCronogramas;
+import br.com.brncalmeida.clubepao.services.ExecutorClubes;
+import br.com.brncalmeida.clubepao.services.LotesProgramacao;
+import br.com.brncalmeida.clubepao.services.ModoAlocacao;
+import br.com.brncalmeida.clubepao.services.PaginaCalendario;
+import br.com.brncalmeida.clubepao.services.ProgramacaoIncremental;
+import br.com.brncalmeida.clubepao.services.SituacaoLote;
 import br.com.brncalmeida.clubepao.utils.Util;
 import br.com.caelum.vraptor.Get;
 import br.com.caelum.vraptor.Path;
@@ -16,6 +32,7 @@ import br.com.caelum.vraptor.Result;
 import br.com.caelum.vraptor.Validator;
 import br.com.caelum.vraptor.core.Localization;
 import br.com.caelum.vraptor.validator.ValidationMessage;
+import br.com.caelum.vraptor.view.Results;
 
 /**
  * Controller com finalidade de apresentar e controlar a programao de cada um dos membros para a compra dos pes
@@ -28,10 +45,19 @@ public class ControleController {
 	
 	// TODO melhorar frase "Para o dia Sex/Ter no h membros cadastrados."
 	
+	private static final int QTD_DIAS_PERIODO = 30;
+
 	private final Result result;
 	private Validator validator;
 	private MembroDao dao;
 	private Localization localization;
+	private CacheCronogramas cache;
+	private VersaoMembros versao;
+	private ProgramacaoIncremental programacao;
+	private ExecutorClubes executor;
+	private LotesProgramacao lotes;
+	private ProgramacaoDao programacoesSalvas;
+	private VersaoProgramacoes versaoProgramacoes;
 
 	/**
 	 * Construtor default
@@ -44,62 +70,328 @@ public class ControleController {
 	 *            localizacao formatada pelo vraptor
 	 * @param validator
 	 *            validador controlado pelo vraptor
+	 * @param cache
+	 *            cache das programaes j geradas
+	 * @param versao
+	 *            verso atual da base de membros
+	 * @param programacao
+	 *            gerao incremental das programaes
+	 * @param executor
+	 *            executor das geraes, compartilhado de forma justa entre os clubes
+	 * @param lotes
+	 *            gerao assncrona de programaes em lote
+	 * @param programacoesSalvas
+	 *            instancia do dao das programaes salvas
+	 * @param versaoProgramacoes
+	 *            verso das programaes salvas
 	 */
-	public ControleController(Result result, MembroDao dao, Localization localization, Validator validator) {
+	public ControleController(Result result, MembroDao dao, Localization localization, Validator validator, CacheCronogramas cache, VersaoMembros versao,
+			ProgramacaoIncremental programacao, ExecutorClubes executor, LotesProgramacao lotes, ProgramacaoDao programacoesSalvas,
+			VersaoProgramacoes versaoProgramacoes) {
 		this.result = result;
 		this.dao = dao;
 		this.localization = localization;
 		this.validator = validator;
+		this.cache = cache;
+		this.versao = versao;
+		this.programacao = programacao;
+		this.executor = executor;
+		this.lotes = lotes;
+		this.programacoesSalvas = programacoesSalvas;
+		this.versaoProgramacoes = versaoProgramacoes;
 	}
 
 	/**
 	 * pagina incial para a guia de controle, este metodo tambm  utilizado ao final de todas as operaoes deste controller.
 	 */
 	@Get
+	@CacheHttp
 	@Path("/controle")
 	public void index() {
 		result.include("pagina_ativa", "controle");
+		result.include("clubes", dao.listarClubes());
+		result.include("modos", ModoAlocacao.values());
 	}
 
 	/**
-	 * Metodo que gera efetivamente a programao dos membros. Busca os membros do dao e intercala nos dias teis do range escolhido
+	 * Metodo que gera efetivamente a programao dos membros. Busca os membros do dao e intercala nos dias teis do range escolhido. Enquanto a base de membros no
+	 * for alterada, a mesma data inicial  atendida pelo cache de programaes; aps uma alterao, somente os dias afetados so recalculados. Cada clube tem a
+	 * sua programao, gerada somente com os membros do clube. A carga de cada membro parte dos dias programados nas programaes salvas antes do perodo, e
+	 * cada programao gerada  salva, substituindo a programao anterior do mesmo perodo. O modo de alocao escolhido  devolvido junto com a indicao de
+	 * alocao completa (o modo {@link ModoAlocacao#FLUXO} pode esgotar o tempo mximo e completar parte dos dias por aproximao).
+	 * 
+	 * Os dias de todo o perodo so renderizados pela pgina, junto com a data inicial do perodo seguinte; o resumo de sobrecarga e a sugesto so calculados
+	 * pela programao somente quando exibidos.
 	 * 
 	 * @param data
 	 *            data inicial da programao
+	 * @param clube
+	 *            clube da programao (vazio = {@link Membro#CLUBE_PADRAO})
+	 * @param modo
+	 *            modo de alocao (vazio = {@link ModoAlocacao#INCREMENTAL})
 	 */
-	@SuppressWarnings("deprecation")
 	@Post
 	@Path("/controle/gerar")
-	public void gerar(final String data) {
+	public void gerar(String data, String clube, ModoAlocacao modo) {
+		String clubeProgramacao = Membro.normalizarClube(clube);
+		ModoAlocacao modoAlocacao = ModoAlocacao.padrao(modo);
+		LocalDate dataInicial = converterData(data);
+		Schedule cronograma = buscarOuGerar(clubeProgramacao, dataInicial, modoAlocacao);
+
+		// caso tenha erros, retornar
+		validator.onErrorForwardTo(this).index();
+
+		result.include("clube", clubeProgramacao);
+		result.include("programacoesSalvas", programacoesSalvas.listar(clubeProgramacao));
+
+		// exibio das informaes geradas pelo relatrio "Schedule.class", calculadas sob demanda
+		result.include("dataInicial", dataInicial.toString());
+		result.include("cronograma", cronograma);
+		result.include("modo", modoAlocacao);
+		result.include("alocacaoCompleta", cronograma.isAlocacaoCompleta());
+		result.include("calendario", cronograma.getProgramacaoPorMembro());
+		result.include("qtdPaes", cronograma.getQtdMembros());
+		result.include("proximaDataInicial", dataInicial.plusDays(QTD_DIAS_PERIODO).toString());
+
+		// forward incial
+		result.forwardTo(this).index();
+	}
+
+	/**
+	 * lista as programaes salvas do clube
+	 * 
+	 * @param clube
+	 *            clube das programaes (vazio = {@link Membro#CLUBE_PADRAO})
+	 */
+	@Get
+	@Path("/controle/programacoes")
+	public void programacoes(String clube) {
+		String clubeProgramacao = Membro.normalizarClube(clube);
+		result.include("clube", clubeProgramacao);
+		result.include("programacoesSalvas", programacoesSalvas.listar(clubeProgramacao));
+		result.forwardTo(this).index();
+	}
+
+	/**
+	 * exibe uma programao salva, sem recalcular: somente o nome dos membros programados  consultado
+	 * 
+	 * @param id
+	 *            id da programao salva
+	 */
+	@Get
+	@Path("/controle/programacoes/{id}")
+	public void programacaoSalva(long id) {
+		ProgramacaoSalva programacao = programacoesSalvas.getById(id);
+		if (programacao == null) {
+			result.notFound();
+			return;
+		}
+		result.include("clube", programacao.getClube());
+		result.include("programacoesSalvas", programacoesSalvas.listar(programacao.getClube()));
+		result.include("calendario", programacao.getProgramacaoPorMembro(programacoesSalvas.buscarNomes(programacao)));
+		result.include("qtdPaes", programacao.getQtdMembros());
+		result.forwardTo(this).index();
+	}
+
+	/**
+	 * Agenda a gerao das programaes de vrias datas iniciais, devolvendo (json) o identificador do lote. As datas podem ser informadas uma a uma ou por um
+	 * range: neste caso, o range  dividido em perodos consecutivos de {@value #QTD_DIAS_PERIODO} dias. A gerao roda em segundo plano, em ordem cronolgica
+	 * (o primeiro perodo parte das programaes salvas antes dele e cada perodo seguinte, da carga dos membros no perodo anterior), e cada perodo gerado 
+	 * salvo. O andamento  consultado em
+	 * {@link #situacaoLote(String, int)}.
+	 * 
+	 * @param datas
+	 *            datas iniciais das programaes
+	 * @param dataInicial
+	 *            incio do range (utilizado quando as datas no so informadas)
+	 * @param dataFinal
+	 *            fim do range
+	 * @param clube
+	 *            clube da programao (vazio = {@link Membro#CLUBE_PADRAO})
+	 */
+	@Post
+	@Path("/controle/lote")
+	public void gerarLote(List<String> datas, String dataInicial, String dataFinal, String clube) {
+		String clubeProgramacao = Membro.normalizarClube(clube);
+		List<LocalDate> datasIniciais = datas == null || datas.isEmpty() ? dividirRange(dataInicial, dataFinal) : converterDatas(datas);
+		List<Membro> membros = dao.listarParaProgramacao(clubeProgramacao);
 
-		// validao se existe membros
-		List<Membro> membros = dao.listarTodos();
 		if (membros.size() == 0) {
 			validator.add(new ValidationMessage(Util.getMessage(localization, "nao.existe.membros"), "erro"));
 		}
+		if (datasIniciais == null || datasIniciais.isEmpty()) {
+			validator.add(new ValidationMessage(Util.getMessage(localization, "data.invalida"), "erro"));
+		} else if (datasIniciais.size() > LotesProgramacao.QTD_MAXIMA_DATAS) {
+			validator.add(new ValidationMessage(Util.getMessage(localization, "lote.muitas.datas", String.valueOf(LotesProgramacao.QTD_MAXIMA_DATAS)), "erro"));
+		}
+		validator.onErrorSendBadRequest();
 
-		// validao da data informada
-		final String pattern = "yyyy-MM-dd";
-		LocalDate dataInicial = null;
+		programacoesSalvas.carregarDiasProgramados(clubeProgramacao, Collections.min(datasIniciais), membros);
+		String id;
 		try {
-			dataInicial = Util.stringToDate(data, pattern);
-		} catch (Exception e) {
+			id = lotes.iniciar(clubeProgramacao, datasIniciais, QTD_DIAS_PERIODO, versao.getVersao(clubeProgramacao), membros);
+		} catch (RejectedExecutionException e) {
+			validator.add(new ValidationMessage(Util.getMessage(localization, "fila.programacoes.cheia"), "erro"));
+			validator.onErrorSendBadRequest();
+			return;
+		}
+		result.use(Results.json()).from(lotes.situacao(id, 0), "lote").serialize();
+	}
+
+	/**
+	 * Andamento (json) do lote: qtd de datas concludas e as programaes j geradas a partir da posio informada, na ordem das datas. O cliente consulta
+	 * novamente a partir da posio "proximo" at o lote ser concludo.
+	 * 
+	 * @param id
+	 *            identificador do lote
+	 * @param inicio
+	 *            posio da primeira programao a ser devolvida
+	 */
+	@Get
+	@Path("/controle/lote/{id}")
+	public void situacaoLote(String id, int inicio) {
+		SituacaoLote situacao = lotes.situacao(id, inicio);
+		if (situacao == null) {
+			result.notFound();
+			return;
+		}
+		result.use(Results.json()).from(situacao, "lote").include("programacoes", "programacoes.dias").serialize();
+	}
+
+	/**
+	 * Trecho (json) da programao iniciada na data informada: os dias teis a partir do incio informado, por uma qtd de dias corridos. Somente leitura: a
+	 * programao vem do cache ou, na falta dele, da programao salva do perodo; programaes ainda no geradas ({@link #gerar(String, String, ModoAlocacao)})
+	 * no so encontradas. A pgina indica a data inicial e o incio da prxima pgina, que ao final do perodo passa para a programao do perodo seguinte.
+	 * 
+	 * @param data
+	 *            data inicial da programao
+	 * @param clube
+	 *            clube da programao (vazio = {@link Membro#CLUBE_PADRAO})
+	 * @param modo
+	 *            modo de alocao da programao em cache (vazio = {@link ModoAlocacao#INCREMENTAL})
+	 * @param inicio
+	 *            primeiro dia da pgina, dentro do perodo (vazio = data inicial)
+	 * @param dias
+	 *            qtd de dias corridos da pgina, at {@value #QTD_DIAS_PERIODO} (0 = perodo inteiro)
+	 */
+	@Get
+	@CacheHttp
+	@Path("/controle/calendario")
+	public void calendario(String data, String clube, ModoAlocacao modo, String inicio, int dias) {
+		String clubeProgramacao = Membro.normalizarClube(clube);
+		LocalDate dataInicial = converterData(data);
+		LocalDate inicioPagina = inicio == null || inicio.trim().length() == 0 ? dataInicial : converterData(inicio);
+		int qtdDias = dias <= 0 ? QTD_DIAS_PERIODO : Math.min(dias, QTD_DIAS_PERIODO);
+
+		if (dataInicial == null || inicioPagina == null || inicioPagina.isBefore(dataInicial) || !inicioPagina.isBefore(dataInicial.plusDays(QTD_DIAS_PERIODO))) {
 			validator.add(new ValidationMessage(Util.getMessage(localization, "data.invalida"), "erro"));
 		}
+		validator.onErrorSendBadRequest();
 
-		// caso tenha erros, retornar
-		validator.onErrorForwardTo(this).index();
+		PaginaCalendario pagina;
+		Schedule cronograma = cache.buscar(clubeProgramacao, dataInicial, QTD_DIAS_PERIODO, ModoAlocacao.padrao(modo), versao.getVersao(clubeProgramacao),
+				versaoProgramacoes.getVersao(clubeProgramacao));
+		if (cronograma != null) {
+			pagina = new PaginaCalendario(dataInicial, QTD_DIAS_PERIODO, cronograma.getProgramacaoPorMembro(), cronograma.getQtdMembros(), inicioPagina, qtdDias);
+		} else {
+			ProgramacaoSalva salva = programacoesSalvas.buscar(clubeProgramacao, dataInicial, QTD_DIAS_PERIODO);
+			if (salva == null) {
+				result.notFound();
+				return;
+			}
+			pagina = new PaginaCalendario(dataInicial, QTD_DIAS_PERIODO, salva.getProgramacaoPorMembro(programacoesSalvas.buscarNomes(salva)),
+					salva.getQtdMembros(), inicioPagina, qtdDias);
+		}
+		result.use(Results.json()).from(pagina, "pagina").include("dias").serialize();
+	}
 
-		// regra de negcio, data final = data inicial + 30 dias
-		Schedule cronograma = new Schedule(dataInicial, dataInicial.plusDays(30), membros);
+	// ~-~-~-~-~-~-~-~-~-~-~-~-~ Mtodos privados ~-~-~-~-~-~-~-~-~-~-~-~-~
 
-		// exibio das informaes geradas pelo relatrio "Schedule.class".
-		result.include("calendario", cronograma.getProgramacaoPorMembro());
-		result.include("sobrecargas", cronograma.getProgramacaoSobrecarga());
-		result.include("sugestoes", cronograma.getSugestao());
-		result.include("qtdPaes", membros.size());
+	/**
+	 * programao do clube iniciada na data informada, no modo de alocao informado. Enquanto a base de membros e as programaes salvas antes do perodo no forem alteradas, a programao
+	 *  atendida pelo cache; caso contrrio  gerada no executor (somente os dias afetados so recalculados) a partir da carga das programaes salvas antes do
+	 * perodo, salva e adicionada ao cache.
+	 * 
+	 * @return programao ou null caso existam erros de validao (adicionados ao validator)
+	 */
+	private Schedule buscarOuGerar(final String clube, final LocalDate dataInicial, final ModoAlocacao modo) {
+		// programao j gerada para a verso atual dos membros e das programaes salvas
+		long versaoMembros = versao.getVersao(clube);
+		long versaoSalvas = versaoProgramacoes.getVersao(clube);
+		if (dataInicial != null) {
+			Schedule cronograma = cache.buscar(clube, dataInicial, QTD_DIAS_PERIODO, modo, versaoMembros, versaoSalvas);
+			if (cronograma != null)
+				return cronograma;
+		}
 
-		// forward incial
-		result.forwardTo(this).index();
+		// validao se existe membros
+		final List<Membro> membros = dao.listarParaProgramacao(clube);
+		if (membros.size() == 0) {
+			validator.add(new ValidationMessage(Util.getMessage(localization, "nao.existe.membros"), "erro"));
+		}
+		if (dataInicial == null) {
+			validator.add(new ValidationMessage(Util.getMessage(localization, "data.invalida"), "erro"));
+		}
+		if (validator.hasErrors())
+			return null;
+		programacoesSalvas.carregarDiasProgramados(clube, dataInicial, membros);
+
+		// regra de negcio, data final = data inicial + 30 dias. Os membros j esto carregados, somente a alocao roda no executor
+		Schedule cronograma = executor.executar(clube, new Callable<Schedule>() {
+			@Override
+			public Schedule call() {
+				return programacao.gerar(clube, dataInicial, dataInicial.plusDays(QTD_DIAS_PERIODO), membros, modo);
+			}
+		});
+		programacoesSalvas.salvar(clube, dataInicial, QTD_DIAS_PERIODO, cronograma);
+		cache.adicionar(clube, dataInicial, QTD_DIAS_PERIODO, modo, versaoMembros, versaoSalvas, cronograma);
+		return cronograma;
+	}
+
+
+	/**
+	 * converte a data informada no formato yyyy-MM-dd
+	 * 
+	 * @return data ou null caso invlida
+	 */
+	private static LocalDate converterData(String data) {
+		try {
+			return Util.stringToDate(data, "yyyy-MM-dd");
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * converte as datas informadas
+	 * 
+	 * @return datas ou null caso alguma seja invlida
+	 */
+	private static List<LocalDate> converterDatas(List<String> datas) {
+		List<LocalDate> convertidas = new ArrayList<LocalDate>(datas.size());
+		for (String data : datas) {
+			LocalDate convertida = converterData(data);
+			if (convertida == null)
+				return null;
+			convertidas.add(convertida);
+		}
+		return convertidas;
+	}
+
+	/**
+	 * divide o range em perodos consecutivos de {@value #QTD_DIAS_PERIODO} dias, sem lacunas entre eles, devolvendo a data inicial de cada perodo
+	 * 
+	 * @return datas iniciais ou null caso o range seja invlido
+	 */
+	private static List<LocalDate> dividirRange(String dataInicial, String dataFinal) {
+		LocalDate inicio = converterData(dataInicial);
+		LocalDate fim = converterData(dataFinal);
+		if (inicio == null || fim == null || fim.isBefore(inicio))
+			return null;
+		List<LocalDate> datas = new ArrayList<LocalDate>();
+		for (LocalDate data = inicio; !data.isAfter(fim) && datas.size() <= LotesProgramacao.QTD_MAXIMA_DATAS; data = data.plusDays(QTD_DIAS_PERIODO)) {
+			datas.add(data);
+		}
+		return datas;
 	}
 }
\ No newline at end of file
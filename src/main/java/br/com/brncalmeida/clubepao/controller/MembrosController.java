@@ -1,18 +1,22 @@
 package br.com.brncalmeida.clubepao.controller;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map.Entry;
 
 import br.com.brncalmeida.clubepao.dao.MembroDao;
+import br.com.brncalmeida.clubepao.interceptor.CacheHttp;
 import br.com.brncalmeida.clubepao.model.Disponibilidade;
 import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.services.CachePlanilhas;
 import br.com.brncalmeida.clubepao.services.ExcelFileService;
 import br.com.brncalmeida.clubepao.services.ExcelFileService.ReportExcelService;
+import br.com.brncalmeida.clubepao.services.IndiceMembros;
+import br.com.brncalmeida.clubepao.services.PaginaMembros;
 import br.com.brncalmeida.clubepao.utils.Util;
 import br.com.caelum.vraptor.Consumes;
 import br.com.caelum.vraptor.Get;
@@ -42,11 +46,19 @@ public class MembrosController {
 	private static final String PATH_PLANILHA_EXEMPLO = "planilha_exemplo_upload_membros.xlsx";
 	private static final String PATH_PLANILHA_COMPLETA = "planilha_completa.xlsx";
 	private static final String MIME_XLSX = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+	/**
+	 * qtd de membros por pgina da listagem
+	 */
+	static final int QTD_MEMBROS_PAGINA = 50;
+
 	private final Result result;
 	private final MembroDao dao;
 	private Validator validator;
 	private Localization localization;
 	private ExcelFileService planilha;
+	private IndiceMembros indice;
+	private CachePlanilhas planilhas;
 
 	/**
 	 * Controller default
@@ -61,13 +73,20 @@ public class MembrosController {
 	 *            validador controlado pelo vraptor
 	 * @param planilha
 	 *            servio para leitura e manipulao de planilhas
+	 * @param indice
+	 *            ndice em memria dos membros, utilizado na listagem
+	 * @param planilhas
+	 *            cache da planilha com todos os membros, por clube
 	 */
-	public MembrosController(Result result, MembroDao dao, Validator validator, Localization localization, ExcelFileService planilha) {
+	public MembrosController(Result result, MembroDao dao, Validator validator, Localization localization, ExcelFileService planilha, IndiceMembros indice,
+			CachePlanilhas planilhas) {
 		this.result = result;
 		this.dao = dao;
 		this.validator = validator;
 		this.localization = localization;
 		this.planilha = planilha;
+		this.indice = indice;
+		this.planilhas = planilhas;
 	}
 
 	/**
@@ -91,7 +110,8 @@ public class MembrosController {
 		// retornando informaes
 		String mensagem = Util.getMessage(localization, "membro.adicionado.sucesso", membro.getNome());
 		result.include("notice", mensagem);
-		result.forwardTo(this).index();
+		// listagem do clube em uma nova requisio, aps o commit da escrita (a verso dos membros s muda no commit)
+		result.redirectTo(this).clube(membro.getClube());
 	}
 
 	@Path("/membro/update")
@@ -118,7 +138,7 @@ public class MembrosController {
 			String mensagem = Util.getMessage(localization, "membro.alterado.sucesso", membro.getNome());
 			result.include("notice", mensagem);
 		}
-		result.forwardTo(this).index();
+		result.redirectTo(this).index();
 	}
 
 	@Path("/membros2/update")
@@ -154,7 +174,7 @@ public class MembrosController {
 		String mensagem = Util.getMessage(localization, "membro.removido.sucesso", membro.getNome());
 		result.include("notice", mensagem);
 		result.include("down", true);
-		result.forwardTo(this).index();
+		result.redirectTo(this).clube(membro.getClube());
 	}
 
 	/**
@@ -169,18 +189,29 @@ public class MembrosController {
 		return new FileDownload(relatorio, MIME_XLSX, PATH_PLANILHA_EXEMPLO, true);
 	}
 
+	/**
+	 * Metodo responsvel por fazer o download da planilha com todos os membros do clube. A planilha  gerada uma vez por verso do clube
+	 * ({@link CachePlanilhas}) e reenviada enquanto os membros do clube no forem alterados.
+	 * 
+	 * @param clube
+	 *            identificador do clube (vazio = {@link Membro#CLUBE_PADRAO})
+	 * @return planilha com os membros do clube
+	 * @throws IOException
+	 *             caso no seja possvel gerar a planilha
+	 */
 	@Get
+	@CacheHttp
 	@Path("/membros/extract/all")
-	public Download extrairPlanilha() {
-		ByteArrayOutputStream relatorio = null;
-		if (dao.listarTodos().size() == 0) {
+	public Download extrairPlanilha(String clube) throws IOException {
+		String clubeReal = Membro.normalizarClube(clube);
+		if (dao.contarTodos(clubeReal) == 0) {
 			validator.add(new ValidationMessage(Util.getMessage(localization, "nao.existe.membros"), "erro"));
-		} else {
-			relatorio = planilha.getPlanilhaAtual();
 		}
 
-		validator.onErrorForwardTo(this).index();
-		return new InputStreamDownload(new ByteArrayInputStream(relatorio.toByteArray()), MIME_XLSX, PATH_PLANILHA_COMPLETA, true, relatorio.toByteArray().length);
+		validator.onErrorForwardTo(this).clube(clubeReal);
+		// arquivo aberto antes que uma nova verso da planilha remova o arquivo atual
+		FileInputStream arquivo = planilhas.abrirPlanilhaAtual(planilha, clubeReal);
+		return new InputStreamDownload(arquivo, MIME_XLSX, PATH_PLANILHA_COMPLETA, true, arquivo.getChannel().size());
 	}
 
 	/**
@@ -189,20 +220,23 @@ public class MembrosController {
 	 * @param file
 	 *            planilha do tipo excel (xlsx ou xls)
 	 * @param sobrescrever
-	 *            parametro que determina se os membros atuais da base devem ser excluidos antes de adicionar os novos ou no.
+	 *            parametro que determina se os membros atuais do clube devem ser excluidos antes de adicionar os novos ou no.
+	 * @param clube
+	 *            clube dos membros da planilha (vazio = {@link Membro#CLUBE_PADRAO})
 	 */
 	@Post
 	@Path("/membros/add/all")
-	public void addAll(final UploadedFile file, boolean sobrescrever) {
+	public void addAll(final UploadedFile file, boolean sobrescrever, String clube) {
+		String clubeReal = Membro.normalizarClube(clube);
 
 		// validao
 		ReportExcelService report = null;
 		try {
-			report = planilha.parse(file.getFile(), sobrescrever);
+			report = planilha.parse(file.getFile(), sobrescrever, clubeReal);
 		} catch (Exception e) {
 			validator.add(new ValidationMessage(Util.getMessage(localization, "planilha.invalida"), "erro"));
 		}
-		validator.onErrorForwardTo(this).index();
+		validator.onErrorForwardTo(this).clube(clubeReal);
 
 		// incluindo no response os erros dentro do parse (e no exception e/ou java.lang.erro)
 		addErrors(result, report.getErros());
@@ -210,7 +244,7 @@ public class MembrosController {
 		// retornando informaes
 		String mensagem = Util.getMessage(localization, "membros.adicionados.sucesso", String.valueOf(report.getQtdMembrosIncluidos()));
 		result.include("notice", mensagem);
-		result.forwardTo(this).index();
+		result.redirectTo(this).clube(clubeReal);
 	}
 
 	/**
@@ -247,14 +281,72 @@ public class MembrosController {
 	}
 
 	/**
-	 * pagina incial para a guia de membros, este metodo tambm  utilizado ao final de todas as operaoes deste controller.
+	 * pagina incial para a guia de membros, este metodo tambm  utilizado ao final de todas as operaoes deste controller. Exibe somente a primeira pgina de
+	 * membros ({@value #QTD_MEMBROS_PAGINA} membros) do {@link Membro#CLUBE_PADRAO}.
 	 */
 	@Path("/")
 	@Get
+	@CacheHttp
 	public void index() {
+		listar(Membro.CLUBE_PADRAO, null, null, 0);
+	}
 
+	/**
+	 * primeira pgina de membros do clube, utilizada ao final das operaes em um clube
+	 * 
+	 * @param clube
+	 *            identificador do clube
+	 */
+	@Path("/membros/clube/{clube}")
+	@Get
+	@CacheHttp
+	public void clube(String clube) {
+		listar(Membro.normalizarClube(clube), null, null, 0);
+		result.of(this).index();
+	}
+
+	/**
+	 * listagem paginada dos membros do clube, filtrada pelo prefixo do nome ou e-mail e pela disponibilidade. A busca  feita no ndice em memria
+	 * ({@link IndiceMembros}), sem consultar a base enquanto os membros do clube no forem alterados.
+	 * 
+	 * @param clube
+	 *            identificador do clube (vazio = {@link Membro#CLUBE_PADRAO})
+	 * @param texto
+	 *            prefixo do nome, de uma palavra do nome ou do e-mail (vazio = todos os membros)
+	 * @param disponibilidade
+	 *            id da disponibilidade (vazio = todas)
+	 * @param pagina
+	 *            pgina da listagem (iniciando em 0)
+	 */
+	@Path("/membros/buscar")
+	@Get
+	@CacheHttp
+	public void buscar(String clube, String texto, Integer disponibilidade, int pagina) {
+		String clubeReal = Membro.normalizarClube(clube);
+		Disponibilidade disponibilidadeReal = null;
+		if (disponibilidade != null) {
+			try {
+				disponibilidadeReal = Disponibilidade.getDisponibilidadeById(disponibilidade);
+			} catch (IllegalArgumentException e) {
+				validator.add(new ValidationMessage(Util.getMessage(localization, "disponibilidade.invalida"), "erro"));
+			}
+		}
+		validator.onErrorForwardTo(this).clube(clubeReal);
+
+		listar(clubeReal, texto, disponibilidadeReal, Math.max(0, pagina));
+		result.of(this).index();
+	}
+
+	/**
+	 * inclui no response a pgina de membros do clube, os clubes e as disponibilidades, utilizadas pela pagina de membros
+	 */
+	private void listar(String clube, String texto, Disponibilidade disponibilidade, int pagina) {
 		// listando membros
-		result.include("membros", dao.listarTodos());
+		PaginaMembros membros = indice.buscar(dao, clube, texto, disponibilidade, pagina * QTD_MEMBROS_PAGINA, QTD_MEMBROS_PAGINA);
+		result.include("membros", membros.getMembros());
+		result.include("paginaMembros", membros);
+		result.include("clube", clube);
+		result.include("clubes", dao.listarClubes());
 		result.include("pagina_ativa", "membro");
 
 		// adicionando disponibilidades
@@ -294,12 +386,12 @@ public class MembrosController {
 					that(dao.getById(membro.getId()) != null, "erro", "membro.invalido");
 				that(Util.naoNuloComQtdMinimaCaracteres(membro.getNome(), 2), "erro", "nome.invalido");
 				that(Util.naoNuloComQtdMinimaCaracteres(membro.getEmail(), 4), "erro", "email.invalido");
-				that(membro.getDisponibilidades().size() > 0, "erro", "selecione.ao.menos.uma.disponibilidade");
+				that(membro.getQtdDisponibilidades() > 0, "erro", "selecione.ao.menos.uma.disponibilidade");
 			}
 		});
 
 		// caso tenha erro, forward..
-		validator.onErrorForwardTo(this).index();
+		validator.onErrorForwardTo(this).clube(membro.getClube());
 	}
 
 }
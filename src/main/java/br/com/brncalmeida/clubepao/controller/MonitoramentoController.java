@@ -0,0 +1,107 @@
+package br.com.brncalmeida.clubepao.controller;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import br.com.brncalmeida.clubepao.services.CacheCronogramas;
+import br.com.brncalmeida.clubepao.services.EstatisticaCache;
+import br.com.brncalmeida.clubepao.services.EstatisticaPool;
+import br.com.brncalmeida.clubepao.utils.Metricas;
+import br.com.caelum.vraptor.Get;
+import br.com.caelum.vraptor.Path;
+import br.com.caelum.vraptor.Resource;
+import br.com.caelum.vraptor.Result;
+import br.com.caelum.vraptor.view.Results;
+
+/**
+ * Controller responsvel por expor informaes de monitoramento da aplicao
+ * 
+ * @author bruno.almeida
+ * 
+ */
+@Resource
+public class MonitoramentoController {
+
+	private final Result result;
+	private final SessionFactory sessionFactory;
+	private final CacheCronogramas cronogramas;
+
+	/**
+	 * Controller default
+	 * 
+	 * @param result
+	 *            response controlado pelo vraptor
+	 * @param sessionFactory
+	 *            session factory do hibernate (estatsticas)
+	 * @param cronogramas
+	 *            cache das programaes geradas
+	 */
+	public MonitoramentoController(Result result, SessionFactory sessionFactory, CacheCronogramas cronogramas) {
+		this.result = result;
+		this.sessionFactory = sessionFactory;
+		this.cronogramas = cronogramas;
+	}
+
+	/**
+	 * estatsticas (json) das regies de cache do hibernate e do cache de programaes
+	 */
+	@Get
+	@Path("/monitoramento/cache")
+	public void cache() {
+		List<EstatisticaCache> regioes = EstatisticaCache.listar(sessionFactory.getStatistics());
+		regioes.add(new EstatisticaCache("programacoes", cronogramas.getAcertos(), cronogramas.getFalhas(), cronogramas.getGravacoes(), cronogramas.getTamanho()));
+		result.use(Results.json()).from(regioes, "regioes").serialize();
+	}
+
+	/**
+	 * estatsticas (json) do pool de conexes
+	 * 
+	 * @throws SQLException
+	 *             caso no seja possvel consultar o pool
+	 */
+	@Get
+	@Path("/monitoramento/conexoes")
+	public void conexoes() throws SQLException {
+		result.use(Results.json()).from(EstatisticaPool.listar(), "pools").serialize();
+	}
+
+	/**
+	 * mtricas da aplicao (requisies, programao, importao e exportao), do cache de programaes e do hibernate (consultas executadas), no formato
+	 * texto do Prometheus
+	 */
+	@Get
+	@Path("/metrics")
+	public void metricas() {
+		StringBuilder saida = new StringBuilder();
+		Metricas.getInstance().escrever(saida);
+		extrairMetricasPersistencia().escrever(saida);
+		result.use(Results.http()).addHeader("Content-Type", "text/plain; version=0.0.4; charset=UTF-8").body(saida.toString());
+	}
+
+	/**
+	 * mtricas lidas no momento da consulta: estatsticas do hibernate e do cache de programaes
+	 * 
+	 * @return mtricas de persistncia
+	 */
+	Metricas extrairMetricasPersistencia() {
+		Metricas metricas = new Metricas();
+		Statistics estatisticas = sessionFactory.getStatistics();
+		metricas.contador("clubepao_hibernate_statements_total", "Statements preparados pelo hibernate").set(estatisticas.getPrepareStatementCount());
+		metricas.contador("clubepao_hibernate_entidades_carregadas_total", "Entidades carregadas pelo hibernate").set(estatisticas.getEntityLoadCount());
+		metricas.contador("clubepao_hibernate_transacoes_total", "Transaes concludas").set(estatisticas.getTransactionCount());
+		metricas.contador("clubepao_hibernate_cache_consultas_total", "Consultas ao cache de consultas do hibernate", "resultado", "acerto").set(
+				estatisticas.getQueryCacheHitCount());
+		metricas.contador("clubepao_hibernate_cache_consultas_total", "Consultas ao cache de consultas do hibernate", "resultado", "falha").set(
+				estatisticas.getQueryCacheMissCount());
+		for (String consulta : estatisticas.getQueries()) {
+			metricas.contador("clubepao_hibernate_consultas_total", "Execues de cada consulta (hql) no banco", "consulta", consulta).set(
+					estatisticas.getQueryStatistics(consulta).getExecutionCount());
+		}
+		metricas.contador("clubepao_cache_programacoes_total", "Consultas ao cache de programaes", "resultado", "acerto").set(cronogramas.getAcertos());
+		metricas.contador("clubepao_cache_programacoes_total", "Consultas ao cache de programaes", "resultado", "falha").set(cronogramas.getFalhas());
+		return metricas;
+	}
+}
@@ -0,0 +1,74 @@
+package br.com.brncalmeida.clubepao.dao;
+
+import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.model.MembroResumo;
+
+/**
+ * Alterao individual em um membro do clube, registrada na {@link VersaoMembros} junto com a nova verso do clube: permite que informaes derivadas dos
+ * membros (ex.: ndice da listagem) sejam atualizadas somente com o membro alterado, sem consultar novamente todos os membros do clube.
+ *
+ * @author Bruno Almeida
+ */
+public class AlteracaoMembro {
+
+	private final String clube;
+	private final Long id;
+	private final MembroResumo membro;
+
+	private AlteracaoMembro(String clube, Long id, MembroResumo membro) {
+		this.clube = clube;
+		this.id = id;
+		this.membro = membro;
+	}
+
+	/**
+	 * membro includo ou alterado no seu clube
+	 *
+	 * @param membro
+	 *            membro gravado
+	 * @return alterao
+	 */
+	public static AlteracaoMembro gravado(Membro membro) {
+		return new AlteracaoMembro(membro.getClube(), membro.getId(), new MembroResumo(membro.getId(), membro.getNome(), membro.getEmail(),
+				membro.getMascaraDisponibilidades()));
+	}
+
+	/**
+	 * membro removido do clube
+	 *
+	 * @param clube
+	 *            clube do qual o membro foi removido
+	 * @param id
+	 *            id do membro
+	 * @return alterao
+	 */
+	public static AlteracaoMembro removido(String clube, Long id) {
+		return new AlteracaoMembro(clube, id, null);
+	}
+
+	public String getClube() {
+		return clube;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	/**
+	 * resumo do membro aps a alterao
+	 *
+	 * @return resumo ou null caso o membro tenha sido removido do clube
+	 */
+	public MembroResumo getMembro() {
+		return membro;
+	}
+
+	/**
+	 * indica se o membro foi removido do clube
+	 *
+	 * @return true = "membro removido"
+	 */
+	public boolean isRemocao() {
+		return membro == null;
+	}
+}
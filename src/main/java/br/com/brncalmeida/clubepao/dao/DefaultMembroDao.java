@@ -1,13 +1,24 @@
 package br.com.brncalmeida.clubepao.dao;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-import org.hibernate.Query;
+import org.hibernate.FlushMode;
 import org.hibernate.Session;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.hibernate.persister.entity.AbstractEntityPersister;
 
 import br.com.brncalmeida.clubepao.model.Disponibilidade;
 import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.model.MembroResumo;
+import br.com.brncalmeida.clubepao.utils.Metricas;
 import br.com.caelum.vraptor.ioc.Component;
 
 /**
@@ -18,30 +29,94 @@ import br.com.caelum.vraptor.ioc.Component;
 @Component
 public class DefaultMembroDao implements MembroDao {
 
+	/**
+	 * qtd de membros por lote na incluso em lote, deve acompanhar o hibernate.jdbc.batch_size (propriedade de sistema "membros.lote")
+	 */
+	private static final int TAMANHO_LOTE = Integer.getInteger("membros.lote", 50);
+
+	/**
+	 * colees (@ElementCollection) de membro, removidas antes dos membros em {@link #removerTodos(String)}
+	 */
+	private static final String[] COLECOES = { "disponibilidades", "diasProgramados" };
+
 	private final Session session;
+	private final VersaoMembros versao;
 
-	public DefaultMembroDao(Session session) {
+	public DefaultMembroDao(Session session, VersaoMembros versao) {
 		this.session = session;
+		this.versao = versao;
 	}
 
 	public void add(Membro membro) {
 		session.save(membro);
+		registrarAposCommit(Collections.singletonList(AlteracaoMembro.gravado(membro)));
 	}
 
 	public void addAll(List<Membro> membros) {
+		List<AlteracaoMembro> alteracoes = new ArrayList<AlteracaoMembro>(membros.size());
 		for (Membro membro : membros) {
-			add(membro);
+			session.save(membro);
+			alteracoes.add(AlteracaoMembro.gravado(membro));
 		}
+		registrarAposCommit(alteracoes);
+	}
+
+	public int addEmLote(List<Membro> membros) {
+		long inicio = System.nanoTime();
+		int qtd = 0;
+		for (Membro membro : membros) {
+			session.save(membro);
+			if (++qtd % TAMANHO_LOTE == 0) {
+				// envia o lote ao banco e libera da sesso somente os membros do lote (a sesso  a da requisio)
+				session.flush();
+				desanexar(membros.subList(qtd - TAMANHO_LOTE, qtd));
+			}
+		}
+		session.flush();
+		desanexar(membros.subList(qtd - qtd % TAMANHO_LOTE, qtd));
+		incrementarVersoes(membros);
+
+		// vazo das incluses em lote = membros / segundos
+		Metricas metricas = Metricas.getInstance();
+		metricas.histograma("clubepao_membros_lote_segundos", "Durao das incluses de membros em lote").registrarDesde(inicio);
+		metricas.contador("clubepao_membros_lote_total", "Membros includos em lote").addAndGet(qtd);
+		return qtd;
 	}
 
 	public void remove(Membro membro) {
 		session.delete(membro);
+		registrarAposCommit(Collections.singletonList(AlteracaoMembro.removido(membro.getClube(), membro.getId())));
 	}
 
 	public void removeAll(List<Membro> membros) {
+		List<AlteracaoMembro> alteracoes = new ArrayList<AlteracaoMembro>(membros.size());
 		for (Membro membro : membros) {
-			remove(membro);
+			session.delete(membro);
+			alteracoes.add(AlteracaoMembro.removido(membro.getClube(), membro.getId()));
 		}
+		registrarAposCommit(alteracoes);
+	}
+
+	public int removerTodos(String clube) {
+		// inserts/updates pendentes precisam chegar ao banco antes dos deletes
+		session.flush();
+		// delete em HQL no remove as colees (@ElementCollection), elas so apagadas direto nas suas tabelas
+		AbstractEntityPersister membros = (AbstractEntityPersister) session.getSessionFactory().getClassMetadata(Membro.class);
+		String idsDoClube = "select " + membros.getIdentifierColumnNames()[0] + " from " + membros.getTableName() + " where "
+				+ membros.getPropertyColumnNames("clube")[0] + " = :clube";
+		for (String colecao : COLECOES) {
+			AbstractCollectionPersister persister = (AbstractCollectionPersister) session.getSessionFactory().getCollectionMetadata(
+					Membro.class.getName() + "." + colecao);
+			String tabela = persister.getTableName();
+			// a tabela informada restringe a invalidao dos caches s regies de membro
+			session.createSQLQuery("delete from " + tabela + " where " + persister.getKeyColumnNames()[0] + " in (" + idsDoClube + ")")
+					.addSynchronizedQuerySpace(tabela).setParameter("clube", clube).executeUpdate();
+		}
+		int qtd = session.createQuery("delete from Membro m where m.clube = :clube").setParameter("clube", clube).executeUpdate();
+		// somente os membros do clube deixam de existir: as demais entidades da sesso (da requisio) continuam anexadas
+		desanexarClube(clube);
+		incrementarAposCommit(Collections.singleton(clube));
+		return qtd;
 	}
 
 	public void refresh(Membro membro) {
@@ -49,7 +124,15 @@ public class DefaultMembroDao implements MembroDao {
 	}
 
 	public void update(Membro membro) {
+		// o membro pode ter mudado de clube, sendo removido do clube anterior (sem flush: o clube do membro na sesso pode j ter sido alterado)
+		List<AlteracaoMembro> alteracoes = new ArrayList<AlteracaoMembro>(2);
+		String clubeAnterior = (String) session.createQuery("select m.clube from Membro m where m.id = :id").setParameter("id", membro.getId())
+				.setFlushMode(FlushMode.MANUAL).uniqueResult();
+		if (clubeAnterior != null && !clubeAnterior.equals(membro.getClube()))
+			alteracoes.add(AlteracaoMembro.removido(clubeAnterior, membro.getId()));
 		session.update(membro);
+		alteracoes.add(AlteracaoMembro.gravado(membro));
+		registrarAposCommit(alteracoes);
 	}
 
 	public Membro getById(long id) {
@@ -57,15 +140,123 @@ public class DefaultMembroDao implements MembroDao {
 	}
 
 	@SuppressWarnings("unchecked")
-	public List<Membro> procurarDisponibilidade(Disponibilidade disponibilidade) {
-		// TODO utilizar criteria para essa query
-		Query query = session.createQuery("select m from Membro m inner join m.disponibilidades d where d='" + disponibilidade.name() + "'");
-		return query.list();
+	public List<Membro> listarTodos(String clube) {
+		return session.createCriteria(Membro.class).add(Restrictions.eq("clube", clube)).addOrder(Order.asc("id")).setCacheable(true)
+				.setCacheRegion(Membro.REGIAO_CONSULTAS).list();
 	}
 
 	@SuppressWarnings("unchecked")
-	public List<Membro> listarTodos() {
-		return session.createCriteria(Membro.class).list();
+	public List<Membro> listarParaProgramacao(String clube) {
+		List<Membro> membros = session.createQuery("select distinct m from Membro m left join fetch m.disponibilidades where m.clube = :clube order by m.id")
+				.setParameter("clube", clube).list();
+		// a programao altera os dias programados: trabalha sobre cpias desanexadas, sem dirty checking nem flush das entidades. A carga parte das
+		// programaes salvas (ProgramacaoDao#carregarDiasProgramados), por isso a coleo de dias programados do membro no  carregada
+		List<Membro> copias = new ArrayList<Membro>(membros.size());
+		for (Membro membro : membros) {
+			copias.add(membro.copiarDisponibilidades());
+			session.evict(membro);
+		}
+		return copias;
+	}
+
+	@SuppressWarnings("unchecked")
+	public List<String> listarClubes() {
+		return session.createQuery("select distinct m.clube from Membro m order by m.clube").setCacheable(true).setCacheRegion(Membro.REGIAO_CONSULTAS).list();
+	}
+
+	@SuppressWarnings("unchecked")
+	public List<MembroResumo> listarResumo(String clube) {
+		List<Object[]> linhas = session
+				.createQuery("select m.id, m.nome, m.email, d from Membro m left join m.disponibilidades d where m.clube = :clube order by m.id")
+				.setParameter("clube", clube).list();
+		List<MembroResumo> membros = new ArrayList<MembroResumo>();
+		MembroResumo membro = null;
+		for (Object[] linha : linhas) {
+			// uma linha por disponibilidade, agrupadas por membro
+			if (membro == null || !membro.getId().equals(linha[0])) {
+				membro = new MembroResumo((Long) linha[0], (String) linha[1], (String) linha[2], 0);
+				membros.add(membro);
+			}
+			if (linha[3] != null) {
+				membro.addDisponibilidade((Disponibilidade) linha[3]);
+			}
+		}
+		return membros;
+	}
+
+	@SuppressWarnings("unchecked")
+	public List<Membro> listarPaginado(String clube, long ultimoId, int qtd) {
+		List<Membro> membros = session.createCriteria(Membro.class).add(Restrictions.eq("clube", clube)).add(Restrictions.gt("id", ultimoId))
+				.addOrder(Order.asc("id")).setMaxResults(qtd).list();
+		for (Membro membro : membros) {
+			// carrega as disponibilidades (e a mscara) antes de desanexar o membro
+			membro.getMascaraDisponibilidades();
+			session.evict(membro);
+		}
+		return membros;
+	}
+
+	public long contarTodos(String clube) {
+		return ((Number) session.createCriteria(Membro.class).add(Restrictions.eq("clube", clube)).setProjection(Projections.rowCount()).uniqueResult())
+				.longValue();
+	}
+
+	/**
+	 * remove da sesso os membros do clube (e as suas colees) que estavam anexados a ela
+	 */
+	private void desanexarClube(String clube) {
+		List<Membro> anexados = new ArrayList<Membro>();
+		for (Object entidade : ((SessionImplementor) session).getPersistenceContext().getEntitiesByKey().values()) {
+			if (entidade instanceof Membro && clube.equals(((Membro) entidade).getClube()))
+				anexados.add((Membro) entidade);
+		}
+		desanexar(anexados);
+	}
+
+	/**
+	 * remove da sesso os membros informados (e as suas colees), j enviados ao banco
+	 */
+	private void desanexar(List<Membro> membros) {
+		for (Membro membro : membros) {
+			session.evict(membro);
+		}
+	}
+
+	/**
+	 * registra a alterao nos clubes dos membros informados
+	 */
+	private void incrementarVersoes(List<Membro> membros) {
+		Set<String> clubes = new HashSet<String>();
+		for (Membro membro : membros) {
+			clubes.add(membro.getClube());
+		}
+		incrementarAposCommit(clubes);
+	}
+
+	/**
+	 * registra as alteraes dos membros aps o commit da escrita
+	 */
+	private void registrarAposCommit(final List<AlteracaoMembro> alteracoes) {
+		Transacoes.aposCommit(session, new Runnable() {
+			public void run() {
+				for (AlteracaoMembro alteracao : alteracoes) {
+					versao.incrementar(alteracao);
+				}
+			}
+		});
+	}
+
+	/**
+	 * registra a alterao nos clubes informados aps o commit da escrita
+	 */
+	private void incrementarAposCommit(final Set<String> clubes) {
+		Transacoes.aposCommit(session, new Runnable() {
+			public void run() {
+				for (String clube : clubes) {
+					versao.incrementar(clube);
+				}
+			}
+		});
 	}
 
 }
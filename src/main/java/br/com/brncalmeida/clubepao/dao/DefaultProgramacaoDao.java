@@ -0,0 +1,118 @@
+package br.com.brncalmeida.clubepao.dao;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.hibernate.Session;
+import org.hibernate.criterion.Restrictions;
+import org.joda.time.LocalDate;
+
+import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.model.ProgramacaoSalva;
+import br.com.brncalmeida.clubepao.model.Schedule;
+import br.com.caelum.vraptor.ioc.Component;
+
+/**
+ * Implementao Default para o Dao ProgramacaoDao.
+ * 
+ * @author Bruno Almeida
+ */
+@Component
+public class DefaultProgramacaoDao implements ProgramacaoDao {
+
+	private final Session session;
+	private final VersaoProgramacoes versao;
+
+	public DefaultProgramacaoDao(Session session, VersaoProgramacoes versao) {
+		this.session = session;
+		this.versao = versao;
+	}
+
+	public ProgramacaoSalva salvar(String clube, LocalDate dataInicial, int qtdDias, Schedule cronograma) {
+		ProgramacaoSalva programacao = buscar(clube, dataInicial, qtdDias);
+		boolean alterada = true;
+		if (programacao == null) {
+			programacao = new ProgramacaoSalva(clube, dataInicial, qtdDias, cronograma);
+			session.save(programacao);
+		} else {
+			alterada = programacao.atualizar(cronograma);
+		}
+		// os perodos salvos depois deste partem da carga deste perodo
+		if (alterada && possuiPosteriores(clube, dataInicial))
+			incrementarAposCommit(clube);
+		return programacao;
+	}
+
+	public ProgramacaoSalva buscar(String clube, LocalDate dataInicial, int qtdDias) {
+		return (ProgramacaoSalva) session.getNamedQuery(ProgramacaoSalva.POR_PERIODO).setParameter("clube", clube)
+				.setParameter("dataInicial", dataInicial.toDate()).setParameter("qtdDias", qtdDias).uniqueResult();
+	}
+
+	public ProgramacaoSalva getById(long id) {
+		return (ProgramacaoSalva) session.createCriteria(ProgramacaoSalva.class).add(Restrictions.idEq(id)).uniqueResult();
+	}
+
+	@SuppressWarnings("unchecked")
+	public List<ProgramacaoSalva> listar(String clube) {
+		return session.getNamedQuery(ProgramacaoSalva.POR_CLUBE).setParameter("clube", clube).list();
+	}
+
+	@SuppressWarnings("unchecked")
+	public Map<Long, String> buscarNomes(ProgramacaoSalva programacao) {
+		Map<Long, String> nomes = new HashMap<Long, String>();
+		Set<Long> ids = programacao.getIdsMembros();
+		if (ids.isEmpty())
+			return nomes;
+		List<Object[]> linhas = session.createQuery("select m.id, m.nome from Membro m where m.id in (:ids)").setParameterList("ids", ids).list();
+		for (Object[] linha : linhas) {
+			nomes.put((Long) linha[0], (String) linha[1]);
+		}
+		return nomes;
+	}
+
+	@SuppressWarnings("unchecked")
+	public void carregarDiasProgramados(String clube, LocalDate dataInicial, List<Membro> membros) {
+		List<ProgramacaoSalva> anteriores = session.getNamedQuery(ProgramacaoSalva.ANTERIORES).setParameter("clube", clube)
+				.setParameter("data", dataInicial.toDate()).list();
+		if (anteriores.isEmpty())
+			return;
+		// da mais antiga para a mais recente: nos dias sobrepostos prevalece a programao mais recente
+		TreeMap<LocalDate, Long> dias = new TreeMap<LocalDate, Long>();
+		for (ProgramacaoSalva programacao : anteriores) {
+			dias.putAll(programacao.getDias());
+			session.evict(programacao);
+		}
+		Map<Long, Membro> membrosPorId = new HashMap<Long, Membro>();
+		for (Membro membro : membros) {
+			membrosPorId.put(membro.getId(), membro);
+		}
+		for (Entry<LocalDate, Long> dia : dias.headMap(dataInicial).entrySet()) {
+			Membro membro = dia.getValue() == null ? null : membrosPorId.get(dia.getValue());
+			if (membro != null)
+				membro.addDiaProgramado(dia.getKey());
+		}
+	}
+
+	// ~-~-~-~-~-~-~-~-~-~-~-~-~ Mtodos privados ~-~-~-~-~-~-~-~-~-~-~-~-~
+
+	private boolean possuiPosteriores(String clube, LocalDate dataInicial) {
+		Number qtd = (Number) session.getNamedQuery(ProgramacaoSalva.QTD_POSTERIORES).setParameter("clube", clube).setParameter("data", dataInicial.toDate())
+				.uniqueResult();
+		return qtd.longValue() > 0;
+	}
+
+	/**
+	 * registra a alterao das programaes do clube aps o commit da escrita
+	 */
+	private void incrementarAposCommit(final String clube) {
+		Transacoes.aposCommit(session, new Runnable() {
+			public void run() {
+				versao.incrementar(clube);
+			}
+		});
+	}
+}
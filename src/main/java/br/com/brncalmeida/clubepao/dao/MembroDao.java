@@ -2,11 +2,11 @@ package br.com.brncalmeida.clubepao.dao;
 
 import java.util.List;
 
-import br.com.brncalmeida.clubepao.model.Disponibilidade;
 import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.model.MembroResumo;
 
 /**
- * Data Access Object para a entidade Membro.
+ * Data Access Object para a entidade Membro. Toda escrita incrementa a {@link VersaoMembros} dos clubes dos membros aps o commit da transao.
  * 
  * @author Bruno Almeida
  */
@@ -28,6 +28,17 @@ public interface MembroDao {
 	 */
 	void addAll(List<Membro> membros);
 
+	/**
+	 * Adiciona uma lista de membros na base de dados em lote: os inserts so agrupados em batches JDBC (hibernate.jdbc.batch_size) e a sesso  descarregada
+	 * a cada lote (flush e os membros do lote desanexados), mantendo o cache da sesso com tamanho constante. Os membros ficam desanexados da sesso aps a
+	 * incluso.
+	 * 
+	 * @param membros
+	 *            lista de membros
+	 * @return qtd de membros includos
+	 */
+	int addEmLote(List<Membro> membros);
+
 	/**
 	 * remove um membro da base
 	 * 
@@ -44,6 +55,16 @@ public interface MembroDao {
 	 */
 	void removeAll(List<Membro> membros);
 
+	/**
+	 * remove todos os membros do clube com deletes em massa (tabelas das colees e tabela de membros), sem carregar as entidades. Ao final, os membros do clube
+	 * que estavam na sesso so desanexados, pois deixam de existir; as demais entidades da sesso no so afetadas.
+	 * 
+	 * @param clube
+	 *            identificador do clube
+	 * @return qtd de membros removidos
+	 */
+	int removerTodos(String clube);
+
 	/**
 	 * atualizao do membro
 	 * 
@@ -70,19 +91,64 @@ public interface MembroDao {
 	Membro getById(long id);
 
 	/**
-	 * Retorna uma lista de membros que contm a disponibilidade informada
+	 * lista todos os membros do clube
 	 * 
-	 * @param disponibilidade
-	 *            que ser buscada.
-	 * @return lista de membros
+	 * @param clube
+	 *            identificador do clube
+	 * @return lista com os membros
 	 */
-	List<Membro> procurarDisponibilidade(Disponibilidade disponibilidade);
+	List<Membro> listarTodos(String clube);
 
 	/**
-	 * lista todos os membros da base
+	 * lista os membros do clube para a gerao da programao: as disponibilidades so carregadas na mesma consulta (fetch join), independente da qtd de
+	 * membros. Os membros devolvidos so cpias desanexadas da sesso ({@link Membro#copiarDisponibilidades()}), sem dias programados: a carga  obtida das
+	 * programaes salvas ({@link ProgramacaoDao#carregarDiasProgramados(String, org.joda.time.LocalDate, List)}) e a programao pode alter-los sem gerar
+	 * escritas no banco.
 	 * 
-	 * @return lista com os membros
+	 * @param clube
+	 *            identificador do clube
+	 * @return lista com os membros do clube
+	 */
+	List<Membro> listarParaProgramacao(String clube);
+
+	/**
+	 * lista os clubes que possuem membros
+	 * 
+	 * @return identificadores dos clubes, em ordem alfabtica
+	 */
+	List<String> listarClubes();
+
+	/**
+	 * lista todos os membros do clube de forma resumida (id, nome, e-mail e disponibilidades), em uma nica consulta e sem carregar as entidades
+	 * 
+	 * @param clube
+	 *            identificador do clube
+	 * @return lista com os membros resumidos, ordenados por id
+	 */
+	List<MembroResumo> listarResumo(String clube);
+
+	/**
+	 * lista uma pgina de membros do clube, ordenados por id. Os membros retornados j esto com as disponibilidades carregadas e desanexados da sesso,
+	 * permitindo percorrer o clube inteiro com memria constante. A pgina  localizada pelo ltimo id da pgina anterior (id > ultimoId), sem percorrer os
+	 * membros das pginas anteriores.
+	 * 
+	 * @param clube
+	 *            identificador do clube
+	 * @param ultimoId
+	 *            id do ltimo membro da pgina anterior (0 = primeira pgina)
+	 * @param qtd
+	 *            qtd mxima de membros da pgina
+	 * @return membros da pgina
+	 */
+	List<Membro> listarPaginado(String clube, long ultimoId, int qtd);
+
+	/**
+	 * qtd de membros do clube, sem carreg-los
+	 * 
+	 * @param clube
+	 *            identificador do clube
+	 * @return qtd de membros
 	 */
-	List<Membro> listarTodos();
+	long contarTodos(String clube);
 
 }
\ No newline at end of file
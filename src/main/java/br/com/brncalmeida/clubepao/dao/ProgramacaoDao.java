@@ -0,0 +1,86 @@
+package br.com.brncalmeida.clubepao.dao;
+
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.LocalDate;
+
+import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.model.ProgramacaoSalva;
+import br.com.brncalmeida.clubepao.model.Schedule;
+
+/**
+ * Data Access Object para as programaes salvas ({@link ProgramacaoSalva}): uma programao por clube e perodo, substituda a cada nova gerao.
+ * 
+ * @author Bruno Almeida
+ */
+public interface ProgramacaoDao {
+
+	/**
+	 * salva a programao do perodo, substituindo a programao salva anteriormente para o mesmo clube e perodo
+	 * 
+	 * @param clube
+	 *            clube da programao
+	 * @param dataInicial
+	 *            data inicial da programao
+	 * @param qtdDias
+	 *            qtd de dias do perodo
+	 * @param cronograma
+	 *            programao gerada
+	 * @return programao salva
+	 */
+	ProgramacaoSalva salvar(String clube, LocalDate dataInicial, int qtdDias, Schedule cronograma);
+
+	/**
+	 * busca a programao salva do perodo
+	 * 
+	 * @param clube
+	 *            clube da programao
+	 * @param dataInicial
+	 *            data inicial da programao
+	 * @param qtdDias
+	 *            qtd de dias do perodo
+	 * @return programao ou null caso o perodo no tenha sido salvo
+	 */
+	ProgramacaoSalva buscar(String clube, LocalDate dataInicial, int qtdDias);
+
+	/**
+	 * busca a programao salva pelo id
+	 * 
+	 * @param id
+	 *            id da programao
+	 * @return programao ou null caso no exista
+	 */
+	ProgramacaoSalva getById(long id);
+
+	/**
+	 * lista as programaes salvas do clube, da mais recente para a mais antiga
+	 * 
+	 * @param clube
+	 *            clube das programaes
+	 * @return programaes do clube
+	 */
+	List<ProgramacaoSalva> listar(String clube);
+
+	/**
+	 * nome dos membros programados, consultando somente os membros da programao
+	 * 
+	 * @param programacao
+	 *            programao salva
+	 * @return nome dos membros por id (membros removidos no so devolvidos)
+	 */
+	Map<Long, String> buscarNomes(ProgramacaoSalva programacao);
+
+	/**
+	 * carrega nos membros os dias programados nas programaes salvas do clube antes da data informada: a carga de cada membro no perodo parte da carga
+	 * acumulada nos perodos anteriores. Quando programaes salvas se sobrepem, cada dia vale pela programao de data inicial mais recente.
+	 * 
+	 * @param clube
+	 *            clube da programao
+	 * @param dataInicial
+	 *            data inicial do perodo a ser gerado
+	 * @param membros
+	 *            membros do clube (cpias desanexadas, ex.: {@link MembroDao#listarParaProgramacao(String)}), alterados pelo mtodo
+	 */
+	void carregarDiasProgramados(String clube, LocalDate dataInicial, List<Membro> membros);
+}
@@ -0,0 +1,45 @@
+package br.com.brncalmeida.clubepao.dao;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+/**
+ * Aes executadas aps o commit da transao da sesso (ex.: incremento da {@link VersaoMembros}). Informaes derivadas da base (caches, ndices) s podem ser
+ * invalidadas depois que as escritas esto visveis para as demais requisies: invalidadas antes, seriam montadas novamente com os dados anteriores ao commit e
+ * ficariam associadas  nova verso.
+ *
+ * @author Bruno Almeida
+ */
+final class Transacoes {
+
+	private Transacoes() {
+	}
+
+	/**
+	 * executa a ao aps o commit da transao ativa da sesso (descartada no rollback), ou na hora quando no h transao ativa
+	 *
+	 * @param session
+	 *            sesso da escrita
+	 * @param acao
+	 *            ao a executar
+	 */
+	static void aposCommit(Session session, final Runnable acao) {
+		Transaction transacao = session.getTransaction();
+		if (transacao == null || !transacao.isActive()) {
+			acao.run();
+			return;
+		}
+		transacao.registerSynchronization(new Synchronization() {
+			public void beforeCompletion() {
+			}
+
+			public void afterCompletion(int status) {
+				if (status == Status.STATUS_COMMITTED)
+					acao.run();
+			}
+		});
+	}
+}
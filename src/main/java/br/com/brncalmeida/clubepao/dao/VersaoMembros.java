@@ -0,0 +1,189 @@
+package br.com.brncalmeida.clubepao.dao;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import br.com.caelum.vraptor.ioc.ApplicationScoped;
+import br.com.caelum.vraptor.ioc.Component;
+
+/**
+ * Verso da base de membros. Toda escrita feita pelo {@link MembroDao} incrementa a verso aps o commit, permitindo que caches de informaes derivadas dos
+ * membros (ex.: programaes) saibam quando foram invalidados. Cada clube tem tambm a sua verso, alterada somente pelas escritas nos membros do clube (ou em
+ * todos os clubes), evitando que a alterao de um clube invalide as informaes dos demais.
+ *
+ * As verses dos clubes s so guardadas enquanto so maiores que a verso de todos os clubes: uma alterao em todos os clubes descarta as verses
+ * individuais e, ao atingir o limite de clubes (propriedade de sistema "versao.clubes"), a alterao de um clube  registrada como alterao em todos.
+ *
+ * As escritas em membros individuais registram tambm a alterao ({@link AlteracaoMembro}) junto com a nova verso do clube, mantendo as ltimas alteraes
+ * de cada clube (propriedade de sistema "versao.alteracoes"). Quem conhece uma verso anterior do clube pode aplicar somente essas alteraes
+ * ({@link #buscarAlteracoes(String, long, long)}); alteraes no registradas (ex.: importaes) interrompem a sequncia.
+ *
+ * @author Bruno Almeida
+ */
+@Component
+@ApplicationScoped
+public class VersaoMembros {
+
+	private static final int LIMITE_CLUBES_PADRAO = 1000;
+	private static final int LIMITE_ALTERACOES_PADRAO = 100;
+
+	private final int limiteClubes = Integer.getInteger("versao.clubes", LIMITE_CLUBES_PADRAO);
+	private final int limiteAlteracoes = Integer.getInteger("versao.alteracoes", LIMITE_ALTERACOES_PADRAO);
+	private final AtomicLong versao = new AtomicLong();
+	private volatile long ultimaAlteracao = System.currentTimeMillis();
+	private final ConcurrentMap<String, Long> versoesClubes = new ConcurrentHashMap<String, Long>();
+	private volatile long versaoTodosClubes;
+	private final Map<String, LinkedList<Registro>> alteracoesClubes = new HashMap<String, LinkedList<Registro>>();
+
+	/**
+	 * verso atual da base de membros
+	 *
+	 * @return verso atual
+	 */
+	public long getVersao() {
+		return versao.get();
+	}
+
+	/**
+	 * verso atual dos membros do clube
+	 *
+	 * @param clube
+	 *            identificador do clube
+	 * @return verso do clube
+	 */
+	public long getVersao(String clube) {
+		Long versaoClube = versoesClubes.get(clube);
+		return versaoClube == null ? versaoTodosClubes : Math.max(versaoClube, versaoTodosClubes);
+	}
+
+	/**
+	 * qtd de clubes com verso prpria
+	 *
+	 * @return qtd de clubes
+	 */
+	public int getQtdClubes() {
+		return versoesClubes.size();
+	}
+
+	/**
+	 * momento da ltima alterao na base de membros
+	 *
+	 * @return data em milissegundos
+	 */
+	public long getUltimaAlteracao() {
+		return ultimaAlteracao;
+	}
+
+	/**
+	 * registra uma alterao em todos os clubes
+	 *
+	 * @return nova verso
+	 */
+	public synchronized long incrementar() {
+		ultimaAlteracao = System.currentTimeMillis();
+		versaoTodosClubes = versao.incrementAndGet();
+		// a nova verso de todos os clubes  maior que a de qualquer clube
+		versoesClubes.clear();
+		alteracoesClubes.clear();
+		return versaoTodosClubes;
+	}
+
+	/**
+	 * registra uma alterao nos membros do clube
+	 *
+	 * @param clube
+	 *            identificador do clube
+	 * @return nova verso
+	 */
+	public synchronized long incrementar(String clube) {
+		if (versoesClubes.size() >= limiteClubes && !versoesClubes.containsKey(clube))
+			return incrementar();
+		// alteraes anteriores no registradas no podem ser aplicadas
+		alteracoesClubes.remove(clube);
+		return incrementarClube(clube);
+	}
+
+	/**
+	 * registra a alterao de um membro do clube informado na alterao
+	 *
+	 * @param alteracao
+	 *            membro gravado ou removido
+	 * @return nova verso
+	 */
+	public synchronized long incrementar(AlteracaoMembro alteracao) {
+		String clube = alteracao.getClube();
+		if (versoesClubes.size() >= limiteClubes && !versoesClubes.containsKey(clube))
+			return incrementar();
+		long anterior = getVersao(clube);
+		long nova = incrementarClube(clube);
+		LinkedList<Registro> alteracoes = alteracoesClubes.get(clube);
+		if (alteracoes == null) {
+			alteracoes = new LinkedList<Registro>();
+			alteracoesClubes.put(clube, alteracoes);
+		}
+		alteracoes.add(new Registro(anterior, nova, alteracao));
+		if (alteracoes.size() > limiteAlteracoes)
+			alteracoes.removeFirst();
+		return nova;
+	}
+
+	/**
+	 * alteraes registradas no clube entre as verses informadas, em ordem
+	 *
+	 * @param clube
+	 *            identificador do clube
+	 * @param desde
+	 *            verso conhecida do clube
+	 * @param ate
+	 *            verso desejada do clube
+	 * @return alteraes ou null caso alguma alterao entre as verses no tenha sido registrada (ou j tenha sido descartada)
+	 */
+	public synchronized List<AlteracaoMembro> buscarAlteracoes(String clube, long desde, long ate) {
+		List<AlteracaoMembro> encontradas = new ArrayList<AlteracaoMembro>();
+		LinkedList<Registro> alteracoes = alteracoesClubes.get(clube);
+		long versaoClube = desde;
+		if (alteracoes != null) {
+			for (Registro registro : alteracoes) {
+				if (versaoClube == ate)
+					break;
+				if (registro.anterior == versaoClube) {
+					encontradas.add(registro.alteracao);
+					versaoClube = registro.versao;
+				}
+			}
+		}
+		return versaoClube == ate ? encontradas : null;
+	}
+
+	/**
+	 * nova verso do clube
+	 */
+	private long incrementarClube(String clube) {
+		ultimaAlteracao = System.currentTimeMillis();
+		long nova = versao.incrementAndGet();
+		versoesClubes.put(clube, nova);
+		return nova;
+	}
+
+	/**
+	 * alterao registrada com a verso do clube antes e depois dela
+	 */
+	private static class Registro {
+		private final long anterior;
+		private final long versao;
+		private final AlteracaoMembro alteracao;
+
+		Registro(long anterior, long versao, AlteracaoMembro alteracao) {
+			this.anterior = anterior;
+			this.versao = versao;
+			this.alteracao = alteracao;
+		}
+	}
+
+}
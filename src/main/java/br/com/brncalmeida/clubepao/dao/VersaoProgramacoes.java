@@ -0,0 +1,77 @@
+package br.com.brncalmeida.clubepao.dao;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import br.com.caelum.vraptor.ioc.ApplicationScoped;
+import br.com.caelum.vraptor.ioc.Component;
+
+/**
+ * Verso das programaes salvas. Cada perodo parte da carga dos membros nas programaes salvas anteriores a ele
+ * ({@link ProgramacaoDao#carregarDiasProgramados(String, org.joda.time.LocalDate, java.util.List)}): quando a programao salva de um perodo muda e o clube
+ * j tem perodos salvos depois dele, o {@link ProgramacaoDao} incrementa a verso do clube aps o commit, invalidando as programaes desses perodos em
+ * cache. Como em {@link VersaoMembros#getVersao(String)}, cada clube tem a sua verso: a alterao de um clube no invalida as programaes dos demais.
+ *
+ * Salvar o perodo mais recente do clube no altera a verso, pois nenhum perodo salvo parte dele.
+ *
+ * @author Bruno Almeida
+ */
+@Component
+@ApplicationScoped
+public class VersaoProgramacoes {
+
+	private final AtomicLong versao = new AtomicLong();
+	private volatile long ultimaAlteracao = System.currentTimeMillis();
+	private final ConcurrentMap<String, AtomicLong> versoesClubes = new ConcurrentHashMap<String, AtomicLong>();
+
+	/**
+	 * verso atual das programaes salvas de todos os clubes, alterada junto com a verso de qualquer clube
+	 *
+	 * @return verso atual
+	 */
+	public long getVersao() {
+		return versao.get();
+	}
+
+	/**
+	 * verso atual das programaes salvas do clube
+	 *
+	 * @param clube
+	 *            identificador do clube
+	 * @return verso do clube
+	 */
+	public long getVersao(String clube) {
+		AtomicLong versaoClube = versoesClubes.get(clube);
+		return versaoClube == null ? 0 : versaoClube.get();
+	}
+
+	/**
+	 * momento da ltima alterao que mudou a verso de algum clube
+	 *
+	 * @return data em milissegundos
+	 */
+	public long getUltimaAlteracao() {
+		return ultimaAlteracao;
+	}
+
+	/**
+	 * registra uma alterao nas programaes salvas do clube
+	 *
+	 * @param clube
+	 *            identificador do clube
+	 * @return nova verso do clube
+	 */
+	public long incrementar(String clube) {
+		AtomicLong versaoClube = versoesClubes.get(clube);
+		if (versaoClube == null) {
+			AtomicLong nova = new AtomicLong();
+			versaoClube = versoesClubes.putIfAbsent(clube, nova);
+			if (versaoClube == null)
+				versaoClube = nova;
+		}
+		ultimaAlteracao = System.currentTimeMillis();
+		versao.incrementAndGet();
+		return versaoClube.incrementAndGet();
+	}
+}
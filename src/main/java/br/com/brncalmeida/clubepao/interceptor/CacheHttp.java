@@ -0,0 +1,18 @@
+package br.com.brncalmeida.clubepao.interceptor;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca os mtodos (GET) cujo contedo depende somente da base de membros: as respostas recebem ETag e Last-Modified da verso da base e as requisies
+ * condicionais so atendidas com 304 por {@link RequisicaoCondicional}, sem executar o mtodo.
+ * 
+ * @author bruno.almeida
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CacheHttp {
+}
@@ -68,7 +68,7 @@ public class Massa implements Interceptor {
 		boolean mock = "true".equals(System.getProperty("mock"));
 
 		// criterio para intercepo da chamada
-		return mock && method.getResource().getType() == MembrosController.class && dao.listarTodos().size() == 0;
+		return mock && method.getResource().getType() == MembrosController.class && dao.contarTodos(Membro.CLUBE_PADRAO) == 0;
 	}
 
 	/**
@@ -0,0 +1,43 @@
+package br.com.brncalmeida.clubepao.interceptor;
+
+import br.com.brncalmeida.clubepao.utils.Metricas;
+import br.com.caelum.vraptor.InterceptionException;
+import br.com.caelum.vraptor.Intercepts;
+import br.com.caelum.vraptor.core.InterceptorStack;
+import br.com.caelum.vraptor.interceptor.Interceptor;
+import br.com.caelum.vraptor.resource.ResourceMethod;
+
+/**
+ * Classe responsavel por medir a durao de cada requisio, por recurso (controller.metodo), registrando-a em {@link Metricas}. Requisies que terminam em
+ * exceo tambm so contadas  parte.
+ * 
+ * @author bruno.almeida
+ *
+ */
+@Intercepts
+public class MetricasRequisicao implements Interceptor {
+
+	private final Metricas metricas = Metricas.getInstance();
+
+	@Override
+	public void intercept(InterceptorStack stack, ResourceMethod method, Object resourceInstance) throws InterceptionException {
+		String recurso = method.getResource().getType().getSimpleName() + "." + method.getMethod().getName();
+		long inicio = System.nanoTime();
+		try {
+			stack.next(method, resourceInstance);
+		} catch (RuntimeException e) {
+			metricas.contador("clubepao_requisicao_erros_total", "Requisies encerradas com exceo, por recurso", "recurso", recurso).incrementAndGet();
+			throw e;
+		} finally {
+			metricas.histograma("clubepao_requisicao_segundos", "Durao das requisies, por recurso", "recurso", recurso).registrarDesde(inicio);
+		}
+	}
+
+	/**
+	 * todas as requisies so medidas
+	 */
+	@Override
+	public boolean accepts(ResourceMethod method) {
+		return true;
+	}
+}
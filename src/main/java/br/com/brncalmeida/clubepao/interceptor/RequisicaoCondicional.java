@@ -0,0 +1,151 @@
+package br.com.brncalmeida.clubepao.interceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import br.com.brncalmeida.clubepao.dao.VersaoMembros;
+import br.com.brncalmeida.clubepao.dao.VersaoProgramacoes;
+import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.utils.Metricas;
+import br.com.caelum.vraptor.InterceptionException;
+import br.com.caelum.vraptor.Intercepts;
+import br.com.caelum.vraptor.core.InterceptorStack;
+import br.com.caelum.vraptor.interceptor.Interceptor;
+import br.com.caelum.vraptor.resource.ResourceMethod;
+
+/**
+ * Classe responsavel pelo cache http dos mtodos marcados com {@link CacheHttp}: as respostas recebem ETag (verso dos membros, {@link VersaoMembros}, e das
+ * programaes salvas, {@link VersaoProgramacoes}, do clube da requisio ou de todos os clubes quando a requisio no informa o clube) e Last-Modified (ltima alterao de qualquer uma das duas). Quando o cliente informa a mesma verso (If-None-Match) ou uma data igual ou posterior  ltima alterao
+ * (If-Modified-Since, utilizado somente sem If-None-Match), a resposta  304 e o mtodo no  executado, sem acessar o dao.
+ * 
+ * A data do Last-Modified tem preciso de segundos: enquanto o segundo da ltima alterao no termina, uma nova alterao teria a mesma data. Nesse intervalo
+ * a resposta no informa o Last-Modified e o If-Modified-Since  ignorado, valendo somente o ETag.
+ * 
+ * A verso recomea a cada inicializao da aplicao, por isso o ETag inclui o momento da inicializao. Somente requisies GET originais (no os forwards
+ * feitos ao final das operaes) so tratadas.
+ * 
+ * @author bruno.almeida
+ *
+ */
+@Intercepts(after = MetricasRequisicao.class)
+public class RequisicaoCondicional implements Interceptor {
+
+	private static final String INICIALIZACAO = Long.toString(System.currentTimeMillis(), 36);
+	private static final String ATRIBUTO_FORWARD = "javax.servlet.forward.request_uri";
+
+	private final HttpServletRequest request;
+	private final HttpServletResponse response;
+	private final VersaoMembros versao;
+	private final VersaoProgramacoes versaoProgramacoes;
+
+	/**
+	 * Construtor default
+	 * 
+	 * @param request
+	 *            requisio atual
+	 * @param response
+	 *            resposta da requisio atual
+	 * @param versao
+	 *            verso atual da base de membros
+	 * @param versaoProgramacoes
+	 *            verso atual das programaes salvas
+	 */
+	public RequisicaoCondicional(HttpServletRequest request, HttpServletResponse response, VersaoMembros versao, VersaoProgramacoes versaoProgramacoes) {
+		this.request = request;
+		this.response = response;
+		this.versao = versao;
+		this.versaoProgramacoes = versaoProgramacoes;
+	}
+
+	@Override
+	public void intercept(InterceptorStack stack, ResourceMethod method, Object resourceInstance) throws InterceptionException {
+		if (!"GET".equals(request.getMethod()) || request.getAttribute(ATRIBUTO_FORWARD) != null) {
+			stack.next(method, resourceInstance);
+			return;
+		}
+
+		// a data  lida antes da verso: uma escrita entre as leituras resulta em uma data anterior ao contedo, nunca posterior
+		long ultimaAlteracao = dataUltimaAlteracao(Math.max(versao.getUltimaAlteracao(), versaoProgramacoes.getUltimaAlteracao()), System.currentTimeMillis());
+		String clube = request.getParameter("clube");
+		String etag;
+		if (clube == null) {
+			etag = etag(versao.getVersao(), versaoProgramacoes.getVersao());
+		} else {
+			// requisies de um clube dependem somente dos membros e das programaes salvas do clube
+			clube = Membro.normalizarClube(clube);
+			etag = etag(versao.getVersao(clube), versaoProgramacoes.getVersao(clube));
+		}
+		response.setHeader("ETag", etag);
+		if (ultimaAlteracao >= 0)
+			response.setDateHeader("Last-Modified", ultimaAlteracao);
+		response.setHeader("Cache-Control", "no-cache");
+
+		if (naoModificado(request.getHeader("If-None-Match"), request.getDateHeader("If-Modified-Since"), etag, ultimaAlteracao)) {
+			String recurso = method.getResource().getType().getSimpleName() + "." + method.getMethod().getName();
+			Metricas.getInstance().contador("clubepao_requisicao_nao_modificada_total", "Requisies condicionais atendidas com 304, por recurso", "recurso", recurso)
+					.incrementAndGet();
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+		stack.next(method, resourceInstance);
+	}
+
+	/**
+	 * somente os mtodos marcados com {@link CacheHttp}
+	 */
+	@Override
+	public boolean accepts(ResourceMethod method) {
+		return method.containsAnnotation(CacheHttp.class);
+	}
+
+	/**
+	 * ETag das verses da base de membros e das programaes salvas nesta inicializao da aplicao
+	 * 
+	 * @param versao
+	 *            verso da base
+	 * @param versaoProgramacoes
+	 *            verso das programaes salvas
+	 * @return ETag (entre aspas)
+	 */
+	static String etag(long versao, long versaoProgramacoes) {
+		return "\"" + INICIALIZACAO + "-" + versao + "-" + versaoProgramacoes + "\"";
+	}
+
+	/**
+	 * data da ltima alterao em segundos inteiros (preciso do Last-Modified), somente aps o trmino do segundo da alterao
+	 * 
+	 * @param ultimaAlteracao
+	 *            data da ltima alterao em milissegundos
+	 * @param agora
+	 *            data atual em milissegundos
+	 * @return data truncada em segundos ou -1 caso a alterao tenha ocorrido no segundo atual
+	 */
+	static long dataUltimaAlteracao(long ultimaAlteracao, long agora) {
+		return agora / 1000 > ultimaAlteracao / 1000 ? ultimaAlteracao / 1000 * 1000 : -1;
+	}
+
+	/**
+	 * validao se o contedo do cliente ainda  atual
+	 * 
+	 * @param ifNoneMatch
+	 *            ETags informados pelo cliente (null = no informado)
+	 * @param ifModifiedSince
+	 *            data informada pelo cliente em milissegundos (-1 = no informada)
+	 * @param etag
+	 *            ETag atual
+	 * @param ultimaAlteracao
+	 *            data da ltima alterao, em segundos inteiros (-1 = If-Modified-Since no pode ser utilizado)
+	 * @return true = "contedo no modificado"
+	 */
+	static boolean naoModificado(String ifNoneMatch, long ifModifiedSince, String etag, long ultimaAlteracao) {
+		if (ifNoneMatch != null) {
+			for (String item : ifNoneMatch.split(",")) {
+				item = item.trim();
+				if (item.equals("*") || item.equals(etag) || item.equals("W/" + etag))
+					return true;
+			}
+			return false;
+		}
+		return ultimaAlteracao >= 0 && ifModifiedSince >= 0 && ifModifiedSince >= ultimaAlteracao;
+	}
+}
@@ -0,0 +1,25 @@
+package br.com.brncalmeida.clubepao.model;
+
+import java.util.List;
+
+/**
+ * Estratgia responsvel por intercalar os membros nos dias teis de um perodo. Utilizada pelo {@link Schedule} para preencher as semanas do perodo.
+ *
+ * @author bruno.almeida
+ *
+ */
+public interface Alocador {
+
+	/**
+	 * Preenche os dias teis de todas as semanas do perodo com os membros disponveis. Regras: 1o = quem tiver a menor qtd de programaes / 2o = quem tiver menor
+	 * disponibilidade / 3o = menor id, sendo que um membro no pode ser programado duas vezes na mesma semana.
+	 *
+	 * @param periodo
+	 *            perodo com as semanas a serem preenchidas
+	 * @param membros
+	 *            membros que iro compor a programao
+	 * @return true = alocao calculada por completo (false = parte dos dias preenchida por aproximao, ex.: tempo mximo esgotado)
+	 */
+	boolean alocar(Periodo periodo, List<Membro> membros);
+
+}
@@ -0,0 +1,391 @@
+package br.com.brncalmeida.clubepao.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Alocao tima baseada em fluxo de custo mnimo: o perodo  modelado como um grafo membros x dias teis e resolvido por caminhos mnimos sucessivos (Dijkstra
+ * com potenciais), resultando no maior n possvel de dias com membro e, entre as alocaes com essa cobertura, na de menor desequilbrio de carga.
+ *
+ * Membros com as mesmas disponibilidades so intercambiveis e por isso agrupados em uma nica classe, o que mantm o grafo pequeno mesmo com milhares de membros:
+ * origem -> classe (uma unidade por programao, com custo igual  carga que o membro menos sobrecarregado da classe teria, crescente) -> classe na semana
+ * (capacidade = qtd de membros da classe, garantindo um dia por membro na semana) -> dia til compatvel -> destino (capacidade 1). Resolvido o fluxo, os dias de
+ * cada classe so distribudos semana a semana entre os seus membros pela regra de sempre (menor carga, menor qtd de disponibilidades e menor id).
+ *
+ * O clculo respeita um tempo mximo: esgotado o tempo, os dias restantes so preenchidos de forma gulosa, como no {@link AlocadorIndexado}, e a alocao 
+ * indicada como incompleta ({@link Schedule#isAlocacaoCompleta()}). No guarda estado entre as alocaes, podendo ser compartilhado entre threads.
+ *
+ * @author bruno.almeida
+ *
+ */
+public class AlocadorFluxo implements Alocador {
+
+	private static final long TEMPO_MAXIMO_PADRAO = 2000;
+	/**
+	 * multiplicador da carga no custo, a qtd de disponibilidades (1 a 5) serve somente de desempate
+	 */
+	private static final long ESCALA_CUSTO = 8;
+	private static final long INFINITO = Long.MAX_VALUE / 4;
+
+	private final long tempoMaximoNanos;
+
+	/**
+	 * Construtor default, com tempo mximo de 2 segundos
+	 */
+	public AlocadorFluxo() {
+		this(TEMPO_MAXIMO_PADRAO);
+	}
+
+	/**
+	 * Construtor com o tempo mximo informado
+	 *
+	 * @param tempoMaximoMillis
+	 *            tempo mximo do clculo do fluxo em milissegundos
+	 */
+	public AlocadorFluxo(long tempoMaximoMillis) {
+		if (tempoMaximoMillis < 0)
+			throw new IllegalArgumentException("Tempo mximo invlido: " + tempoMaximoMillis);
+		this.tempoMaximoNanos = TimeUnit.MILLISECONDS.toNanos(tempoMaximoMillis);
+	}
+
+	/**
+	 * {@inheritDoc} Devolve false quando o tempo mximo se esgota antes do fluxo mximo: os dias restantes so preenchidos de forma gulosa.
+	 */
+	@Override
+	public boolean alocar(Periodo periodo, List<Membro> membros) {
+		long limite = System.nanoTime() + tempoMaximoNanos;
+		Calendario calendario = periodo.getCalendario();
+		Classes classes = new Classes(membros, calendario.getQtdSemanas());
+
+		int[] classePorDia = new int[calendario.getQtdDias()];
+		boolean concluido = new Fluxo(calendario, classes).resolver(limite, classePorDia);
+		distribuir(calendario, classes, classePorDia);
+		return concluido;
+	}
+
+	/**
+	 * distribui os dias de cada classe entre os seus membros, semana a semana. Dias sem classe (tempo esgotado) recebem o melhor membro disponvel na semana.
+	 */
+	private static void distribuir(Calendario calendario, Classes classes, int[] classePorDia) {
+		List<Integer> programadosNaSemana = new ArrayList<Integer>();
+		for (int semana = 0; semana < calendario.getQtdSemanas(); semana++) {
+			int inicio = calendario.getInicioSemana(semana);
+			int fim = calendario.getFimSemana(semana);
+
+			for (int dia = inicio; dia < fim; dia++) {
+				if (classePorDia[dia] >= 0)
+					programar(calendario, classes, dia, classePorDia[dia], programadosNaSemana);
+			}
+			for (int dia = inicio; dia < fim; dia++) {
+				if (classePorDia[dia] < 0) {
+					int classe = classes.melhorClasse(Disponibilidade.getDisponibilidadeById(calendario.getDiaDaSemana(dia)));
+					if (classe >= 0)
+						programar(calendario, classes, dia, classe, programadosNaSemana);
+				}
+			}
+
+			// membros voltam s filas da classe com a carga atualizada, disponveis para a prxima semana
+			for (Integer posicao : programadosNaSemana) {
+				classes.filas.get(classes.classePorMembro[posicao]).add(posicao);
+			}
+			programadosNaSemana.clear();
+		}
+	}
+
+	private static void programar(Calendario calendario, Classes classes, int dia, int classe, List<Integer> programadosNaSemana) {
+		Integer posicao = classes.filas.get(classe).pollFirst();
+		if (posicao == null)
+			return;
+		Membro membro = classes.membros[posicao];
+		if (membro.addDiaProgramado(calendario.getData(dia)))
+			classes.cargas[posicao]++;
+		calendario.setMembro(dia, membro);
+		programadosNaSemana.add(posicao);
+	}
+
+	/**
+	 * Membros agrupados pela mscara de disponibilidades. Cada classe mantm a fila dos seus membros pela regra do {@link MembrosMenosSobrecarregadosComparator}.
+	 */
+	static class Classes implements Comparator<Integer> {
+		private final Membro[] membros;
+		private final int[] cargas;
+		private final long[] ids;
+		private final int[] classePorMembro;
+		private final List<Integer> mascaras = new ArrayList<Integer>();
+		private final List<TreeSet<Integer>> filas = new ArrayList<TreeSet<Integer>>();
+		/**
+		 * custo de cada programao da classe, em ordem crescente
+		 */
+		private final List<long[]> custos = new ArrayList<long[]>();
+
+		Classes(List<Membro> lista, int qtdSemanas) {
+			membros = lista.toArray(new Membro[lista.size()]);
+			cargas = new int[membros.length];
+			ids = new long[membros.length];
+			classePorMembro = new int[membros.length];
+
+			int[] classePorMascara = new int[1 << Disponibilidade.values().length];
+			Arrays.fill(classePorMascara, -1);
+			for (int i = 0; i < membros.length; i++) {
+				cargas[i] = membros[i].getQtdDiasProgramados();
+				// membros ainda no persistidos ficam por ltimo no desempate
+				ids[i] = membros[i].getId() == null ? Long.MAX_VALUE : membros[i].getId();
+				int mascara = membros[i].getMascaraDisponibilidades();
+				classePorMembro[i] = -1;
+				if (mascara == 0)
+					continue;
+				if (classePorMascara[mascara] < 0) {
+					classePorMascara[mascara] = mascaras.size();
+					mascaras.add(mascara);
+					filas.add(new TreeSet<Integer>(this));
+				}
+				classePorMembro[i] = classePorMascara[mascara];
+				filas.get(classePorMembro[i]).add(i);
+			}
+			for (int classe = 0; classe < mascaras.size(); classe++) {
+				custos.add(calcularCustos(classe, qtdSemanas));
+			}
+		}
+
+		/**
+		 * custo de cada programao adicional da classe: a k-sima programao vai para o membro com a menor carga naquele momento, limitada a uma programao por
+		 * semana para cada membro. Os custos so crescentes (convexos), o que faz o fluxo de custo mnimo equilibrar a carga.
+		 */
+		private long[] calcularCustos(int classe, int qtdSemanas) {
+			TreeSet<Integer> fila = filas.get(classe);
+			int qtd = (int) Math.min((long) fila.size() * qtdSemanas, qtdSemanas * 7L);
+			long[] retorno = new long[qtd];
+			// {carga, qtd de programaes restantes}
+			PriorityQueue<int[]> proximas = new PriorityQueue<int[]>(Math.max(1, fila.size()), new Comparator<int[]>() {
+				@Override
+				public int compare(int[] a, int[] b) {
+					return a[0] < b[0] ? -1 : (a[0] == b[0] ? 0 : 1);
+				}
+			});
+			for (Integer posicao : fila) {
+				proximas.add(new int[] { cargas[posicao], qtdSemanas });
+			}
+			int desempate = Integer.bitCount(mascaras.get(classe));
+			for (int k = 0; k < qtd && !proximas.isEmpty(); k++) {
+				int[] proxima = proximas.poll();
+				retorno[k] = proxima[0] * ESCALA_CUSTO + desempate;
+				if (--proxima[1] > 0) {
+					proxima[0]++;
+					proximas.add(proxima);
+				}
+			}
+			return retorno;
+		}
+
+		/**
+		 * classe cujo primeiro membro da fila tem a maior prioridade para a disponibilidade
+		 *
+		 * @return classe ou -1 caso no exista membro disponvel
+		 */
+		int melhorClasse(Disponibilidade disponibilidade) {
+			int melhor = -1;
+			for (int classe = 0; classe < mascaras.size(); classe++) {
+				if ((mascaras.get(classe) & disponibilidade.getMascara()) == 0 || filas.get(classe).isEmpty())
+					continue;
+				if (melhor < 0 || compare(filas.get(classe).first(), filas.get(melhor).first()) < 0)
+					melhor = classe;
+			}
+			return melhor;
+		}
+
+		int getQtdClasses() {
+			return mascaras.size();
+		}
+
+		@Override
+		public int compare(Integer primeiro, Integer segundo) {
+			int a = primeiro;
+			int b = segundo;
+			if (cargas[a] != cargas[b])
+				return cargas[a] < cargas[b] ? -1 : 1;
+			int disponibilidadesA = Integer.bitCount(mascaras.get(classePorMembro[a]));
+			int disponibilidadesB = Integer.bitCount(mascaras.get(classePorMembro[b]));
+			if (disponibilidadesA != disponibilidadesB)
+				return disponibilidadesA < disponibilidadesB ? -1 : 1;
+			if (ids[a] != ids[b])
+				return ids[a] < ids[b] ? -1 : 1;
+			return a < b ? -1 : (a == b ? 0 : 1);
+		}
+	}
+
+	/**
+	 * Grafo do fluxo (listas de adjacncia em arrays) e caminhos mnimos sucessivos. Todas as capacidades at o destino so unitrias, portanto cada caminho
+	 * encontrado programa exatamente um dia.
+	 */
+	private static class Fluxo {
+		private static final int ORIGEM = 0;
+		private static final int DESTINO = 1;
+
+		private final Calendario calendario;
+		private final Classes classes;
+		private final int primeiroDia;
+		private final int qtdVertices;
+
+		private int[] inicio;
+		private int[] proxima;
+		private int[] destino;
+		private int[] capacidade;
+		private long[] custo;
+		private int qtdArestas;
+
+		Fluxo(Calendario calendario, Classes classes) {
+			this.calendario = calendario;
+			this.classes = classes;
+			int qtdClasses = classes.getQtdClasses();
+			int qtdSemanas = calendario.getQtdSemanas();
+			this.primeiroDia = 2 + qtdClasses + qtdClasses * qtdSemanas;
+			this.qtdVertices = primeiroDia + calendario.getQtdDias();
+
+			inicio = new int[qtdVertices];
+			Arrays.fill(inicio, -1);
+			int capacidadeInicial = 16;
+			proxima = new int[capacidadeInicial];
+			destino = new int[capacidadeInicial];
+			capacidade = new int[capacidadeInicial];
+			custo = new long[capacidadeInicial];
+
+			for (int classe = 0; classe < qtdClasses; classe++) {
+				int vertice = 2 + classe;
+				for (long custoProgramacao : classes.custos.get(classe)) {
+					adicionar(ORIGEM, vertice, 1, custoProgramacao);
+				}
+				int mascara = classes.mascaras.get(classe);
+				int qtdMembros = classes.filas.get(classe).size();
+				for (int semana = 0; semana < qtdSemanas; semana++) {
+					int verticeSemana = 2 + qtdClasses + classe * qtdSemanas + semana;
+					int qtdDiasCompativeis = 0;
+					for (int dia = calendario.getInicioSemana(semana); dia < calendario.getFimSemana(semana); dia++) {
+						if ((Disponibilidade.getDisponibilidadeById(calendario.getDiaDaSemana(dia)).getMascara() & mascara) != 0) {
+							adicionar(verticeSemana, primeiroDia + dia, 1, 0);
+							qtdDiasCompativeis++;
+						}
+					}
+					if (qtdDiasCompativeis > 0)
+						adicionar(vertice, verticeSemana, Math.min(qtdMembros, qtdDiasCompativeis), 0);
+				}
+			}
+			for (int dia = 0; dia < calendario.getQtdDias(); dia++) {
+				adicionar(primeiroDia + dia, DESTINO, 1, 0);
+			}
+		}
+
+		/**
+		 * calcula o fluxo mximo de custo mnimo
+		 *
+		 * @param limite
+		 *            instante limite ({@link System#nanoTime()})
+		 * @param classePorDia
+		 *            classe programada em cada dia (-1 = dia sem membro)
+		 * @return true = fluxo mximo alcanado dentro do tempo
+		 */
+		boolean resolver(long limite, int[] classePorDia) {
+			long[] potencial = new long[qtdVertices];
+			long[] distancia = new long[qtdVertices];
+			int[] arestaAnterior = new int[qtdVertices];
+			boolean concluido = false;
+
+			while (System.nanoTime() - limite < 0) {
+				if (!caminhoMinimo(potencial, distancia, arestaAnterior)) {
+					concluido = true;
+					break;
+				}
+				// vrtices no alcanados ou mais distantes que o destino avanam junto com o destino, mantendo os custos reduzidos no negativos
+				for (int v = 0; v < qtdVertices; v++) {
+					potencial[v] += Math.min(distancia[v], distancia[DESTINO]);
+				}
+				// caminho unitrio: origem -> classe -> semana -> dia -> destino (ou desvios pelas arestas reversas)
+				for (int v = DESTINO; v != ORIGEM; v = destino[arestaAnterior[v] ^ 1]) {
+					capacidade[arestaAnterior[v]]--;
+					capacidade[arestaAnterior[v] ^ 1]++;
+				}
+			}
+
+			extrairDias(classePorDia);
+			return concluido;
+		}
+
+		/**
+		 * Dijkstra sobre os custos reduzidos pelos potenciais (sempre no negativos)
+		 *
+		 * @return true = existe caminho da origem ao destino
+		 */
+		private boolean caminhoMinimo(long[] potencial, long[] distancia, int[] arestaAnterior) {
+			Arrays.fill(distancia, INFINITO);
+			distancia[ORIGEM] = 0;
+			PriorityQueue<long[]> fila = new PriorityQueue<long[]>(64, new Comparator<long[]>() {
+				@Override
+				public int compare(long[] a, long[] b) {
+					return a[0] < b[0] ? -1 : (a[0] == b[0] ? (a[1] < b[1] ? -1 : (a[1] == b[1] ? 0 : 1)) : 1);
+				}
+			});
+			fila.add(new long[] { 0, ORIGEM });
+			while (!fila.isEmpty()) {
+				long[] atual = fila.poll();
+				int v = (int) atual[1];
+				if (atual[0] > distancia[v])
+					continue;
+				for (int a = inicio[v]; a >= 0; a = proxima[a]) {
+					if (capacidade[a] <= 0)
+						continue;
+					int w = destino[a];
+					long nova = distancia[v] + custo[a] + potencial[v] - potencial[w];
+					if (nova < distancia[w]) {
+						distancia[w] = nova;
+						arestaAnterior[w] = a;
+						fila.add(new long[] { nova, w });
+					}
+				}
+			}
+			return distancia[DESTINO] < INFINITO;
+		}
+
+		private void extrairDias(int[] classePorDia) {
+			Arrays.fill(classePorDia, -1);
+			int qtdClasses = classes.getQtdClasses();
+			int qtdSemanas = calendario.getQtdSemanas();
+			for (int classe = 0; classe < qtdClasses; classe++) {
+				for (int semana = 0; semana < qtdSemanas; semana++) {
+					int verticeSemana = 2 + qtdClasses + classe * qtdSemanas + semana;
+					for (int a = inicio[verticeSemana]; a >= 0; a = proxima[a]) {
+						// aresta semana -> dia (par) sem capacidade restante = dia programado para a classe
+						if ((a & 1) == 0 && destino[a] >= primeiroDia && capacidade[a] == 0)
+							classePorDia[destino[a] - primeiroDia] = classe;
+					}
+				}
+			}
+		}
+
+		/**
+		 * adiciona a aresta e a sua reversa (posio mpar seguinte, capacidade 0 e custo negativo)
+		 */
+		private void adicionar(int origem, int destinoAresta, int capacidadeAresta, long custoAresta) {
+			if (qtdArestas + 2 > destino.length) {
+				int tamanho = destino.length * 2;
+				proxima = Arrays.copyOf(proxima, tamanho);
+				destino = Arrays.copyOf(destino, tamanho);
+				capacidade = Arrays.copyOf(capacidade, tamanho);
+				custo = Arrays.copyOf(custo, tamanho);
+			}
+			ligar(origem, destinoAresta, capacidadeAresta, custoAresta);
+			ligar(destinoAresta, origem, 0, -custoAresta);
+		}
+
+		private void ligar(int origem, int destinoAresta, int capacidadeAresta, long custoAresta) {
+			destino[qtdArestas] = destinoAresta;
+			capacidade[qtdArestas] = capacidadeAresta;
+			custo[qtdArestas] = custoAresta;
+			proxima[qtdArestas] = inicio[origem];
+			inicio[origem] = qtdArestas++;
+		}
+	}
+}
@@ -0,0 +1,235 @@
+package br.com.brncalmeida.clubepao.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Alocao incremental: guarda a ltima alocao (membro escolhido em cada dia) e o estado inicial dos membros. Na alocao seguinte do mesmo perodo, compara
+ * os membros recebidos com os anteriores e descobre o primeiro dia em que a escolha pode mudar (membro removido/alterado j escolhido, ou membro
+ * novo/alterado que venceria o escolhido). Os dias anteriores so reaproveitados e somente os dias a partir dele so recalculados, com o mesmo ndice do
+ * {@link AlocadorIndexado}, produzindo exatamente o mesmo resultado de uma alocao completa.
+ *
+ * Membros sem id (no persistidos) ou um perodo diferente do anterior levam  alocao completa. Acesso sincronizado, pois a instncia  compartilhada entre
+ * as requisies.
+ *
+ * @author bruno.almeida
+ *
+ */
+public class AlocadorIncremental implements Alocador {
+
+	private List<LocalDate> dias;
+	private Map<Long, EstadoMembro> estados;
+	private Long[] escolhidos;
+	private int[] qtdAntes;
+	private Map<Long, Integer> primeiraEscolha;
+	private int qtdDiasRecalculados;
+
+	@Override
+	public synchronized boolean alocar(Periodo periodo, List<Membro> membros) {
+		// dias teis do perodo, em ordem, com o n da semana
+		List<Entry<LocalDate, Membro>> entradas = new ArrayList<Entry<LocalDate, Membro>>();
+		List<LocalDate> diasPeriodo = new ArrayList<LocalDate>();
+		List<Integer> semanas = new ArrayList<Integer>();
+		int numeroSemana = 0;
+		for (Semana semana : periodo.getSemanas()) {
+			numeroSemana++;
+			for (Entry<LocalDate, Membro> dia : semana.getDias().entrySet()) {
+				entradas.add(dia);
+				diasPeriodo.add(dia.getKey());
+				semanas.add(numeroSemana);
+			}
+		}
+		int qtdDias = entradas.size();
+
+		// estado inicial dos membros, antes de qualquer programao
+		Map<Long, Membro> porId = new HashMap<Long, Membro>();
+		Map<Long, EstadoMembro> novosEstados = new HashMap<Long, EstadoMembro>();
+		boolean idsValidos = true;
+		for (Membro membro : membros) {
+			if (membro.getId() == null || porId.put(membro.getId(), membro) != null) {
+				idsValidos = false;
+				break;
+			}
+			novosEstados.put(membro.getId(), new EstadoMembro(membro));
+		}
+
+		int inicio = 0;
+		if (idsValidos && estados != null && diasPeriodo.equals(dias)) {
+			inicio = primeiroDiaAfetado(novosEstados, qtdDias);
+		}
+
+		// reaproveitando as escolhas anteriores ao primeiro dia afetado
+		Long[] novosEscolhidos = new Long[qtdDias];
+		int[] novasQtdAntes = new int[qtdDias];
+		for (int i = 0; i < inicio; i++) {
+			novosEscolhidos[i] = escolhidos[i];
+			novasQtdAntes[i] = qtdAntes[i];
+			if (escolhidos[i] != null) {
+				Membro membro = porId.get(escolhidos[i]);
+				membro.addDiaProgramado(diasPeriodo.get(i));
+				entradas.get(i).setValue(membro);
+			}
+		}
+
+		// recalculando a partir do primeiro dia afetado
+		if (inicio < qtdDias) {
+			AlocadorIndexado.Indice indice = new AlocadorIndexado.Indice(membros);
+			int semanaInicio = semanas.get(inicio);
+			if (inicio > 0) {
+				Map<Long, Integer> posicoes = new HashMap<Long, Integer>();
+				for (int i = 0; i < membros.size(); i++) {
+					posicoes.put(membros.get(i).getId(), i);
+				}
+				// membros j programados na semana do primeiro dia afetado
+				for (int i = inicio - 1; i >= 0 && semanas.get(i) == semanaInicio; i--) {
+					if (novosEscolhidos[i] != null)
+						indice.marcarSemana(posicoes.get(novosEscolhidos[i]), semanaInicio);
+				}
+			}
+			for (int i = inicio; i < qtdDias; i++) {
+				LocalDate dia = diasPeriodo.get(i);
+				Disponibilidade disponibilidade = Disponibilidade.getDisponibilidadeById(dia.dayOfWeek().get());
+				int escolhido = indice.primeiroForaDaSemana(disponibilidade, semanas.get(i));
+				if (escolhido >= 0) {
+					novasQtdAntes[i] = indice.getQtdProgramacoes(escolhido);
+					Membro membro = indice.programar(escolhido, semanas.get(i), dia);
+					novosEscolhidos[i] = membro.getId();
+					entradas.get(i).setValue(membro);
+				}
+			}
+		}
+		qtdDiasRecalculados = qtdDias - inicio;
+
+		// guardando a alocao para a prxima vez
+		if (idsValidos) {
+			dias = diasPeriodo;
+			estados = novosEstados;
+			escolhidos = novosEscolhidos;
+			qtdAntes = novasQtdAntes;
+			primeiraEscolha = new HashMap<Long, Integer>();
+			for (int i = qtdDias - 1; i >= 0; i--) {
+				if (novosEscolhidos[i] != null)
+					primeiraEscolha.put(novosEscolhidos[i], i);
+			}
+		} else {
+			dias = null;
+			estados = null;
+			escolhidos = null;
+			qtdAntes = null;
+			primeiraEscolha = null;
+		}
+		return true;
+	}
+
+	/**
+	 * qtd de dias recalculados na ltima alocao (os demais foram reaproveitados da alocao anterior)
+	 *
+	 * @return qtd de dias recalculados
+	 */
+	public synchronized int getQtdDiasRecalculados() {
+		return qtdDiasRecalculados;
+	}
+
+	/**
+	 * primeiro dia da alocao anterior em que a escolha pode mudar com os membros atuais
+	 *
+	 * @param novosEstados
+	 *            estado inicial dos membros atuais
+	 * @param qtdDias
+	 *            qtd de dias do perodo
+	 * @return ndice do dia ou qtdDias caso nenhum dia seja afetado
+	 */
+	private int primeiroDiaAfetado(Map<Long, EstadoMembro> novosEstados, int qtdDias) {
+		int inicio = qtdDias;
+		List<EstadoMembro> novos = new ArrayList<EstadoMembro>();
+
+		// removidos e alterados: a partir do primeiro dia em que foram escolhidos
+		for (EstadoMembro anterior : estados.values()) {
+			EstadoMembro atual = novosEstados.get(anterior.id);
+			if (atual == null || !atual.equals(anterior)) {
+				Integer dia = primeiraEscolha.get(anterior.id);
+				if (dia != null && dia < inicio)
+					inicio = dia;
+				if (atual != null)
+					novos.add(atual);
+			}
+		}
+		for (EstadoMembro atual : novosEstados.values()) {
+			if (!estados.containsKey(atual.id))
+				novos.add(atual);
+		}
+
+		// novos e alterados: a partir do primeiro dia em que venceriam o membro escolhido
+		for (EstadoMembro atual : novos) {
+			for (int i = 0; i < inicio; i++) {
+				Disponibilidade disponibilidade = Disponibilidade.getDisponibilidadeById(dias.get(i).dayOfWeek().get());
+				if ((atual.mascara & disponibilidade.getMascara()) != 0 && atual.venceria(escolhidos[i] == null ? null : estados.get(escolhidos[i]), qtdAntes[i])) {
+					inicio = i;
+					break;
+				}
+			}
+		}
+		return inicio;
+	}
+
+	/**
+	 * Estado inicial de um membro para a alocao: disponibilidades e dias j programados
+	 */
+	private static class EstadoMembro {
+		private final long id;
+		private final int mascara;
+		private final int qtdDisponibilidades;
+		private final int qtdProgramacoes;
+		private final Set<LocalDate> diasProgramados;
+
+		EstadoMembro(Membro membro) {
+			this.id = membro.getId();
+			this.mascara = membro.getMascaraDisponibilidades();
+			this.qtdDisponibilidades = membro.getQtdDisponibilidades();
+			this.qtdProgramacoes = membro.getQtdDiasProgramados();
+			this.diasProgramados = qtdProgramacoes == 0 ? Collections.<LocalDate> emptySet() : new HashSet<LocalDate>(membro.getDiasProgramados());
+		}
+
+		/**
+		 * mesma regra do ndice: ainda no escolhido, este membro teria prioridade sobre o escolhido no dia?
+		 *
+		 * @param escolhido
+		 *            estado do membro escolhido (null = dia sem membro)
+		 * @param qtdProgramacoesEscolhido
+		 *            qtd de programaes do escolhido no momento da escolha
+		 * @return true caso a escolha do dia mude
+		 */
+		boolean venceria(EstadoMembro escolhido, int qtdProgramacoesEscolhido) {
+			if (escolhido == null)
+				return true;
+			if (qtdProgramacoes != qtdProgramacoesEscolhido)
+				return qtdProgramacoes < qtdProgramacoesEscolhido;
+			if (qtdDisponibilidades != escolhido.qtdDisponibilidades)
+				return qtdDisponibilidades < escolhido.qtdDisponibilidades;
+			return id < escolhido.id;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (id ^ (id >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof EstadoMembro))
+				return false;
+			EstadoMembro other = (EstadoMembro) obj;
+			return id == other.id && mascara == other.mascara && qtdProgramacoes == other.qtdProgramacoes && diasProgramados.equals(other.diasProgramados);
+		}
+	}
+}
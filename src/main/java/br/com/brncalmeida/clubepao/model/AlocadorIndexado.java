@@ -0,0 +1,198 @@
+package br.com.brncalmeida.clubepao.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Alocao baseada em ndice: monta uma nica vez uma fila de prioridade por disponibilidade (qtd de programaes, qtd de disponibilidades e id) e a mantm
+ * atualizada a cada programao. Produz exatamente o mesmo resultado do {@link AlocadorSequencial}, sem varrer e reordenar todos os membros a cada dia.
+ *
+ * @author bruno.almeida
+ *
+ */
+public class AlocadorIndexado implements Alocador {
+
+	@Override
+	public boolean alocar(Periodo periodo, List<Membro> membros) {
+		Indice indice = new Indice(membros);
+		Calendario calendario = periodo.getCalendario();
+
+		// Calculando programao do perodo avaliado x membros com disponibilidade, direto sobre os dias do calendrio
+		for (int semana = 0; semana < calendario.getQtdSemanas(); semana++) {
+			int numeroSemana = semana + 1;
+
+			// iterando os dias da semana
+			for (int dia = calendario.getInicioSemana(semana); dia < calendario.getFimSemana(semana); dia++) {
+				Disponibilidade disponibilidade = Disponibilidade.getDisponibilidadeById(calendario.getDiaDaSemana(dia));
+				int escolhido = indice.primeiroForaDaSemana(disponibilidade, numeroSemana);
+				if (escolhido >= 0) {
+					calendario.setMembro(dia, indice.programar(escolhido, numeroSemana, calendario.getData(dia)));
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * ndice dos membros por disponibilidade. Os membros so referenciados pela posio na lista original, e as filas so ordenadas pela mesma regra do
+	 * {@link MembrosMenosSobrecarregadosComparator}.
+	 */
+	static class Indice implements Comparator<Integer> {
+
+		private static final Disponibilidade[] DISPONIBILIDADES = Disponibilidade.values();
+
+		private final Membro[] membros;
+		private final int[] qtdProgramacoes;
+		private final int[] qtdDisponibilidades;
+		private final long[] ids;
+		private final int[] disponibilidades;
+		private final int[] ultimaSemana;
+		private final List<TreeSet<Integer>> filas;
+
+		Indice(List<Membro> lista) {
+			this(lista, null);
+		}
+
+		/**
+		 * ndice com a qtd de programaes informada no lugar da qtd atual de cada membro
+		 *
+		 * @param lista
+		 *            membros indexados
+		 * @param cargas
+		 *            qtd de programaes por posio (null = qtd atual dos membros)
+		 */
+		Indice(List<Membro> lista, int[] cargas) {
+			int qtd = lista.size();
+			membros = lista.toArray(new Membro[qtd]);
+			qtdProgramacoes = new int[qtd];
+			qtdDisponibilidades = new int[qtd];
+			ids = new long[qtd];
+			disponibilidades = new int[qtd];
+			ultimaSemana = new int[qtd];
+
+			filas = new ArrayList<TreeSet<Integer>>(DISPONIBILIDADES.length);
+			for (int i = 0; i < DISPONIBILIDADES.length; i++) {
+				filas.add(new TreeSet<Integer>(this));
+			}
+
+			for (int i = 0; i < qtd; i++) {
+				Membro membro = membros[i];
+				qtdProgramacoes[i] = cargas == null ? membro.getQtdDiasProgramados() : cargas[i];
+				qtdDisponibilidades[i] = membro.getQtdDisponibilidades();
+				disponibilidades[i] = membro.getMascaraDisponibilidades();
+				// membros ainda no persistidos ficam por ltimo no desempate
+				ids[i] = membro.getId() == null ? Long.MAX_VALUE : membro.getId();
+				adicionarNasFilas(i);
+			}
+		}
+
+		/**
+		 * busca o membro com maior prioridade para a disponibilidade que ainda no foi programado na semana
+		 *
+		 * @param disponibilidade
+		 *            disponibilidade do dia
+		 * @param semana
+		 *            nmero da semana no perodo
+		 * @return posio do membro ou -1 caso no exista membro disponvel
+		 */
+		int primeiroForaDaSemana(Disponibilidade disponibilidade, int semana) {
+			for (Integer candidato : filas.get(disponibilidade.ordinal())) {
+				if (ultimaSemana[candidato] != semana) {
+					return candidato;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * programa o membro no dia, reposicionando-o nas filas das suas disponibilidades
+		 *
+		 * @param posicao
+		 *            posio do membro
+		 * @param semana
+		 *            nmero da semana no perodo
+		 * @param dia
+		 *            dia programado
+		 * @return membro programado
+		 */
+		Membro programar(int posicao, int semana, LocalDate dia) {
+			Membro membro = membros[posicao];
+			reservar(posicao, semana, membro.addDiaProgramado(dia));
+			return membro;
+		}
+
+		/**
+		 * reserva o membro na semana sem alterar o membro, somente o ndice
+		 *
+		 * @param posicao
+		 *            posio do membro
+		 * @param semana
+		 *            nmero da semana no perodo
+		 * @param novoDia
+		 *            true = o dia ainda no estava programado para o membro, contando como nova programao
+		 */
+		void reservar(int posicao, int semana, boolean novoDia) {
+			ultimaSemana[posicao] = semana;
+			if (novoDia) {
+				removerDasFilas(posicao);
+				qtdProgramacoes[posicao]++;
+				adicionarNasFilas(posicao);
+			}
+		}
+
+		/**
+		 * marca o membro como j programado na semana, sem alterar sua qtd de programaes
+		 *
+		 * @param posicao
+		 *            posio do membro
+		 * @param semana
+		 *            nmero da semana no perodo
+		 */
+		void marcarSemana(int posicao, int semana) {
+			ultimaSemana[posicao] = semana;
+		}
+
+		/**
+		 * qtd de programaes atual do membro
+		 *
+		 * @param posicao
+		 *            posio do membro
+		 * @return qtd de programaes
+		 */
+		int getQtdProgramacoes(int posicao) {
+			return qtdProgramacoes[posicao];
+		}
+
+		@Override
+		public int compare(Integer primeiro, Integer segundo) {
+			int a = primeiro;
+			int b = segundo;
+			if (qtdProgramacoes[a] != qtdProgramacoes[b])
+				return qtdProgramacoes[a] < qtdProgramacoes[b] ? -1 : 1;
+			if (qtdDisponibilidades[a] != qtdDisponibilidades[b])
+				return qtdDisponibilidades[a] < qtdDisponibilidades[b] ? -1 : 1;
+			if (ids[a] != ids[b])
+				return ids[a] < ids[b] ? -1 : 1;
+			return a < b ? -1 : (a == b ? 0 : 1);
+		}
+
+		private void adicionarNasFilas(int posicao) {
+			for (Disponibilidade disponibilidade : DISPONIBILIDADES) {
+				if ((disponibilidades[posicao] & disponibilidade.getMascara()) != 0)
+					filas.get(disponibilidade.ordinal()).add(posicao);
+			}
+		}
+
+		private void removerDasFilas(int posicao) {
+			for (Disponibilidade disponibilidade : DISPONIBILIDADES) {
+				if ((disponibilidades[posicao] & disponibilidade.getMascara()) != 0)
+					filas.get(disponibilidade.ordinal()).remove(posicao);
+			}
+		}
+	}
+
+}
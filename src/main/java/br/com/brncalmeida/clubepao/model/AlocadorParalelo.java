@@ -0,0 +1,383 @@
+package br.com.brncalmeida.clubepao.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Alocao paralela por blocos de semanas: as semanas do perodo so divididas em blocos e cada bloco  calculado de forma independente em um
+ * {@link ForkJoinPool}, com o mesmo ndice do {@link AlocadorIndexado} partindo da carga inicial dos membros, sem alterar os membros.
+ *
+ * Como os blocos no conhecem a carga uns dos outros, a conciliao  feita em seguida, bloco a bloco e na ordem do perodo: dentro de cada grupo de membros com
+ * as mesmas disponibilidades (intercambiveis entre si), quem recebeu mais dias no bloco assume a programao de quem tem a menor carga acumulada; depois, membros
+ * de grupos diferentes trocam a programao do bloco quando cada um tem disponibilidade para os dias do outro e a troca reduz a carga do mais sobrecarregado.
+ * As trocas so permutaes, preservando as disponibilidades e a regra de um dia por semana, e o resultado  sempre o mesmo, independente da qtd de threads.
+ *
+ * Com um nico bloco ou com poucos membros, a alocao  delegada ao {@link AlocadorIndexado} (mesmo resultado do {@link AlocadorSequencial}); nos demais casos
+ * a distribuio da carga  equivalente  da alocao sequencial, mas no necessariamente a mesma. O pool pertence a quem cria o alocador (ex.:
+ * {@link br.com.brncalmeida.clubepao.services.ProgramacaoIncremental}), que o encerra junto com a aplicao.
+ *
+ * @author bruno.almeida
+ *
+ */
+public class AlocadorParalelo implements Alocador {
+
+	/**
+	 * qtd de semanas de cada bloco: um perodo de 30 dias (5 ou 6 semanas)  dividido em 3 blocos
+	 */
+	public static final int SEMANAS_POR_BLOCO_PADRAO = 2;
+
+	private static final int DIAS_POR_SEMANA = 5;
+	private static final int LIMITE_CANDIDATOS = 32;
+
+	private final ForkJoinPool pool;
+	private final int semanasPorBloco;
+
+	/**
+	 * Construtor com o pool informado e blocos de {@value #SEMANAS_POR_BLOCO_PADRAO} semanas
+	 *
+	 * @param pool
+	 *            pool utilizado no clculo dos blocos
+	 */
+	public AlocadorParalelo(ForkJoinPool pool) {
+		this(pool, SEMANAS_POR_BLOCO_PADRAO);
+	}
+
+	/**
+	 * Construtor com pool e tamanho de bloco informados
+	 *
+	 * @param pool
+	 *            pool utilizado no clculo dos blocos
+	 * @param semanasPorBloco
+	 *            qtd de semanas de cada bloco
+	 */
+	public AlocadorParalelo(ForkJoinPool pool, int semanasPorBloco) {
+		if (pool == null)
+			throw new NullPointerException("campo pool invalido");
+		if (semanasPorBloco < 1)
+			throw new IllegalArgumentException("Qtd de semanas por bloco invlida: " + semanasPorBloco);
+		this.pool = pool;
+		this.semanasPorBloco = semanasPorBloco;
+	}
+
+	@Override
+	public boolean alocar(Periodo periodo, List<Membro> membros) {
+		Calendario calendario = periodo.getCalendario();
+		int qtdBlocos = (calendario.getQtdSemanas() + semanasPorBloco - 1) / semanasPorBloco;
+
+		// com um nico bloco ou poucos membros (vrios dias por membro em cada bloco, dificultando a conciliao), a alocao indexada  suficiente
+		if (qtdBlocos < 2 || membros.size() < DIAS_POR_SEMANA * semanasPorBloco)
+			return new AlocadorIndexado().alocar(periodo, membros);
+
+		// dados lidos pelos blocos, calculados antes na thread chamadora (mscara e colees dos membros so inicializadas sob demanda)
+		Map<Integer, Set<LocalDate>> jaProgramados = buscarDiasJaProgramados(calendario, membros);
+		int[] cargas = new int[membros.size()];
+		for (int i = 0; i < cargas.length; i++) {
+			membros.get(i).getMascaraDisponibilidades();
+			cargas[i] = membros.get(i).getQtdDiasProgramados();
+		}
+
+		Bloco[] blocos = new Bloco[qtdBlocos];
+		for (int i = 0; i < blocos.length; i++) {
+			int inicio = i * semanasPorBloco;
+			blocos[i] = new Bloco(calendario, inicio, Math.min(inicio + semanasPorBloco, calendario.getQtdSemanas()));
+		}
+
+		// fase 1: blocos calculados em paralelo, sem alterar os membros nem o calendrio
+		pool.invoke(new Calculo(blocos, 0, blocos.length, membros, cargas, jaProgramados));
+
+		// fase 2: conciliao da carga entre os blocos, na ordem do perodo (o primeiro bloco j parte da carga real)
+		Conciliacao conciliacao = new Conciliacao(membros, cargas.clone());
+		for (int i = 0; i < blocos.length; i++) {
+			blocos[i].aplicar(membros, i == 0 ? null : conciliacao.permutacao(blocos[i]), conciliacao.cargas);
+		}
+		return true;
+	}
+
+	/**
+	 * dias do perodo que j estavam programados para cada membro
+	 *
+	 * @return posio do membro x dias j programados dentro do perodo
+	 */
+	private static Map<Integer, Set<LocalDate>> buscarDiasJaProgramados(Calendario calendario, List<Membro> membros) {
+		Map<Integer, Set<LocalDate>> jaProgramados = new HashMap<Integer, Set<LocalDate>>();
+		for (int i = 0; i < membros.size(); i++) {
+			if (membros.get(i).getQtdDiasProgramados() == 0)
+				continue;
+			for (LocalDate dia : membros.get(i).getDiasProgramados()) {
+				if (calendario.getPosicao(dia) >= 0) {
+					Set<LocalDate> dias = jaProgramados.get(i);
+					if (dias == null) {
+						dias = new HashSet<LocalDate>();
+						jaProgramados.put(i, dias);
+					}
+					dias.add(dia);
+				}
+			}
+		}
+		return jaProgramados;
+	}
+
+	/**
+	 * Bloco de semanas consecutivas do perodo: escolhe os membros de cada dia (fase 1) e aplica a escolha conciliada (fase 2)
+	 */
+	private static class Bloco {
+		private final Calendario calendario;
+		private final int primeiraSemana;
+		private final int fimSemanas;
+		private final int primeiroDia;
+		private int[] escolhidos;
+		private int[] qtdNoBloco;
+		private int[] diasDaSemana;
+
+		Bloco(Calendario calendario, int primeiraSemana, int fimSemanas) {
+			this.calendario = calendario;
+			this.primeiraSemana = primeiraSemana;
+			this.fimSemanas = fimSemanas;
+			this.primeiroDia = calendario.getInicioSemana(primeiraSemana);
+		}
+
+		/**
+		 * escolhe os membros de cada dia do bloco partindo da carga inicial dos membros
+		 */
+		void calcular(List<Membro> membros, int[] cargas, Map<Integer, Set<LocalDate>> jaProgramados) {
+			AlocadorIndexado.Indice indice = new AlocadorIndexado.Indice(membros, cargas);
+			escolhidos = new int[calendario.getFimSemana(fimSemanas - 1) - primeiroDia];
+			qtdNoBloco = new int[membros.size()];
+			diasDaSemana = new int[membros.size()];
+			for (int semana = primeiraSemana; semana < fimSemanas; semana++) {
+				int numeroSemana = semana + 1;
+				for (int dia = calendario.getInicioSemana(semana); dia < calendario.getFimSemana(semana); dia++) {
+					Disponibilidade disponibilidade = Disponibilidade.getDisponibilidadeById(calendario.getDiaDaSemana(dia));
+					int escolhido = indice.primeiroForaDaSemana(disponibilidade, numeroSemana);
+					if (escolhido >= 0) {
+						diasDaSemana[escolhido] |= disponibilidade.getMascara();
+						Set<LocalDate> programados = jaProgramados.get(escolhido);
+						boolean novoDia = programados == null || !programados.contains(calendario.getData(dia));
+						indice.reservar(escolhido, numeroSemana, novoDia);
+						if (novoDia)
+							qtdNoBloco[escolhido]++;
+					}
+					escolhidos[dia - primeiroDia] = escolhido;
+				}
+			}
+		}
+
+		/**
+		 * programa os membros escolhidos, trocados pela permutao da conciliao
+		 */
+		void aplicar(List<Membro> membros, int[] permutacao, int[] cargas) {
+			for (int i = 0; i < escolhidos.length; i++) {
+				if (escolhidos[i] >= 0) {
+					int posicao = permutacao == null ? escolhidos[i] : permutacao[escolhidos[i]];
+					Membro membro = membros.get(posicao);
+					if (membro.addDiaProgramado(calendario.getData(primeiroDia + i)))
+						cargas[posicao]++;
+					calendario.setMembro(primeiroDia + i, membro);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Clculo dos blocos no pool, dividindo o intervalo de blocos ao meio at restar um nico bloco
+	 */
+	private static class Calculo extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Bloco[] blocos;
+		private final int inicio;
+		private final int fim;
+		private final List<Membro> membros;
+		private final int[] cargas;
+		private final Map<Integer, Set<LocalDate>> jaProgramados;
+
+		Calculo(Bloco[] blocos, int inicio, int fim, List<Membro> membros, int[] cargas, Map<Integer, Set<LocalDate>> jaProgramados) {
+			this.blocos = blocos;
+			this.inicio = inicio;
+			this.fim = fim;
+			this.membros = membros;
+			this.cargas = cargas;
+			this.jaProgramados = jaProgramados;
+		}
+
+		@Override
+		protected void compute() {
+			if (fim - inicio == 1) {
+				blocos[inicio].calcular(membros, cargas, jaProgramados);
+			} else {
+				int meio = (inicio + fim) >>> 1;
+				invokeAll(new Calculo(blocos, inicio, meio, membros, cargas, jaProgramados), new Calculo(blocos, meio, fim, membros, cargas, jaProgramados));
+			}
+		}
+	}
+
+	/**
+	 * Conciliao determinstica da carga: permutao dos membros dentro de cada grupo de mesmas disponibilidades
+	 */
+	private static class Conciliacao {
+		private final int[][] grupos;
+		private final int[] mascaras;
+		private final long[] ids;
+		private final int[] cargas;
+
+		Conciliacao(List<Membro> membros, int[] cargas) {
+			this.cargas = cargas;
+			this.ids = new long[membros.size()];
+			this.mascaras = new int[membros.size()];
+			Map<Integer, List<Integer>> porMascara = new TreeMap<Integer, List<Integer>>();
+			for (int i = 0; i < membros.size(); i++) {
+				Membro membro = membros.get(i);
+				ids[i] = membro.getId() == null ? Long.MAX_VALUE : membro.getId();
+				mascaras[i] = membro.getMascaraDisponibilidades();
+				List<Integer> grupo = porMascara.get(membro.getMascaraDisponibilidades());
+				if (grupo == null) {
+					grupo = new ArrayList<Integer>();
+					porMascara.put(membro.getMascaraDisponibilidades(), grupo);
+				}
+				grupo.add(i);
+			}
+			List<int[]> lista = new ArrayList<int[]>();
+			for (List<Integer> grupo : porMascara.values()) {
+				if (grupo.size() > 1) {
+					int[] posicoes = new int[grupo.size()];
+					for (int i = 0; i < posicoes.length; i++) {
+						posicoes[i] = grupo.get(i);
+					}
+					lista.add(posicoes);
+				}
+			}
+			this.grupos = lista.toArray(new int[lista.size()][]);
+		}
+
+		/**
+		 * em cada grupo, o membro com mais dias no bloco assume o lugar do membro com a menor carga acumulada, e assim por diante
+		 *
+		 * @return posio escolhida no bloco x posio que assume a programao
+		 */
+		int[] permutacao(final Bloco bloco) {
+			int[] permutacao = new int[cargas.length];
+			for (int i = 0; i < permutacao.length; i++) {
+				permutacao[i] = i;
+			}
+			for (int[] grupo : grupos) {
+				Integer[] origem = new Integer[grupo.length];
+				Integer[] destino = new Integer[grupo.length];
+				boolean programado = false;
+				for (int i = 0; i < grupo.length; i++) {
+					origem[i] = grupo[i];
+					destino[i] = grupo[i];
+					programado |= bloco.qtdNoBloco[grupo[i]] > 0;
+				}
+				if (!programado)
+					continue;
+				Arrays.sort(origem, new Comparator<Integer>() {
+					@Override
+					public int compare(Integer a, Integer b) {
+						if (bloco.qtdNoBloco[a] != bloco.qtdNoBloco[b])
+							return bloco.qtdNoBloco[a] > bloco.qtdNoBloco[b] ? -1 : 1;
+						return desempatar(a, b);
+					}
+				});
+				Arrays.sort(destino, new Comparator<Integer>() {
+					@Override
+					public int compare(Integer a, Integer b) {
+						if (cargas[a] != cargas[b])
+							return cargas[a] < cargas[b] ? -1 : 1;
+						return desempatar(a, b);
+					}
+				});
+				for (int i = 0; i < grupo.length; i++) {
+					permutacao[origem[i]] = destino[i];
+				}
+			}
+			trocarEntreGrupos(bloco, permutacao);
+			return permutacao;
+		}
+
+		/**
+		 * troca a programao do bloco entre membros de grupos diferentes, do mais sobrecarregado para o menos sobrecarregado, quando cada um tem disponibilidade
+		 * para os dias da semana do outro e a troca reduz a maior carga do par
+		 */
+		private void trocarEntreGrupos(Bloco bloco, int[] permutacao) {
+			final int qtd = cargas.length;
+			int[] origem = new int[qtd];
+			final int[] qtdNoBloco = new int[qtd];
+			int[] diasDaSemana = new int[qtd];
+			List<Integer> programados = new ArrayList<Integer>();
+			for (int i = 0; i < qtd; i++) {
+				origem[permutacao[i]] = i;
+				qtdNoBloco[permutacao[i]] = bloco.qtdNoBloco[i];
+				diasDaSemana[permutacao[i]] = bloco.diasDaSemana[i];
+			}
+			Integer[] menosCarregados = new Integer[qtd];
+			for (int i = 0; i < qtd; i++) {
+				menosCarregados[i] = i;
+				if (qtdNoBloco[i] > 0)
+					programados.add(i);
+			}
+			Arrays.sort(menosCarregados, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer a, Integer b) {
+					if (cargas[a] != cargas[b])
+						return cargas[a] < cargas[b] ? -1 : 1;
+					return desempatar(a, b);
+				}
+			});
+			Collections.sort(programados, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer a, Integer b) {
+					int cargaA = cargas[a] + qtdNoBloco[a];
+					int cargaB = cargas[b] + qtdNoBloco[b];
+					if (cargaA != cargaB)
+						return cargaA > cargaB ? -1 : 1;
+					return desempatar(a, b);
+				}
+			});
+
+			boolean[] trocado = new boolean[qtd];
+			int primeiroLivre = 0;
+			for (int a : programados) {
+				if (trocado[a])
+					continue;
+				while (primeiroLivre < qtd && trocado[menosCarregados[primeiroLivre]])
+					primeiroLivre++;
+				int avaliados = 0;
+				for (int i = primeiroLivre; i < qtd && avaliados < LIMITE_CANDIDATOS; i++) {
+					int b = menosCarregados[i];
+					if (cargas[b] >= cargas[a])
+						break;
+					if (trocado[b] || mascaras[b] == mascaras[a])
+						continue;
+					avaliados++;
+					boolean compativel = (mascaras[b] & diasDaSemana[a]) == diasDaSemana[a] && (mascaras[a] & diasDaSemana[b]) == diasDaSemana[b];
+					int maiorCarga = Math.max(cargas[a] + qtdNoBloco[a], cargas[b] + qtdNoBloco[b]);
+					if (compativel && Math.max(cargas[a] + qtdNoBloco[b], cargas[b] + qtdNoBloco[a]) < maiorCarga) {
+						permutacao[origem[a]] = b;
+						permutacao[origem[b]] = a;
+						trocado[a] = true;
+						trocado[b] = true;
+						break;
+					}
+				}
+			}
+		}
+
+		private int desempatar(int a, int b) {
+			if (ids[a] != ids[b])
+				return ids[a] < ids[b] ? -1 : 1;
+			return a < b ? -1 : (a == b ? 0 : 1);
+		}
+	}
+}
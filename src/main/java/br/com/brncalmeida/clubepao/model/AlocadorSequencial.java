@@ -0,0 +1,68 @@
+package br.com.brncalmeida.clubepao.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Alocao original: para cada dia til procura os membros com a disponibilidade, ordena e escolhe o primeiro que ainda no est na semana. Mantida como referncia
+ * para validar as demais estratgias.
+ *
+ * @author bruno.almeida
+ *
+ */
+public class AlocadorSequencial implements Alocador {
+
+	@Override
+	public boolean alocar(Periodo periodo, List<Membro> membros) {
+		List<Membro> membrosDisponiveis;
+		Disponibilidade disponibilidadeProcurada;
+
+		// Calculando programao do perodo avaliado x membros com disponibilidade
+		for (Semana semana : periodo.getSemanas()) {
+
+			// iterando os dias da semana
+			for (Entry<LocalDate, Membro> dia : semana.getDias().entrySet()) {
+				int diaSemana = dia.getKey().dayOfWeek().get();
+				disponibilidadeProcurada = Disponibilidade.getDisponibilidadeById(diaSemana);
+				membrosDisponiveis = procurarDisponibilidade(disponibilidadeProcurada, membros);
+
+				// ordenando: 1o = quem tiver a menor qtd de programaes / 2o = quem tiver menor disponibilidade.
+				Collections.sort(membrosDisponiveis, new MembrosMenosSobrecarregadosComparator());
+
+				// iterando membros disponiveis para o dia
+				for (Membro membroDisponivel : membrosDisponiveis) {
+					if (!semana.existeMembro(membroDisponivel)) {
+						membroDisponivel.addDiaProgramado(dia.getKey());
+						dia.setValue(membroDisponivel);
+						break;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Mtodo reponsvel por validar o membro tem a disponibilidade informada
+	 *
+	 * @param disponibilidade
+	 *            disponibilidade buscada
+	 * @param membros
+	 *            Lista de membros avaliados
+	 * @return Membros que contm a disponibilidade informada
+	 */
+	private List<Membro> procurarDisponibilidade(Disponibilidade disponibilidade, List<Membro> membros) {
+		List<Membro> membrosComDisponibilidade = new ArrayList<Membro>();
+		for (Membro membro : membros) {
+			if (membro.possuiDisponibilidade(disponibilidade)) {
+				membrosComDisponibilidade.add(membro);
+			}
+		}
+		return membrosComDisponibilidade;
+	}
+
+}
@@ -0,0 +1,358 @@
+package br.com.brncalmeida.clubepao.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+
+import br.com.brncalmeida.clubepao.utils.CalendarioFeriados;
+
+/**
+ * Calendrio compacto de um perodo: os dias teis so guardados em ordem como dias desde a poca (1970-01-01), com o membro programado na mesma posio e o
+ * ndice do primeiro dia de cada semana. No cria um objeto por dia; datas, mapas e semanas ({@link Periodo}, {@link Semana}) so vises montadas sob demanda sobre
+ * estes arrays.
+ *
+ * As semanas seguem a mesma regra do {@link Periodo}: terminam no domingo ou na data final, que no  includa.
+ *
+ * A qtd de dias e de dias com membro de cada dia da semana  contada na montagem e a cada dia programado ({@link #setMembro(int, Membro)}), sem percorrer o
+ * calendrio aps a alocao.
+ *
+ * @author bruno.almeida
+ *
+ */
+public class Calendario {
+
+	private static final LocalDate EPOCA = new LocalDate(1970, 1, 1);
+
+	private final LocalDate dataInicial;
+	private final int epocaInicial;
+	private final int[] dias;
+	private final int[] inicioSemanas;
+	private final Membro[] membros;
+	private final int[] qtdDiasPorDiaDaSemana = new int[7];
+	private final int[] qtdDiasComMembro = new int[7];
+
+	/**
+	 * Construtor default, a partir do range de datas, calcula os dias teis e as semanas
+	 *
+	 * @param dataInicial
+	 *            data inicial do range
+	 * @param dataFinal
+	 *            data final do range (no includa)
+	 */
+	public Calendario(LocalDate dataInicial, LocalDate dataFinal) {
+		this(dataInicial, dataFinal, false);
+	}
+
+	/**
+	 * Construtor com a opo de considerar todo o range como uma nica semana ({@link Semana})
+	 */
+	Calendario(LocalDate dataInicial, LocalDate dataFinal, boolean semanaUnica) {
+		if (dataInicial == null)
+			throw new NullPointerException("Data inicial no pode ser nula");
+		if (dataFinal == null)
+			throw new NullPointerException("Data final no pode ser nula");
+
+		this.dataInicial = dataInicial;
+		this.epocaInicial = Days.daysBetween(EPOCA, dataInicial).getDays();
+		int[] deslocamentos = CalendarioFeriados.getInstance().buscarDeslocamentosDiasUteis(dataInicial, dataFinal);
+		this.dias = new int[deslocamentos.length];
+		this.membros = new Membro[deslocamentos.length];
+		for (int i = 0; i < deslocamentos.length; i++) {
+			dias[i] = epocaInicial + deslocamentos[i];
+			qtdDiasPorDiaDaSemana[getDiaDaSemana(i) - 1]++;
+		}
+
+		if (semanaUnica) {
+			this.inicioSemanas = new int[] { 0, dias.length };
+		} else {
+			// semana: do incio at o domingo (ou a data final), a prxima semana comea na segunda
+			int qtdDias = Math.max(0, Days.daysBetween(dataInicial, dataFinal).getDays());
+			int[] inicios = new int[qtdDias / 7 + 3];
+			int qtdSemanas = 0;
+			int posicao = 0;
+			for (int inicio = 0, fim = 7 - dataInicial.getDayOfWeek(); inicio < qtdDias; inicio = fim + 1, fim += 7) {
+				inicios[qtdSemanas++] = posicao;
+				while (posicao < deslocamentos.length && deslocamentos[posicao] < Math.min(fim, qtdDias)) {
+					posicao++;
+				}
+			}
+			inicios[qtdSemanas] = dias.length;
+			this.inicioSemanas = Arrays.copyOf(inicios, qtdSemanas + 1);
+		}
+	}
+
+	/**
+	 * qtd de dias teis
+	 *
+	 * @return qtd de dias
+	 */
+	public int getQtdDias() {
+		return dias.length;
+	}
+
+	/**
+	 * qtd de semanas, inclusive semanas sem dias teis
+	 *
+	 * @return qtd de semanas
+	 */
+	public int getQtdSemanas() {
+		return inicioSemanas.length - 1;
+	}
+
+	/**
+	 * posio do primeiro dia da semana
+	 *
+	 * @param semana
+	 *            ndice da semana (a partir de 0)
+	 * @return posio do dia
+	 */
+	public int getInicioSemana(int semana) {
+		return inicioSemanas[semana];
+	}
+
+	/**
+	 * posio seguinte ao ltimo dia da semana
+	 *
+	 * @param semana
+	 *            ndice da semana (a partir de 0)
+	 * @return posio do dia
+	 */
+	public int getFimSemana(int semana) {
+		return inicioSemanas[semana + 1];
+	}
+
+	/**
+	 * dia til como qtd de dias desde 1970-01-01
+	 *
+	 * @param posicao
+	 *            posio do dia
+	 * @return dia desde a poca
+	 */
+	public int getDiaEpoca(int posicao) {
+		return dias[posicao];
+	}
+
+	/**
+	 * data do dia til, criada a cada chamada
+	 *
+	 * @param posicao
+	 *            posio do dia
+	 * @return data
+	 */
+	public LocalDate getData(int posicao) {
+		return dataInicial.plusDays(dias[posicao] - epocaInicial);
+	}
+
+	/**
+	 * dia da semana do dia til (1 = segunda ... 7 = domingo), calculado sem criar a data
+	 *
+	 * @param posicao
+	 *            posio do dia
+	 * @return dia da semana
+	 */
+	public int getDiaDaSemana(int posicao) {
+		// 1970-01-01 foi uma quinta-feira
+		return ((dias[posicao] + 3) % 7 + 7) % 7 + 1;
+	}
+
+	/**
+	 * membro programado no dia
+	 *
+	 * @param posicao
+	 *            posio do dia
+	 * @return membro ou null caso o dia esteja sem membro
+	 */
+	public Membro getMembro(int posicao) {
+		return membros[posicao];
+	}
+
+	/**
+	 * programa o membro no dia, sem alterar o membro
+	 *
+	 * @param posicao
+	 *            posio do dia
+	 * @param membro
+	 *            membro programado (null = dia sem membro)
+	 */
+	public void setMembro(int posicao, Membro membro) {
+		if ((membros[posicao] == null) != (membro == null))
+			qtdDiasComMembro[getDiaDaSemana(posicao) - 1] += membro == null ? -1 : 1;
+		membros[posicao] = membro;
+	}
+
+	/**
+	 * qtd de dias teis do dia da semana
+	 *
+	 * @param disponibilidade
+	 *            dia da semana
+	 * @return qtd de dias
+	 */
+	public int getQtdDias(Disponibilidade disponibilidade) {
+		return qtdDiasPorDiaDaSemana[disponibilidade.getId() - 1];
+	}
+
+	/**
+	 * qtd de dias teis do dia da semana com membro programado
+	 *
+	 * @param disponibilidade
+	 *            dia da semana
+	 * @return qtd de dias com membro
+	 */
+	public int getQtdDiasComMembro(Disponibilidade disponibilidade) {
+		return qtdDiasComMembro[disponibilidade.getId() - 1];
+	}
+
+	/**
+	 * posio da data no calendrio
+	 *
+	 * @param data
+	 *            data buscada
+	 * @return posio ou valor negativo caso a data no seja um dia til do calendrio
+	 */
+	public int getPosicao(LocalDate data) {
+		return Arrays.binarySearch(dias, epocaInicial + Days.daysBetween(dataInicial, data).getDays());
+	}
+
+	/**
+	 * validao se o membro j est programado em algum dia do intervalo de posies
+	 *
+	 * @param inicio
+	 *            primeira posio
+	 * @param fim
+	 *            posio seguinte  ltima
+	 * @param membro
+	 *            membro buscado
+	 * @return true = "membro programado no intervalo"
+	 */
+	public boolean existeMembro(int inicio, int fim, Membro membro) {
+		for (int i = inicio; i < fim; i++) {
+			if (membro == null ? membros[i] == null : membro.equals(membros[i]))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * limpa a programao de todos os dias
+	 */
+	public void resetarProgramacaoMembros() {
+		Arrays.fill(membros, null);
+		Arrays.fill(qtdDiasComMembro, 0);
+	}
+
+	/**
+	 * primeira posio do calendrio com data igual ou posterior  data informada
+	 *
+	 * @param data
+	 *            data buscada
+	 * @return posio ou {@link #getQtdDias()} caso a data seja posterior ao ltimo dia til
+	 */
+	public int getPosicaoAPartirDe(LocalDate data) {
+		int posicao = getPosicao(data);
+		return posicao >= 0 ? posicao : -posicao - 1;
+	}
+
+	/**
+	 * programao dos dias teis x nome do membro, como viso somente leitura sobre o calendrio: as datas so criadas durante a iterao
+	 *
+	 * @return map(key=dia programao / value=nome do membro, null = dia sem membro)
+	 */
+	public Map<Date, String> getCronograma() {
+		return getCronograma(0, dias.length);
+	}
+
+	/**
+	 * trecho da programao dos dias teis x nome do membro, como viso somente leitura sobre o intervalo de posies informado
+	 *
+	 * @param inicio
+	 *            primeira posio
+	 * @param fim
+	 *            posio seguinte  ltima
+	 * @return map(key=dia programao / value=nome do membro, null = dia sem membro)
+	 */
+	public Map<Date, String> getCronograma(final int inicio, final int fim) {
+		if (inicio < 0 || fim > dias.length || inicio > fim)
+			throw new IndexOutOfBoundsException("Intervalo invalido: " + inicio + " a " + fim + " de " + dias.length);
+		return new AbstractMap<Date, String>() {
+			@Override
+			public Set<Entry<Date, String>> entrySet() {
+				return new AbstractSet<Entry<Date, String>>() {
+					@Override
+					public Iterator<Entry<Date, String>> iterator() {
+						return new Iterator<Entry<Date, String>>() {
+							private int posicao = inicio;
+
+							@Override
+							public boolean hasNext() {
+								return posicao < fim;
+							}
+
+							@Override
+							public Entry<Date, String> next() {
+								if (posicao >= fim)
+									throw new NoSuchElementException();
+								Membro membro = membros[posicao];
+								return new SimpleImmutableEntry<Date, String>(getData(posicao++).toDate(), membro == null ? null : membro.getNome());
+							}
+
+							@Override
+							public void remove() {
+								throw new UnsupportedOperationException();
+							}
+						};
+					}
+
+					@Override
+					public int size() {
+						return fim - inicio;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return fim - inicio;
+			}
+
+			@Override
+			public boolean containsKey(Object chave) {
+				return posicao(chave) >= 0;
+			}
+
+			@Override
+			public String get(Object chave) {
+				int posicao = posicao(chave);
+				return posicao < 0 || membros[posicao] == null ? null : membros[posicao].getNome();
+			}
+
+			private int posicao(Object chave) {
+				if (!(chave instanceof Date))
+					return -1;
+				int posicao = getPosicao(new LocalDate(chave));
+				return posicao < inicio || posicao >= fim ? -1 : posicao;
+			}
+		};
+	}
+
+	/**
+	 * programao dos dias teis x id do membro
+	 *
+	 * @return map(key=dia programao / value=id do membro, null = dia sem membro)
+	 */
+	public Map<LocalDate, Long> getIds() {
+		Map<LocalDate, Long> ids = new TreeMap<LocalDate, Long>();
+		for (int i = 0; i < dias.length; i++) {
+			ids.put(getData(i), membros[i] == null ? null : membros[i].getId());
+		}
+		return ids;
+	}
+}
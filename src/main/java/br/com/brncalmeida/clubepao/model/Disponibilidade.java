@@ -37,6 +37,15 @@ public enum Disponibilidade {
 		return message;
 	}
 
+	/**
+	 * bit que representa a disponibilidade na mscara de disponibilidades do membro
+	 * 
+	 * @return mscara com somente o bit desta disponibilidade
+	 */
+	public int getMascara() {
+		return 1 << (id - 1);
+	}
+
 	@Override
 	public String toString() {
 		return Util.primeiraLetraMaiuscula(super.toString().substring(0, 3));
@@ -5,13 +5,19 @@ import java.util.Comparator;
 import java.util.Set;
 import java.util.TreeSet;
 
+import javax.persistence.Column;
 import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
 import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Transient;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Index;
 import org.hibernate.annotations.Type;
 import org.hibernate.collection.internal.PersistentSet;
 import org.hibernate.validator.constraints.NotEmpty;
@@ -24,8 +30,19 @@ import org.joda.time.LocalDate;
  * 
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Membro {
 
+	/**
+	 * regio do cache das consultas de membros (ehcache.xml), invalidada pelo hibernate a cada escrita em membros
+	 */
+	public static final String REGIAO_CONSULTAS = "membros";
+
+	/**
+	 * clube dos membros cadastrados sem clube (inclusive os j existentes antes da separao por clube)
+	 */
+	public static final String CLUBE_PADRAO = "padrao";
+
 	@Id
 	@GeneratedValue
 	private Long id;
@@ -38,14 +55,36 @@ public class Membro {
 	@Size(min = 4)
 	private String email;
 
+	// o default da coluna preenche os membros j existentes quando o hbm2ddl inclui a coluna
+	@Column(nullable = false, length = 50, columnDefinition = "varchar(50) default '" + CLUBE_PADRAO + "'")
+	@Index(name = "idx_membro_clube")
+	private String clube = CLUBE_PADRAO;
+
+	// carga em lote das colees quando no h fetch join (evita uma consulta por membro)
 	@ElementCollection
 	@Enumerated(javax.persistence.EnumType.STRING)
+	@BatchSize(size = 50)
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	private Set<Disponibilidade> disponibilidades;
 
 	@ElementCollection
+	@BatchSize(size = 50)
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	@Type(type = "org.joda.time.contrib.hibernate.PersistentLocalDate")
 	private Set<LocalDate> diasProgramados;
 
+	@Transient
+	private int mascaraDisponibilidades;
+
+	@Transient
+	private Set<Disponibilidade> disponibilidadesDaMascara;
+
+	@Transient
+	private int[] qtdDiasPorDiaDaSemana;
+
+	@Transient
+	private Set<LocalDate> diasDaContagem;
+
 	/**
 	 * toString com nome do membro
 	 */
@@ -122,6 +161,42 @@ public class Membro {
 		this.disponibilidades = disponibilidades;
 	}
 
+	/**
+	 * cpia desvinculada da sesso do hibernate, com as mesmas disponibilidades e programaes. Alteraes na cpia no afetam o membro original.
+	 *
+	 * @return nova instncia do membro
+	 */
+	public Membro copiar() {
+		Membro copia = new Membro(nome, email);
+		copia.id = id;
+		copia.clube = clube;
+		if (disponibilidades != null) {
+			copia.disponibilidades().addAll(disponibilidades);
+		}
+		if (diasProgramados != null) {
+			copia.diasProgramados().addAll(diasProgramados);
+			copia.qtdDiasPorDiaDaSemana = qtdDiasPorDiaDaSemana().clone();
+			copia.diasDaContagem = copia.diasProgramados;
+		}
+		return copia;
+	}
+
+	/**
+	 * cpia desvinculada da sesso do hibernate somente com as disponibilidades, sem acessar os dias programados do membro: a carga da programao parte das
+	 * programaes salvas, no dos dias gravados no membro.
+	 *
+	 * @return nova instncia do membro, sem dias programados
+	 */
+	public Membro copiarDisponibilidades() {
+		Membro copia = new Membro(nome, email);
+		copia.id = id;
+		copia.clube = clube;
+		if (disponibilidades != null) {
+			copia.disponibilidades().addAll(disponibilidades);
+		}
+		return copia;
+	}
+
 	// ~-~-~-~-~-~-~-~ Manutenes nas disponibilidades ~-~-~-~-~-~-~-~
 	/**
 	 * adiciona uma disponibilidade na lista do membro
@@ -131,6 +206,7 @@ public class Membro {
 	 */
 	public void addDisponibilidade(Disponibilidade disponibilidade) {
 		disponibilidades().add(disponibilidade);
+		disponibilidadesDaMascara = null;
 	}
 
 	/**
@@ -156,6 +232,7 @@ public class Membro {
 	 */
 	public void removeDisponibilidade(String disponibilidade) {
 		disponibilidades().remove(disponibilidade);
+		disponibilidadesDaMascara = null;
 	}
 
 	/**
@@ -163,6 +240,7 @@ public class Membro {
 	 */
 	public void removeAllDisponibilidades() {
 		disponibilidades = null;
+		disponibilidadesDaMascara = null;
 	}
 
 	// ~-~-~-~-~-~-~-~ Manutenes nas programaes ~-~-~-~-~-~-~-~
@@ -171,9 +249,14 @@ public class Membro {
 	 * 
 	 * @param dia
 	 *            dia a ser programado
+	 * @return true caso o dia ainda no estivesse programado para o membro
 	 */
-	public void addDiaProgramado(LocalDate dia) {
-		diasProgramados().add(dia);
+	public boolean addDiaProgramado(LocalDate dia) {
+		int[] qtds = qtdDiasPorDiaDaSemana();
+		if (!diasProgramados.add(dia))
+			return false;
+		qtds[dia.getDayOfWeek() - 1]++;
+		return true;
 	}
 
 	/**
@@ -183,7 +266,9 @@ public class Membro {
 	 *            dia a ser removido
 	 */
 	protected void removeDiaProgramado(LocalDate dia) {
-		diasProgramados().remove(dia);
+		int[] qtds = qtdDiasPorDiaDaSemana();
+		if (diasProgramados.remove(dia))
+			qtds[dia.getDayOfWeek() - 1]--;
 	}
 
 	// ~-~-~-~-~-~-~-~ Tratamento de colees ~-~-~-~-~-~-~-~
@@ -205,6 +290,86 @@ public class Membro {
 		return Collections.unmodifiableSet(diasProgramados());
 	}
 
+	/**
+	 * mscara de bits das disponibilidades do membro (ver {@link Disponibilidade#getMascara()}). S  recalculada quando a coleo  alterada ou substituda pelo
+	 * hibernate, evitando copiar a coleo a cada consulta.
+	 * 
+	 * @return mscara com um bit por disponibilidade
+	 */
+	public int getMascaraDisponibilidades() {
+		if (disponibilidades == null) {
+			return 0;
+		}
+		if (disponibilidadesDaMascara != disponibilidades) {
+			int mascara = 0;
+			for (Disponibilidade disponibilidade : disponibilidades) {
+				mascara |= disponibilidade.getMascara();
+			}
+			mascaraDisponibilidades = mascara;
+			disponibilidadesDaMascara = disponibilidades;
+		}
+		return mascaraDisponibilidades;
+	}
+
+	/**
+	 * validao se o membro tem a disponibilidade informada
+	 * 
+	 * @param disponibilidade
+	 *            disponibilidade buscada
+	 * @return true = "membro disponvel no dia"
+	 */
+	public boolean possuiDisponibilidade(Disponibilidade disponibilidade) {
+		return (getMascaraDisponibilidades() & disponibilidade.getMascara()) != 0;
+	}
+
+	/**
+	 * qtd de disponibilidades do membro
+	 * 
+	 * @return qtd de disponibilidades
+	 */
+	public int getQtdDisponibilidades() {
+		return Integer.bitCount(getMascaraDisponibilidades());
+	}
+
+	/**
+	 * qtd de programaes do membro
+	 * 
+	 * @return qtd de dias programados
+	 */
+	public int getQtdDiasProgramados() {
+		return diasProgramados == null ? 0 : diasProgramados.size();
+	}
+
+	/**
+	 * qtd de programaes do membro no dia da semana, contada a cada programao includa ou removida (sem percorrer os dias programados)
+	 * 
+	 * @param disponibilidade
+	 *            dia da semana
+	 * @return qtd de dias programados no dia da semana
+	 */
+	public int getQtdDiasProgramados(Disponibilidade disponibilidade) {
+		return diasProgramados == null ? 0 : qtdDiasPorDiaDaSemana()[disponibilidade.getId() - 1];
+	}
+
+	/**
+	 * contagem dos dias programados por dia da semana (1 = segunda ... 7 = domingo). S  refeita quando a coleo  substituda pelo hibernate; nas demais
+	 * alteraes  atualizada junto com a coleo.
+	 * 
+	 * @return qtd de dias por dia da semana
+	 */
+	private int[] qtdDiasPorDiaDaSemana() {
+		Set<LocalDate> dias = diasProgramados();
+		if (diasDaContagem != dias) {
+			int[] qtds = new int[7];
+			for (LocalDate dia : dias) {
+				qtds[dia.getDayOfWeek() - 1]++;
+			}
+			qtdDiasPorDiaDaSemana = qtds;
+			diasDaContagem = dias;
+		}
+		return qtdDiasPorDiaDaSemana;
+	}
+
 	/**
 	 * tratamento para coleo de programaes
 	 * 
@@ -253,6 +418,31 @@ public class Membro {
 		return email;
 	}
 
+	public String getClube() {
+		return clube;
+	}
+
+	/**
+	 * clube do membro, vazio = {@link #CLUBE_PADRAO}
+	 * 
+	 * @param clube
+	 *            identificador do clube
+	 */
+	public void setClube(String clube) {
+		this.clube = normalizarClube(clube);
+	}
+
+	/**
+	 * identificador do clube sem espaos nas extremidades, vazio = {@link #CLUBE_PADRAO}
+	 * 
+	 * @param clube
+	 *            identificador informado
+	 * @return identificador normalizado
+	 */
+	public static String normalizarClube(String clube) {
+		return clube == null || clube.trim().length() == 0 ? CLUBE_PADRAO : clube.trim();
+	}
+
 }
 
 class OrdemById implements Comparator<Disponibilidade> {
@@ -0,0 +1,95 @@
+package br.com.brncalmeida.clubepao.model;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Viso resumida (somente leitura) de um membro: id, nome, e-mail e mscara de disponibilidades. Utilizada nas listagens, onde carregar a entidade
+ * {@link Membro} com suas colees no  necessrio.
+ * 
+ * @author bruno.almeida
+ * 
+ */
+public class MembroResumo {
+
+	private final Long id;
+	private final String nome;
+	private final String email;
+	private int mascaraDisponibilidades;
+
+	/**
+	 * Construtor default
+	 * 
+	 * @param id
+	 *            id do membro
+	 * @param nome
+	 *            nome do membro
+	 * @param email
+	 *            e-mail do membro
+	 * @param mascaraDisponibilidades
+	 *            mscara de disponibilidades (ver {@link Disponibilidade#getMascara()})
+	 */
+	public MembroResumo(Long id, String nome, String email, int mascaraDisponibilidades) {
+		this.id = id;
+		this.nome = nome;
+		this.email = email;
+		this.mascaraDisponibilidades = mascaraDisponibilidades;
+	}
+
+	/**
+	 * adiciona uma disponibilidade  mscara (montagem a partir das linhas da consulta)
+	 * 
+	 * @param disponibilidade
+	 *            disponibilidade a ser adicionada
+	 */
+	public void addDisponibilidade(Disponibilidade disponibilidade) {
+		mascaraDisponibilidades |= disponibilidade.getMascara();
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getNome() {
+		return nome;
+	}
+
+	public String getEmail() {
+		return email;
+	}
+
+	public int getMascaraDisponibilidades() {
+		return mascaraDisponibilidades;
+	}
+
+	/**
+	 * validao se o membro tem a disponibilidade informada
+	 * 
+	 * @param disponibilidade
+	 *            disponibilidade buscada
+	 * @return true = "membro disponvel no dia"
+	 */
+	public boolean possuiDisponibilidade(Disponibilidade disponibilidade) {
+		return (mascaraDisponibilidades & disponibilidade.getMascara()) != 0;
+	}
+
+	/**
+	 * disponibilidades do membro, na ordem dos dias da semana
+	 * 
+	 * @return coleo imutavel
+	 */
+	public Set<Disponibilidade> getDisponibilidades() {
+		Set<Disponibilidade> disponibilidades = EnumSet.noneOf(Disponibilidade.class);
+		for (Disponibilidade disponibilidade : Disponibilidade.values()) {
+			if (possuiDisponibilidade(disponibilidade))
+				disponibilidades.add(disponibilidade);
+		}
+		return Collections.unmodifiableSet(disponibilidades);
+	}
+
+	@Override
+	public String toString() {
+		return "MembroResumo [nome=" + nome + "]";
+	}
+}
@@ -5,19 +5,19 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.TreeMap;
 
 import org.joda.time.LocalDate;
 
 /**
- * Classe responsve por representar o perodo completo para criao das programaes
+ * Classe responsve por representar o perodo completo para criao das programaes. Os dias ficam em um nico {@link Calendario}; as semanas so vises sobre
+ * ele, criadas somente quando consultadas.
  * 
  * @author bruno.almeida
  * 
  */
 public class Periodo {
 
+	private final Calendario calendario;
 	private List<Semana> semanas;
 
 	/**
@@ -29,60 +29,41 @@ public class Periodo {
 	 *            data final do range que ser criado
 	 */
 	public Periodo(LocalDate dataInicial, LocalDate dataFinal) {
+		this.calendario = new Calendario(dataInicial, dataFinal);
+	}
 
-		// validao
-		if (dataInicial == null)
-			throw new NullPointerException("Data inicial no pode ser nula");
-		if (dataFinal == null)
-			throw new NullPointerException("Data final no pode ser nula");
-
-		LocalDate dataInicialTemporaria = new LocalDate(dataInicial);
-		LocalDate dataFinalTemporaria = null;
-
-		// enquanto data inicial temporaria for menor que data final, criar semana.
-		while (dataInicialTemporaria.isBefore(dataFinal)) {
-			if (dataInicialTemporaria.dayOfWeek().get() > 0) {
-				dataFinalTemporaria = dataInicialTemporaria.plusDays(7 - dataInicialTemporaria.dayOfWeek().get());
-			} else {
-				dataFinalTemporaria = dataInicialTemporaria.plusDays(7);
-			}
-			if (dataFinalTemporaria.isAfter(dataFinal)) {
-				dataFinalTemporaria = dataFinal;
-			}
-			semanas().add(new Semana(dataInicialTemporaria, dataFinalTemporaria));
-			dataInicialTemporaria = dataFinalTemporaria.plusDays(1);
-		}
+	/**
+	 * calendrio compacto do perodo
+	 * 
+	 * @return calendrio com os dias teis e os membros programados
+	 */
+	public Calendario getCalendario() {
+		return calendario;
 	}
 
 	/**
 	 * extrar mapa de dias programados x membro alocado
 	 * 
-	 * @return mapa de dias programados (uteis) x membro alocado
+	 * @return mapa de dias programados (uteis) x membro alocado, viso somente leitura sobre o calendrio
 	 */
 	public Map<Date, String> extrairCronograma() {
-		Map<Date, String> retorno = new TreeMap<Date, String>();
-		String membro;
-		for (Semana semana : semanas()) {
+		return calendario.getCronograma();
+	}
 
-			// criao do mapa
-			for (Entry<LocalDate, Membro> dia : semana.getDias().entrySet()) {
-				if (dia.getValue() == null)
-					membro = null;
-				else
-					membro = dia.getValue().getNome();
-				retorno.put(dia.getKey().toDate(), membro);
-			}
-		}
-		return retorno;
+	/**
+	 * extrair mapa de dias programados x id do membro alocado
+	 * 
+	 * @return mapa de dias programados (uteis) x id do membro alocado (null = dia sem membro)
+	 */
+	public Map<LocalDate, Long> extrairIds() {
+		return calendario.getIds();
 	}
 
 	/**
 	 * reseta a programao de todos os membros em todas as semanas
 	 */
 	public void resetarProgramacaoMembros() {
-		for (Semana semana : semanas()) {
-			semana.resetarProgramacaoMembros();
-		}
+		calendario.resetarProgramacaoMembros();
 	}
 
 	/**
@@ -93,14 +74,7 @@ public class Periodo {
 	 * @return true = "ja existe membro neste periodo"
 	 */
 	public boolean existeMembro(Membro membro) {
-		boolean retorno = false;
-		for (Semana semana : semanas()) {
-			if (semana.existeMembro(membro)) {
-				retorno = true;
-				break;
-			}
-		}
-		return retorno;
+		return calendario.existeMembro(0, calendario.getQtdDias(), membro);
 	}
 
 	/**
@@ -113,13 +87,16 @@ public class Periodo {
 	}
 
 	/**
-	 * tratamento para o mapa de semanas
+	 * tratamento para a lista de semanas
 	 * 
-	 * @return mapa de semana concreto
+	 * @return lista de semanas concreta
 	 */
 	private List<Semana> semanas() {
 		if (semanas == null) {
-			this.semanas = new ArrayList<Semana>();
+			this.semanas = new ArrayList<Semana>(calendario.getQtdSemanas());
+			for (int i = 0; i < calendario.getQtdSemanas(); i++) {
+				semanas.add(new Semana(calendario, i));
+			}
 		}
 		return semanas;
 	}
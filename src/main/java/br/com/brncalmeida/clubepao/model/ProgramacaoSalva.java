@@ -0,0 +1,245 @@
+package br.com.brncalmeida.clubepao.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.Transient;
+import javax.persistence.UniqueConstraint;
+
+import org.hibernate.annotations.NamedQueries;
+import org.hibernate.annotations.NamedQuery;
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+
+/**
+ * Programao j gerada de um perodo, salva para ser consultada novamente sem recalcular. Uma linha por clube e perodo: os dias so compactados em um nico
+ * campo binrio, com o deslocamento do dia em relao  data inicial (2 bytes) e o id do membro programado (8 bytes, 0 = dia sem membro).
+ *
+ * @author bruno.almeida
+ *
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_programacao_periodo", columnNames = { "clube", "dataInicial", "qtdDias" }))
+@NamedQueries({
+		@NamedQuery(name = ProgramacaoSalva.POR_PERIODO, query = "select p from ProgramacaoSalva p where p.clube = :clube and p.dataInicial = :dataInicial and p.qtdDias = :qtdDias"),
+		@NamedQuery(name = ProgramacaoSalva.POR_CLUBE, query = "select p from ProgramacaoSalva p where p.clube = :clube order by p.dataInicial desc"),
+		@NamedQuery(name = ProgramacaoSalva.ANTERIORES, query = "select p from ProgramacaoSalva p where p.clube = :clube and p.dataInicial < :data order by p.dataInicial"),
+		@NamedQuery(name = ProgramacaoSalva.QTD_POSTERIORES, query = "select count(p) from ProgramacaoSalva p where p.clube = :clube and p.dataInicial > :data") })
+public class ProgramacaoSalva {
+
+	/**
+	 * consulta da programao de um perodo (parmetros "clube", "dataInicial" e "qtdDias")
+	 */
+	public static final String POR_PERIODO = "ProgramacaoSalva.porPeriodo";
+
+	/**
+	 * consulta das programaes de um clube (parmetro "clube"), da mais recente para a mais antiga
+	 */
+	public static final String POR_CLUBE = "ProgramacaoSalva.porClube";
+
+	/**
+	 * consulta das programaes de um clube iniciadas antes de uma data (parmetros "clube" e "data"), da mais antiga para a mais recente
+	 */
+	public static final String ANTERIORES = "ProgramacaoSalva.anteriores";
+
+	/**
+	 * qtd de programaes de um clube iniciadas depois de uma data (parmetros "clube" e "data")
+	 */
+	public static final String QTD_POSTERIORES = "ProgramacaoSalva.qtdPosteriores";
+
+	/**
+	 * bytes por dia compactado: deslocamento (short) + id do membro (long)
+	 */
+	private static final int BYTES_POR_DIA = 10;
+
+	@Id
+	@GeneratedValue
+	private Long id;
+
+	@Column(nullable = false, length = 50)
+	private String clube;
+
+	@Temporal(TemporalType.DATE)
+	@Column(nullable = false)
+	private Date dataInicial;
+
+	private int qtdDias;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date dataGeracao;
+
+	private int qtdMembros;
+
+	@Column(nullable = false, length = 10000)
+	private byte[] dias;
+
+	@Transient
+	private Map<LocalDate, Long> diasDescompactados;
+
+	/**
+	 * Construtor utilizado pelo hibernate
+	 */
+	@Deprecated
+	public ProgramacaoSalva() {
+	}
+
+	/**
+	 * Construtor
+	 *
+	 * @param clube
+	 *            clube da programao
+	 * @param dataInicial
+	 *            data inicial da programao
+	 * @param qtdDias
+	 *            qtd de dias do perodo
+	 * @param cronograma
+	 *            programao gerada
+	 */
+	public ProgramacaoSalva(String clube, LocalDate dataInicial, int qtdDias, Schedule cronograma) {
+		this.clube = clube;
+		this.dataInicial = dataInicial.toDate();
+		this.qtdDias = qtdDias;
+		atualizar(cronograma);
+	}
+
+	/**
+	 * substitui os dias salvos pelos dias da programao informada
+	 *
+	 * @param cronograma
+	 *            programao gerada para o mesmo perodo
+	 * @return true caso os dias programados tenham sido alterados
+	 */
+	public boolean atualizar(Schedule cronograma) {
+		byte[] novosDias = compactar(getDataInicial(), cronograma.getProgramacaoPorId());
+		boolean alterados = !Arrays.equals(novosDias, dias);
+		this.dias = novosDias;
+		this.qtdMembros = cronograma.getQtdMembros();
+		this.dataGeracao = new Date();
+		this.diasDescompactados = null;
+		return alterados;
+	}
+
+	/**
+	 * dias da programao x id do membro programado
+	 *
+	 * @return map(key=dia programao / value=id do membro, null = dia sem membro)
+	 */
+	public Map<LocalDate, Long> getDias() {
+		if (diasDescompactados == null) {
+			diasDescompactados = Collections.unmodifiableMap(descompactar(getDataInicial(), dias));
+		}
+		return diasDescompactados;
+	}
+
+	/**
+	 * ids dos membros programados no perodo
+	 *
+	 * @return ids distintos
+	 */
+	public Set<Long> getIdsMembros() {
+		Set<Long> ids = new HashSet<Long>();
+		for (Long id : getDias().values()) {
+			if (id != null)
+				ids.add(id);
+		}
+		return ids;
+	}
+
+	/**
+	 * programao no mesmo formato de {@link Schedule#getProgramacaoPorMembro()}, com os nomes informados. Membros que no existem mais so identificados pelo id.
+	 *
+	 * @param nomes
+	 *            nome dos membros por id
+	 * @return map(key=dia programao / value=membro correspondente)
+	 */
+	public Map<Date, String> getProgramacaoPorMembro(Map<Long, String> nomes) {
+		Map<Date, String> programacao = new TreeMap<Date, String>();
+		for (Entry<LocalDate, Long> dia : getDias().entrySet()) {
+			String nome = null;
+			if (dia.getValue() != null) {
+				nome = nomes.get(dia.getValue());
+				if (nome == null)
+					nome = "#" + dia.getValue();
+			}
+			programacao.put(dia.getKey().toDate(), nome);
+		}
+		return programacao;
+	}
+
+	// ~-~-~-~-~-~-~-~ Compactao dos dias ~-~-~-~-~-~-~-~
+
+	private static byte[] compactar(LocalDate dataInicial, Map<LocalDate, Long> programacao) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(programacao.size() * BYTES_POR_DIA);
+		DataOutputStream saida = new DataOutputStream(bytes);
+		try {
+			for (Entry<LocalDate, Long> dia : programacao.entrySet()) {
+				if (dia.getValue() != null && dia.getValue() <= 0)
+					throw new IllegalArgumentException("Id de membro invlido: " + dia.getValue());
+				saida.writeShort(Days.daysBetween(dataInicial, dia.getKey()).getDays());
+				saida.writeLong(dia.getValue() == null ? 0 : dia.getValue());
+			}
+			saida.flush();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Map<LocalDate, Long> descompactar(LocalDate dataInicial, byte[] dias) {
+		Map<LocalDate, Long> programacao = new TreeMap<LocalDate, Long>();
+		DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(dias));
+		try {
+			for (int i = 0; i < dias.length / BYTES_POR_DIA; i++) {
+				LocalDate dia = dataInicial.plusDays(entrada.readShort());
+				long id = entrada.readLong();
+				programacao.put(dia, id == 0 ? null : id);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return programacao;
+	}
+
+	// ~-~-~-~-~-~-~-~ Gets ~-~-~-~-~-~-~-~
+	public Long getId() {
+		return id;
+	}
+
+	public String getClube() {
+		return clube;
+	}
+
+	public LocalDate getDataInicial() {
+		return new LocalDate(dataInicial);
+	}
+
+	public int getQtdDias() {
+		return qtdDias;
+	}
+
+	public Date getDataGeracao() {
+		return dataGeracao;
+	}
+
+	public int getQtdMembros() {
+		return qtdMembros;
+	}
+}
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -13,11 +14,17 @@ import java.util.TreeMap;
 
 import org.joda.time.LocalDate;
 
-import br.com.brncalmeida.clubepao.utils.Util;
+import br.com.brncalmeida.clubepao.utils.Estatistica;
+import br.com.brncalmeida.clubepao.utils.Metricas;
 
 /**
  * Classe responsvel por receber um range de datas e uma lista de membros. A partir destas campos, ir intercalar a programao entre os membros.
  * 
+ * Somente a alocao  feita na construo. As qtds por dia da semana so contadas pela prpria alocao, a cada dia programado: dias com membro no
+ * {@link Calendario} e dias de cada membro no {@link Membro} ({@link Membro#getQtdDiasProgramados(Disponibilidade)}), e so somente lidas aqui. As demais
+ * vises da programao (trechos do calendrio, resumo de sobrecarga, estatsticas das cargas e sugesto) so calculadas no primeiro acesso e reaproveitadas
+ * nos seguintes, inclusive entre threads, pois a mesma programao  compartilhada pelo cache. Por isso os membros no devem ser alterados aps a gerao.
+ * 
  * @author bruno.almeida
  * 
  */
@@ -25,9 +32,12 @@ public class Schedule {
 	private LocalDate dataInicial;
 	private LocalDate dataFinal;
 	private List<Membro> membros;
-	private Map<Date, String> programacaoPorMembro;
+	private Calendario calendario;
+	private boolean alocacaoCompleta;
 	private Map<Integer, String> programacaoSobrecarga;
+	private Map<Integer, List<Integer>> posicoesPorCarga;
 	private SugestaoTrocaDisponibilidades sugestao;
+	private Estatistica cargas;
 
 	/**
 	 * Construtor default
@@ -40,39 +50,120 @@ public class Schedule {
 	 *            membros que iro compor a programao
 	 */
 	public Schedule(LocalDate dataInicial, LocalDate dataFinal, List<Membro> membros) {
+		this(dataInicial, dataFinal, membros, new AlocadorIndexado());
+	}
+
+	/**
+	 * Construtor com a estratgia de alocao informada
+	 * 
+	 * @param dataInicial
+	 *            data inicial do range que dever compor a programao
+	 * @param dataFinal
+	 *            data final do range que dever compor a programao
+	 * @param membros
+	 *            membros que iro compor a programao
+	 * @param alocador
+	 *            estratgia utilizada para intercalar os membros nos dias teis
+	 */
+	public Schedule(LocalDate dataInicial, LocalDate dataFinal, List<Membro> membros, Alocador alocador) {
 		if (dataInicial == null)
 			throw new NullPointerException("Campo data inicial invalido");
 		else if (dataFinal == null)
 			throw new NullPointerException("campo data final invalido");
 		else if (membros == null || membros.size() == 0)
 			throw new NullPointerException("campo membros invalido");
+		else if (alocador == null)
+			throw new NullPointerException("campo alocador invalido");
 		else {
+			long inicio = System.nanoTime();
 			this.dataInicial = dataInicial;
 			this.dataFinal = dataFinal;
 			this.membros = membros;
-			this.programacaoPorMembro = processarAlocacaoMembro();
-			this.programacaoSobrecarga = processarAlocacaoSobrecarga();
-			this.sugestao = criarSugestao();
+			this.calendario = processarAlocacaoMembro(alocador);
+			registrarMetricas(alocador, inicio);
 		}
 	}
 
+	/**
+	 * registra a durao da gerao e a qtd de membros e dias processados, por estratgia de alocao
+	 */
+	private void registrarMetricas(Alocador alocador, long inicio) {
+		Metricas metricas = Metricas.getInstance();
+		String nome = alocador.getClass().getSimpleName();
+		metricas.histograma("clubepao_programacao_segundos", "Durao da gerao de programaes, por alocador", "alocador", nome).registrarDesde(inicio);
+		metricas.contador("clubepao_programacao_membros_total", "Membros processados nas programaes geradas", "alocador", nome).addAndGet(membros.size());
+		metricas.contador("clubepao_programacao_dias_total", "Dias teis processados nas programaes geradas", "alocador", nome).addAndGet(calendario.getQtdDias());
+	}
+
 	/**
 	 * A sobrecarga da programao equivale ao resumo de programaes. A Key equivale a qtd de programaes dos membros, j o value equivale a lista concatenada de
 	 * membros.
 	 * 
 	 * @return map(key=qtd programaes / value=membros)
 	 */
-	public Map<Integer, String> getProgramacaoSobrecarga() {
+	public synchronized Map<Integer, String> getProgramacaoSobrecarga() {
+		processarCargas();
 		return Collections.unmodifiableMap(programacaoSobrecarga);
 	}
 
 	/**
-	 * Programao completa dos dias teis com membro disponivel para o dia.
+	 * Programao completa dos dias teis com membro disponivel para o dia, como viso sobre o calendrio.
 	 * 
 	 * @return map(key=dia programao / value=membro correspondente)
 	 */
 	public Map<Date, String> getProgramacaoPorMembro() {
-		return Collections.unmodifiableMap(programacaoPorMembro);
+		return calendario.getCronograma();
+	}
+
+	/**
+	 * Trecho da programao dos dias teis entre as datas informadas, como viso sobre o calendrio (somente os dias do trecho so convertidos em datas).
+	 * 
+	 * @param inicio
+	 *            primeiro dia do trecho
+	 * @param fim
+	 *            ltimo dia do trecho (includo)
+	 * @return map(key=dia programao / value=membro correspondente), vazio caso o trecho esteja fora do perodo
+	 */
+	public Map<Date, String> getProgramacaoPorMembro(LocalDate inicio, LocalDate fim) {
+		int posicaoInicial = calendario.getPosicaoAPartirDe(inicio);
+		int posicaoFinal = calendario.getPosicaoAPartirDe(fim.plusDays(1));
+		return calendario.getCronograma(posicaoInicial, Math.max(posicaoInicial, posicaoFinal));
+	}
+
+	/**
+	 * Programao completa dos dias teis pelo id do membro, utilizada para salvar a programao ({@link ProgramacaoSalva}).
+	 * 
+	 * @return map(key=dia programao / value=id do membro, null = dia sem membro)
+	 */
+	public Map<LocalDate, Long> getProgramacaoPorId() {
+		return Collections.unmodifiableMap(calendario.getIds());
+	}
+
+	/**
+	 * calendrio compacto da programao (dias teis x membro programado)
+	 * 
+	 * @return calendrio
+	 */
+	public Calendario getCalendario() {
+		return calendario;
+	}
+
+	/**
+	 * qtd de membros que compem a programao
+	 * 
+	 * @return qtd de membros
+	 */
+	public int getQtdMembros() {
+		return membros.size();
+	}
+
+	/**
+	 * indica se a alocao foi calculada por completo ({@link Alocador#alocar(Periodo, List)})
+	 * 
+	 * @return false = parte dos dias preenchida por aproximao
+	 */
+	public boolean isAlocacaoCompleta() {
+		return alocacaoCompleta;
 	}
 
 	/**
@@ -81,57 +172,113 @@ public class Schedule {
 	 * @return Sugesto completa.
 	 */
 	@Deprecated
-	public SugestaoTrocaDisponibilidades getSugestao() {
+	public synchronized SugestaoTrocaDisponibilidades getSugestao() {
+		if (sugestao == null) {
+			processarCargas();
+			sugestao = criarSugestao(posicoesPorCarga, buscarDisponibilidadesAusentes());
+		}
 		return sugestao;
 	}
 
+	/**
+	 * estatsticas da qtd de programaes dos membros (mdia, desvio padro, mnimo e mximo), acumuladas junto com o mapa de sobrecarga
+	 * 
+	 * @return estatsticas das cargas
+	 */
+	public synchronized Estatistica getEstatisticaCargas() {
+		processarCargas();
+		return cargas;
+	}
+
+	/**
+	 * qtd de dias do perodo com membro programado, por dia da semana, contada durante a alocao
+	 * 
+	 * @return map(key=disponibilidade / value=qtd de dias)
+	 */
+	public Map<Disponibilidade, Integer> getQtdDiasComMembro() {
+		Map<Disponibilidade, Integer> retorno = new EnumMap<Disponibilidade, Integer>(Disponibilidade.class);
+		for (Disponibilidade disponibilidade : Disponibilidade.values()) {
+			retorno.put(disponibilidade, calendario.getQtdDiasComMembro(disponibilidade));
+		}
+		return retorno;
+	}
+
+	/**
+	 * qtd de dias do perodo sem membro, por dia da semana, contada durante a alocao
+	 * 
+	 * @return map(key=disponibilidade / value=qtd de dias)
+	 */
+	public Map<Disponibilidade, Integer> getQtdDiasSemMembro() {
+		Map<Disponibilidade, Integer> retorno = new EnumMap<Disponibilidade, Integer>(Disponibilidade.class);
+		for (Disponibilidade disponibilidade : Disponibilidade.values()) {
+			retorno.put(disponibilidade, calendario.getQtdDias(disponibilidade) - calendario.getQtdDiasComMembro(disponibilidade));
+		}
+		return retorno;
+	}
+
 	// ~-~-~-~-~-~-~-~-~-~-~-~-~ Mtodos privados ~-~-~-~-~-~-~-~-~-~-~-~-~
 
+	/**
+	 * dias da semana com algum dia sem membro no perodo, na ordem dos dias da semana
+	 */
+	private Set<Disponibilidade> buscarDisponibilidadesAusentes() {
+		Set<Disponibilidade> ausentes = new LinkedHashSet<Disponibilidade>();
+		for (Disponibilidade disponibilidade : Disponibilidade.values()) {
+			if (calendario.getQtdDiasComMembro(disponibilidade) < calendario.getQtdDias(disponibilidade))
+				ausentes.add(disponibilidade);
+		}
+		return ausentes;
+	}
+
+	/**
+	 * Uma passada pelos membros, somente no primeiro acesso: mapa de sobrecarga, estatsticas das cargas e posies dos membros por carga (utilizadas na
+	 * sugesto)
+	 */
+	private void processarCargas() {
+		if (programacaoSobrecarga != null)
+			return;
+		posicoesPorCarga = new TreeMap<Integer, List<Integer>>();
+		programacaoSobrecarga = processarAlocacaoSobrecarga(posicoesPorCarga);
+	}
+
 	/**
 	 * Mtodo responsvel por apresentar sugesto de troca de disponibilidades entre membros. Em desenvolvimento
 	 * 
 	 * @return Sugesto completa.
 	 */
 	@Deprecated
-	private SugestaoTrocaDisponibilidades criarSugestao() {
-		double[] qtds = new double[membros.size()];
-		int i = 0;
-
-		// criando mapa de qtd de programaes para um determinado dia
-		for (Membro membro : membros) {
-			qtds[i++] = membro.getDiasProgramados().size();
-		}
-
-		double mediaPaes = Util.getMediaAritmetica(qtds);
-		double desvioPadraoPaes = Util.getDesvioPadrao(qtds);
+	private SugestaoTrocaDisponibilidades criarSugestao(Map<Integer, List<Integer>> posicoesPorCarga, Set<Disponibilidade> disponibilidadesAusentes) {
+		double mediaPaes = cargas.getMedia();
+		double desvioPadraoPaes = cargas.getDesvioPadrao();
 		int rangeInicialOk = (int) (mediaPaes - desvioPadraoPaes);
 		int rangeFinalOk = (int) (mediaPaes + desvioPadraoPaes);
 		if (rangeInicialOk == 0)
 			rangeInicialOk = 1;
 
-		List<Membro> membrosAbaixoRangeOk = new ArrayList<Membro>();
-		List<Membro> membrosAcimaRangeOk = new ArrayList<Membro>();
-		Set<Disponibilidade> disponibilidades = new LinkedHashSet<Disponibilidade>();
-		Set<Disponibilidade> disponibilidadesAusentes = new LinkedHashSet<Disponibilidade>();
-
-		// Mapeando membros com qtd de programaes abaixo da mdia e membros com qtd de programaes acima da mdia.
-		for (Membro membro : membros) {
-			int qtd = membro.getDiasProgramados().size();
-			if (qtd <= rangeInicialOk) {
-				membrosAbaixoRangeOk.add(membro);
-			} else if (qtd >= rangeFinalOk) {
-				membrosAcimaRangeOk.add(membro);
-				disponibilidades.add(getSobrecargaMembro(membro));
+		// Mapeando membros com qtd de programaes abaixo da mdia e membros com qtd de programaes acima da mdia, pelos grupos de mesma carga
+		List<Integer> posicoesAbaixoRangeOk = new ArrayList<Integer>();
+		List<Integer> posicoesAcimaRangeOk = new ArrayList<Integer>();
+		for (Entry<Integer, List<Integer>> grupo : posicoesPorCarga.entrySet()) {
+			if (grupo.getKey() <= rangeInicialOk) {
+				posicoesAbaixoRangeOk.addAll(grupo.getValue());
+			} else if (grupo.getKey() >= rangeFinalOk) {
+				posicoesAcimaRangeOk.addAll(grupo.getValue());
 			}
 		}
 
-		// Criando mapa dia SEM_PAO
-		for (Entry<Date, String> dia : programacaoPorMembro.entrySet()) {
-			// se dia est sem membro
-			if (dia.getValue() == null) {
-				int diaSemana = new LocalDate(dia.getKey()).getDayOfWeek();
-				disponibilidadesAusentes.add(Disponibilidade.getDisponibilidadeById(diaSemana));
-			}
+		// a ordem original dos membros  mantida (disponibilidades sobrecarregadas e desempate da ordenao)
+		Collections.sort(posicoesAbaixoRangeOk);
+		Collections.sort(posicoesAcimaRangeOk);
+		List<Membro> membrosAbaixoRangeOk = new ArrayList<Membro>(posicoesAbaixoRangeOk.size());
+		for (Integer posicao : posicoesAbaixoRangeOk) {
+			membrosAbaixoRangeOk.add(membros.get(posicao));
+		}
+		List<Membro> membrosAcimaRangeOk = new ArrayList<Membro>(posicoesAcimaRangeOk.size());
+		Set<Disponibilidade> disponibilidades = new LinkedHashSet<Disponibilidade>();
+		for (Integer posicao : posicoesAcimaRangeOk) {
+			Membro membro = membros.get(posicao);
+			membrosAcimaRangeOk.add(membro);
+			disponibilidades.add(getSobrecargaMembro(membro));
 		}
 
 		Collections.sort(membrosAbaixoRangeOk, new MembrosMenosSobrecarregadosComparator());
@@ -144,88 +291,67 @@ public class Schedule {
 	}
 
 	/**
-	 * Mtodo resposvel por buscar se h sobrecarga de programaes no membro
+	 * Mtodo resposvel por buscar se h sobrecarga de programaes no membro, pelas qtds de dias do membro por dia da semana
 	 * 
 	 * @param membro
 	 * @return Disponibilidade com maior indice de sobrecarga
 	 */
 	private Disponibilidade getSobrecargaMembro(Membro membro) {
-		int[] diasSemana = new int[5];
-
-		// levantamento dos dias utilizados
-		for (LocalDate data : membro.getDiasProgramados()) {
-			int dia = data.dayOfWeek().get();
-			diasSemana[dia - 1]++;
-		}
-
 		// definio do dia com maior qtd de programaes
 		int maiorDisponibilidade = 0;
-		int indice = 0;
-		for (int i = 0; i < diasSemana.length; i++) {
-			if (diasSemana[i] > maiorDisponibilidade) {
-				indice = i;
-				maiorDisponibilidade = diasSemana[i];
+		Disponibilidade sobrecarga = Disponibilidade.SEGUNDA;
+		for (Disponibilidade disponibilidade : Disponibilidade.values()) {
+			int qtd = membro.getQtdDiasProgramados(disponibilidade);
+			if (qtd > maiorDisponibilidade) {
+				sobrecarga = disponibilidade;
+				maiorDisponibilidade = qtd;
 			}
 		}
-		return Disponibilidade.getDisponibilidadeById(indice + 1);
+		return sobrecarga;
 	}
 
 	/**
-	 * A sobrecarga da programao equivale ao resumo de programaes. A Key equivale a qtd de programaes dos membros, j o value equivale a lista concatenada de
-	 * membros.
+	 * Calcula a programao do perodo avaliado x membros com disponibilidade
 	 * 
-	 * @return map(key=qtd programaes / value=membros)
+	 * @return calendrio com os membros programados
 	 */
-	private Map<Date, String> processarAlocacaoMembro() {
+	private Calendario processarAlocacaoMembro(Alocador alocador) {
 		Periodo programacao = new Periodo(dataInicial, dataFinal);
-		List<Membro> membrosDisponiveis;
-		Disponibilidade disponibilidadeProcurada;
 
 		// Calculando programao do perodo avaliado x membros com disponibilidade
-		for (Semana semana : programacao.getSemanas()) {
-
-			// iterando os dias da semana
-			for (Entry<LocalDate, Membro> dia : semana.getDias().entrySet()) {
-				int diaSemana = dia.getKey().dayOfWeek().get();
-				disponibilidadeProcurada = Disponibilidade.getDisponibilidadeById(diaSemana);
-				membrosDisponiveis = procurarDisponibilidade(disponibilidadeProcurada, membros);
-
-				// ordenando: 1o = quem tiver a menor qtd de programaes / 2o = quem tiver menor disponibilidade.
-				Collections.sort(membrosDisponiveis, new MembrosMenosSobrecarregadosComparator());
-
-				// iterando membros disponiveis para o dia
-				for (Membro membroDisponivel : membrosDisponiveis) {
-					if (!semana.existeMembro(membroDisponivel)) {
-						membroDisponivel.addDiaProgramado(dia.getKey());
-						dia.setValue(membroDisponivel);
-						break;
-					}
-				}
-			}
-		}
-		return programacao.extrairCronograma();
+		alocacaoCompleta = alocador.alocar(programacao, membros);
+		return programacao.getCalendario();
 	}
 
 	/**
 	 * Programao completa dos dias teis com membro disponivel para o dia.
 	 * 
-	 * @return map(key=dia programao / value=membro correspondente)
+	 * Uma nica passada pelos membros: alm do mapa, acumula as estatsticas das cargas e agrupa as posies dos membros pela carga.
+	 * 
+	 * @param posicoesPorCarga
+	 *            preenchido com as posies dos membros (ordem original) por qtd de programaes
+	 * @return map(key=qtd programaes / value=membros)
 	 */
-	private Map<Integer, String> processarAlocacaoSobrecarga() {
+	private Map<Integer, String> processarAlocacaoSobrecarga(Map<Integer, List<Integer>> posicoesPorCarga) {
 		Map<Integer, StringBuilder> mapaProgramacao = new TreeMap<Integer, StringBuilder>();
 		Map<Integer, String> mapaProgramacaoRetorno = new TreeMap<Integer, String>();
 		int qtdProgramacoesMembro;
 		StringBuilder builder;
+		cargas = new Estatistica();
 
 		// iterar todos os membros, classificando pela qtd de programaes
-		for (Membro membro : membros) {
-			qtdProgramacoesMembro = membro.getDiasProgramados().size();
+		for (int posicao = 0; posicao < membros.size(); posicao++) {
+			Membro membro = membros.get(posicao);
+			qtdProgramacoesMembro = membro.getQtdDiasProgramados();
+			cargas.adicionar(qtdProgramacoesMembro);
 			if ((builder = mapaProgramacao.get(qtdProgramacoesMembro)) == null) {
 				builder = new StringBuilder();
 				mapaProgramacao.put(qtdProgramacoesMembro, builder);
+				posicoesPorCarga.put(qtdProgramacoesMembro, new ArrayList<Integer>());
 			} else
 				builder.append(", ");
 			builder.append(membro.getNome());
+			posicoesPorCarga.get(qtdProgramacoesMembro).add(posicao);
 		}
 
 		// Criando mapa de sobrecarga de programaes
@@ -235,25 +361,6 @@ public class Schedule {
 		return mapaProgramacaoRetorno;
 	}
 
-	/**
-	 * Mtodo reponsvel por validar o membro tem a disponibilidade informada
-	 * 
-	 * @param disponibilidade
-	 *            disponibilidade buscada
-	 * @param membros
-	 *            Lista de membros avaliados
-	 * @return Membros que contm a disponibilidade informada
-	 */
-	private List<Membro> procurarDisponibilidade(Disponibilidade disponibilidade, List<Membro> membros) {
-		List<Membro> membrosComDisponibilidade = new ArrayList<Membro>();
-		for (Membro membro : membros) {
-			if (membro.getDisponibilidades().contains(disponibilidade)) {
-				membrosComDisponibilidade.add(membro);
-			}
-		}
-		return membrosComDisponibilidade;
-	}
-
 }
 
 /**
@@ -266,14 +373,14 @@ public class Schedule {
 class MembrosMenosSobrecarregadosComparator implements Comparator<Membro> {
 	@Override
 	public int compare(Membro primeiroMembro, Membro segundoMembro) {
-		int dias = primeiroMembro.getDiasProgramados().size();
-		int diasSegundoMembro = segundoMembro.getDiasProgramados().size();
+		int dias = primeiroMembro.getQtdDiasProgramados();
+		int diasSegundoMembro = segundoMembro.getQtdDiasProgramados();
 		int comparacaoDiasProgramados = new Integer(dias).compareTo(diasSegundoMembro);
 		if (comparacaoDiasProgramados != 0)
 			return comparacaoDiasProgramados;
 
-		int disponibilidade = primeiroMembro.getDisponibilidades().size();
-		int disponibilidadeSegundoMembro = segundoMembro.getDisponibilidades().size();
+		int disponibilidade = primeiroMembro.getQtdDisponibilidades();
+		int disponibilidadeSegundoMembro = segundoMembro.getQtdDisponibilidades();
 
 		int comparacaoDisponibilidade = new Integer(disponibilidade).compareTo(disponibilidadeSegundoMembro);
 		if (comparacaoDisponibilidade != 0)
@@ -295,14 +402,14 @@ class MembrosSobrecarregadosComparator implements Comparator<Membro> {
 	@Override
 	// TODO confirmar ordem
 	public int compare(Membro primeiroMembro, Membro segundoMembro) {
-		int dias = primeiroMembro.getDiasProgramados().size();
-		int diasSegundoMembro = segundoMembro.getDiasProgramados().size();
+		int dias = primeiroMembro.getQtdDiasProgramados();
+		int diasSegundoMembro = segundoMembro.getQtdDiasProgramados();
 		int comparacaoDiasProgramados = new Integer(diasSegundoMembro).compareTo(dias);
 		if (comparacaoDiasProgramados != 0)
 			return comparacaoDiasProgramados;
 
-		int disponibilidade = primeiroMembro.getDisponibilidades().size();
-		int disponibilidadeSegundoMembro = segundoMembro.getDisponibilidades().size();
+		int disponibilidade = primeiroMembro.getQtdDisponibilidades();
+		int disponibilidadeSegundoMembro = segundoMembro.getQtdDisponibilidades();
 
 		int comparacaoDisponibilidade = new Integer(disponibilidadeSegundoMembro).compareTo(disponibilidade);
 		if (comparacaoDisponibilidade != 0)
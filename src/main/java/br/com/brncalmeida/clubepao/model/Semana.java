@@ -1,21 +1,25 @@
 package br.com.brncalmeida.clubepao.model;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.TreeMap;
 
 import org.joda.time.LocalDate;
 
-import br.com.brncalmeida.clubepao.utils.Util;
-
 /**
- * Classe responsvel por interpretar um periodo de datas equivalente a uma semana
+ * Classe responsvel por interpretar um periodo de datas equivalente a uma semana. Os dias ficam no {@link Calendario} do perodo; a semana  somente o intervalo
+ * dos seus dias no calendrio.
  * 
  * @author bruno.almeida
  * 
  */
 public class Semana {
 
+	private final Calendario calendario;
+	private final int semana;
 	private Map<LocalDate, Membro> dias;
 
 	/**
@@ -27,24 +31,24 @@ public class Semana {
 	 *            data final do range
 	 */
 	public Semana(LocalDate dataInicial, LocalDate dataFinal) {
+		this(new Calendario(dataInicial, dataFinal, true), 0);
+	}
 
-		// Validao
-		if (dataInicial == null)
-			throw new NullPointerException("Data inicial no pode ser nula");
-		if (dataFinal == null)
-			throw new NullPointerException("Data final no pode ser nula");
-
-		// cria mapa com dias teis
-		Set<LocalDate> diasUteis = Util.buscarDiasUteis(dataInicial, dataFinal);
-
-		// limpa valores do mapa
-		for (LocalDate dia : diasUteis) {
-			dias().put(dia, null);
-		}
+	/**
+	 * semana do calendrio
+	 * 
+	 * @param calendario
+	 *            calendrio do perodo
+	 * @param semana
+	 *            ndice da semana no calendrio
+	 */
+	Semana(Calendario calendario, int semana) {
+		this.calendario = calendario;
+		this.semana = semana;
 	}
 
 	/**
-	 * dias desta semana
+	 * dias desta semana, em ordem. O mapa  uma viso sobre o calendrio: alterar o valor de um dia programa o membro no calendrio.
 	 * 
 	 * @return mapa de dias desta semana
 	 */
@@ -56,9 +60,8 @@ public class Semana {
 	 * limpa programao
 	 */
 	public void resetarProgramacaoMembros() {
-		for (Map.Entry<LocalDate, Membro> dia : dias().entrySet()) {
-			if (dia.getValue() != null)
-				dia.setValue(null);
+		for (int i = calendario.getInicioSemana(semana); i < calendario.getFimSemana(semana); i++) {
+			calendario.setMembro(i, null);
 		}
 	}
 
@@ -70,19 +73,142 @@ public class Semana {
 	 * @return true = "ja existe membro nesta semana", false = "no existe este membro nesta semana"
 	 */
 	public boolean existeMembro(Membro membro) {
-		return dias().containsValue(membro);
+		return calendario.existeMembro(calendario.getInicioSemana(semana), calendario.getFimSemana(semana), membro);
 	}
 
 	/**
 	 * tratamento para o mapa de dias
 	 * 
-	 * @return Mapa de dias concreto
+	 * @return viso dos dias da semana no calendrio
 	 */
 	private Map<LocalDate, Membro> dias() {
 		if (dias == null) {
-			this.dias = new TreeMap<LocalDate, Membro>();
+			this.dias = new DiasDaSemana();
 		}
 		return dias;
 	}
 
+	/**
+	 * mapa dos dias da semana sobre o calendrio: as datas so criadas durante a iterao e o valor de cada dia  lido e gravado no calendrio
+	 */
+	private class DiasDaSemana extends AbstractMap<LocalDate, Membro> {
+
+		@Override
+		public Set<Entry<LocalDate, Membro>> entrySet() {
+			return new AbstractSet<Entry<LocalDate, Membro>>() {
+				@Override
+				public Iterator<Entry<LocalDate, Membro>> iterator() {
+					return new Iterator<Entry<LocalDate, Membro>>() {
+						private int posicao = calendario.getInicioSemana(semana);
+
+						@Override
+						public boolean hasNext() {
+							return posicao < calendario.getFimSemana(semana);
+						}
+
+						@Override
+						public Entry<LocalDate, Membro> next() {
+							if (!hasNext())
+								throw new NoSuchElementException();
+							return new Dia(posicao++);
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return DiasDaSemana.this.size();
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return calendario.getFimSemana(semana) - calendario.getInicioSemana(semana);
+		}
+
+		@Override
+		public boolean containsKey(Object chave) {
+			return posicao(chave) >= 0;
+		}
+
+		@Override
+		public Membro get(Object chave) {
+			int posicao = posicao(chave);
+			return posicao < 0 ? null : calendario.getMembro(posicao);
+		}
+
+		@Override
+		public Membro put(LocalDate chave, Membro membro) {
+			int posicao = posicao(chave);
+			if (posicao < 0)
+				throw new IllegalArgumentException("Dia fora da semana: " + chave);
+			Membro anterior = calendario.getMembro(posicao);
+			calendario.setMembro(posicao, membro);
+			return anterior;
+		}
+
+		private int posicao(Object chave) {
+			if (!(chave instanceof LocalDate))
+				return -1;
+			int posicao = calendario.getPosicao((LocalDate) chave);
+			return posicao >= calendario.getInicioSemana(semana) && posicao < calendario.getFimSemana(semana) ? posicao : -1;
+		}
+	}
+
+	/**
+	 * dia da semana, com o valor gravado no calendrio
+	 */
+	private class Dia implements Map.Entry<LocalDate, Membro> {
+		private final int posicao;
+		private LocalDate data;
+
+		Dia(int posicao) {
+			this.posicao = posicao;
+		}
+
+		@Override
+		public LocalDate getKey() {
+			if (data == null)
+				data = calendario.getData(posicao);
+			return data;
+		}
+
+		@Override
+		public Membro getValue() {
+			return calendario.getMembro(posicao);
+		}
+
+		@Override
+		public Membro setValue(Membro membro) {
+			Membro anterior = calendario.getMembro(posicao);
+			calendario.setMembro(posicao, membro);
+			return anterior;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Map.Entry))
+				return false;
+			Map.Entry<?, ?> outro = (Map.Entry<?, ?>) obj;
+			Membro membro = getValue();
+			return getKey().equals(outro.getKey()) && (membro == null ? outro.getValue() == null : membro.equals(outro.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			Membro membro = getValue();
+			return getKey().hashCode() ^ (membro == null ? 0 : membro.hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
 }
@@ -0,0 +1,203 @@
+package br.com.brncalmeida.clubepao.services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.joda.time.LocalDate;
+
+import br.com.brncalmeida.clubepao.dao.VersaoMembros;
+import br.com.brncalmeida.clubepao.dao.VersaoProgramacoes;
+import br.com.brncalmeida.clubepao.model.Schedule;
+import br.com.caelum.vraptor.ioc.ApplicationScoped;
+import br.com.caelum.vraptor.ioc.Component;
+
+/**
+ * Cache das programaes geradas, indexado por data inicial, qtd de dias do perodo, modo de alocao ({@link ModoAlocacao}), verso da base de membros ({@link VersaoMembros}) e verso das programaes
+ * salvas ({@link VersaoProgramacoes}), das quais parte a carga dos membros. Qualquer escrita nos membros, ou alterao de um perodo salvo que tenha perodos
+ * posteriores, muda a verso, fazendo com que as programaes antigas deixem de ser encontradas e sejam descartadas pela poltica LRU.
+ *
+ * O cache  particionado por clube, cada partio com o seu prprio limite: um clube com muitas programaes no descarta as programaes dos demais.
+ *
+ * @author bruno.almeida
+ *
+ */
+@Component
+@ApplicationScoped
+public class CacheCronogramas {
+
+	private static final int TAMANHO_MAXIMO_PADRAO = 20;
+
+	private final int tamanhoMaximo;
+	private final ConcurrentMap<String, Map<Chave, Schedule>> particoes = new ConcurrentHashMap<String, Map<Chave, Schedule>>();
+	private final AtomicLong acertos = new AtomicLong();
+	private final AtomicLong falhas = new AtomicLong();
+	private final AtomicLong gravacoes = new AtomicLong();
+
+	/**
+	 * Construtor default, o tamanho mximo de cada clube pode ser alterado pela propriedade de sistema "cache.cronogramas"
+	 */
+	public CacheCronogramas() {
+		this.tamanhoMaximo = Integer.getInteger("cache.cronogramas", TAMANHO_MAXIMO_PADRAO);
+	}
+
+	/**
+	 * busca programao j gerada
+	 *
+	 * @param clube
+	 *            identificador do clube
+	 * @param dataInicial
+	 *            data inicial da programao
+	 * @param qtdDias
+	 *            qtd de dias do perodo
+	 * @param modo
+	 *            modo de alocao
+	 * @param versaoMembros
+	 *            verso dos membros do clube
+	 * @param versaoProgramacoes
+	 *            verso das programaes salvas
+	 * @return programao ou null caso no esteja em cache
+	 */
+	public Schedule buscar(String clube, LocalDate dataInicial, int qtdDias, ModoAlocacao modo, long versaoMembros, long versaoProgramacoes) {
+		// a busca no cria partio: somente clubes com programaes geradas ocupam o cache
+		Map<Chave, Schedule> cronogramas = particoes.get(clube);
+		Schedule cronograma = null;
+		if (cronogramas != null) {
+			synchronized (cronogramas) {
+				cronograma = cronogramas.get(new Chave(dataInicial, qtdDias, modo, versaoMembros, versaoProgramacoes));
+			}
+		}
+		if (cronograma == null)
+			falhas.incrementAndGet();
+		else
+			acertos.incrementAndGet();
+		return cronograma;
+	}
+
+	/**
+	 * adiciona programao no cache
+	 *
+	 * @param clube
+	 *            identificador do clube
+	 * @param dataInicial
+	 *            data inicial da programao
+	 * @param qtdDias
+	 *            qtd de dias do perodo
+	 * @param modo
+	 *            modo de alocao utilizado na gerao
+	 * @param versaoMembros
+	 *            verso dos membros do clube utilizada na gerao
+	 * @param versaoProgramacoes
+	 *            verso das programaes salvas utilizada na gerao
+	 * @param cronograma
+	 *            programao gerada
+	 */
+	public void adicionar(String clube, LocalDate dataInicial, int qtdDias, ModoAlocacao modo, long versaoMembros, long versaoProgramacoes, Schedule cronograma) {
+		Map<Chave, Schedule> cronogramas = particao(clube);
+		synchronized (cronogramas) {
+			cronogramas.put(new Chave(dataInicial, qtdDias, modo, versaoMembros, versaoProgramacoes), cronograma);
+		}
+		gravacoes.incrementAndGet();
+	}
+
+	/**
+	 * qtd de programaes em cache, somando todos os clubes
+	 *
+	 * @return qtd de programaes
+	 */
+	public int getTamanho() {
+		int tamanho = 0;
+		for (Map<Chave, Schedule> cronogramas : particoes.values()) {
+			synchronized (cronogramas) {
+				tamanho += cronogramas.size();
+			}
+		}
+		return tamanho;
+	}
+
+	/**
+	 * qtd de clubes com programaes em cache
+	 *
+	 * @return qtd de clubes
+	 */
+	public int getQtdClubes() {
+		return particoes.size();
+	}
+
+	public long getAcertos() {
+		return acertos.get();
+	}
+
+	public long getFalhas() {
+		return falhas.get();
+	}
+
+	public long getGravacoes() {
+		return gravacoes.get();
+	}
+
+	/**
+	 * partio LRU do clube, criada na primeira programao adicionada
+	 */
+	private Map<Chave, Schedule> particao(String clube) {
+		Map<Chave, Schedule> cronogramas = particoes.get(clube);
+		if (cronogramas == null) {
+			cronogramas = new LinkedHashMap<Chave, Schedule>(tamanhoMaximo + 1, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Chave, Schedule> maisAntigo) {
+					return size() > tamanhoMaximo;
+				}
+			};
+			Map<Chave, Schedule> existente = particoes.putIfAbsent(clube, cronogramas);
+			if (existente != null)
+				cronogramas = existente;
+		}
+		return cronogramas;
+	}
+
+	/**
+	 * chave do cache: data inicial + qtd de dias + modo de alocao + verso dos membros + verso das programaes salvas
+	 */
+	private static class Chave {
+		private final LocalDate dataInicial;
+		private final int qtdDias;
+		private final ModoAlocacao modo;
+		private final long versaoMembros;
+		private final long versaoProgramacoes;
+
+		Chave(LocalDate dataInicial, int qtdDias, ModoAlocacao modo, long versaoMembros, long versaoProgramacoes) {
+			this.dataInicial = dataInicial;
+			this.qtdDias = qtdDias;
+			this.modo = modo;
+			this.versaoMembros = versaoMembros;
+			this.versaoProgramacoes = versaoProgramacoes;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + dataInicial.hashCode();
+			result = prime * result + qtdDias;
+			result = prime * result + modo.hashCode();
+			result = prime * result + (int) (versaoMembros ^ (versaoMembros >>> 32));
+			result = prime * result + (int) (versaoProgramacoes ^ (versaoProgramacoes >>> 32));
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Chave))
+				return false;
+			Chave other = (Chave) obj;
+			return qtdDias == other.qtdDias && modo == other.modo && versaoMembros == other.versaoMembros && versaoProgramacoes == other.versaoProgramacoes
+					&& dataInicial.equals(other.dataInicial);
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package br.com.brncalmeida.clubepao.services;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import br.com.brncalmeida.clubepao.dao.VersaoMembros;
+import br.com.brncalmeida.clubepao.utils.Metricas;
+import br.com.caelum.vraptor.ioc.ApplicationScoped;
+import br.com.caelum.vraptor.ioc.Component;
+
+/**
+ * Cache em disco da planilha com todos os membros de cada clube, pela verso dos membros do clube ({@link VersaoMembros}): a planilha  gerada uma nica vez
+ * por verso, em arquivo temporrio, e os downloads seguintes enviam o arquivo pronto. Quando os membros do clube so alterados, a prxima exportao do
+ * clube gera um novo arquivo e o anterior  removido. Os downloads recebem o arquivo j aberto ({@link #abrirPlanilhaAtual(ExcelFileService, String)}): a
+ * remoo do arquivo anterior no interrompe os downloads em andamento, que continuam lendo o contedo aberto.
+ *
+ * A planilha j gerada na verso atual  devolvida sem bloqueio. A gerao  feita por uma requisio de cada vez por clube, com uma trava por clube:
+ * exportaes simultneas do mesmo clube aguardam e reaproveitam o arquivo gerado, sem bloquear as exportaes dos demais clubes.
+ *
+ * @author bruno.almeida
+ *
+ */
+@Component
+@ApplicationScoped
+public class CachePlanilhas {
+
+	private final VersaoMembros versao;
+	private final AtomicLong acertos = new AtomicLong();
+	private final AtomicLong falhas = new AtomicLong();
+	private final ConcurrentMap<String, Planilha> planilhas = new ConcurrentHashMap<String, Planilha>();
+	private final ConcurrentMap<String, Object> travas = new ConcurrentHashMap<String, Object>();
+
+	/**
+	 * Construtor default
+	 *
+	 * @param versao
+	 *            verso atual da base de membros
+	 */
+	public CachePlanilhas(VersaoMembros versao) {
+		this.versao = versao;
+	}
+
+	/**
+	 * planilha com todos os membros do clube na verso atual, gerada caso ainda no exista. A verso  lida antes da gerao: uma escrita durante a gerao
+	 * faz com que a planilha seja gerada novamente na prxima exportao.
+	 *
+	 * @param planilha
+	 *            servio utilizado para escrever a planilha
+	 * @param clube
+	 *            identificador do clube
+	 * @return arquivo da planilha
+	 * @throws IOException
+	 *             caso no seja possvel escrever o arquivo
+	 */
+	public File getPlanilhaAtual(ExcelFileService planilha, String clube) throws IOException {
+		File gerada = buscar(clube, versao.getVersao(clube));
+		if (gerada != null)
+			return gerada;
+		synchronized (trava(clube)) {
+			// gerada por outra exportao do clube enquanto esta aguardava
+			long versaoAtual = versao.getVersao(clube);
+			gerada = buscar(clube, versaoAtual);
+			return gerada != null ? gerada : gerar(planilha, clube, versaoAtual);
+		}
+	}
+
+	/**
+	 * planilha com todos os membros do clube na verso atual ({@link #getPlanilhaAtual(ExcelFileService, String)}), aberta para leitura antes que uma nova
+	 * verso possa remover o arquivo. Caso o arquivo seja removido por uma nova verso entre a busca e a abertura, a planilha  buscada e aberta novamente com
+	 * a trava do clube, que impede a remoo.
+	 *
+	 * @param planilha
+	 *            servio utilizado para escrever a planilha
+	 * @param clube
+	 *            identificador do clube
+	 * @return arquivo aberto da planilha, a ser fechado aps o envio
+	 * @throws IOException
+	 *             caso no seja possvel escrever ou abrir o arquivo
+	 */
+	public FileInputStream abrirPlanilhaAtual(ExcelFileService planilha, String clube) throws IOException {
+		try {
+			return new FileInputStream(getPlanilhaAtual(planilha, clube));
+		} catch (FileNotFoundException e) {
+			synchronized (trava(clube)) {
+				return new FileInputStream(getPlanilhaAtual(planilha, clube));
+			}
+		}
+	}
+
+	public long getAcertos() {
+		return acertos.get();
+	}
+
+	public long getFalhas() {
+		return falhas.get();
+	}
+
+	/**
+	 * arquivo j gerado para a verso do clube
+	 *
+	 * @return arquivo ou null caso a planilha da verso ainda no exista
+	 */
+	private File buscar(String clube, long versaoAtual) {
+		Planilha atual = planilhas.get(clube);
+		if (atual != null && atual.versao == versaoAtual && atual.arquivo.exists()) {
+			registrar(acertos, "acerto");
+			return atual.arquivo;
+		}
+		return null;
+	}
+
+	/**
+	 * gera a planilha da verso do clube, removendo a anterior. Executado somente com a trava do clube.
+	 */
+	private File gerar(ExcelFileService planilha, String clube, long versaoAtual) throws IOException {
+		registrar(falhas, "falha");
+
+		File novo = File.createTempFile("planilha_completa", ".xlsx");
+		novo.deleteOnExit();
+		OutputStream saida = new BufferedOutputStream(new FileOutputStream(novo));
+		boolean concluido = false;
+		try {
+			planilha.escreverPlanilhaAtual(saida, clube);
+			concluido = true;
+		} finally {
+			saida.close();
+			if (!concluido)
+				novo.delete();
+		}
+
+		// downloads em andamento continuam lendo o arquivo anterior j aberto (abrirPlanilhaAtual)
+		Planilha anterior = planilhas.put(clube, new Planilha(novo, versaoAtual));
+		if (anterior != null)
+			anterior.arquivo.delete();
+		return novo;
+	}
+
+	/**
+	 * trava da gerao das planilhas do clube, criada no primeiro uso
+	 */
+	private Object trava(String clube) {
+		Object trava = travas.get(clube);
+		if (trava == null) {
+			Object nova = new Object();
+			trava = travas.putIfAbsent(clube, nova);
+			if (trava == null)
+				trava = nova;
+		}
+		return trava;
+	}
+
+	private static void registrar(AtomicLong contador, String resultado) {
+		contador.incrementAndGet();
+		Metricas.getInstance().contador("clubepao_cache_planilhas_total", "Exportaes atendidas pelo cache de planilhas", "resultado", resultado).incrementAndGet();
+	}
+
+	/**
+	 * arquivo gerado para uma verso dos membros do clube
+	 */
+	private static class Planilha {
+		private final File arquivo;
+		private final long versao;
+
+		Planilha(File arquivo, long versao) {
+			this.arquivo = arquivo;
+			this.versao = versao;
+		}
+	}
+}
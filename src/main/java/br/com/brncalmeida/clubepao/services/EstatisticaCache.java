@@ -0,0 +1,82 @@
+package br.com.brncalmeida.clubepao.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Estatsticas de uma regio de cache (acertos, falhas, gravaes e ocupao), utilizada no monitoramento.
+ * 
+ * @author bruno.almeida
+ * 
+ */
+public class EstatisticaCache {
+
+	private final String regiao;
+	private final long acertos;
+	private final long falhas;
+	private final long gravacoes;
+	private final long qtdElementos;
+
+	public EstatisticaCache(String regiao, long acertos, long falhas, long gravacoes, long qtdElementos) {
+		this.regiao = regiao;
+		this.acertos = acertos;
+		this.falhas = falhas;
+		this.gravacoes = gravacoes;
+		this.qtdElementos = qtdElementos;
+	}
+
+	/**
+	 * estatsticas de todas as regies do cache de segundo nvel do hibernate (entidades, colees e consultas)
+	 * 
+	 * @param estatisticas
+	 *            estatsticas da session factory (hibernate.generate_statistics)
+	 * @return uma estatstica por regio, ordenadas pelo nome da regio
+	 */
+	public static List<EstatisticaCache> listar(Statistics estatisticas) {
+		String[] regioes = estatisticas.getSecondLevelCacheRegionNames();
+		Arrays.sort(regioes);
+		List<EstatisticaCache> lista = new ArrayList<EstatisticaCache>(regioes.length);
+		for (String regiao : regioes) {
+			SecondLevelCacheStatistics estatisticaRegiao = estatisticas.getSecondLevelCacheStatistics(regiao);
+			if (estatisticaRegiao != null) {
+				lista.add(new EstatisticaCache(regiao, estatisticaRegiao.getHitCount(), estatisticaRegiao.getMissCount(), estatisticaRegiao.getPutCount(),
+						estatisticaRegiao.getElementCountInMemory()));
+			}
+		}
+		return lista;
+	}
+
+	public String getRegiao() {
+		return regiao;
+	}
+
+	public long getAcertos() {
+		return acertos;
+	}
+
+	public long getFalhas() {
+		return falhas;
+	}
+
+	public long getGravacoes() {
+		return gravacoes;
+	}
+
+	public long getQtdElementos() {
+		return qtdElementos;
+	}
+
+	/**
+	 * percentual de acertos sobre o total de consultas  regio
+	 * 
+	 * @return taxa de acertos entre 0 e 1
+	 */
+	public double getTaxaAcertos() {
+		long total = acertos + falhas;
+		return total == 0 ? 0 : (double) acertos / total;
+	}
+}
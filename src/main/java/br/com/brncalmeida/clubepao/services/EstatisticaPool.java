@@ -0,0 +1,86 @@
+package br.com.brncalmeida.clubepao.services;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mchange.v2.c3p0.C3P0Registry;
+import com.mchange.v2.c3p0.PooledDataSource;
+
+/**
+ * Estatsticas de um pool de conexes (c3p0), utilizada no monitoramento.
+ * 
+ * @author bruno.almeida
+ * 
+ */
+public class EstatisticaPool {
+
+	private final String nome;
+	private final int qtdConexoes;
+	private final int qtdOcupadas;
+	private final int qtdLivres;
+	private final int qtdAguardando;
+	private final long qtdFalhasObtencao;
+	private final int qtdStatementsEmCache;
+
+	public EstatisticaPool(String nome, int qtdConexoes, int qtdOcupadas, int qtdLivres, int qtdAguardando, long qtdFalhasObtencao, int qtdStatementsEmCache) {
+		this.nome = nome;
+		this.qtdConexoes = qtdConexoes;
+		this.qtdOcupadas = qtdOcupadas;
+		this.qtdLivres = qtdLivres;
+		this.qtdAguardando = qtdAguardando;
+		this.qtdFalhasObtencao = qtdFalhasObtencao;
+		this.qtdStatementsEmCache = qtdStatementsEmCache;
+	}
+
+	/**
+	 * estatsticas de todos os pools c3p0 ativos na jvm
+	 * 
+	 * @return uma estatstica por pool
+	 * @throws SQLException
+	 *             caso no seja possvel consultar o pool
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<EstatisticaPool> listar() throws SQLException {
+		List<EstatisticaPool> lista = new ArrayList<EstatisticaPool>();
+		for (PooledDataSource pool : (Iterable<PooledDataSource>) C3P0Registry.getPooledDataSources()) {
+			lista.add(new EstatisticaPool(pool.getDataSourceName(), pool.getNumConnectionsDefaultUser(), pool.getNumBusyConnectionsDefaultUser(), pool
+					.getNumIdleConnectionsDefaultUser(), pool.getNumThreadsAwaitingCheckoutDefaultUser(), pool.getNumFailedCheckoutsDefaultUser(), pool
+					.getStatementCacheNumStatementsDefaultUser()));
+		}
+		return lista;
+	}
+
+	public String getNome() {
+		return nome;
+	}
+
+	public int getQtdConexoes() {
+		return qtdConexoes;
+	}
+
+	public int getQtdOcupadas() {
+		return qtdOcupadas;
+	}
+
+	public int getQtdLivres() {
+		return qtdLivres;
+	}
+
+	/**
+	 * qtd de threads aguardando uma conexo livre (pool subdimensionado quando > 0 com frequncia)
+	 * 
+	 * @return qtd de threads aguardando
+	 */
+	public int getQtdAguardando() {
+		return qtdAguardando;
+	}
+
+	public long getQtdFalhasObtencao() {
+		return qtdFalhasObtencao;
+	}
+
+	public int getQtdStatementsEmCache() {
+		return qtdStatementsEmCache;
+	}
+}
@@ -1,9 +1,9 @@
 package br.com.brncalmeida.clubepao.services;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.List;
 
@@ -54,12 +54,14 @@ public interface ExcelFileService {
 	 * @param file
 	 *            arquivo a ser utilizado
 	 * @param sobrescrever
-	 *            caso deseja apagar os membros ja existentes
+	 *            caso deseja apagar os membros ja existentes do clube
+	 * @param clube
+	 *            clube dos membros da planilha (vazio = clube padro)
 	 * @return Lista de membros padronizadas e incluidas em base
 	 * @throws IOException
 	 *             caso o arquivo no exista
 	 */
-	ReportExcelService parse(InputStream file, boolean sobrescrever) throws IOException;
+	ReportExcelService parse(InputStream file, boolean sobrescrever, String clube) throws IOException;
 
 	/**
 	 * retorna planilha de exemplo
@@ -69,11 +71,15 @@ public interface ExcelFileService {
 	File getPlanilhaExemplo();
 
 	/**
-	 * Retorna planilha com todos os membros cadastrados na base
+	 * Escreve a planilha com todos os membros do clube, em streaming: os membros so lidos paginados e somente uma janela de linhas fica em memria
 	 * 
-	 * @return lista completa de membros cadastrados na base
+	 * @param saida
+	 *            stream onde a planilha ser escrita (ex.: response)
+	 * @param clube
+	 *            identificador do clube
 	 * @throws IOException
+	 *             caso no seja possvel escrever no stream
 	 */
-	ByteArrayOutputStream getPlanilhaAtual();
+	void escreverPlanilhaAtual(OutputStream saida, String clube) throws IOException;
 
 }
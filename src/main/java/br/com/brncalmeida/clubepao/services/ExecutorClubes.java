@@ -0,0 +1,209 @@
+package br.com.brncalmeida.clubepao.services;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import br.com.caelum.vraptor.ioc.ApplicationScoped;
+import br.com.caelum.vraptor.ioc.Component;
+
+/**
+ * Executor limitado e justo entre clubes para a gerao das programaes. Cada clube tem a sua fila e no mximo uma tarefa em execuo; as threads atendem os
+ * clubes em rodzio, de forma que um clube grande (ou com muitas requisies) no atrasa os demais. O total de tarefas aguardando tambm  limitado, recusando
+ * novas tarefas quando a fila est cheia.
+ *
+ * @author bruno.almeida
+ *
+ */
+@Component
+@ApplicationScoped
+public class ExecutorClubes {
+
+	private static final int QTD_MAXIMA_AGUARDANDO_PADRAO = 1000;
+
+	private final ExecutorService threads;
+	private final int qtdThreads;
+	private final int qtdMaximaAguardando;
+
+	private final Map<String, Queue<FutureTask<?>>> filas = new HashMap<String, Queue<FutureTask<?>>>();
+	private final Queue<String> clubesProntos = new ArrayDeque<String>();
+	private final Set<String> clubesEmExecucao = new HashSet<String>();
+	private int qtdAguardando;
+	private int qtdEmExecucao;
+	private boolean encerrado;
+
+	/**
+	 * Construtor default: qtd de threads pela propriedade de sistema "programacao.threads" (padro: qtd de processadores) e limite de tarefas aguardando pela
+	 * propriedade "programacao.fila"
+	 */
+	public ExecutorClubes() {
+		this(Integer.getInteger("programacao.threads", Runtime.getRuntime().availableProcessors()), Integer.getInteger("programacao.fila",
+				QTD_MAXIMA_AGUARDANDO_PADRAO));
+	}
+
+	/**
+	 * Construtor com os limites informados
+	 *
+	 * @param qtdThreads
+	 *            qtd de tarefas executadas ao mesmo tempo
+	 * @param qtdMaximaAguardando
+	 *            qtd mxima de tarefas aguardando execuo
+	 */
+	public ExecutorClubes(int qtdThreads, int qtdMaximaAguardando) {
+		if (qtdThreads < 1)
+			throw new IllegalArgumentException("Qtd de threads invlida: " + qtdThreads);
+		if (qtdMaximaAguardando < 1)
+			throw new IllegalArgumentException("Qtd mxima de tarefas aguardando invlida: " + qtdMaximaAguardando);
+		this.qtdThreads = qtdThreads;
+		this.qtdMaximaAguardando = qtdMaximaAguardando;
+		this.threads = Executors.newFixedThreadPool(qtdThreads, new ThreadFactory() {
+			private final AtomicInteger numero = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable tarefa) {
+				Thread thread = new Thread(tarefa, "programacao-" + numero.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * agenda a tarefa na fila do clube
+	 *
+	 * @param clube
+	 *            identificador do clube
+	 * @param tarefa
+	 *            tarefa a ser executada
+	 * @return resultado futuro da tarefa
+	 * @throws RejectedExecutionException
+	 *             caso a qtd mxima de tarefas aguardando tenha sido atingida
+	 */
+	public <T> Future<T> submeter(String clube, Callable<T> tarefa) {
+		FutureTask<T> futuro = new FutureTask<T>(tarefa);
+		synchronized (this) {
+			if (encerrado)
+				throw new RejectedExecutionException("Executor de programaes encerrado");
+			if (qtdAguardando >= qtdMaximaAguardando)
+				throw new RejectedExecutionException("Fila de programaes cheia: " + qtdAguardando + " tarefas aguardando");
+			Queue<FutureTask<?>> fila = filas.get(clube);
+			if (fila == null) {
+				fila = new ArrayDeque<FutureTask<?>>();
+				filas.put(clube, fila);
+			}
+			fila.add(futuro);
+			qtdAguardando++;
+			if (fila.size() == 1 && !clubesEmExecucao.contains(clube))
+				clubesProntos.add(clube);
+			despachar();
+		}
+		return futuro;
+	}
+
+	/**
+	 * executa a tarefa na fila do clube, aguardando o resultado
+	 *
+	 * @param clube
+	 *            identificador do clube
+	 * @param tarefa
+	 *            tarefa a ser executada
+	 * @return resultado da tarefa
+	 */
+	public <T> T executar(String clube, Callable<T> tarefa) {
+		Future<T> futuro = submeter(clube, tarefa);
+		try {
+			return futuro.get();
+		} catch (InterruptedException e) {
+			futuro.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Gerao da programao interrompida", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * qtd de tarefas aguardando execuo
+	 *
+	 * @return qtd de tarefas
+	 */
+	public synchronized int getQtdAguardando() {
+		return qtdAguardando;
+	}
+
+	/**
+	 * encerra as threads, cancelando as tarefas aguardando e interrompendo as tarefas em execuo
+	 */
+	@PreDestroy
+	public void encerrar() {
+		synchronized (this) {
+			encerrado = true;
+			for (Queue<FutureTask<?>> fila : filas.values()) {
+				for (FutureTask<?> tarefa : fila) {
+					tarefa.cancel(false);
+				}
+			}
+			filas.clear();
+			clubesProntos.clear();
+			qtdAguardando = 0;
+		}
+		threads.shutdownNow();
+	}
+
+	/**
+	 * envia s threads livres a prxima tarefa de cada clube pronto, em rodzio
+	 */
+	private void despachar() {
+		while (!encerrado && qtdEmExecucao < qtdThreads && !clubesProntos.isEmpty()) {
+			final String clube = clubesProntos.poll();
+			final FutureTask<?> tarefa = filas.get(clube).poll();
+			qtdAguardando--;
+			qtdEmExecucao++;
+			clubesEmExecucao.add(clube);
+			threads.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						tarefa.run();
+					} finally {
+						concluir(clube);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * libera o clube ao final da tarefa, recolocando-o no fim do rodzio caso ainda tenha tarefas
+	 */
+	private synchronized void concluir(String clube) {
+		qtdEmExecucao--;
+		clubesEmExecucao.remove(clube);
+		Queue<FutureTask<?>> fila = filas.get(clube);
+		if (fila == null || encerrado)
+			return;
+		if (fila.isEmpty())
+			filas.remove(clube);
+		else
+			clubesProntos.add(clube);
+		despachar();
+	}
+}
@@ -0,0 +1,343 @@
+package br.com.brncalmeida.clubepao.services;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import br.com.brncalmeida.clubepao.dao.AlteracaoMembro;
+import br.com.brncalmeida.clubepao.dao.MembroDao;
+import br.com.brncalmeida.clubepao.dao.VersaoMembros;
+import br.com.brncalmeida.clubepao.model.Disponibilidade;
+import br.com.brncalmeida.clubepao.model.MembroResumo;
+import br.com.brncalmeida.clubepao.utils.Metricas;
+import br.com.caelum.vraptor.ioc.ApplicationScoped;
+import br.com.caelum.vraptor.ioc.Component;
+
+/**
+ * ndice em memria dos membros para a listagem paginada: busca por prefixo do nome (ou de qualquer palavra do nome) ou do e-mail, sem diferenciar maisculas e
+ * acentos, e filtro por disponibilidade. Os membros ficam em ordem de id; cada chave de busca e cada disponibilidade tm o conjunto de bits das posies dos
+ * membros.
+ *
+ * Cada clube tem o seu ndice, montado com uma nica consulta ({@link MembroDao#listarResumo(String)}) e associado  verso do clube
+ * ({@link VersaoMembros#getVersao(String)}). As incluses, alteraes e remoes de membros individuais so aplicadas ao ndice do clube na prxima busca, a
+ * partir das alteraes registradas na verso ({@link VersaoMembros#buscarAlteracoes(String, long, long)}), sem consultar o banco; somente as escritas em
+ * lote (importao, remoo de todos os membros) ou uma sequncia de alteraes j descartada remontam o ndice. O custo de cada pgina depende do tamanho da
+ * pgina, no da qtd de membros. Clubes sem membros no mantm ndice.
+ *
+ * @author bruno.almeida
+ *
+ */
+@Component
+@ApplicationScoped
+public class IndiceMembros {
+
+	private final VersaoMembros versao;
+	private final AtomicLong qtdMontagens = new AtomicLong();
+	private final AtomicLong qtdAlteracoes = new AtomicLong();
+	private final ConcurrentMap<String, Indice> indices = new ConcurrentHashMap<String, Indice>();
+
+	/**
+	 * Construtor default
+	 *
+	 * @param versao
+	 *            verso atual da base de membros
+	 */
+	public IndiceMembros(VersaoMembros versao) {
+		this.versao = versao;
+	}
+
+	/**
+	 * busca uma pgina de membros
+	 *
+	 * @param dao
+	 *            dao utilizado para remontar o ndice, somente caso o clube tenha sido alterado em lote
+	 * @param clube
+	 *            clube dos membros
+	 * @param texto
+	 *            prefixo do nome, de uma palavra do nome ou do e-mail (vazio = todos os membros)
+	 * @param disponibilidade
+	 *            disponibilidade dos membros (null = todas)
+	 * @param primeiro
+	 *            posio do primeiro membro da pgina (iniciando em 0)
+	 * @param qtd
+	 *            qtd mxima de membros da pgina
+	 * @return pgina com os membros encontrados, ordenados por id
+	 */
+	public PaginaMembros buscar(MembroDao dao, String clube, String texto, Disponibilidade disponibilidade, int primeiro, int qtd) {
+		return atualizar(dao, clube).buscar(clube, texto, disponibilidade, primeiro, qtd);
+	}
+
+	/**
+	 * qtd de vezes que o ndice foi montado a partir da base
+	 *
+	 * @return qtd de montagens
+	 */
+	public long getQtdMontagens() {
+		return qtdMontagens.get();
+	}
+
+	/**
+	 * qtd de alteraes de membros aplicadas aos ndices sem remont-los
+	 *
+	 * @return qtd de alteraes
+	 */
+	public long getQtdAlteracoes() {
+		return qtdAlteracoes.get();
+	}
+
+	/**
+	 * qtd de clubes com ndice montado
+	 *
+	 * @return qtd de clubes
+	 */
+	public int getQtdClubes() {
+		return indices.size();
+	}
+
+	// ~-~-~-~-~-~-~-~-~-~-~-~-~ Mtodos privados ~-~-~-~-~-~-~-~-~-~-~-~-~
+
+	/**
+	 * ndice da verso atual do clube: as alteraes registradas desde a verso do ndice so aplicadas a ele; sem elas, o ndice  remontado. A verso  lida
+	 * antes da consulta: uma escrita durante a montagem faz com que o ndice seja atualizado novamente na prxima busca.
+	 */
+	private Indice atualizar(MembroDao dao, String clube) {
+		Indice atual = indices.get(clube);
+		if (atual != null && atual.atualizar(clube, versao.getVersao(clube)))
+			return atual;
+		synchronized (this) {
+			atual = indices.get(clube);
+			long versaoAtual = versao.getVersao(clube);
+			if (atual == null || !atual.atualizar(clube, versaoAtual)) {
+				long inicio = System.nanoTime();
+				atual = new Indice(versaoAtual, dao.listarResumo(clube));
+				if (atual.membros.isEmpty())
+					indices.remove(clube);
+				else
+					indices.put(clube, atual);
+				qtdMontagens.incrementAndGet();
+				Metricas.getInstance().histograma("clubepao_indice_membros_segundos", "Durao da montagem do ndice de membros").registrarDesde(inicio);
+			}
+			return atual;
+		}
+	}
+
+	/**
+	 * texto sem acentos e em minsculas
+	 *
+	 * @return texto normalizado ou vazio caso nulo
+	 */
+	static String normalizar(String texto) {
+		if (texto == null)
+			return "";
+		return Normalizer.normalize(texto.trim(), Normalizer.Form.NFD).replaceAll("\\p{InCombiningDiacriticalMarks}+", "").toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * ndice dos membros de um clube, atualizado pelas alteraes do clube. As buscas compartilham a leitura; a aplicao das alteraes  exclusiva.
+	 */
+	private class Indice {
+		private final ReadWriteLock trava = new ReentrantReadWriteLock();
+		private volatile long versao;
+		// posio x membro, em ordem de id (null = membro removido)
+		private final List<MembroResumo> membros = new ArrayList<MembroResumo>();
+		private final Map<Long, Integer> posicoes = new HashMap<Long, Integer>();
+		private final BitSet ativos = new BitSet();
+		private final TreeMap<String, BitSet> porPrefixo = new TreeMap<String, BitSet>();
+		private final BitSet[] porDisponibilidade = new BitSet[Disponibilidade.values().length];
+		private int qtdRemovidos;
+
+		Indice(long versao, List<MembroResumo> membros) {
+			this.versao = versao;
+			for (int i = 0; i < porDisponibilidade.length; i++) {
+				porDisponibilidade[i] = new BitSet();
+			}
+			for (MembroResumo membro : membros) {
+				incluir(membro);
+			}
+		}
+
+		/**
+		 * aplica as alteraes do clube at a verso informada
+		 *
+		 * @return false caso as alteraes no estejam disponveis (o ndice deve ser remontado)
+		 */
+		boolean atualizar(String clube, long versaoAtual) {
+			// a verso do clube s aumenta: o ndice pode j ter sido atualizado alm da verso lida
+			if (versao >= versaoAtual)
+				return true;
+			trava.writeLock().lock();
+			try {
+				if (versao >= versaoAtual)
+					return true;
+				List<AlteracaoMembro> alteracoes = IndiceMembros.this.versao.buscarAlteracoes(clube, versao, versaoAtual);
+				if (alteracoes == null)
+					return false;
+				for (AlteracaoMembro alteracao : alteracoes) {
+					aplicar(alteracao);
+				}
+				// posies livres acumuladas pelas remoes (ou membro fora da ordem de id): reorganizao em memria
+				if (qtdRemovidos > membros.size() / 2 || !emOrdem())
+					reorganizar();
+				versao = versaoAtual;
+				qtdAlteracoes.addAndGet(alteracoes.size());
+				return true;
+			} finally {
+				trava.writeLock().unlock();
+			}
+		}
+
+		/**
+		 * pgina dos membros com alguma chave iniciada pelo texto (normalizado) e com a disponibilidade informada
+		 */
+		PaginaMembros buscar(String clube, String texto, Disponibilidade disponibilidade, int primeiro, int qtd) {
+			String prefixo = normalizar(texto);
+			trava.readLock().lock();
+			try {
+				BitSet encontrados;
+				if (prefixo.length() == 0) {
+					encontrados = (BitSet) ativos.clone();
+				} else {
+					encontrados = new BitSet(membros.size());
+					for (BitSet posicoes : porPrefixo.subMap(prefixo, true, prefixo + Character.MAX_VALUE, false).values()) {
+						encontrados.or(posicoes);
+					}
+				}
+				if (disponibilidade != null)
+					encontrados.and(porDisponibilidade[disponibilidade.ordinal()]);
+
+				List<MembroResumo> pagina = new ArrayList<MembroResumo>(Math.min(qtd, encontrados.cardinality()));
+				int posicao = encontrados.nextSetBit(0);
+				for (int i = 0; i < primeiro && posicao >= 0; i++) {
+					posicao = encontrados.nextSetBit(posicao + 1);
+				}
+				for (; posicao >= 0 && pagina.size() < qtd; posicao = encontrados.nextSetBit(posicao + 1)) {
+					pagina.add(membros.get(posicao));
+				}
+				return new PaginaMembros(clube, texto, disponibilidade, primeiro, qtd, encontrados.cardinality(), pagina);
+			} finally {
+				trava.readLock().unlock();
+			}
+		}
+
+		/**
+		 * aplica a alterao de um membro: o membro removido libera a sua posio, o membro alterado  reindexado na mesma posio e o membro includo
+		 * ocupa a prxima posio
+		 */
+		private void aplicar(AlteracaoMembro alteracao) {
+			Integer posicao = posicoes.get(alteracao.getId());
+			if (posicao != null)
+				desindexar(membros.get(posicao), posicao);
+			if (alteracao.isRemocao()) {
+				if (posicao != null) {
+					membros.set(posicao, null);
+					posicoes.remove(alteracao.getId());
+					qtdRemovidos++;
+				}
+			} else if (posicao != null) {
+				membros.set(posicao, alteracao.getMembro());
+				indexar(alteracao.getMembro(), posicao);
+			} else {
+				incluir(alteracao.getMembro());
+			}
+		}
+
+		private void incluir(MembroResumo membro) {
+			int posicao = membros.size();
+			membros.add(membro);
+			posicoes.put(membro.getId(), posicao);
+			indexar(membro, posicao);
+		}
+
+		private void indexar(MembroResumo membro, int posicao) {
+			ativos.set(posicao);
+			for (String chave : chaves(membro)) {
+				BitSet posicoesChave = porPrefixo.get(chave);
+				if (posicoesChave == null) {
+					posicoesChave = new BitSet();
+					porPrefixo.put(chave, posicoesChave);
+				}
+				posicoesChave.set(posicao);
+			}
+			for (Disponibilidade disponibilidade : Disponibilidade.values()) {
+				if (membro.possuiDisponibilidade(disponibilidade))
+					porDisponibilidade[disponibilidade.ordinal()].set(posicao);
+			}
+		}
+
+		private void desindexar(MembroResumo membro, int posicao) {
+			ativos.clear(posicao);
+			for (String chave : chaves(membro)) {
+				BitSet posicoesChave = porPrefixo.get(chave);
+				posicoesChave.clear(posicao);
+				if (posicoesChave.isEmpty())
+					porPrefixo.remove(chave);
+			}
+			for (BitSet disponiveis : porDisponibilidade) {
+				disponiveis.clear(posicao);
+			}
+		}
+
+		/**
+		 * indica se os membros esto em ordem de id (um membro vindo de outro clube pode ter id menor que os demais)
+		 */
+		private boolean emOrdem() {
+			long ultimoId = Long.MIN_VALUE;
+			for (int posicao = ativos.nextSetBit(0); posicao >= 0; posicao = ativos.nextSetBit(posicao + 1)) {
+				long id = membros.get(posicao).getId();
+				if (id < ultimoId)
+					return false;
+				ultimoId = id;
+			}
+			return true;
+		}
+
+		/**
+		 * reindexa os membros atuais, em ordem de id e sem posies livres
+		 */
+		private void reorganizar() {
+			TreeMap<Long, MembroResumo> atuais = new TreeMap<Long, MembroResumo>();
+			for (MembroResumo membro : membros) {
+				if (membro != null)
+					atuais.put(membro.getId(), membro);
+			}
+			membros.clear();
+			posicoes.clear();
+			ativos.clear();
+			porPrefixo.clear();
+			for (BitSet disponiveis : porDisponibilidade) {
+				disponiveis.clear();
+			}
+			qtdRemovidos = 0;
+			for (MembroResumo membro : atuais.values()) {
+				incluir(membro);
+			}
+		}
+	}
+
+	/**
+	 * chaves de busca do membro: nome, cada palavra do nome e e-mail, normalizados
+	 */
+	private static Set<String> chaves(MembroResumo membro) {
+		Set<String> chaves = new LinkedHashSet<String>();
+		String nome = normalizar(membro.getNome());
+		chaves.add(nome);
+		for (String palavra : nome.split("\\s+")) {
+			chaves.add(palavra);
+		}
+		chaves.add(normalizar(membro.getEmail()));
+		chaves.remove("");
+		return chaves;
+	}
+}
@@ -0,0 +1,255 @@
+package br.com.brncalmeida.clubepao.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.joda.time.LocalDate;
+
+import br.com.brncalmeida.clubepao.dao.DefaultProgramacaoDao;
+import br.com.brncalmeida.clubepao.dao.ProgramacaoDao;
+import br.com.brncalmeida.clubepao.dao.VersaoProgramacoes;
+import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.model.Schedule;
+import br.com.caelum.vraptor.ioc.ApplicationScoped;
+import br.com.caelum.vraptor.ioc.Component;
+
+/**
+ * Gerao assncrona de programaes em lote: vrias datas iniciais de um mesmo clube so agendadas no {@link ExecutorClubes}, uma tarefa por data, e o
+ * andamento  consultado pelo identificador do lote, sem manter a requisio aguardando.
+ *
+ * As datas so geradas em ordem cronolgica e cada perodo parte da carga dos membros ao final do perodo anterior, como se cada perodo fosse gerado aps o
+ * anterior: o executor roda uma tarefa por clube de cada vez, na ordem de agendamento. Os membros so copiados ({@link Membro#copiar()}) na thread da
+ * requisio e a cada perodo, de forma que os membros informados e as programaes j geradas no so alterados. Cada perodo gerado  adicionado ao
+ * {@link CacheCronogramas} e salvo em uma sesso prpria, pois a tarefa roda fora da requisio. Somente os ltimos lotes so mantidos, descartando os mais
+ * antigos.
+ *
+ * @author bruno.almeida
+ *
+ */
+@Component
+@ApplicationScoped
+public class LotesProgramacao {
+
+	/**
+	 * qtd mxima de datas iniciais por lote
+	 */
+	public static final int QTD_MAXIMA_DATAS = 366;
+
+	private static final int QTD_MAXIMA_LOTES_PADRAO = 50;
+
+	private final ExecutorClubes executor;
+	private final CacheCronogramas cache;
+	private final SessionFactory fabrica;
+	private final VersaoProgramacoes versaoProgramacoes;
+	private final Map<String, Lote> lotes;
+
+	/**
+	 * Construtor default, a qtd de lotes mantidos pode ser alterada pela propriedade de sistema "programacao.lotes"
+	 *
+	 * @param executor
+	 *            executor das geraes, compartilhado de forma justa entre os clubes
+	 * @param cache
+	 *            cache das programaes j geradas
+	 * @param fabrica
+	 *            fbrica das sesses utilizadas para salvar os perodos gerados
+	 * @param versaoProgramacoes
+	 *            verso das programaes salvas
+	 */
+	public LotesProgramacao(ExecutorClubes executor, CacheCronogramas cache, SessionFactory fabrica, VersaoProgramacoes versaoProgramacoes) {
+		this(executor, cache, fabrica, versaoProgramacoes, Integer.getInteger("programacao.lotes", QTD_MAXIMA_LOTES_PADRAO));
+	}
+
+	/**
+	 * Construtor com a qtd de lotes mantidos informada
+	 *
+	 * @param executor
+	 *            executor das geraes, compartilhado de forma justa entre os clubes
+	 * @param cache
+	 *            cache das programaes j geradas
+	 * @param fabrica
+	 *            fbrica das sesses utilizadas para salvar os perodos gerados
+	 * @param versaoProgramacoes
+	 *            verso das programaes salvas
+	 * @param qtdMaximaLotes
+	 *            qtd de lotes mantidos para consulta
+	 */
+	public LotesProgramacao(ExecutorClubes executor, CacheCronogramas cache, SessionFactory fabrica, VersaoProgramacoes versaoProgramacoes,
+			final int qtdMaximaLotes) {
+		this.executor = executor;
+		this.cache = cache;
+		this.fabrica = fabrica;
+		this.versaoProgramacoes = versaoProgramacoes;
+		this.lotes = new LinkedHashMap<String, Lote>(qtdMaximaLotes + 1, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Lote> maisAntigo) {
+				if (size() <= qtdMaximaLotes)
+					return false;
+				maisAntigo.getValue().cancelar();
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * agenda a gerao das programaes de cada data inicial, em ordem cronolgica
+	 *
+	 * @param clube
+	 *            identificador do clube
+	 * @param datas
+	 *            datas iniciais das programaes
+	 * @param qtdDias
+	 *            qtd de dias de cada programao
+	 * @param versao
+	 *            verso dos membros do clube, utilizada para adicionar as programaes geradas ao cache
+	 * @param membros
+	 *            membros do clube, com a carga anterior  primeira data ({@link ProgramacaoDao#carregarDiasProgramados(String, LocalDate, List)})
+	 * @return identificador do lote
+	 * @throws RejectedExecutionException
+	 *             caso a fila de programaes no comporte o lote
+	 */
+	public String iniciar(final String clube, List<LocalDate> datas, final int qtdDias, final long versao, List<Membro> membros) {
+		if (datas == null || datas.isEmpty() || datas.size() > QTD_MAXIMA_DATAS)
+			throw new IllegalArgumentException("Qtd de datas invlida: " + (datas == null ? 0 : datas.size()));
+		if (membros == null || membros.isEmpty())
+			throw new IllegalArgumentException("Lote sem membros");
+
+		List<LocalDate> ordenadas = new ArrayList<LocalDate>(datas);
+		Collections.sort(ordenadas);
+		final Lote lote = new Lote(UUID.randomUUID().toString(), clube, ordenadas.size(), copiar(membros));
+		try {
+			for (int i = 0; i < ordenadas.size(); i++) {
+				final int posicao = i;
+				final LocalDate data = ordenadas.get(i);
+				lote.futuros.add(executor.submeter(clube, new Callable<Void>() {
+					@Override
+					public Void call() {
+						lote.concluir(posicao, gerar(lote, data, qtdDias, versao));
+						return null;
+					}
+				}));
+			}
+		} catch (RejectedExecutionException e) {
+			lote.cancelar();
+			throw e;
+		}
+		synchronized (lotes) {
+			lotes.put(lote.id, lote);
+		}
+		return lote.id;
+	}
+
+	/**
+	 * situao atual do lote
+	 *
+	 * @param id
+	 *            identificador do lote
+	 * @param inicio
+	 *            posio da primeira programao a ser devolvida
+	 * @return situao do lote ou null caso o lote no exista (ou j tenha sido descartado)
+	 */
+	public SituacaoLote situacao(String id, int inicio) {
+		Lote lote;
+		synchronized (lotes) {
+			lote = lotes.get(id);
+		}
+		return lote == null ? null : lote.situacao(Math.max(inicio, 0));
+	}
+
+	/**
+	 * gera o perodo a partir da carga dos membros ao final do perodo anterior do lote, salva e adiciona ao cache. Em caso de erro, o prximo perodo parte
+	 * da mesma carga.
+	 */
+	private ProgramacaoLote gerar(Lote lote, LocalDate data, int qtdDias, long versao) {
+		try {
+			List<Membro> membros = copiar(lote.membros);
+			Schedule cronograma = new Schedule(data, data.plusDays(qtdDias), membros);
+			salvar(lote.clube, data, qtdDias, cronograma);
+			// a alocao padro equivale ao modo incremental; a verso das programaes  lida aps o commit, com os perodos anteriores do lote j salvos
+			cache.adicionar(lote.clube, data, qtdDias, ModoAlocacao.INCREMENTAL, versao, versaoProgramacoes.getVersao(lote.clube), cronograma);
+			lote.membros = membros;
+			return new ProgramacaoLote(data, cronograma);
+		} catch (RuntimeException e) {
+			return new ProgramacaoLote(data, e.getMessage());
+		}
+	}
+
+	/**
+	 * salva o perodo em uma sesso prpria, fora da transao da requisio
+	 */
+	private void salvar(String clube, LocalDate data, int qtdDias, Schedule cronograma) {
+		Session session = fabrica.openSession();
+		try {
+			session.beginTransaction();
+			new DefaultProgramacaoDao(session, versaoProgramacoes).salvar(clube, data, qtdDias, cronograma);
+			session.getTransaction().commit();
+		} catch (RuntimeException e) {
+			if (session.getTransaction().isActive())
+				session.getTransaction().rollback();
+			throw e;
+		} finally {
+			session.close();
+		}
+	}
+
+	private static List<Membro> copiar(List<Membro> membros) {
+		List<Membro> copia = new ArrayList<Membro>(membros.size());
+		for (Membro membro : membros) {
+			copia.add(membro.copiar());
+		}
+		return copia;
+	}
+
+	/**
+	 * andamento de um lote: as programaes so gravadas na posio da data inicial (em ordem cronolgica) assim que concludas. Os membros so os do ltimo
+	 * perodo gerado, ponto de partida do perodo seguinte.
+	 */
+	private static class Lote {
+		private final String id;
+		private final String clube;
+		private final AtomicReferenceArray<ProgramacaoLote> programacoes;
+		private final AtomicInteger qtdConcluidas = new AtomicInteger();
+		private final List<Future<?>> futuros = new ArrayList<Future<?>>();
+		private volatile List<Membro> membros;
+
+		Lote(String id, String clube, int qtdDatas, List<Membro> membros) {
+			this.id = id;
+			this.clube = clube;
+			this.programacoes = new AtomicReferenceArray<ProgramacaoLote>(qtdDatas);
+			this.membros = membros;
+		}
+
+		void concluir(int posicao, ProgramacaoLote programacao) {
+			programacoes.set(posicao, programacao);
+			qtdConcluidas.incrementAndGet();
+		}
+
+		void cancelar() {
+			for (Future<?> futuro : futuros) {
+				futuro.cancel(false);
+			}
+		}
+
+		SituacaoLote situacao(int inicio) {
+			int concluidas = qtdConcluidas.get();
+			List<ProgramacaoLote> prontas = new ArrayList<ProgramacaoLote>();
+			int proximo = inicio;
+			while (proximo < programacoes.length() && programacoes.get(proximo) != null) {
+				prontas.add(programacoes.get(proximo++));
+			}
+			return new SituacaoLote(id, clube, programacoes.length(), concluidas, Math.min(proximo, programacoes.length()), prontas);
+		}
+	}
+}
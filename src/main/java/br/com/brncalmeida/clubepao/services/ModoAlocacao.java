@@ -0,0 +1,41 @@
+package br.com.brncalmeida.clubepao.services;
+
+import br.com.brncalmeida.clubepao.model.AlocadorFluxo;
+import br.com.brncalmeida.clubepao.model.AlocadorIncremental;
+import br.com.brncalmeida.clubepao.model.AlocadorParalelo;
+
+/**
+ * Modo de alocao dos membros utilizado na gerao das programaes ({@link ProgramacaoIncremental})
+ *
+ * @author bruno.almeida
+ *
+ */
+public enum ModoAlocacao {
+
+	/**
+	 * alocao gulosa dia a dia, reaproveitando a ltima alocao do clube ({@link AlocadorIncremental})
+	 */
+	INCREMENTAL,
+
+	/**
+	 * alocao tima por fluxo de custo mnimo, com tempo mximo ({@link AlocadorFluxo}): maior cobertura dos dias e menor desequilbrio de carga
+	 */
+	FLUXO,
+
+	/**
+	 * alocao dos blocos de semanas do perodo em paralelo, com conciliao da carga entre os blocos ({@link AlocadorParalelo}): mesma distribuio de carga
+	 * da alocao sequencial, sem reaproveitar a ltima alocao
+	 */
+	PARALELO;
+
+	/**
+	 * modo informado ou o padro ({@link #INCREMENTAL}) quando no informado
+	 *
+	 * @param modo
+	 *            modo informado
+	 * @return modo de alocao
+	 */
+	public static ModoAlocacao padrao(ModoAlocacao modo) {
+		return modo == null ? INCREMENTAL : modo;
+	}
+}
@@ -0,0 +1,156 @@
+package br.com.brncalmeida.clubepao.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.joda.time.LocalDate;
+
+import br.com.brncalmeida.clubepao.model.Disponibilidade;
+import br.com.brncalmeida.clubepao.model.ProgramacaoSalva;
+import br.com.brncalmeida.clubepao.model.Schedule;
+
+/**
+ * Trecho (pgina) de uma programao, no formato devolvido ao cliente: os dias teis entre o incio e o fim da pgina, com o nome do membro programado (vazio =
+ * sem po). A programao pode ser a gerada ({@link Schedule}) ou a salva ({@link ProgramacaoSalva}).
+ *
+ * A pgina indica onde o cliente deve continuar: o prximo dia til da mesma programao ou, ao final do perodo, a programao do perodo seguinte.
+ *
+ * @author bruno.almeida
+ *
+ */
+public class PaginaCalendario {
+
+	private final String dataInicial;
+	private final String inicio;
+	private final String fim;
+	private final int qtdMembros;
+	private final List<Dia> dias;
+	private final String proximaDataInicial;
+	private final String proximoInicio;
+	private final boolean ultimaDoPeriodo;
+
+	/**
+	 * Construtor default
+	 *
+	 * @param dataInicial
+	 *            data inicial da programao
+	 * @param qtdDiasPeriodo
+	 *            qtd de dias do perodo da programao (o perodo seguinte inicia em dataInicial + qtdDiasPeriodo)
+	 * @param programacao
+	 *            dias teis de todo o perodo x membro programado ({@link Schedule#getProgramacaoPorMembro()} ou
+	 *            {@link ProgramacaoSalva#getProgramacaoPorMembro(Map)})
+	 * @param qtdMembros
+	 *            qtd de membros da programao
+	 * @param inicio
+	 *            primeiro dia da pgina
+	 * @param qtdDias
+	 *            qtd de dias corridos da pgina
+	 */
+	public PaginaCalendario(LocalDate dataInicial, int qtdDiasPeriodo, Map<Date, String> programacao, int qtdMembros, LocalDate inicio, int qtdDias) {
+		LocalDate fim = inicio.plusDays(qtdDias - 1);
+		this.dataInicial = dataInicial.toString();
+		this.inicio = inicio.toString();
+		this.fim = fim.toString();
+		this.qtdMembros = qtdMembros;
+
+		SortedMap<Date, String> dias = programacao instanceof SortedMap ? (SortedMap<Date, String>) programacao : new TreeMap<Date, String>(programacao);
+		Date depoisDoFim = fim.plusDays(1).toDate();
+		SortedMap<Date, String> pagina = dias.subMap(inicio.toDate(), depoisDoFim);
+		this.dias = new ArrayList<Dia>(pagina.size());
+		for (Entry<Date, String> dia : pagina.entrySet()) {
+			LocalDate data = new LocalDate(dia.getKey());
+			this.dias.add(new Dia(data.toString(), Disponibilidade.getDisponibilidadeById(data.getDayOfWeek()).toString(), dia.getValue()));
+		}
+
+		// continuao: prximo dia til da programao ou o perodo seguinte
+		SortedMap<Date, String> restantes = dias.tailMap(depoisDoFim);
+		this.ultimaDoPeriodo = restantes.isEmpty();
+		if (!ultimaDoPeriodo) {
+			this.proximaDataInicial = this.dataInicial;
+			this.proximoInicio = new LocalDate(restantes.firstKey()).toString();
+		} else {
+			this.proximaDataInicial = dataInicial.plusDays(qtdDiasPeriodo).toString();
+			this.proximoInicio = proximaDataInicial;
+		}
+	}
+
+	public String getDataInicial() {
+		return dataInicial;
+	}
+
+	public String getInicio() {
+		return inicio;
+	}
+
+	public String getFim() {
+		return fim;
+	}
+
+	public int getQtdMembros() {
+		return qtdMembros;
+	}
+
+	public List<Dia> getDias() {
+		return Collections.unmodifiableList(dias);
+	}
+
+	/**
+	 * data inicial da programao da prxima pgina
+	 *
+	 * @return a mesma data inicial ou a data inicial do perodo seguinte
+	 */
+	public String getProximaDataInicial() {
+		return proximaDataInicial;
+	}
+
+	/**
+	 * primeiro dia da prxima pgina
+	 *
+	 * @return prximo dia
+	 */
+	public String getProximoInicio() {
+		return proximoInicio;
+	}
+
+	/**
+	 * indica se esta  a ltima pgina da programao (a prxima pgina pertence ao perodo seguinte)
+	 *
+	 * @return true = "ltima pgina do perodo"
+	 */
+	public boolean isUltimaDoPeriodo() {
+		return ultimaDoPeriodo;
+	}
+
+	/**
+	 * dia til da pgina
+	 */
+	public static class Dia {
+		private final String data;
+		private final String diaDaSemana;
+		private final String membro;
+
+		Dia(String data, String diaDaSemana, String membro) {
+			this.data = data;
+			this.diaDaSemana = diaDaSemana;
+			this.membro = membro;
+		}
+
+		public String getData() {
+			return data;
+		}
+
+		public String getDiaDaSemana() {
+			return diaDaSemana;
+		}
+
+		public String getMembro() {
+			return membro;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package br.com.brncalmeida.clubepao.services;
+
+import java.util.Collections;
+import java.util.List;
+
+import br.com.brncalmeida.clubepao.model.Disponibilidade;
+import br.com.brncalmeida.clubepao.model.MembroResumo;
+
+/**
+ * Pgina da listagem de membros ({@link IndiceMembros}): os membros da pgina, o filtro utilizado e a qtd total de membros encontrados.
+ *
+ * @author bruno.almeida
+ *
+ */
+public class PaginaMembros {
+
+	private final String clube;
+	private final String texto;
+	private final Disponibilidade disponibilidade;
+	private final int primeiro;
+	private final int qtd;
+	private final int total;
+	private final List<MembroResumo> membros;
+
+	/**
+	 * Construtor default
+	 *
+	 * @param clube
+	 *            clube dos membros
+	 * @param texto
+	 *            texto buscado
+	 * @param disponibilidade
+	 *            disponibilidade filtrada (null = todas)
+	 * @param primeiro
+	 *            posio do primeiro membro da pgina
+	 * @param qtd
+	 *            qtd mxima de membros da pgina
+	 * @param total
+	 *            qtd total de membros encontrados
+	 * @param membros
+	 *            membros da pgina
+	 */
+	public PaginaMembros(String clube, String texto, Disponibilidade disponibilidade, int primeiro, int qtd, int total, List<MembroResumo> membros) {
+		this.clube = clube;
+		this.texto = texto;
+		this.disponibilidade = disponibilidade;
+		this.primeiro = primeiro;
+		this.qtd = qtd;
+		this.total = total;
+		this.membros = membros;
+	}
+
+	public String getClube() {
+		return clube;
+	}
+
+	public String getTexto() {
+		return texto;
+	}
+
+	public Disponibilidade getDisponibilidade() {
+		return disponibilidade;
+	}
+
+	public int getPrimeiro() {
+		return primeiro;
+	}
+
+	public int getQtd() {
+		return qtd;
+	}
+
+	public int getTotal() {
+		return total;
+	}
+
+	public List<MembroResumo> getMembros() {
+		return Collections.unmodifiableList(membros);
+	}
+
+	/**
+	 * nmero da pgina (iniciando em 0)
+	 *
+	 * @return pgina atual
+	 */
+	public int getPagina() {
+		return qtd == 0 ? 0 : primeiro / qtd;
+	}
+
+	/**
+	 * posio (iniciando em 1) do ltimo membro da pgina, para exibio
+	 *
+	 * @return posio do ltimo membro
+	 */
+	public int getUltimo() {
+		return primeiro + membros.size();
+	}
+
+	/**
+	 * validao se existe pgina anterior
+	 *
+	 * @return true = "existe pgina anterior"
+	 */
+	public boolean isPossuiAnterior() {
+		return primeiro > 0;
+	}
+
+	/**
+	 * validao se existem mais membros aps a pgina
+	 *
+	 * @return true = "existe prxima pgina"
+	 */
+	public boolean isPossuiProxima() {
+		return primeiro + membros.size() < total;
+	}
+}
@@ -0,0 +1,89 @@
+package br.com.brncalmeida.clubepao.services;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.PreDestroy;
+
+import org.joda.time.LocalDate;
+
+import br.com.brncalmeida.clubepao.model.AlocadorFluxo;
+import br.com.brncalmeida.clubepao.model.AlocadorIncremental;
+import br.com.brncalmeida.clubepao.model.AlocadorParalelo;
+import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.model.Schedule;
+import br.com.caelum.vraptor.ioc.ApplicationScoped;
+import br.com.caelum.vraptor.ioc.Component;
+
+/**
+ * Gerao de programaes reaproveitando a ltima alocao ({@link AlocadorIncremental}). Quando um nico membro  includo, alterado ou removido, somente os
+ * dias a partir do primeiro dia afetado pela alterao so recalculados. Cada clube tem a sua prpria alocao anterior.
+ *
+ * No modo {@link ModoAlocacao#FLUXO} a programao  calculada por completo pelo {@link AlocadorFluxo}, sem estado entre as geraes. No modo
+ * {@link ModoAlocacao#PARALELO} os blocos de semanas do perodo so calculados pelo {@link AlocadorParalelo} no pool desta classe (qtd de threads pela
+ * propriedade de sistema "programacao.paralelo.threads", padro: qtd de processadores), encerrado junto com a aplicao.
+ *
+ * @author bruno.almeida
+ *
+ */
+@Component
+@ApplicationScoped
+public class ProgramacaoIncremental {
+
+	private final ConcurrentMap<String, AlocadorIncremental> alocadores = new ConcurrentHashMap<String, AlocadorIncremental>();
+	private final ForkJoinPool pool = new ForkJoinPool(Integer.getInteger("programacao.paralelo.threads", Runtime.getRuntime().availableProcessors()));
+
+	/**
+	 * gera a programao do perodo
+	 *
+	 * @param clube
+	 *            identificador do clube dos membros
+	 * @param dataInicial
+	 *            data inicial do range que dever compor a programao
+	 * @param dataFinal
+	 *            data final do range que dever compor a programao
+	 * @param membros
+	 *            membros que iro compor a programao
+	 * @param modo
+	 *            modo de alocao dos membros (null = {@link ModoAlocacao#INCREMENTAL})
+	 * @return programao gerada ({@link Schedule#isAlocacaoCompleta()} indica se o modo concluiu a alocao)
+	 */
+	public Schedule gerar(String clube, LocalDate dataInicial, LocalDate dataFinal, List<Membro> membros, ModoAlocacao modo) {
+		if (ModoAlocacao.padrao(modo) == ModoAlocacao.FLUXO)
+			return new Schedule(dataInicial, dataFinal, membros, new AlocadorFluxo());
+		if (modo == ModoAlocacao.PARALELO)
+			return new Schedule(dataInicial, dataFinal, membros, new AlocadorParalelo(pool));
+		return new Schedule(dataInicial, dataFinal, membros, alocador(clube));
+	}
+
+	/**
+	 * qtd de dias recalculados na ltima programao gerada do clube
+	 *
+	 * @param clube
+	 *            identificador do clube
+	 * @return qtd de dias recalculados
+	 */
+	public int getQtdDiasRecalculados(String clube) {
+		return alocador(clube).getQtdDiasRecalculados();
+	}
+
+	/**
+	 * encerra o pool da alocao paralela
+	 */
+	@PreDestroy
+	public void encerrar() {
+		pool.shutdown();
+	}
+
+	private AlocadorIncremental alocador(String clube) {
+		AlocadorIncremental alocador = alocadores.get(clube);
+		if (alocador == null) {
+			AlocadorIncremental existente = alocadores.putIfAbsent(clube, alocador = new AlocadorIncremental());
+			if (existente != null)
+				alocador = existente;
+		}
+		return alocador;
+	}
+}
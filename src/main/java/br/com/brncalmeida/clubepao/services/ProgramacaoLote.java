@@ -0,0 +1,103 @@
+package br.com.brncalmeida.clubepao.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.joda.time.LocalDate;
+
+import br.com.brncalmeida.clubepao.model.Schedule;
+
+/**
+ * Programao de uma das datas iniciais de um lote ({@link LotesProgramacao}), no formato devolvido ao cliente: um dia til por item, com o nome do membro
+ * programado (vazio = sem po).
+ *
+ * @author bruno.almeida
+ *
+ */
+public class ProgramacaoLote {
+
+	private final String dataInicial;
+	private final int qtdMembros;
+	private final List<Dia> dias;
+	private final String erro;
+
+	/**
+	 * Construtor default
+	 *
+	 * @param dataInicial
+	 *            data inicial da programao
+	 * @param cronograma
+	 *            programao gerada
+	 */
+	public ProgramacaoLote(LocalDate dataInicial, Schedule cronograma) {
+		this.dataInicial = dataInicial.toString();
+		this.qtdMembros = cronograma.getQtdMembros();
+		Map<Date, String> programacao = cronograma.getProgramacaoPorMembro();
+		this.dias = new ArrayList<Dia>(programacao.size());
+		for (Entry<Date, String> dia : programacao.entrySet()) {
+			dias.add(new Dia(new LocalDate(dia.getKey()).toString(), dia.getValue()));
+		}
+		this.erro = null;
+	}
+
+	/**
+	 * Construtor de uma programao que no pde ser gerada
+	 *
+	 * @param dataInicial
+	 *            data inicial da programao
+	 * @param erro
+	 *            descrio do erro
+	 */
+	public ProgramacaoLote(LocalDate dataInicial, String erro) {
+		this.dataInicial = dataInicial.toString();
+		this.qtdMembros = 0;
+		this.dias = new ArrayList<Dia>();
+		this.erro = erro;
+	}
+
+	public String getDataInicial() {
+		return dataInicial;
+	}
+
+	public int getQtdMembros() {
+		return qtdMembros;
+	}
+
+	public List<Dia> getDias() {
+		return Collections.unmodifiableList(dias);
+	}
+
+	/**
+	 * descrio do erro na gerao
+	 *
+	 * @return erro ou null caso a programao tenha sido gerada
+	 */
+	public String getErro() {
+		return erro;
+	}
+
+	/**
+	 * dia til da programao
+	 */
+	public static class Dia {
+		private final String data;
+		private final String membro;
+
+		Dia(String data, String membro) {
+			this.data = data;
+			this.membro = membro;
+		}
+
+		public String getData() {
+			return data;
+		}
+
+		public String getMembro() {
+			return membro;
+		}
+	}
+}
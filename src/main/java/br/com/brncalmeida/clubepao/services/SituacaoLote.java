@@ -0,0 +1,68 @@
+package br.com.brncalmeida.clubepao.services;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Situao de um lote de programaes ({@link LotesProgramacao}) no momento da consulta: progresso e as programaes j concludas a partir da posio
+ * solicitada. As programaes so devolvidas em ordem e somente at a primeira ainda pendente; o cliente consulta novamente a partir de {@link #getProximo()}.
+ *
+ * @author bruno.almeida
+ *
+ */
+public class SituacaoLote {
+
+	private final String id;
+	private final String clube;
+	private final int qtdDatas;
+	private final int qtdConcluidas;
+	private final int proximo;
+	private final List<ProgramacaoLote> programacoes;
+
+	public SituacaoLote(String id, String clube, int qtdDatas, int qtdConcluidas, int proximo, List<ProgramacaoLote> programacoes) {
+		this.id = id;
+		this.clube = clube;
+		this.qtdDatas = qtdDatas;
+		this.qtdConcluidas = qtdConcluidas;
+		this.proximo = proximo;
+		this.programacoes = programacoes;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getClube() {
+		return clube;
+	}
+
+	public int getQtdDatas() {
+		return qtdDatas;
+	}
+
+	public int getQtdConcluidas() {
+		return qtdConcluidas;
+	}
+
+	/**
+	 * posio da prxima programao a ser consultada
+	 *
+	 * @return posio (= qtd de datas quando todas j foram devolvidas)
+	 */
+	public int getProximo() {
+		return proximo;
+	}
+
+	/**
+	 * lote concludo: todas as datas foram processadas
+	 *
+	 * @return true = lote concludo
+	 */
+	public boolean isConcluido() {
+		return qtdConcluidas == qtdDatas;
+	}
+
+	public List<ProgramacaoLote> getProgramacoes() {
+		return Collections.unmodifiableList(programacoes);
+	}
+}
@@ -1,25 +1,46 @@
 package br.com.brncalmeida.clubepao.services.impl;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.poi.POIXMLDocument;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
 import br.com.brncalmeida.clubepao.dao.MembroDao;
 import br.com.brncalmeida.clubepao.model.Disponibilidade;
 import br.com.brncalmeida.clubepao.model.Membro;
 import br.com.brncalmeida.clubepao.services.ExcelFileService;
+import br.com.brncalmeida.clubepao.utils.Metricas;
 import br.com.brncalmeida.clubepao.utils.Util;
 import br.com.caelum.vraptor.core.Localization;
 import br.com.caelum.vraptor.ioc.Component;
@@ -35,6 +56,22 @@ public class DefaultExcelFileService implements ExcelFileService {
 
 	private static final String PLANILHA_EXEMPLO_UPLOAD_MEMBROS_XLSX = "/planilha_exemplo_upload_membros.xlsx";
 	private static final String SHEET_PADRAO = "Membros";
+	private static final int COLUNA_NOME = 0;
+	private static final int COLUNA_EMAIL = 1;
+	private static final int COLUNA_SEGUNDA = 2;
+	private static final int QTD_COLUNAS = 7;
+	/**
+	 * qtd mxima de membros vlidos mantidos em memria antes de serem enviados ao {@link MembroDao#addEmLote(List)}
+	 */
+	private static final int TAMANHO_LOTE = 1000;
+	/**
+	 * qtd de linhas mantidas em memria pelo SXSSF na exportao
+	 */
+	private static final int JANELA_LINHAS = 100;
+	/**
+	 * qtd de membros lidos por pgina na exportao
+	 */
+	private static final int TAMANHO_PAGINA = 500;
 	private MembroDao dao;
 	private Localization localization;
 
@@ -68,177 +105,348 @@ public class DefaultExcelFileService implements ExcelFileService {
 	}
 
 	/**
-	 * Traduz a planilha para membros entidade (Membro.class)
+	 * Traduz a planilha para membros entidade (Membro.class). Planilhas xlsx so lidas em streaming (API de eventos do POI), linha a linha, sem carregar o
+	 * workbook inteiro em memria; planilhas xls continuam sendo lidas pelo modelo DOM. Os membros vlidos so gravados em lotes ({@link MembroDao#addEmLote(List)}).
 	 * 
 	 * @param file
 	 *            arquivo a ser utilizado
 	 * @param sobrescrever
-	 *            caso deseja apagar os membros ja existentes
+	 *            caso deseja apagar os membros ja existentes do clube
+	 * @param clube
+	 *            clube dos membros da planilha (vazio = {@link Membro#CLUBE_PADRAO})
 	 * @return Lista de membros padronizadas e incluidas em base
 	 * @throws IOException
 	 *             caso o arquivo no exista
 	 */
-	public ReportExcelService parse(InputStream file, boolean sobrescrever) throws IOException {
+	public ReportExcelService parse(InputStream file, boolean sobrescrever, String clube) throws IOException {
 		if (file == null) {
 			throw new NullPointerException(Util.getMessage(localization, "planilha.invalida"));
 		}
 
-		Sheet worksheet = getWorkSheet(file);
+		long inicio = System.nanoTime();
+		Importacao importacao = new Importacao(sobrescrever, Membro.normalizarClube(clube));
+
+		// a identificao do formato precisa de mark/reset no stream
+		InputStream entrada = file.markSupported() ? file : new BufferedInputStream(file);
+		String formato;
+		if (POIXMLDocument.hasOOXMLHeader(entrada)) {
+			formato = "xlsx";
+			lerPlanilhaStreaming(entrada, importacao);
+		} else {
+			formato = "xls";
+			lerPlanilha(getWorkSheet(entrada), importacao);
+		}
+		importacao.gravar();
+		registrarMetricas("importacao", "importao", formato, importacao.qtdLinhas, inicio);
 
-		List<Membro> membros = new ArrayList<Membro>();
-		List<String> erros = new ArrayList<String>();
+		ReportExcelService report = new ReportExcelService(importacao.erros, importacao.qtdIncluidos);
+		return report;
+	}
 
+	/**
+	 * L as linhas da sheet j carregada em memria (planilhas xls)
+	 * 
+	 * @param worksheet
+	 *            sheet de membros
+	 * @param importacao
+	 *            membros vlidos e erros de validao por linha
+	 */
+	private void lerPlanilha(Sheet worksheet, Importacao importacao) {
+		String[] celulas = new String[QTD_COLUNAS];
 		Row row;
-		String nome = null;
-		String email = null;
-		Membro membro;
-		Set<Disponibilidade> disponibilidades;
-		List<ErrosValidacao> errosValidacao;
-		StringBuilder sb;
-
 		// ocorrer para todas as linhas da planilha
 		for (int i = 1; i <= worksheet.getLastRowNum(); i++) {
-			sb = new StringBuilder();
-			// TODO testar erros validao
-			errosValidacao = new ArrayList<ErrosValidacao>();
-			disponibilidades = new LinkedHashSet<Disponibilidade>();
-
 			// buscar linha
 			row = worksheet.getRow(i);
-
-			// validao da coluna nome
-			if (row.getCell(0) != null) {
-				nome = row.getCell(0).getStringCellValue();
-			} else {
-				errosValidacao.add(ErrosValidacao.NOME_INVALIDO);
+			for (int coluna = 0; coluna < QTD_COLUNAS; coluna++) {
+				celulas[coluna] = row.getCell(coluna) != null ? row.getCell(coluna).getStringCellValue() : null;
 			}
+			validarLinha(i, celulas, importacao);
+		}
+	}
 
-			// validao da coluna email
-			if (row.getCell(1) != null) {
-				email = row.getCell(1).getStringCellValue();
-			} else {
-				errosValidacao.add(ErrosValidacao.EMAIL_INVALIDO);
+	/**
+	 * L a sheet de membros em streaming (planilhas xlsx). O upload  copiado para um arquivo temporrio para que o pacote OOXML seja aberto sem ser carregado
+	 * em memria e o XML da sheet  percorrido via SAX, uma linha por vez.
+	 * 
+	 * @param file
+	 *            arquivo a ser utilizado
+	 * @param importacao
+	 *            membros vlidos e erros de validao por linha
+	 * @throws IOException
+	 *             caso no seja possvel ler o arquivo
+	 */
+	private void lerPlanilhaStreaming(InputStream file, Importacao importacao) throws IOException {
+		File temporario = File.createTempFile("membros", ".xlsx");
+		OPCPackage pacote = null;
+		try {
+			OutputStream copia = new FileOutputStream(temporario);
+			try {
+				IOUtils.copy(file, copia);
+			} finally {
+				copia.close();
 			}
 
-			// adicionando disponibilidades
-			if (row.getCell(2) != null && "x".equalsIgnoreCase(row.getCell(2).getStringCellValue().replace(" ", ""))) {
-				disponibilidades.add(Disponibilidade.SEGUNDA);
-			}
-			if (row.getCell(3) != null && "x".equalsIgnoreCase(row.getCell(3).getStringCellValue().replace(" ", ""))) {
-				disponibilidades.add(Disponibilidade.TERCA);
-			}
-			if (row.getCell(4) != null && "x".equalsIgnoreCase(row.getCell(4).getStringCellValue().replace(" ", ""))) {
-				disponibilidades.add(Disponibilidade.QUARTA);
-			}
-			if (row.getCell(5) != null && "x".equalsIgnoreCase(row.getCell(5).getStringCellValue().replace(" ", ""))) {
-				disponibilidades.add(Disponibilidade.QUINTA);
+			pacote = OPCPackage.open(temporario.getPath(), PackageAccess.READ);
+			XSSFReader reader = new XSSFReader(pacote);
+			ReadOnlySharedStringsTable textos = new ReadOnlySharedStringsTable(pacote);
+			StylesTable estilos = reader.getStylesTable();
+
+			XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+			while (sheets.hasNext()) {
+				InputStream sheet = sheets.next();
+				try {
+					if (SHEET_PADRAO.equals(sheets.getSheetName())) {
+						SAXParserFactory fabrica = SAXParserFactory.newInstance();
+						fabrica.setNamespaceAware(true);
+						XMLReader parser = fabrica.newSAXParser().getXMLReader();
+						parser.setContentHandler(new XSSFSheetXMLHandler(estilos, textos, new LinhasMembros(importacao), false));
+						parser.parse(new InputSource(sheet));
+						return;
+					}
+				} finally {
+					sheet.close();
+				}
 			}
-			if (row.getCell(6) != null && "x".equalsIgnoreCase(row.getCell(6).getStringCellValue().replace(" ", ""))) {
-				disponibilidades.add(Disponibilidade.SEXTA);
+			throw new IllegalArgumentException(Util.getMessage(localization, "planilha.invalida"));
+		} catch (InvalidFormatException e) {
+			throw new IllegalArgumentException(Util.getMessage(localization, "tipo.planilha.invalida"));
+		} catch (OpenXML4JException e) {
+			throw new IllegalArgumentException(Util.getMessage(localization, "planilha.invalida"), e);
+		} catch (SAXException e) {
+			throw new IllegalArgumentException(Util.getMessage(localization, "planilha.invalida"), e);
+		} catch (ParserConfigurationException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		} finally {
+			if (pacote != null) {
+				// pacote aberto somente para leitura, descarta sem gravar
+				pacote.revert();
 			}
+			temporario.delete();
+		}
+	}
 
-			// validao das colunas de disponibilidades
-			if (disponibilidades.size() == 0) {
-				errosValidacao.add(ErrosValidacao.DISPONIBILIDADE_INVALIDA);
-			}
+	/**
+	 * Valida uma linha da planilha, adicionando o membro (caso vlido) ou a mensagem de erro da linha
+	 * 
+	 * @param linha
+	 *            n da linha na planilha
+	 * @param celulas
+	 *            contedo das colunas (null = clula inexistente)
+	 * @param importacao
+	 *            membros vlidos e erros de validao por linha
+	 */
+	private void validarLinha(int linha, String[] celulas, Importacao importacao) {
+		importacao.qtdLinhas++;
+		// TODO testar erros validao
+		List<ErrosValidacao> errosValidacao = new ArrayList<ErrosValidacao>();
+		Set<Disponibilidade> disponibilidades = new LinkedHashSet<Disponibilidade>();
+
+		// validao da coluna nome
+		String nome = celulas[COLUNA_NOME];
+		if (nome == null) {
+			errosValidacao.add(ErrosValidacao.NOME_INVALIDO);
+		}
 
-			if (errosValidacao.size() > 0) {
-				sb.append(Util.getMessage(localization, "erro.membro.linha", String.valueOf(i)));
-				for (int j = 0; j < errosValidacao.size(); j++) {
-					if (j > 0)
-						sb.append(", ");
-					sb.append(Util.getMessage(localization, errosValidacao.get(j).getDescricao()));
-				}
-				sb.append(" ").append(Util.getMessage(localization, "membro.nao.adicionado"));
-				erros.add(sb.toString());
+		// validao da coluna email
+		String email = celulas[COLUNA_EMAIL];
+		if (email == null) {
+			errosValidacao.add(ErrosValidacao.EMAIL_INVALIDO);
+		}
 
-			} else {
-				membro = new Membro(nome, email);
-				membro.addAllDisponibilidades(disponibilidades.toArray(new Disponibilidade[0]));
-				membros.add(membro);
+		// adicionando disponibilidades (colunas seg a sex)
+		for (Disponibilidade disponibilidade : Disponibilidade.values()) {
+			String celula = celulas[COLUNA_SEGUNDA + disponibilidade.ordinal()];
+			if (celula != null && "x".equalsIgnoreCase(celula.replace(" ", ""))) {
+				disponibilidades.add(disponibilidade);
 			}
 		}
 
-		if (sobrescrever) {
-			limparBase();
+		// validao das colunas de disponibilidades
+		if (disponibilidades.size() == 0) {
+			errosValidacao.add(ErrosValidacao.DISPONIBILIDADE_INVALIDA);
 		}
-		dao.addAll(membros);
 
-		ReportExcelService report = new ReportExcelService(erros, membros.size());
-		return report;
+		if (errosValidacao.size() > 0) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(Util.getMessage(localization, "erro.membro.linha", String.valueOf(linha)));
+			for (int j = 0; j < errosValidacao.size(); j++) {
+				if (j > 0)
+					sb.append(", ");
+				sb.append(Util.getMessage(localization, errosValidacao.get(j).getDescricao()));
+			}
+			sb.append(" ").append(Util.getMessage(localization, "membro.nao.adicionado"));
+			importacao.erros.add(sb.toString());
+
+		} else {
+			Membro membro = new Membro(nome, email);
+			membro.setClube(importacao.clube);
+			membro.addAllDisponibilidades(disponibilidades.toArray(new Disponibilidade[0]));
+			importacao.adicionar(membro);
+		}
 	}
 
 	/**
-	 * limpa membros para sobrescrever
+	 * Estado da importao: erros por linha e lote de membros vlidos ainda no gravados. Os membros do clube s so removidos (sobrescrever) na gravao do
+	 * primeiro lote, ou seja, depois que a planilha foi aberta com sucesso.
 	 */
-	public void limparBase() {
-		dao.removeAll(dao.listarTodos());
-	}
+	private class Importacao {
+		private final List<Membro> lote = new ArrayList<Membro>();
+		private final List<String> erros = new ArrayList<String>();
+		private final boolean sobrescrever;
+		private final String clube;
+		private boolean baseLimpa;
+		private int qtdIncluidos;
+		private int qtdLinhas;
+
+		Importacao(boolean sobrescrever, String clube) {
+			this.sobrescrever = sobrescrever;
+			this.clube = clube;
+		}
 
-	@Override
-	public ByteArrayOutputStream getPlanilhaAtual() {
-		List<Membro> membros = dao.listarTodos();
-
-		Workbook wb = new XSSFWorkbook();
-
-		Sheet plan1 = null;
-		plan1 = wb.createSheet(SHEET_PADRAO);
-		Row row = null;
-		// Criar ttulo da tabela
-		row = plan1.createRow(0);
-		row.createCell(0).setCellValue("Nome");
-		row.createCell(1).setCellValue("E-mail");
-		row.createCell(2).setCellValue("Seg");
-		row.createCell(3).setCellValue("Ter");
-		row.createCell(4).setCellValue("Qua");
-		row.createCell(5).setCellValue("Qui");
-		row.createCell(6).setCellValue("Sex");
-
-		Membro membro;
-		for (int i = 1; i <= membros.size(); i++) {
-			row = plan1.createRow(i);
-			membro = membros.get(i - 1);
-			row.createCell(0).setCellValue(membro.getNome());
-			row.createCell(1).setCellValue(membro.getEmail());
-			if (membro.getDisponibilidades().contains(Disponibilidade.SEGUNDA)) {
-				row.createCell(2).setCellValue("X");
-			} else {
-				row.createCell(2).setCellValue("");
+		void adicionar(Membro membro) {
+			lote.add(membro);
+			if (lote.size() >= TAMANHO_LOTE) {
+				gravar();
 			}
+		}
 
-			if (membro.getDisponibilidades().contains(Disponibilidade.TERCA)) {
-				row.createCell(3).setCellValue("X");
-			} else {
-				row.createCell(3).setCellValue("");
+		void gravar() {
+			if (sobrescrever && !baseLimpa) {
+				limparBase(clube);
+				baseLimpa = true;
 			}
+			qtdIncluidos += dao.addEmLote(lote);
+			lote.clear();
+		}
+	}
+
+	/**
+	 * Recebe os eventos do parser SAX da sheet, acumulando as clulas de cada linha e validando-a ao seu trmino (a linha 0 = cabealho  ignorada)
+	 */
+	private class LinhasMembros implements SheetContentsHandler {
+		private final Importacao importacao;
+		private final String[] celulas = new String[QTD_COLUNAS];
+		private int linha;
+		private int proximaColuna;
+
+		LinhasMembros(Importacao importacao) {
+			this.importacao = importacao;
+		}
+
+		@Override
+		public void startRow(int linha) {
+			this.linha = linha;
+			this.proximaColuna = 0;
+			Arrays.fill(celulas, null);
+		}
 
-			if (membro.getDisponibilidades().contains(Disponibilidade.QUARTA)) {
-				row.createCell(4).setCellValue("X");
-			} else {
-				row.createCell(4).setCellValue("");
+		@Override
+		public void endRow() {
+			if (linha > 0) {
+				validarLinha(linha, celulas, importacao);
 			}
+		}
 
-			if (membro.getDisponibilidades().contains(Disponibilidade.QUINTA)) {
-				row.createCell(5).setCellValue("X");
-			} else {
-				row.createCell(5).setCellValue("");
+		@Override
+		public void cell(String referencia, String valor) {
+			int coluna = referencia != null ? coluna(referencia) : proximaColuna;
+			proximaColuna = coluna + 1;
+			if (coluna < QTD_COLUNAS) {
+				celulas[coluna] = valor;
 			}
+		}
+
+		@Override
+		public void headerFooter(String texto, boolean cabecalho, String tipo) {
+		}
 
-			if (membro.getDisponibilidades().contains(Disponibilidade.SEXTA)) {
-				row.createCell(6).setCellValue("X");
-			} else {
-				row.createCell(6).setCellValue("");
+		/**
+		 * ndice da coluna a partir da referncia da clula (ex.: "C12" = 2)
+		 */
+		private int coluna(String referencia) {
+			int fim = 0;
+			while (fim < referencia.length() && Character.isLetter(referencia.charAt(fim))) {
+				fim++;
 			}
+			return CellReference.convertColStringToIndex(referencia.substring(0, fim));
 		}
+	}
+
+	/**
+	 * limpa os membros do clube para sobrescrever
+	 * 
+	 * @param clube
+	 *            identificador do clube
+	 */
+	public void limparBase(String clube) {
+		dao.removerTodos(clube);
+	}
 
-		// cria o arquivo do excel
-		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+	@Override
+	public void escreverPlanilhaAtual(OutputStream saida, String clube) throws IOException {
+		// somente as ltimas linhas ficam em memria, as demais so descarregadas em arquivo temporrio
+		long inicio = System.nanoTime();
+		SXSSFWorkbook wb = new SXSSFWorkbook(JANELA_LINHAS);
 		try {
-			wb.write(stream);
-		} catch (IOException e) {
-			throw new IllegalStateException(e.getMessage());
+			Sheet plan1 = wb.createSheet(SHEET_PADRAO);
+			Row row = null;
+			// Criar ttulo da tabela
+			row = plan1.createRow(0);
+			row.createCell(0).setCellValue("Nome");
+			row.createCell(1).setCellValue("E-mail");
+			row.createCell(2).setCellValue("Seg");
+			row.createCell(3).setCellValue("Ter");
+			row.createCell(4).setCellValue("Qua");
+			row.createCell(5).setCellValue("Qui");
+			row.createCell(6).setCellValue("Sex");
+
+			// membros paginados pelo ltimo id escrito, cada pgina  descartada aps ser escrita
+			int linha = 1;
+			long ultimoId = 0;
+			List<Membro> membros;
+			do {
+				membros = dao.listarPaginado(clube, ultimoId, TAMANHO_PAGINA);
+				for (Membro membro : membros) {
+					ultimoId = membro.getId();
+					row = plan1.createRow(linha++);
+					row.createCell(COLUNA_NOME).setCellValue(membro.getNome());
+					row.createCell(COLUNA_EMAIL).setCellValue(membro.getEmail());
+					for (Disponibilidade disponibilidade : Disponibilidade.values()) {
+						row.createCell(COLUNA_SEGUNDA + disponibilidade.ordinal()).setCellValue(membro.possuiDisponibilidade(disponibilidade) ? "X" : "");
+					}
+				}
+			} while (membros.size() == TAMANHO_PAGINA);
+
+			// cria o arquivo do excel
+			wb.write(saida);
+			registrarMetricas("exportacao", "exportao", "xlsx", linha - 1, inicio);
+		} finally {
+			// remove os arquivos temporrios
+			wb.dispose();
 		}
-		return stream;
+	}
+
+	/**
+	 * registra a durao, a qtd de linhas e as linhas por segundo de uma importao ou exportao
+	 * 
+	 * @param operacao
+	 *            "importacao" ou "exportacao", utilizado no nome das mtricas
+	 * @param descricao
+	 *            nome da operao utilizado na descrio das mtricas
+	 * @param formato
+	 *            formato da planilha (xls, xlsx)
+	 * @param qtdLinhas
+	 *            qtd de linhas de membros lidas ou escritas
+	 * @param inicio
+	 *            incio da operao ({@link System#nanoTime()})
+	 */
+	private static void registrarMetricas(String operacao, String descricao, String formato, int qtdLinhas, long inicio) {
+		Metricas metricas = Metricas.getInstance();
+		long nanos = metricas.histograma("clubepao_" + operacao + "_segundos", "Durao da " + descricao + " de planilhas", "formato", formato).registrarDesde(inicio);
+		metricas.contador("clubepao_" + operacao + "_linhas_total", "Linhas de membros processadas na " + descricao + " de planilhas", "formato", formato).addAndGet(
+				qtdLinhas);
+		metricas.medir("clubepao_" + operacao + "_linhas_por_segundo", "Linhas por segundo da ltima " + descricao + " de planilhas", qtdLinhas
+				/ Math.max(nanos / 1e9, 1e-9), "formato", formato);
 	}
 }
-	
\ No newline at end of file
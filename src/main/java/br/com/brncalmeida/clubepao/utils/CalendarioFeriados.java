@@ -0,0 +1,192 @@
+package br.com.brncalmeida.clubepao.utils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.joda.time.DateTimeConstants;
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.joda.time.chrono.ISOChronology;
+
+import de.jollyday.Holiday;
+import de.jollyday.HolidayManager;
+
+/**
+ * Calendrio de feriados e dias teis. Cada ano  calculado uma nica vez (feriados do jollyday + finais de semana) e guardado como um mapa de bits de dias teis,
+ * transformando as consultas por range em simples varreduras. Os anos ficam em cache com limite de tamanho, descartando o ano menos utilizado.
+ *
+ * @author bruno.almeida
+ *
+ */
+public class CalendarioFeriados {
+
+	private static final int QTD_MAXIMA_ANOS_PADRAO = 10;
+	private static final CalendarioFeriados INSTANCIA = new CalendarioFeriados(de.jollyday.HolidayCalendar.BRAZIL, QTD_MAXIMA_ANOS_PADRAO);
+
+	private final de.jollyday.HolidayCalendar pais;
+	private final Map<Integer, Ano> anos;
+
+	/**
+	 * Construtor default
+	 *
+	 * @param pais
+	 *            calendrio de feriados do jollyday
+	 * @param qtdMaximaAnos
+	 *            qtd de anos mantidos em cache
+	 */
+	public CalendarioFeriados(de.jollyday.HolidayCalendar pais, final int qtdMaximaAnos) {
+		if (pais == null)
+			throw new NullPointerException("Calendrio de feriados no pode ser nulo");
+		if (qtdMaximaAnos < 1)
+			throw new IllegalArgumentException("Qtd mxima de anos invlida: " + qtdMaximaAnos);
+		this.pais = pais;
+		this.anos = new LinkedHashMap<Integer, Ano>(qtdMaximaAnos + 1, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Ano> anoMaisAntigo) {
+				return size() > qtdMaximaAnos;
+			}
+		};
+	}
+
+	/**
+	 * calendrio compartilhado com os feriados do Brasil
+	 *
+	 * @return calendrio padro
+	 */
+	public static CalendarioFeriados getInstance() {
+		return INSTANCIA;
+	}
+
+	/**
+	 * busca os feriados do ano
+	 *
+	 * @param ano
+	 *            ano buscado
+	 * @return feriados do ano (imutvel)
+	 */
+	public Set<LocalDate> buscarFeriados(int ano) {
+		return getAno(ano).feriados;
+	}
+
+	/**
+	 * validao se a data  dia til (no  final de semana nem feriado)
+	 *
+	 * @param data
+	 *            data a ser validada
+	 * @return true = "dia til"
+	 */
+	public boolean isDiaUtil(LocalDate data) {
+		return getAno(data.getYear()).diasUteis.get(data.getDayOfYear() - 1);
+	}
+
+	/**
+	 * busca os dias uteis de um range, considerando os feriados de cada ano envolvido
+	 *
+	 * @param dataInicial
+	 *            data inicial do range
+	 * @param dataFinal
+	 *            data final do range (no includa)
+	 * @return dias uteis do range informado, em ordem
+	 */
+	public Set<LocalDate> buscarDiasUteis(LocalDate dataInicial, LocalDate dataFinal) {
+		Set<LocalDate> diasUteis = new LinkedHashSet<LocalDate>();
+		for (int deslocamento : buscarDeslocamentosDiasUteis(dataInicial, dataFinal)) {
+			diasUteis.add(dataInicial.plusDays(deslocamento));
+		}
+		return diasUteis;
+	}
+
+	/**
+	 * busca os dias uteis de um range como deslocamentos (qtd de dias) a partir da data inicial, sem criar uma data por dia. A durao da busca  registrada
+	 * na mtrica "clubepao_dias_uteis_segundos".
+	 *
+	 * @param dataInicial
+	 *            data inicial do range
+	 * @param dataFinal
+	 *            data final do range (no includa)
+	 * @return deslocamentos dos dias teis do range informado, em ordem
+	 */
+	public int[] buscarDeslocamentosDiasUteis(LocalDate dataInicial, LocalDate dataFinal) {
+		long inicio = System.nanoTime();
+		try {
+			return deslocamentosDiasUteis(dataInicial, dataFinal);
+		} finally {
+			Metricas.getInstance().histograma("clubepao_dias_uteis_segundos", "Durao da busca de dias teis de um range").registrarDesde(inicio);
+		}
+	}
+
+	/**
+	 * varre os mapas de bits dos anos do range
+	 */
+	private int[] deslocamentosDiasUteis(LocalDate dataInicial, LocalDate dataFinal) {
+		int[] deslocamentos = new int[Math.max(0, Days.daysBetween(dataInicial, dataFinal).getDays())];
+		int qtd = 0;
+		int deslocamentoAno = 0;
+		LocalDate inicioAno = dataInicial;
+		while (inicioAno.isBefore(dataFinal)) {
+			LocalDate inicioProximoAno = new LocalDate(inicioAno.getYear() + 1, 1, 1);
+			LocalDate fimAno = dataFinal.isBefore(inicioProximoAno) ? dataFinal : inicioProximoAno;
+			BitSet bitsAno = getAno(inicioAno.getYear()).diasUteis;
+
+			// varrendo somente os bits do range dentro do ano
+			int inicio = inicioAno.getDayOfYear() - 1;
+			int fim = fimAno.equals(inicioProximoAno) ? bitsAno.length() : fimAno.getDayOfYear() - 1;
+			for (int dia = bitsAno.nextSetBit(inicio); dia >= 0 && dia < fim; dia = bitsAno.nextSetBit(dia + 1)) {
+				deslocamentos[qtd++] = deslocamentoAno + dia - inicio;
+			}
+			deslocamentoAno += Days.daysBetween(inicioAno, inicioProximoAno).getDays();
+			inicioAno = inicioProximoAno;
+		}
+		return qtd == deslocamentos.length ? deslocamentos : Arrays.copyOf(deslocamentos, qtd);
+	}
+
+	/**
+	 * busca o ano no cache, calculando-o caso necessrio
+	 *
+	 * @param ano
+	 *            ano buscado
+	 * @return feriados e dias teis do ano
+	 */
+	private synchronized Ano getAno(int ano) {
+		Ano calculado = anos.get(ano);
+		if (calculado == null) {
+			calculado = new Ano(ano, pais);
+			anos.put(ano, calculado);
+		}
+		return calculado;
+	}
+
+	/**
+	 * Feriados e mapa de bits dos dias teis de um ano (bit = dia do ano - 1)
+	 */
+	private static class Ano {
+		private final Set<LocalDate> feriados;
+		private final BitSet diasUteis;
+
+		Ano(int ano, de.jollyday.HolidayCalendar pais) {
+			Set<LocalDate> dataDosFeriados = new HashSet<LocalDate>();
+			for (Holiday h : HolidayManager.getInstance(pais).getHolidays(ano)) {
+				dataDosFeriados.add(new LocalDate(h.getDate(), ISOChronology.getInstance()));
+			}
+			this.feriados = Collections.unmodifiableSet(dataDosFeriados);
+
+			LocalDate data = new LocalDate(ano, 1, 1);
+			int qtdDias = data.dayOfYear().getMaximumValue();
+			this.diasUteis = new BitSet(qtdDias);
+			for (int dia = 0; dia < qtdDias; dia++, data = data.plusDays(1)) {
+				int diaSemana = data.getDayOfWeek();
+				if (diaSemana != DateTimeConstants.SATURDAY && diaSemana != DateTimeConstants.SUNDAY && !dataDosFeriados.contains(data)) {
+					diasUteis.set(dia);
+				}
+			}
+		}
+	}
+}
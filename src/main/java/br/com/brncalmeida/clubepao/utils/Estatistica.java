@@ -0,0 +1,136 @@
+package br.com.brncalmeida.clubepao.utils;
+
+/**
+ * Acumulador de estatsticas em uma nica passada (algoritmo de Welford): qtd, mdia, varincia amostral, desvio padro, mnimo e mximo, sem guardar os valores.
+ * Acumuladores calculados separadamente (ex.: em threads diferentes) podem ser combinados com {@link #adicionar(Estatistica)}.
+ *
+ * @author bruno.almeida
+ *
+ */
+public class Estatistica {
+
+	private long qtd;
+	private double media;
+	private double somaDosQuadradosDosDesvios;
+	private double minimo = Double.NaN;
+	private double maximo = Double.NaN;
+
+	/**
+	 * Construtor default, sem valores
+	 */
+	public Estatistica() {
+	}
+
+	/**
+	 * Construtor a partir dos valores informados
+	 *
+	 * @param valores
+	 *            valores acumulados
+	 */
+	public Estatistica(double... valores) {
+		for (double valor : valores) {
+			adicionar(valor);
+		}
+	}
+
+	/**
+	 * acumula um valor
+	 *
+	 * @param valor
+	 *            valor acumulado
+	 */
+	public void adicionar(double valor) {
+		qtd++;
+		double desvio = valor - media;
+		media += desvio / qtd;
+		somaDosQuadradosDosDesvios += desvio * (valor - media);
+		if (qtd == 1 || valor < minimo)
+			minimo = valor;
+		if (qtd == 1 || valor > maximo)
+			maximo = valor;
+	}
+
+	/**
+	 * acumula os valores de outro acumulador (combinao de Chan)
+	 *
+	 * @param outra
+	 *            acumulador combinado, no  alterado
+	 */
+	public void adicionar(Estatistica outra) {
+		if (outra.qtd == 0)
+			return;
+		if (qtd == 0) {
+			qtd = outra.qtd;
+			media = outra.media;
+			somaDosQuadradosDosDesvios = outra.somaDosQuadradosDosDesvios;
+			minimo = outra.minimo;
+			maximo = outra.maximo;
+			return;
+		}
+		long total = qtd + outra.qtd;
+		double desvio = outra.media - media;
+		media += desvio * outra.qtd / total;
+		somaDosQuadradosDosDesvios += outra.somaDosQuadradosDosDesvios + desvio * desvio * qtd * outra.qtd / total;
+		minimo = Math.min(minimo, outra.minimo);
+		maximo = Math.max(maximo, outra.maximo);
+		qtd = total;
+	}
+
+	public long getQtd() {
+		return qtd;
+	}
+
+	/**
+	 * mdia aritmtica
+	 *
+	 * @return mdia ou NaN caso no existam valores
+	 */
+	public double getMedia() {
+		return qtd == 0 ? Double.NaN : media;
+	}
+
+	/**
+	 * soma dos valores
+	 *
+	 * @return soma
+	 */
+	public double getSoma() {
+		return media * qtd;
+	}
+
+	/**
+	 * varincia amostral (divisor n - 1)
+	 *
+	 * @return varincia ou NaN caso existam menos de 2 valores
+	 */
+	public double getVariancia() {
+		return qtd < 2 ? Double.NaN : somaDosQuadradosDosDesvios / (qtd - 1);
+	}
+
+	/**
+	 * desvio padro amostral
+	 *
+	 * @return desvio padro ou NaN caso existam menos de 2 valores
+	 */
+	public double getDesvioPadrao() {
+		return Math.sqrt(getVariancia());
+	}
+
+	/**
+	 * menor valor
+	 *
+	 * @return menor valor ou NaN caso no existam valores
+	 */
+	public double getMinimo() {
+		return minimo;
+	}
+
+	/**
+	 * maior valor
+	 *
+	 * @return maior valor ou NaN caso no existam valores
+	 */
+	public double getMaximo() {
+		return maximo;
+	}
+}
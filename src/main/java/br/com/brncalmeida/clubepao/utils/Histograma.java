@@ -0,0 +1,117 @@
+package br.com.brncalmeida.clubepao.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de duraes com faixas fixas (em segundos), no mesmo formato dos histogramas do Prometheus: cada faixa conta as medies menores ou iguais ao seu
+ * limite, alm da soma e da qtd total de medies. As contagens so atmicas, sem bloqueio entre as threads que registram.
+ *
+ * @author bruno.almeida
+ *
+ */
+public class Histograma {
+
+	/**
+	 * faixas padro, de 5ms a 10s
+	 */
+	public static final double[] LIMITES_PADRAO = { 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+
+	private final double[] limites;
+	private final long[] limitesNanos;
+	private final AtomicLongArray contagens;
+	private final AtomicLong somaNanos = new AtomicLong();
+	private final AtomicLong qtd = new AtomicLong();
+
+	/**
+	 * Construtor com as faixas padro ({@link #LIMITES_PADRAO})
+	 */
+	public Histograma() {
+		this(LIMITES_PADRAO);
+	}
+
+	/**
+	 * Construtor
+	 *
+	 * @param limites
+	 *            limite superior de cada faixa em segundos, em ordem crescente
+	 */
+	public Histograma(double... limites) {
+		if (limites == null || limites.length == 0)
+			throw new IllegalArgumentException("Histograma sem faixas");
+		this.limites = Arrays.copyOf(limites, limites.length);
+		this.limitesNanos = new long[limites.length];
+		for (int i = 0; i < limites.length; i++) {
+			if (i > 0 && limites[i] <= limites[i - 1])
+				throw new IllegalArgumentException("Faixas fora de ordem: " + Arrays.toString(limites));
+			limitesNanos[i] = (long) (limites[i] * TimeUnit.SECONDS.toNanos(1));
+		}
+		// ltima posio = acima de todas as faixas (+Inf)
+		this.contagens = new AtomicLongArray(limites.length + 1);
+	}
+
+	/**
+	 * registra uma medio
+	 *
+	 * @param nanos
+	 *            durao em nanossegundos
+	 */
+	public void registrar(long nanos) {
+		int faixa = Arrays.binarySearch(limitesNanos, nanos);
+		contagens.incrementAndGet(faixa >= 0 ? faixa : -faixa - 1);
+		somaNanos.addAndGet(nanos);
+		qtd.incrementAndGet();
+	}
+
+	/**
+	 * registra a durao desde o incio informado
+	 *
+	 * @param inicioNanos
+	 *            incio da medio ({@link System#nanoTime()})
+	 * @return durao em nanossegundos
+	 */
+	public long registrarDesde(long inicioNanos) {
+		long nanos = System.nanoTime() - inicioNanos;
+		registrar(nanos);
+		return nanos;
+	}
+
+	/**
+	 * limites das faixas em segundos
+	 *
+	 * @return cpia dos limites
+	 */
+	public double[] getLimites() {
+		return Arrays.copyOf(limites, limites.length);
+	}
+
+	/**
+	 * qtd acumulada de medies at cada faixa, a ltima posio equivale ao total (+Inf)
+	 *
+	 * @return contagens acumuladas
+	 */
+	public long[] getContagensAcumuladas() {
+		long[] acumuladas = new long[contagens.length()];
+		long total = 0;
+		for (int i = 0; i < acumuladas.length; i++) {
+			total += contagens.get(i);
+			acumuladas[i] = total;
+		}
+		return acumuladas;
+	}
+
+	public long getQtd() {
+		return qtd.get();
+	}
+
+	/**
+	 * soma de todas as medies
+	 *
+	 * @return soma em segundos
+	 */
+	public double getSomaSegundos() {
+		return somaNanos.get() / (double) TimeUnit.SECONDS.toNanos(1);
+	}
+}
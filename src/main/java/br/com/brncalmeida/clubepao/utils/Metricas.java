@@ -0,0 +1,213 @@
+package br.com.brncalmeida.clubepao.utils;
+
+import java.math.BigDecimal;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registro das mtricas da aplicao: contadores, medidores (ltimo valor) e histogramas de durao, agrupados por nome e identificados por rtulos
+ * (ex.: recurso="ControleController.gerar"). As mtricas so expostas no formato texto do Prometheus ({@link #escrever(StringBuilder)}).
+ *
+ * A instncia compartilhada ({@link #getInstance()})  utilizada pelos pontos instrumentados (requisies, programao, importao e exportao), inclusive
+ * fora dos componentes do vraptor.
+ *
+ * @author bruno.almeida
+ *
+ */
+public class Metricas {
+
+	private static final Metricas INSTANCIA = new Metricas();
+
+	private final ConcurrentMap<String, Familia> familias = new ConcurrentHashMap<String, Familia>();
+
+	/**
+	 * registro compartilhado pela aplicao
+	 *
+	 * @return instncia nica
+	 */
+	public static Metricas getInstance() {
+		return INSTANCIA;
+	}
+
+	/**
+	 * contador (valor sempre crescente), criado no primeiro uso
+	 *
+	 * @param nome
+	 *            nome da mtrica (sufixo "_total")
+	 * @param descricao
+	 *            descrio da mtrica
+	 * @param rotulos
+	 *            pares de nome e valor dos rtulos
+	 * @return contador da combinao de rtulos
+	 */
+	public AtomicLong contador(String nome, String descricao, String... rotulos) {
+		return (AtomicLong) familia(nome, Tipo.COUNTER, descricao).serie(rotulos);
+	}
+
+	/**
+	 * histograma de duraes, criado no primeiro uso com as faixas padro
+	 *
+	 * @param nome
+	 *            nome da mtrica (sufixo "_segundos")
+	 * @param descricao
+	 *            descrio da mtrica
+	 * @param rotulos
+	 *            pares de nome e valor dos rtulos
+	 * @return histograma da combinao de rtulos
+	 */
+	public Histograma histograma(String nome, String descricao, String... rotulos) {
+		return (Histograma) familia(nome, Tipo.HISTOGRAM, descricao).serie(rotulos);
+	}
+
+	/**
+	 * atualiza um medidor com o ltimo valor observado (ex.: linhas por segundo da ltima importao)
+	 *
+	 * @param nome
+	 *            nome da mtrica
+	 * @param descricao
+	 *            descrio da mtrica
+	 * @param valor
+	 *            valor atual
+	 * @param rotulos
+	 *            pares de nome e valor dos rtulos
+	 */
+	public void medir(String nome, String descricao, double valor, String... rotulos) {
+		((AtomicLong) familia(nome, Tipo.GAUGE, descricao).serie(rotulos)).set(Double.doubleToLongBits(valor));
+	}
+
+	/**
+	 * valor de um medidor
+	 *
+	 * @param nome
+	 *            nome da mtrica
+	 * @param rotulos
+	 *            pares de nome e valor dos rtulos
+	 * @return ltimo valor ou null caso o medidor no exista
+	 */
+	public Double getMedida(String nome, String... rotulos) {
+		Familia familia = familias.get(nome);
+		if (familia == null || familia.tipo != Tipo.GAUGE)
+			return null;
+		AtomicLong valor = (AtomicLong) familia.series.get(formatarRotulos(rotulos));
+		return valor == null ? null : Double.longBitsToDouble(valor.get());
+	}
+
+	/**
+	 * escreve todas as mtricas no formato texto do Prometheus (version 0.0.4), em ordem de nome
+	 *
+	 * @param saida
+	 *            texto de sada
+	 */
+	public void escrever(StringBuilder saida) {
+		for (Familia familia : new TreeMap<String, Familia>(familias).values()) {
+			saida.append("# HELP ").append(familia.nome).append(' ').append(familia.descricao.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+			saida.append("# TYPE ").append(familia.nome).append(' ').append(familia.tipo.name().toLowerCase()).append('\n');
+			for (Entry<String, Object> serie : new TreeMap<String, Object>(familia.series).entrySet()) {
+				String rotulos = serie.getKey();
+				switch (familia.tipo) {
+				case COUNTER:
+					linha(saida, familia.nome, rotulos, null, String.valueOf(((AtomicLong) serie.getValue()).get()));
+					break;
+				case GAUGE:
+					linha(saida, familia.nome, rotulos, null, formatar(Double.longBitsToDouble(((AtomicLong) serie.getValue()).get())));
+					break;
+				case HISTOGRAM:
+					Histograma histograma = (Histograma) serie.getValue();
+					double[] limites = histograma.getLimites();
+					long[] acumuladas = histograma.getContagensAcumuladas();
+					for (int i = 0; i < limites.length; i++) {
+						linha(saida, familia.nome + "_bucket", rotulos, "le=\"" + formatar(limites[i]) + "\"", String.valueOf(acumuladas[i]));
+					}
+					long total = acumuladas[limites.length];
+					linha(saida, familia.nome + "_bucket", rotulos, "le=\"+Inf\"", String.valueOf(total));
+					linha(saida, familia.nome + "_sum", rotulos, null, formatar(histograma.getSomaSegundos()));
+					linha(saida, familia.nome + "_count", rotulos, null, String.valueOf(total));
+					break;
+				}
+			}
+		}
+	}
+
+	private Familia familia(String nome, Tipo tipo, String descricao) {
+		Familia familia = familias.get(nome);
+		if (familia == null) {
+			Familia nova = new Familia(nome, tipo, descricao);
+			familia = familias.putIfAbsent(nome, nova);
+			if (familia == null)
+				familia = nova;
+		}
+		if (familia.tipo != tipo)
+			throw new IllegalArgumentException("Mtrica " + nome + " j registrada como " + familia.tipo);
+		return familia;
+	}
+
+	private static void linha(StringBuilder saida, String nome, String rotulos, String rotuloExtra, String valor) {
+		saida.append(nome);
+		if (rotulos.length() > 0 || rotuloExtra != null) {
+			saida.append('{').append(rotulos);
+			if (rotuloExtra != null)
+				saida.append(rotulos.length() > 0 ? "," : "").append(rotuloExtra);
+			saida.append('}');
+		}
+		saida.append(' ').append(valor).append('\n');
+	}
+
+	private static String formatar(double valor) {
+		if (Double.isNaN(valor))
+			return "NaN";
+		if (Double.isInfinite(valor))
+			return valor > 0 ? "+Inf" : "-Inf";
+		return BigDecimal.valueOf(valor).stripTrailingZeros().toPlainString();
+	}
+
+	/**
+	 * rtulos no formato nome="valor",... (chave da srie)
+	 */
+	static String formatarRotulos(String... rotulos) {
+		if (rotulos.length % 2 != 0)
+			throw new IllegalArgumentException("Rtulos devem ser informados em pares de nome e valor");
+		StringBuilder formatados = new StringBuilder();
+		for (int i = 0; i < rotulos.length; i += 2) {
+			if (i > 0)
+				formatados.append(',');
+			String valor = rotulos[i + 1] == null ? "" : rotulos[i + 1];
+			formatados.append(rotulos[i]).append("=\"").append(valor.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")).append('"');
+		}
+		return formatados.toString();
+	}
+
+	private enum Tipo {
+		COUNTER, GAUGE, HISTOGRAM
+	}
+
+	/**
+	 * mtricas de mesmo nome, uma srie por combinao de rtulos
+	 */
+	private static class Familia {
+		private final String nome;
+		private final Tipo tipo;
+		private final String descricao;
+		private final ConcurrentMap<String, Object> series = new ConcurrentHashMap<String, Object>();
+
+		Familia(String nome, Tipo tipo, String descricao) {
+			this.nome = nome;
+			this.tipo = tipo;
+			this.descricao = descricao;
+		}
+
+		Object serie(String... rotulos) {
+			String chave = formatarRotulos(rotulos);
+			Object serie = series.get(chave);
+			if (serie == null) {
+				Object nova = tipo == Tipo.HISTOGRAM ? new Histograma() : new AtomicLong();
+				serie = series.putIfAbsent(chave, nova);
+				if (serie == null)
+					serie = nova;
+			}
+			return serie;
+		}
+	}
+}
@@ -3,25 +3,14 @@ package br.com.brncalmeida.clubepao.utils;
 import java.text.MessageFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.Locale;
 import java.util.Set;
 
-import net.objectlab.kit.datecalc.common.DateCalculator;
-import net.objectlab.kit.datecalc.common.DefaultHolidayCalendar;
-import net.objectlab.kit.datecalc.common.HolidayCalendar;
-import net.objectlab.kit.datecalc.common.HolidayHandlerType;
-import net.objectlab.kit.datecalc.joda.LocalDateKitCalculatorsFactory;
-
 import org.apache.commons.lang3.text.WordUtils;
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
-import org.joda.time.chrono.ISOChronology;
 
 import br.com.caelum.vraptor.core.Localization;
-import de.jollyday.Holiday;
-import de.jollyday.HolidayManager;
 
 /**
  * Classe com mtodo uteis genericos
@@ -101,22 +90,16 @@ public class Util {
 	}
 
 	/**
-	 * busca os feriados
+	 * busca os feriados do ano atual
 	 * 
 	 * @return lista de feriados
 	 */
 	public static Set<LocalDate> buscarFeriados() {
-		HolidayManager gerenciadorDeFeriados = HolidayManager.getInstance(de.jollyday.HolidayCalendar.BRAZIL);
-		Set<Holiday> feriados = gerenciadorDeFeriados.getHolidays(new DateTime().getYear());
-		Set<LocalDate> dataDosFeriados = new HashSet<LocalDate>();
-		for (Holiday h : feriados) {
-			dataDosFeriados.add(new LocalDate(h.getDate(), ISOChronology.getInstance()));
-		}
-		return dataDosFeriados;
+		return CalendarioFeriados.getInstance().buscarFeriados(new DateTime().getYear());
 	}
 
 	/**
-	 * busca os dias uteis de um range
+	 * busca os dias uteis de um range. Os feriados de cada ano do range so calculados uma nica vez e mantidos em cache pelo {@link CalendarioFeriados}.
 	 * 
 	 * @param dataInicial
 	 *            data inicial do range
@@ -125,21 +108,7 @@ public class Util {
 	 * @return dias uteis do range informado
 	 */
 	public static Set<LocalDate> buscarDiasUteis(LocalDate dataInicial, LocalDate dataFinal) {
-		Set<LocalDate> diasUteis = new LinkedHashSet<LocalDate>();
-
-		// retirando os feriados
-		HolidayCalendar<LocalDate> calendarioDeFeriados = new DefaultHolidayCalendar<LocalDate>(buscarFeriados());
-		LocalDateKitCalculatorsFactory.getDefaultInstance().registerHolidays("BR", calendarioDeFeriados);
-		DateCalculator<LocalDate> calendario = LocalDateKitCalculatorsFactory.getDefaultInstance().getDateCalculator("BR", HolidayHandlerType.FORWARD);
-
-		// calculando dia til
-		LocalDate dataTemporaria = dataInicial;
-		while (dataTemporaria.isBefore(dataFinal)) {
-			if (!calendario.isNonWorkingDay(dataTemporaria))
-				diasUteis.add(new LocalDate(dataTemporaria));
-			dataTemporaria = dataTemporaria.plusDays(1);
-		}
-		return diasUteis;
+		return CalendarioFeriados.getInstance().buscarDiasUteis(dataInicial, dataFinal);
 	}
 
 	/**
@@ -150,10 +119,7 @@ public class Util {
 	 * @return calculo
 	 */
 	public static double getMediaAritmetica(double array[]) {
-		double total = 0;
-		for (int counter = 0; counter < array.length; counter++)
-			total += array[counter];
-		return total / array.length;
+		return new Estatistica(array).getMedia();
 	}
 
 	/**
@@ -180,31 +146,29 @@ public class Util {
 	public static double getSomaDosElementosAoQuadrado(double array[]) {
 		double total = 0;
 		for (int counter = 0; counter < array.length; counter++)
-			total += Math.pow(array[counter], 2);
+			total += array[counter] * array[counter];
 		return total;
 	}
 
 	/**
-	 * variancia dos dados do array
+	 * variancia (amostral) dos dados do array, calculada em uma nica passada ({@link Estatistica})
 	 * 
 	 * @param array
 	 *            array a ser calculado
 	 * @return calculo
 	 */
 	public static double getVariancia(double array[]) {
-		double p1 = 1 / Double.valueOf(array.length - 1);
-		double p2 = getSomaDosElementosAoQuadrado(array) - (Math.pow(getSomaDosElementos(array), 2) / Double.valueOf(array.length));
-		return p1 * p2;
+		return new Estatistica(array).getVariancia();
 	}
 
 	/**
-	 * desvio padrao dos dados do array
+	 * desvio padrao (amostral) dos dados do array, calculado em uma nica passada ({@link Estatistica})
 	 * 
 	 * @param array
 	 *            array a ser calculado
 	 * @return calculo
 	 */
 	public static double getDesvioPadrao(double array[]) {
-		return Math.sqrt(getVariancia(array));
+		return new Estatistica(array).getDesvioPadrao();
 	}
 }
@@ -20,6 +20,38 @@
 
 				$('.sem_pao').css('color', 'red').css('font-weight', 'bold');
 
+				// geração em lote: agenda as programações e consulta o andamento até a conclusão, exibindo cada programação assim que gerada
+				$('#gerar_lote').submit(function(event) {
+					event.preventDefault();
+					$('#programacoes_lote').empty();
+					$('#erro_lote').hide();
+					$.post($(this).attr('action'), $(this).serialize(), function(resposta) {
+						consultarLote(resposta.lote.id, 0);
+					}, 'json').fail(function() {
+						$('#erro_lote').show();
+					});
+				});
+
+				function consultarLote(id, inicio) {
+					$.getJSON('<c:url value="/controle/lote/" />' + id, { inicio : inicio }, function(resposta) {
+						var lote = resposta.lote;
+						$('#andamento_lote').text(lote.qtdConcluidas + ' / ' + lote.qtdDatas);
+						$.each(lote.programacoes || [], function(i, programacao) {
+							var linhas = $('<tbody />');
+							$.each(programacao.dias || [], function(j, dia) {
+								var membro = dia.membro ? $('<td />').text(dia.membro) : $('<td class="sem_pao" />').text('<fmt:message key="error.sem.pao" />');
+								linhas.append($('<tr />').append($('<td />').text(dia.data)).append(membro));
+							});
+							$('#programacoes_lote').append($('<table class="table table-striped table-condensed" />').append(
+									$('<caption />').text(programacao.dataInicial + (programacao.erro ? ' - ' + programacao.erro : ''))).append(linhas));
+						});
+						$('.sem_pao').css('color', 'red').css('font-weight', 'bold');
+						if (lote.proximo < lote.qtdDatas)
+							setTimeout(function() {
+								consultarLote(id, lote.proximo);
+							}, 1000);
+					});
+				}
 			});
 		</script>
 
@@ -35,16 +67,92 @@
 								<span class="input-group-addon"><fmt:message key="data.inicial" /></span> <input type="date" name="data" class="form-control" required />
 							</div>
 						</div>
+						<div class="col-sm-3">
+							<div class="input-group">
+								<span class="input-group-addon"><fmt:message key="clube" /></span> <input type="text" name="clube" class="form-control" list="clubes" value="${clube}" />
+								<datalist id="clubes">
+									<c:forEach items="${clubes}" var="item">
+										<option value="${item}" />
+									</c:forEach>
+								</datalist>
+							</div>
+						</div>
+						<div class="col-sm-3">
+							<div class="input-group">
+								<span class="input-group-addon"><fmt:message key="modo.alocacao" /></span> <select name="modo" class="form-control">
+									<c:forEach items="${modos}" var="item">
+										<option value="${item}" ${item == modo ? 'selected' : ''}><fmt:message key="modo.${item}" /></option>
+									</c:forEach>
+								</select>
+							</div>
+						</div>
+						<div class="col-sm-2">
+							<button type="submit" class="btn btn-default" title="<fmt:message key="gerar" />">
+								<fmt:message key="gerar" />
+							</button>
+						</div>
+					</div>
+				</form>
+			</div>
+		</div>
+
+		<div class="panel panel-default">
+			<div class="panel-heading">
+				<fmt:message key="gerar.lote" />
+			</div>
+			<div class="panel-body">
+				<form id="gerar_lote" action="<c:url value="/controle/lote" />" method="post" class="buttonForm">
+					<div class="row  col-mb-4">
+						<div class="col-sm-3">
+							<div class="input-group">
+								<span class="input-group-addon"><fmt:message key="data.inicial" /></span> <input type="date" name="dataInicial" class="form-control" required />
+							</div>
+						</div>
+						<div class="col-sm-3">
+							<div class="input-group">
+								<span class="input-group-addon"><fmt:message key="data.final" /></span> <input type="date" name="dataFinal" class="form-control" required />
+							</div>
+						</div>
+						<div class="col-sm-3">
+							<div class="input-group">
+								<span class="input-group-addon"><fmt:message key="clube" /></span> <input type="text" name="clube" class="form-control" list="clubes" value="${clube}" />
+							</div>
+						</div>
 						<div class="col-sm-2">
 							<button type="submit" class="btn btn-default" title="<fmt:message key="gerar" />">
 								<fmt:message key="gerar" />
 							</button>
+							<span id="andamento_lote" class="badge"></span>
 						</div>
 					</div>
 				</form>
+				<div id="erro_lote" class="alert alert-danger" style="display: none;">
+					<fmt:message key="lote.invalido" />
+				</div>
+				<div id="programacoes_lote"></div>
 			</div>
 		</div>
 
+		<c:if test="${not empty programacoesSalvas}">
+			<div class="panel panel-default">
+				<div class="panel-heading">
+					<fmt:message key="programacoes.salvas" />
+				</div>
+				<div class="list-group">
+					<c:forEach items="${programacoesSalvas}" var="salva">
+						<a class="list-group-item" href="<c:url value="/controle/programacoes/${salva.id}" />">${salva.dataInicial} <span class="badge"><fmt:formatDate
+									type="both" value="${salva.dataGeracao}" /></span></a>
+					</c:forEach>
+				</div>
+			</div>
+		</c:if>
+
+		<!-- resumo de sobrecarga e sugestão calculados pela programação somente ao serem exibidos -->
+		<c:if test="${not empty cronograma}">
+			<c:set var="sobrecargas" value="${cronograma.programacaoSobrecarga}" />
+			<c:set var="sugestoes" value="${cronograma.sugestao}" />
+		</c:if>
+
 		<!-- TODO: sistema de susgestão ainda em implementação -->
 		<!--
 		<c:if test="${not empty sugestoes}">
@@ -65,6 +173,12 @@
 			</div>
 		</c:if>
 
+		<c:if test="${alocacaoCompleta == false}">
+			<div class="alert alert-warning">
+				<fmt:message key="alocacao.incompleta" />
+			</div>
+		</c:if>
+
 		<c:if test="${not empty calendario}">
 			<div class="panel panel-default print-area">
 				<div class="panel-heading">
@@ -80,7 +194,7 @@
 							<th><fmt:message key="membro" /></th>
 						</tr>
 					</thead>
-					<tbody>
+					<tbody id="dias_calendario">
 						<c:forEach items="${calendario}" var="dia">
 							<tr>
 								<td><fmt:formatDate type="date" value="${dia.key}" /></td>
@@ -99,6 +213,16 @@
 					</tbody>
 				</table>
 				<div class="panel-footer remove-print-area">
+					<!-- período seguinte: gerado (e salvo) pelo mesmo formulário de geração -->
+					<c:if test="${not empty proximaDataInicial}">
+						<form action="<c:url value="/controle/gerar" />" method="post" style="display: inline;">
+							<input type="hidden" name="data" value="${proximaDataInicial}" /> <input type="hidden" name="clube" value="${clube}" /> <input type="hidden"
+								name="modo" value="${modo}" />
+							<button type="submit" class="btn btn-default">
+								<fmt:message key="carregar.proximo.periodo" />
+							</button>
+						</form>
+					</c:if>
 					<!--  botão de impressão -->
 					<a id="botao_impressao"> <span class="glyphicon glyphicon-print btn-lg" title="<fmt:message key="imprimir" />"></span></a>
 				</div>
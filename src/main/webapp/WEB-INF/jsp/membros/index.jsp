@@ -104,6 +104,13 @@
 			});
 		</script>
 
+		<!-- clubes já cadastrados, sugeridos nos campos de clube -->
+		<datalist id="clubes">
+			<c:forEach items="${clubes}" var="item">
+				<option value="${item}" />
+			</c:forEach>
+		</datalist>
+
 		<!--  painel de cadastro -->
 		<div class="panel panel-default">
 			<div class="panel-heading">
@@ -134,6 +141,14 @@
 										</div>
 									</div>
 								</div>
+								<div class="row">
+									<div class="form-group col-sm-6">
+										<div class="input-group">
+											<span class="input-group-addon"><fmt:message key="clube" /></span> <input type="text" name="membro.clube" maxlength="50" class="form-control"
+												list="clubes" value="<c:out value="${clube}" />" />
+										</div>
+									</div>
+								</div>
 								<div class="row">
 									<div class="form-group col-sm-12">
 										<c:forEach var="disponibilidade" items="${disponibilidades}">
@@ -172,6 +187,14 @@
 										<input id="file" type="file" name="file" title="<fmt:message key="upload.planilha" />" required />
 									</div>
 								</div>
+								<div class="row">
+									<div class="form-group col-sm-6">
+										<div class="input-group">
+											<span class="input-group-addon"><fmt:message key="clube" /></span> <input type="text" name="clube" maxlength="50" class="form-control"
+												list="clubes" value="<c:out value="${clube}" />" />
+										</div>
+									</div>
+								</div>
 								<div class="row">
 									<div class="form-group col-sm-12">
 										<label class="checkbox-inline"><input type="checkbox" name="sobrescrever" class=""> <fmt:message
@@ -181,8 +204,11 @@
 											title="<fmt:message
 												key="planilha.exemplo" />"> <span class="glyphicon glyphicon-cloud-download espaco_lateral"
 											title="<fmt:message key="planilha.exemplo" />"></span> <fmt:message key="planilha.exemplo" /></a>
-										<!-- baixar planilha com membros atuais -->
-										<a href="#" onclick="javascript:location.href='<c:url value="/membros/extract/all"/>'"
+										<!-- baixar planilha com membros atuais do clube -->
+										<c:url var="url_planilha_completa" value="/membros/extract/all">
+											<c:param name="clube" value="${clube}" />
+										</c:url>
+										<a href="${url_planilha_completa}"
 											title="<fmt:message
 												key="planilha.completa" />"> <span class="glyphicon glyphicon-cloud-download espaco_lateral"
 											title="<fmt:message key="planilha.completa" />"></span> <fmt:message key="planilha.completa" /></a>
@@ -210,6 +236,35 @@
 			<div class="panel-heading">
 				<fmt:message key="descricao.table.membros" />
 			</div>
+			<div class="panel-body remove-print-area">
+				<!-- busca de membros: paginada no servidor -->
+				<form id="busca_membros" action="<c:url value="/membros/buscar" />" method="get" class="buttonForm">
+					<div class="row  col-mb-4">
+						<div class="col-sm-2">
+							<input type="text" name="clube" maxlength="50" class="form-control" list="clubes" value="<c:out value="${clube}" />"
+								title="<fmt:message key="clube" />" />
+						</div>
+						<div class="col-sm-3">
+							<input type="text" name="texto" class="form-control" value="<c:out value="${paginaMembros.texto}" />"
+								placeholder="<fmt:message key="placeholder.buscar.membros" />" />
+						</div>
+						<div class="col-sm-3">
+							<select name="disponibilidade" class="form-control">
+								<option value=""><fmt:message key="todas.disponibilidades" /></option>
+								<c:forEach var="disponibilidade" items="${disponibilidades}">
+									<option value="${disponibilidade.id}" <c:if test="${disponibilidade eq paginaMembros.disponibilidade}">selected</c:if>><fmt:message
+											key="${disponibilidade.message}" /></option>
+								</c:forEach>
+							</select>
+						</div>
+						<div class="col-sm-2">
+							<button type="submit" class="btn btn-default" title="<fmt:message key="buscar" />">
+								<fmt:message key="buscar" />
+							</button>
+						</div>
+					</div>
+				</form>
+			</div>
 
 			<table class="table table-striped table-hover table-condensed" id="tabela_membros">
 				<thead>
@@ -248,6 +303,24 @@
 				</tbody>
 			</table>
 			<div class="panel-footer remove-print-area">
+				<!-- paginação da listagem, mantendo o filtro -->
+				<c:url var="url_busca" value="/membros/buscar">
+					<c:param name="clube" value="${paginaMembros.clube}" />
+					<c:param name="texto" value="${paginaMembros.texto}" />
+					<c:param name="disponibilidade" value="${paginaMembros.disponibilidade.id}" />
+				</c:url>
+				<c:if test="${paginaMembros.possuiAnterior}">
+					<a class="btn btn-default" href="${url_busca}&amp;pagina=${paginaMembros.pagina - 1}"><fmt:message key="anterior" /></a>
+				</c:if>
+				<span class="badge"><fmt:message key="paginacao.membros">
+						<fmt:param value="${paginaMembros.total == 0 ? 0 : paginaMembros.primeiro + 1}" />
+						<fmt:param value="${paginaMembros.ultimo}" />
+						<fmt:param value="${paginaMembros.total}" />
+					</fmt:message></span>
+				<c:if test="${paginaMembros.possuiProxima}">
+					<a class="btn btn-default" href="${url_busca}&amp;pagina=${paginaMembros.pagina + 1}"><fmt:message key="proxima" /></a>
+				</c:if>
+
 				<!--  botão de impressão -->
 				<a id="botao_impressao"> <span class="glyphicon glyphicon-print btn-lg" title="<fmt:message key="imprimir" />"></span></a>
 
@@ -1,31 +1,350 @@
 package br.com.brncalmeida.clubepao.controller;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import br.com.brncalmeida.clubepao.dao.DefaultMembroDao;
+import br.com.brncalmeida.clubepao.dao.DefaultProgramacaoDao;
 import br.com.brncalmeida.clubepao.dao.MembroDao;
+import br.com.brncalmeida.clubepao.dao.ProgramacaoDao;
+import br.com.brncalmeida.clubepao.dao.VersaoMembros;
+import br.com.brncalmeida.clubepao.dao.VersaoProgramacoes;
+import br.com.brncalmeida.clubepao.model.Disponibilidade;
+import br.com.brncalmeida.clubepao.model.MassaMembros;
+import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.model.ProgramacaoSalva;
+import br.com.brncalmeida.clubepao.model.Schedule;
+import br.com.brncalmeida.clubepao.services.CacheCronogramas;
+import br.com.brncalmeida.clubepao.services.ExecutorClubes;
+import br.com.brncalmeida.clubepao.services.LotesProgramacao;
+import br.com.brncalmeida.clubepao.services.ModoAlocacao;
+import br.com.brncalmeida.clubepao.services.ProgramacaoIncremental;
+import br.com.caelum.vraptor.util.test.MockResult;
+import br.com.caelum.vraptor.util.test.MockSerializationResult;
 import br.com.caelum.vraptor.validator.ValidationException;
 
 public class ControleControllerTest extends GenericTest {
 
 	private MembroDao dao;
 	private ControleController controller;
+	private CacheCronogramas cache;
+	private ExecutorClubes executor;
+	private MockResult result;
+	private VersaoMembros versao;
+	private LotesProgramacao lotes;
+	private ProgramacaoDao programacoesSalvas;
+	private VersaoProgramacoes versaoProgramacoes;
 
 	@Before
 	public void setUp() throws Exception {
-		dao = new DefaultMembroDao(getSession());
-		controller = new ControleController(getMockResult(), dao, getLocalization(), getMockValidator());
+		versao = new VersaoMembros();
+		dao = new DefaultMembroDao(getSession(), versao);
+		cache = new CacheCronogramas();
+		executor = new ExecutorClubes(2, 10);
+		versaoProgramacoes = new VersaoProgramacoes();
+		lotes = new LotesProgramacao(executor, cache, getSession().getSessionFactory(), versaoProgramacoes);
+		programacoesSalvas = new DefaultProgramacaoDao(getSession(), versaoProgramacoes);
+		result = getMockResult();
+		controller = new ControleController(result, dao, getLocalization(), getMockValidator(), cache, versao, new ProgramacaoIncremental(), executor, lotes, programacoesSalvas, versaoProgramacoes);
+	}
+
+	@After
+	public void tearDown() {
+		executor.encerrar();
+		if (getSession().getTransaction().isActive()) {
+			getSession().getTransaction().rollback();
+		}
+	}
+
+	/**
+	 * remove os membros e as programações confirmados pelo teste
+	 */
+	private void limparBase() {
+		getSession().createQuery("delete from ProgramacaoSalva").executeUpdate();
+		for (String clube : dao.listarClubes()) {
+			dao.removerTodos(clube);
+		}
+		commit();
 	}
 
 	@Test(expected = ValidationException.class)
 	public void gerarRelatorioInvalido() {
-		controller.gerar("");
+		controller.gerar("", null, null);
 	}
 
 	@Test
 	public void gerarRelatorioValido() {
-		controller.gerar("2014-04-14");
+		controller.gerar("2014-04-14", null, null);
+
+	}
+
+	@Test
+	public void gerarRelatorioRepetidoUtilizaCache() {
+		Membro membro = new Membro("Membro x", "x@gmail.com");
+		membro.addDisponibilidade(Disponibilidade.SEGUNDA);
+		// a versão dos membros só muda após o commit das escritas
+		try {
+			dao.add(membro);
+			commit();
+
+			controller.gerar("2014-04-14", null, null);
+			controller.gerar("2014-04-14", null, null);
+			assertThat(cache.getFalhas(), equalTo(1L));
+			assertThat(cache.getAcertos(), equalTo(1L));
+
+			// alteração nos membros invalida a programação em cache
+			dao.remove(membro);
+			membro = new Membro("Membro y", "y@gmail.com");
+			membro.addDisponibilidade(Disponibilidade.TERCA);
+			dao.add(membro);
+			controller.gerar("2014-04-14", null, null);
+			assertThat(cache.getAcertos(), equalTo(2L));
+			commit();
+			controller.gerar("2014-04-14", null, null);
+			assertThat(cache.getFalhas(), equalTo(2L));
+		} finally {
+			limparBase();
+		}
+	}
+
+	@Test
+	public void gerarRelatorioPorClube() {
+		Membro doClube = new Membro("Membro a", "a@gmail.com");
+		doClube.setClube("andar1");
+		doClube.addDisponibilidade(Disponibilidade.SEGUNDA);
+		dao.add(doClube);
+		Membro deOutroClube = new Membro("Membro b", "b@gmail.com");
+		deOutroClube.setClube("andar2");
+		deOutroClube.addDisponibilidade(Disponibilidade.SEGUNDA);
+		dao.add(deOutroClube);
+
+		controller.gerar("2014-04-14", "andar1", null);
+		Map<Date, String> calendario = result.included("calendario");
+		assertThat(calendario.values(), hasItem("Membro a"));
+		assertThat(calendario.values(), not(hasItem("Membro b")));
+
+		// alteração em outro clube não invalida a programação do clube
+		dao.remove(deOutroClube);
+		controller.gerar("2014-04-14", "andar1", null);
+		assertThat(cache.getAcertos(), equalTo(1L));
+	}
+
+	@Test(expected = ValidationException.class)
+	public void gerarLoteComRangeInvalido() {
+		Membro membro = new Membro("Membro x", "x@gmail.com");
+		membro.addDisponibilidade(Disponibilidade.SEGUNDA);
+		dao.add(membro);
+
+		controller.gerarLote(null, "2014-04-14", "2014-01-01", null);
+	}
+
+	@Test(expected = ValidationException.class)
+	public void gerarLoteComDataInvalida() {
+		Membro membro = new Membro("Membro x", "x@gmail.com");
+		membro.addDisponibilidade(Disponibilidade.SEGUNDA);
+		dao.add(membro);
+
+		controller.gerarLote(Arrays.asList("2014-04-14", "abc"), null, null, null);
+	}
+
+	@Test
+	public void gerarLoteDivideRangeEmPeriodos() throws Exception {
+		Membro membro = new Membro("Membro x", "x@gmail.com");
+		membro.addDisponibilidade(Disponibilidade.SEGUNDA);
+		dao.add(membro);
+
+		// os períodos do lote são salvos em outra sessão
+		try {
+			MockSerializationResult json = new MockSerializationResult();
+			controller = new ControleController(json, dao, getLocalization(), getMockValidator(), cache, versao, new ProgramacaoIncremental(), executor, lotes,
+					programacoesSalvas, versaoProgramacoes);
+			controller.gerarLote(null, "2014-01-01", "2014-03-31", null);
+			String criado = json.serializedResult();
+			assertThat(criado, containsString("\"qtdDatas\": 3"));
+
+			// andamento do lote com as programações já concluídas
+			Matcher id = Pattern.compile("\"id\": \"([^\"]+)\"").matcher(criado);
+			assertThat(id.find(), equalTo(true));
+			for (int i = 0; i < 500 && !lotes.situacao(id.group(1), 0).isConcluido(); i++) {
+				Thread.sleep(10);
+			}
+			json = new MockSerializationResult();
+			controller = new ControleController(json, dao, getLocalization(), getMockValidator(), cache, versao, new ProgramacaoIncremental(), executor, lotes,
+					programacoesSalvas, versaoProgramacoes);
+			controller.situacaoLote(id.group(1), 2);
+			assertThat(json.serializedResult(), containsString("\"dataInicial\": \"2014-03-02\""));
+			assertThat(json.serializedResult(), containsString("\"membro\": \"Membro x\""));
+			assertThat(programacoesSalvas.listar(Membro.CLUBE_PADRAO).size(), equalTo(3));
+		} finally {
+			limparBase();
+		}
+	}
+
+	@Test
+	public void programacaoGeradaEhSalvaEReexibidaSemRecalcular() {
+		Membro membro = new Membro("Membro x", "x@gmail.com");
+		membro.addDisponibilidade(Disponibilidade.SEGUNDA);
+		dao.add(membro);
+
+		controller.gerar("2014-04-14", null, null);
+		Map<Date, String> calendario = result.included("calendario");
+		List<ProgramacaoSalva> salvas = result.included("programacoesSalvas");
+		assertThat(salvas.size(), equalTo(1));
+
+		// a geração trabalha sobre cópias: o membro da sessão não é alterado
+		assertThat(membro.getQtdDiasProgramados(), equalTo(0));
+
+		result = getMockResult();
+		controller = new ControleController(result, dao, getLocalization(), getMockValidator(), cache, versao, new ProgramacaoIncremental(), executor, lotes,
+				programacoesSalvas, versaoProgramacoes);
+		controller.programacaoSalva(salvas.get(0).getId());
+		Map<Date, String> salvo = result.included("calendario");
+		assertThat(salvo, equalTo(calendario));
+	}
+
+	@Test
+	public void gerarRelatorioNoModoFluxo() {
+		MassaMembros.adicionar(dao, "Membro a", "a@gmail.com", Disponibilidade.SEGUNDA, Disponibilidade.TERCA);
+		MassaMembros.adicionar(dao, "Membro b", "b@gmail.com", Disponibilidade.SEGUNDA);
+
+		controller.gerar("2014-06-02", null, ModoAlocacao.FLUXO);
+		assertThat(result.<ModoAlocacao> included("modo"), equalTo(ModoAlocacao.FLUXO));
+		assertThat(result.<Boolean> included("alocacaoCompleta"), equalTo(true));
+
+		// cada modo tem a sua programação em cache
+		controller.gerar("2014-06-02", null, null);
+		assertThat(result.<ModoAlocacao> included("modo"), equalTo(ModoAlocacao.INCREMENTAL));
+		assertThat(cache.getFalhas(), equalTo(2L));
+		controller.gerar("2014-06-02", null, ModoAlocacao.FLUXO);
+		assertThat(cache.getAcertos(), equalTo(1L));
+	}
+
+	@Test
+	public void gerarRelatorioNoModoParalelo() {
+		for (int i = 0; i < 12; i++) {
+			MassaMembros.adicionar(dao, "Membro " + i, "membro" + i + "@gmail.com", Disponibilidade.SEGUNDA, Disponibilidade.TERCA, Disponibilidade.QUARTA,
+					Disponibilidade.QUINTA, Disponibilidade.SEXTA);
+		}
+
+		controller.gerar("2014-06-02", null, ModoAlocacao.PARALELO);
+		assertThat(result.<ModoAlocacao> included("modo"), equalTo(ModoAlocacao.PARALELO));
+		assertThat(result.<Boolean> included("alocacaoCompleta"), equalTo(true));
+		Map<Date, String> calendario = result.included("calendario");
+		assertThat(calendario.containsValue(null), equalTo(false));
+	}
+
+	@Test
+	public void periodosConsecutivosPartemDaCargaSalva() {
+		MassaMembros.adicionar(dao, "Membro a", "a@gmail.com", Disponibilidade.SEGUNDA);
+		MassaMembros.adicionar(dao, "Membro b", "b@gmail.com", Disponibilidade.SEGUNDA);
+		List<Membro> membros = dao.listarParaProgramacao(Membro.CLUBE_PADRAO);
+
+		controller.gerar("2014-06-02", null, null);
+		controller.gerar("2014-07-02", null, null);
+		Map<Date, String> calendario = result.included("calendario");
+
+		// o segundo período parte da carga do primeiro período salvo, como se fossem gerados em sequência
+		List<Membro> carga = MassaMembros.copiar(membros);
+		new Schedule(new LocalDate(2014, 6, 2), new LocalDate(2014, 7, 2), carga);
+		Schedule esperado = new Schedule(new LocalDate(2014, 7, 2), new LocalDate(2014, 8, 1), MassaMembros.copiar(carga));
+		assertThat(calendario, equalTo(esperado.getProgramacaoPorMembro()));
+		// sem a carga, o membro com mais dias no primeiro período (5 segundas-feiras) seria programado novamente na primeira segunda-feira
+		Schedule semCarga = new Schedule(new LocalDate(2014, 7, 2), new LocalDate(2014, 8, 1), MassaMembros.copiar(membros));
+		assertThat(calendario, not(equalTo(semCarga.getProgramacaoPorMembro())));
+	}
+
+	@Test
+	public void calendarioCarregadoEmPaginas() throws Exception {
+		Membro membro = new Membro("Membro x", "x@gmail.com");
+		membro.addDisponibilidade(Disponibilidade.SEGUNDA);
+		dao.add(membro);
+		controller.gerar("2014-06-02", null, null);
+		assertThat(result.included("proximaDataInicial"), equalTo((Object) "2014-07-02"));
+
+		// página padrão: o período inteiro, atendido pelo cache
+		MockSerializationResult json = new MockSerializationResult();
+		controller = new ControleController(json, dao, getLocalization(), getMockValidator(), cache, versao, new ProgramacaoIncremental(), executor, lotes, programacoesSalvas, versaoProgramacoes);
+		controller.calendario("2014-06-02", null, null, null, 0);
+		String pagina = json.serializedResult();
+		assertThat(pagina, containsString("\"inicio\": \"2014-06-02\""));
+		assertThat(pagina, containsString("\"fim\": \"2014-07-01\""));
+		assertThat(pagina, containsString("\"membro\": \"Membro x\""));
+		assertThat(pagina, containsString("\"data\": \"2014-06-30\""));
+		assertThat(pagina, containsString("\"proximaDataInicial\": \"2014-07-02\""));
+		assertThat(pagina, containsString("\"ultimaDoPeriodo\": true"));
+
+		// página de uma semana: continua na mesma programação
+		json = new MockSerializationResult();
+		controller = new ControleController(json, dao, getLocalization(), getMockValidator(), cache, versao, new ProgramacaoIncremental(), executor, lotes, programacoesSalvas, versaoProgramacoes);
+		controller.calendario("2014-06-02", null, null, "2014-06-09", 7);
+		pagina = json.serializedResult();
+		assertThat(pagina, containsString("\"fim\": \"2014-06-15\""));
+		assertThat(pagina, containsString("\"proximaDataInicial\": \"2014-06-02\""));
+		assertThat(pagina, containsString("\"proximoInicio\": \"2014-06-16\""));
+		assertThat(pagina, containsString("\"ultimaDoPeriodo\": false"));
+		assertThat(pagina, not(containsString("\"data\": \"2014-06-02\"")));
+		assertThat(cache.getFalhas(), equalTo(1L));
+		assertThat(cache.getAcertos(), equalTo(2L));
+
+		// sem a programação em cache: atendida pela programação salva, sem gerar novamente
+		cache = new CacheCronogramas();
+		json = new MockSerializationResult();
+		controller = new ControleController(json, dao, getLocalization(), getMockValidator(), cache, versao, new ProgramacaoIncremental(), executor, lotes, programacoesSalvas, versaoProgramacoes);
+		controller.calendario("2014-06-02", null, null, null, 0);
+		assertThat(json.serializedResult(), containsString("\"membro\": \"Membro x\""));
+		assertThat(cache.getGravacoes(), equalTo(0L));
+	}
+
+	@Test
+	public void calendarioNaoGeradoNaoEhEncontrado() throws Exception {
+		Membro membro = new Membro("Membro x", "x@gmail.com");
+		membro.addDisponibilidade(Disponibilidade.SEGUNDA);
+		dao.add(membro);
+
+		// a consulta não gera a programação
+		MockSerializationResult json = new MockSerializationResult();
+		controller = new ControleController(json, dao, getLocalization(), getMockValidator(), cache, versao, new ProgramacaoIncremental(), executor, lotes, programacoesSalvas, versaoProgramacoes);
+		controller.calendario("2014-06-02", null, null, null, 0);
+		assertThat(cache.getGravacoes(), equalTo(0L));
+		assertNull(programacoesSalvas.buscar(Membro.CLUBE_PADRAO, new LocalDate(2014, 6, 2), 30));
+	}
+
+	@Test(expected = ValidationException.class)
+	public void calendarioComInicioForaDoPeriodo() {
+		Membro membro = new Membro("Membro x", "x@gmail.com");
+		membro.addDisponibilidade(Disponibilidade.SEGUNDA);
+		dao.add(membro);
+
+		controller.calendario("2014-06-02", null, null, "2014-07-02", 7);
+	}
+
+	@Test
+	public void gerarRelatorioNaoCalculaResumoAntesDaExibicao() {
+		Membro membro = new Membro("Membro x", "x@gmail.com");
+		membro.addDisponibilidade(Disponibilidade.SEGUNDA);
+		dao.add(membro);
 
+		controller.gerar("2014-06-02", null, null);
+		String dataInicial = result.included("dataInicial");
+		Schedule cronograma = result.included("cronograma");
+		assertThat(dataInicial, equalTo("2014-06-02"));
+		assertNull(result.included("sobrecargas"));
+		assertThat(cronograma.getProgramacaoSobrecarga().values(), hasItem("Membro x"));
 	}
 }
@@ -33,6 +33,15 @@ public abstract class GenericTest {
 		return session;
 	}
 
+	/**
+	 * confirma as escritas (disparando as ações executadas após o commit, ex.: versão dos membros) e inicia uma nova transação. Os dados confirmados devem ser
+	 * removidos pelo próprio teste.
+	 */
+	protected void commit() {
+		getSession().getTransaction().commit();
+		getSession().beginTransaction();
+	}
+
 	public String getMessage(String property) {
 		return new MockLocalization().getBundle().getString(property);
 	}
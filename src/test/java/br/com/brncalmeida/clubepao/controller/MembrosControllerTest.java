@@ -1,14 +1,27 @@
 package br.com.brncalmeida.clubepao.controller;
 
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import br.com.brncalmeida.clubepao.dao.DefaultMembroDao;
 import br.com.brncalmeida.clubepao.dao.MembroDao;
+import br.com.brncalmeida.clubepao.dao.VersaoMembros;
 import br.com.brncalmeida.clubepao.model.Disponibilidade;
 import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.model.MembroResumo;
+import br.com.brncalmeida.clubepao.services.CachePlanilhas;
 import br.com.brncalmeida.clubepao.services.ExcelFileService;
+import br.com.brncalmeida.clubepao.services.IndiceMembros;
+import br.com.brncalmeida.clubepao.services.PaginaMembros;
 import br.com.brncalmeida.clubepao.services.impl.DefaultExcelFileService;
+import br.com.caelum.vraptor.util.test.MockResult;
 import br.com.caelum.vraptor.validator.ValidationException;
 
 public class MembrosControllerTest extends GenericTest {
@@ -16,12 +29,22 @@ public class MembrosControllerTest extends GenericTest {
 	private MembroDao dao;
 	private MembrosController controller;
 	private ExcelFileService planilha;
+	private MockResult result;
 
 	@Before
 	public void setUp() throws Exception {
-		dao = new DefaultMembroDao(getSession());
+		VersaoMembros versao = new VersaoMembros();
+		dao = new DefaultMembroDao(getSession(), versao);
 		planilha = new DefaultExcelFileService(dao, getLocalization());
-		controller = new MembrosController(getMockResult(), dao, getMockValidator(), getLocalization(), planilha);
+		result = getMockResult();
+		controller = new MembrosController(result, dao, getMockValidator(), getLocalization(), planilha, new IndiceMembros(versao), new CachePlanilhas(versao));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (getSession().getTransaction().isActive()) {
+			getSession().getTransaction().rollback();
+		}
 	}
 
 	public static void main(String[] args) throws Exception {
@@ -78,6 +101,29 @@ public class MembrosControllerTest extends GenericTest {
 		controller.remover(Integer.MAX_VALUE);
 	}
 
+	@Test
+	public void buscandoMembrosPaginados() throws Exception {
+		for (int i = 0; i < MembrosController.QTD_MEMBROS_PAGINA + 10; i++) {
+			Membro membro = new Membro("Membro " + i, "membro" + i + "@gmail.com");
+			membro.addDisponibilidade(i % 2 == 0 ? Disponibilidade.SEGUNDA : Disponibilidade.TERCA);
+			dao.add(membro);
+		}
+
+		controller.index();
+		List<MembroResumo> membros = result.included("membros");
+		assertThat(membros.size(), is(MembrosController.QTD_MEMBROS_PAGINA));
+
+		controller.buscar(null, "membro", Disponibilidade.TERCA.getId(), 0);
+		PaginaMembros pagina = result.included("paginaMembros");
+		assertThat(pagina.getTotal(), is((MembrosController.QTD_MEMBROS_PAGINA + 10) / 2));
+		assertThat(pagina.getMembros().get(0).getNome(), equalTo("Membro 1"));
+	}
+
+	@Test(expected = ValidationException.class)
+	public void buscandoMembrosComDisponibilidadeInvalida() throws Exception {
+		controller.buscar(null, "membro", Integer.MAX_VALUE, 0);
+	}
+
 	private Membro criarMassa(boolean addToBd) {
 		Membro membro = new Membro("Membro x", "x@gmail.com");
 		if (addToBd) {
@@ -1,20 +1,28 @@
 package br.com.brncalmeida.clubepao.dao;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
 
-import org.hibernate.Session;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.stat.Statistics;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import br.com.brncalmeida.clubepao.controller.GenericTest;
 import br.com.brncalmeida.clubepao.model.Disponibilidade;
+import br.com.brncalmeida.clubepao.model.MassaMembros;
 import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.model.MembroResumo;
+import br.com.brncalmeida.clubepao.services.EstatisticaCache;
 
 public class MembroDaoTest extends GenericTest {
-	private Session session;
 	private MembroDao dao;
 
 	@Test
@@ -24,24 +32,224 @@ public class MembroDaoTest extends GenericTest {
 		membro.addDisponibilidade(Disponibilidade.SEGUNDA);
 		membro.addDisponibilidade(Disponibilidade.QUARTA);
 		dao.add(membro);
-		assertThat(dao.procurarDisponibilidade(Disponibilidade.SEGUNDA), hasItem(membro));
-		assertThat(dao.procurarDisponibilidade(Disponibilidade.QUARTA), hasItem(membro));
-		assertThat(dao.listarTodos(), hasItem(membro));
+		assertThat(MassaMembros.disponiveis(dao, Membro.CLUBE_PADRAO, Disponibilidade.SEGUNDA), hasItem(membro));
+		assertThat(MassaMembros.disponiveis(dao, Membro.CLUBE_PADRAO, Disponibilidade.QUARTA), hasItem(membro));
+		assertThat(dao.listarTodos(Membro.CLUBE_PADRAO), hasItem(membro));
 		dao.remove(membro);
-		assertThat(dao.listarTodos(), not(hasItem(membro)));
-		assertThat(dao.procurarDisponibilidade(Disponibilidade.SEGUNDA), not(hasItem(membro)));
-		assertThat(dao.procurarDisponibilidade(Disponibilidade.QUARTA), not(hasItem(membro)));
+		assertThat(dao.listarTodos(Membro.CLUBE_PADRAO), not(hasItem(membro)));
+		assertThat(MassaMembros.disponiveis(dao, Membro.CLUBE_PADRAO, Disponibilidade.SEGUNDA), not(hasItem(membro)));
+		assertThat(MassaMembros.disponiveis(dao, Membro.CLUBE_PADRAO, Disponibilidade.QUARTA), not(hasItem(membro)));
+	}
+
+	@Test
+	public void inclusaoEmLote() throws Exception {
+		Membro anterior = new Membro("Membro anterior", "anterior@gmail.com");
+		anterior.addDisponibilidade(Disponibilidade.SEGUNDA);
+		dao.add(anterior);
+		List<Membro> membros = new ArrayList<Membro>();
+		for (int i = 0; i < 120; i++) {
+			Membro membro = new Membro("Membro " + i, "membro" + i + "@gmail.com");
+			membro.addDisponibilidade(Disponibilidade.values()[i % Disponibilidade.values().length]);
+			membros.add(membro);
+		}
+		assertThat(dao.addEmLote(membros), is(120));
+		// somente os membros do lote deixam a sessão da requisição
+		assertThat(getSession().contains(anterior), is(true));
+		assertThat(getSession().contains(membros.get(0)), is(false));
+		assertThat(dao.listarTodos(Membro.CLUBE_PADRAO), hasSize(121));
+		assertThat(MassaMembros.disponiveis(dao, Membro.CLUBE_PADRAO, Disponibilidade.SEXTA), hasSize(24));
+	}
+
+	@Test
+	public void remocaoDeTodosOsMembros() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			Membro membro = new Membro("Membro " + i, "membro" + i + "@gmail.com");
+			membro.addDisponibilidade(Disponibilidade.TERCA);
+			dao.add(membro);
+		}
+		Membro primeiro = dao.listarTodos(Membro.CLUBE_PADRAO).get(0);
+		Membro outroClube = new Membro("Membro andar2", "andar2@gmail.com");
+		outroClube.setClube("andar2");
+		outroClube.addDisponibilidade(Disponibilidade.QUARTA);
+		dao.add(outroClube);
+		assertThat(dao.removerTodos(Membro.CLUBE_PADRAO), is(3));
+		// somente os membros do clube removido deixam a sessão da requisição
+		assertThat(getSession().contains(primeiro), is(false));
+		assertThat(getSession().contains(outroClube), is(true));
+		assertThat(dao.listarTodos(Membro.CLUBE_PADRAO), hasSize(0));
+		assertThat(MassaMembros.disponiveis(dao, Membro.CLUBE_PADRAO, Disponibilidade.TERCA), hasSize(0));
+		assertThat(getSession().createSQLQuery("select count(*) from Membro_disponibilidades").uniqueResult().toString(), is("1"));
+	}
+
+	@Test
+	public void listagensCarregamMembrosComQtdFixaDeConsultas() throws Exception {
+		for (int i = 0; i < 20; i++) {
+			Membro membro = new Membro("Membro " + i, "membro" + i + "@gmail.com");
+			membro.addDisponibilidade(Disponibilidade.SEGUNDA);
+			if (i % 2 == 0)
+				membro.addDisponibilidade(Disponibilidade.SEXTA);
+			dao.add(membro);
+		}
+		getSession().flush();
+		getSession().clear();
+		Statistics estatisticas = getSession().getSessionFactory().getStatistics();
+		estatisticas.setStatisticsEnabled(true);
+		estatisticas.clear();
+
+		List<Membro> membros = dao.listarParaProgramacao(Membro.CLUBE_PADRAO);
+		assertThat(membros, hasSize(20));
+		assertThat(membros.get(0).getQtdDisponibilidades(), is(2));
+		assertThat(membros.get(19).getQtdDiasProgramados(), is(0));
+		assertThat(estatisticas.getPrepareStatementCount(), is(1L));
+
+		List<MembroResumo> resumos = dao.listarResumo(Membro.CLUBE_PADRAO);
+		assertThat(resumos, hasSize(20));
+		assertThat(resumos.get(0).getDisponibilidades(), contains(Disponibilidade.SEGUNDA, Disponibilidade.SEXTA));
+		assertThat(resumos.get(1).getDisponibilidades(), contains(Disponibilidade.SEGUNDA));
+		assertThat(estatisticas.getPrepareStatementCount(), is(2L));
+	}
+
+	@Test
+	public void listagemPaginadaPeloUltimoId() throws Exception {
+		List<Membro> membros = new ArrayList<Membro>();
+		for (int i = 0; i < 5; i++) {
+			Membro membro = new Membro("Membro " + i, "membro" + i + "@gmail.com");
+			membro.addDisponibilidade(Disponibilidade.SEGUNDA);
+			dao.add(membro);
+			membros.add(membro);
+		}
+		getSession().flush();
+
+		List<Membro> primeira = dao.listarPaginado(Membro.CLUBE_PADRAO, 0, 3);
+		assertThat(primeira, contains(membros.get(0), membros.get(1), membros.get(2)));
+		assertThat(primeira.get(0).possuiDisponibilidade(Disponibilidade.SEGUNDA), is(true));
+		assertThat(dao.listarPaginado(Membro.CLUBE_PADRAO, primeira.get(2).getId(), 3), contains(membros.get(3), membros.get(4)));
+		assertThat(dao.listarPaginado(Membro.CLUBE_PADRAO, membros.get(4).getId(), 3), hasSize(0));
+	}
+
+	@Test
+	public void membrosSeparadosPorClube() throws Exception {
+		VersaoMembros versao = new VersaoMembros();
+		dao = new DefaultMembroDao(getSession(), versao);
+		for (String clube : new String[] { "andar1", "andar2", "andar2" }) {
+			Membro membro = new Membro("Membro " + clube, clube + "@gmail.com");
+			membro.setClube(clube);
+			membro.addDisponibilidade(Disponibilidade.SEGUNDA);
+			dao.add(membro);
+		}
+		Membro semClube = new Membro("Membro padrão", "padrao@gmail.com");
+		semClube.setClube(" ");
+		semClube.addDisponibilidade(Disponibilidade.TERCA);
+		dao.add(semClube);
+
+		assertThat(dao.listarClubes(), contains("andar1", "andar2", Membro.CLUBE_PADRAO));
+		assertThat(dao.listarParaProgramacao("andar2"), hasSize(2));
+		assertThat(dao.listarParaProgramacao(Membro.CLUBE_PADRAO), contains(semClube));
+
+		// escrita em um clube não altera a versão dos demais, e a versão só muda após o commit
+		try {
+			commit();
+			long versaoAndar1 = versao.getVersao("andar1");
+			long versaoPadrao = versao.getVersao(Membro.CLUBE_PADRAO);
+			dao.remove(semClube);
+			assertThat(versao.getVersao(Membro.CLUBE_PADRAO), is(versaoPadrao));
+			commit();
+			assertThat(versao.getVersao("andar1"), is(versaoAndar1));
+			assertThat(versao.getVersao(Membro.CLUBE_PADRAO) > versaoAndar1, is(true));
+		} finally {
+			for (String clube : dao.listarClubes()) {
+				dao.removerTodos(clube);
+			}
+			commit();
+		}
+	}
+
+	@Test
+	public void listagensERemocaoSomenteDoClube() throws Exception {
+		VersaoMembros versao = new VersaoMembros();
+		dao = new DefaultMembroDao(getSession(), versao);
+		for (String clube : new String[] { "andar1", "andar1", "andar2" }) {
+			Membro membro = new Membro("Membro " + clube, clube + "@gmail.com");
+			membro.setClube(clube);
+			membro.addDisponibilidade(Disponibilidade.SEGUNDA);
+			dao.add(membro);
+		}
+		getSession().flush();
+
+		assertThat(dao.listarTodos("andar1"), hasSize(2));
+		assertThat(dao.listarResumo("andar2"), hasSize(1));
+		assertThat(dao.listarPaginado("andar1", 0, 10), hasSize(2));
+		assertThat(dao.contarTodos("andar2"), is(1L));
+
+		try {
+			commit();
+			long versaoAndar2 = versao.getVersao("andar2");
+			assertThat(dao.removerTodos("andar1"), is(2));
+			commit();
+			assertThat(dao.listarTodos("andar1"), hasSize(0));
+			assertThat(dao.listarTodos("andar2"), hasSize(1));
+			assertThat(MassaMembros.disponiveis(dao, "andar2", Disponibilidade.SEGUNDA), hasSize(1));
+			assertThat(getSession().createSQLQuery("select count(*) from Membro_disponibilidades").uniqueResult().toString(), is("1"));
+			assertThat(versao.getVersao("andar2"), is(versaoAndar2));
+		} finally {
+			dao.removerTodos("andar2");
+			commit();
+		}
+	}
+
+	@Test
+	public void versaoNaoMudaNoRollback() throws Exception {
+		VersaoMembros versao = new VersaoMembros();
+		dao = new DefaultMembroDao(getSession(), versao);
+		dao.add(new Membro("Membro 1", "membro1@gmail.com"));
+		getSession().getTransaction().rollback();
+		assertThat(versao.getVersao(), is(0L));
+	}
+
+	@Test
+	public void consultasEmCacheSaoInvalidadasNasEscritas() throws Exception {
+		Statistics estatisticas = getSession().getSessionFactory().getStatistics();
+		estatisticas.setStatisticsEnabled(true);
+		estatisticas.clear();
+
+		// o cache de consultas só é utilizado após o commit das escritas
+		try {
+			Membro membro = new Membro("Membro 1", "membro1@gmail.com");
+			membro.addDisponibilidade(Disponibilidade.TERCA);
+			dao.add(membro);
+			commit();
+
+			assertThat(dao.listarTodos(Membro.CLUBE_PADRAO), hasSize(1));
+			assertThat(dao.listarTodos(Membro.CLUBE_PADRAO), hasSize(1));
+			assertThat(estatisticas.getQueryCacheHitCount(), is(1L));
+
+			// escrita na tabela invalida a consulta em cache
+			dao.add(new Membro("Membro 2", "membro2@gmail.com"));
+			commit();
+			assertThat(dao.listarTodos(Membro.CLUBE_PADRAO), hasSize(2));
+			assertThat(estatisticas.getQueryCacheHitCount(), is(1L));
+
+			List<String> regioes = new ArrayList<String>();
+			for (EstatisticaCache estatistica : EstatisticaCache.listar(estatisticas)) {
+				regioes.add(estatistica.getRegiao());
+			}
+			assertThat(regioes, hasItem("membros"));
+			assertThat(regioes, hasItem(Membro.class.getName()));
+		} finally {
+			dao.removerTodos(Membro.CLUBE_PADRAO);
+			commit();
+		}
 	}
 
 	@Before
 	public void setUp() throws Exception {
-		dao = new DefaultMembroDao(getSession());
+		dao = new DefaultMembroDao(getSession(), new VersaoMembros());
 	}
 
 	@After
 	public void tearDown() throws Exception {
-		if (session != null && session.getTransaction().isActive()) {
-			session.getTransaction().rollback();
+		if (getSession().getTransaction().isActive()) {
+			getSession().getTransaction().rollback();
 		}
 	}
 
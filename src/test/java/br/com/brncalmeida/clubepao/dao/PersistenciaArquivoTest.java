@@ -0,0 +1,75 @@
+package br.com.brncalmeida.clubepao.dao;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import br.com.brncalmeida.clubepao.model.Disponibilidade;
+import br.com.brncalmeida.clubepao.model.MassaMembros;
+import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.services.EstatisticaPool;
+
+public class PersistenciaArquivoTest {
+
+	@Rule
+	public TemporaryFolder pasta = new TemporaryFolder();
+
+	@Test
+	public void membrosSobrevivemAoReinicioNoModoArquivo() throws Exception {
+		String url = "jdbc:hsqldb:file:" + new File(pasta.getRoot(), "clubePaoDB").getPath()
+				+ ";hsqldb.default_table_type=cached;hsqldb.cache_rows=1000;shutdown=true";
+
+		SessionFactory fabrica = criarSessionFactory(url);
+		try {
+			Session session = fabrica.openSession();
+			session.beginTransaction();
+			Membro membro = new Membro("Membro 1", "membro1@gmail.com");
+			membro.addDisponibilidade(Disponibilidade.QUINTA);
+			new DefaultMembroDao(session, new VersaoMembros()).add(membro);
+			session.getTransaction().commit();
+			session.close();
+
+			// pool c3p0 ativo e instrumentado
+			List<EstatisticaPool> pools = EstatisticaPool.listar();
+			assertThat(pools.isEmpty(), is(false));
+			assertThat(pools.get(0).getQtdConexoes(), greaterThan(0));
+		} finally {
+			fabrica.close();
+		}
+
+		// reabrindo o banco a partir dos arquivos
+		fabrica = criarSessionFactory(url);
+		try {
+			Session session = fabrica.openSession();
+			MembroDao dao = new DefaultMembroDao(session, new VersaoMembros());
+			assertThat(dao.contarTodos(Membro.CLUBE_PADRAO), is(1L));
+			assertThat(MassaMembros.disponiveis(dao, Membro.CLUBE_PADRAO, Disponibilidade.QUINTA).get(0).getNome(), is("Membro 1"));
+			assertThat(MassaMembros.disponiveis(dao, Membro.CLUBE_PADRAO, Disponibilidade.SEXTA).isEmpty(), is(true));
+			session.close();
+		} finally {
+			fabrica.close();
+		}
+	}
+
+	@SuppressWarnings("deprecation")
+	private SessionFactory criarSessionFactory(String url) {
+		Configuration cfg = new Configuration().configure();
+		cfg.setProperty("hibernate.connection.url", url);
+		cfg.setProperty("hibernate.dialect", "org.hibernate.dialect.HSQLDialect");
+		cfg.setProperty("hibernate.connection.driver_class", "org.hsqldb.jdbcDriver");
+		cfg.setProperty("hibernate.connection.username", "sa");
+		cfg.setProperty("hibernate.connection.password", "");
+		cfg.setProperty("hibernate.hbm2ddl.auto", "update");
+		return cfg.buildSessionFactory();
+	}
+}
@@ -0,0 +1,173 @@
+package br.com.brncalmeida.clubepao.dao;
+
+import static br.com.brncalmeida.clubepao.model.MassaMembros.copiar;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import br.com.brncalmeida.clubepao.controller.GenericTest;
+import br.com.brncalmeida.clubepao.model.Disponibilidade;
+import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.model.ProgramacaoSalva;
+import br.com.brncalmeida.clubepao.model.Schedule;
+
+public class ProgramacaoDaoTest extends GenericTest {
+
+	private static final LocalDate DATA_INICIAL = new LocalDate(2014, 4, 14);
+
+	private MembroDao membroDao;
+	private ProgramacaoDao dao;
+	private VersaoProgramacoes versao;
+
+	@Test
+	public void programacaoSalvaIgualAGerada() {
+		List<Membro> membros = criarMembros();
+		Schedule cronograma = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(30), membroDao.listarParaProgramacao(Membro.CLUBE_PADRAO));
+		dao.salvar(Membro.CLUBE_PADRAO, DATA_INICIAL, 30, cronograma);
+		getSession().flush();
+		getSession().clear();
+
+		ProgramacaoSalva salva = dao.buscar(Membro.CLUBE_PADRAO, DATA_INICIAL, 30);
+		assertThat(salva.getDias(), equalTo(cronograma.getProgramacaoPorId()));
+		assertThat(salva.getProgramacaoPorMembro(dao.buscarNomes(salva)), equalTo(cronograma.getProgramacaoPorMembro()));
+		assertThat(salva.getQtdMembros(), is(membros.size()));
+		assertThat(dao.buscar(Membro.CLUBE_PADRAO, DATA_INICIAL.plusDays(1), 30), nullValue());
+	}
+
+	@Test
+	public void novaGeracaoSubstituiProgramacaoDoPeriodo() {
+		criarMembros();
+		Schedule primeira = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(30), membroDao.listarParaProgramacao(Membro.CLUBE_PADRAO));
+		dao.salvar(Membro.CLUBE_PADRAO, DATA_INICIAL, 30, primeira);
+		Schedule outroPeriodo = new Schedule(DATA_INICIAL.plusDays(30), DATA_INICIAL.plusDays(60), membroDao.listarParaProgramacao(Membro.CLUBE_PADRAO));
+		dao.salvar(Membro.CLUBE_PADRAO, DATA_INICIAL.plusDays(30), 30, outroPeriodo);
+
+		// membro removido: o período é salvo novamente, sem ele
+		membroDao.remove(membroDao.listarTodos(Membro.CLUBE_PADRAO).get(0));
+		Schedule segunda = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(30), membroDao.listarParaProgramacao(Membro.CLUBE_PADRAO));
+		dao.salvar(Membro.CLUBE_PADRAO, DATA_INICIAL, 30, segunda);
+		getSession().flush();
+
+		List<ProgramacaoSalva> salvas = dao.listar(Membro.CLUBE_PADRAO);
+		assertThat(salvas, hasSize(2));
+		assertThat(salvas.get(0).getDataInicial(), equalTo(DATA_INICIAL.plusDays(30)));
+		assertThat(salvas.get(1).getDias(), equalTo(segunda.getProgramacaoPorId()));
+		assertThat(dao.listar("outro clube"), hasSize(0));
+	}
+
+	@Test
+	public void membroRemovidoIdentificadoPeloId() {
+		List<Membro> membros = criarMembros();
+		Schedule cronograma = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(30), membroDao.listarParaProgramacao(Membro.CLUBE_PADRAO));
+		ProgramacaoSalva salva = dao.salvar(Membro.CLUBE_PADRAO, DATA_INICIAL, 30, cronograma);
+
+		Membro removido = membros.get(0);
+		membroDao.remove(membroDao.getById(removido.getId()));
+		getSession().flush();
+		Map<Long, String> nomes = dao.buscarNomes(salva);
+		assertThat(nomes.containsKey(removido.getId()), is(false));
+		assertThat(salva.getProgramacaoPorMembro(nomes).containsValue("#" + removido.getId()), is(true));
+	}
+
+	@Test
+	public void cargaParteDasProgramacoesSalvasAntesDoPeriodo() {
+		criarMembros();
+		List<Membro> primeiros = membroDao.listarParaProgramacao(Membro.CLUBE_PADRAO);
+		Schedule primeiro = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(30), primeiros);
+		dao.salvar(Membro.CLUBE_PADRAO, DATA_INICIAL, 30, primeiro);
+		List<Membro> membros = copiar(primeiros);
+		Schedule segundo = new Schedule(DATA_INICIAL.plusDays(30), DATA_INICIAL.plusDays(60), membros);
+		dao.salvar(Membro.CLUBE_PADRAO, DATA_INICIAL.plusDays(30), 30, segundo);
+
+		// somente as programações anteriores ao período compõem a carga
+		List<Membro> carregados = membroDao.listarParaProgramacao(Membro.CLUBE_PADRAO);
+		dao.carregarDiasProgramados(Membro.CLUBE_PADRAO, DATA_INICIAL.plusDays(30), carregados);
+		assertThat(diasProgramados(carregados), equalTo(diasProgramados(primeiros)));
+		carregados = membroDao.listarParaProgramacao(Membro.CLUBE_PADRAO);
+		dao.carregarDiasProgramados(Membro.CLUBE_PADRAO, DATA_INICIAL.plusDays(60), carregados);
+		assertThat(diasProgramados(carregados), equalTo(diasProgramados(membros)));
+		carregados = membroDao.listarParaProgramacao(Membro.CLUBE_PADRAO);
+		dao.carregarDiasProgramados(Membro.CLUBE_PADRAO, DATA_INICIAL, carregados);
+		assertThat(diasProgramados(carregados), equalTo(diasProgramados(membroDao.listarParaProgramacao(Membro.CLUBE_PADRAO))));
+	}
+
+	@Test
+	public void alteracaoDePeriodoComPeriodosPosterioresIncrementaVersao() {
+		try {
+			criarMembros();
+			dao.salvar(Membro.CLUBE_PADRAO, DATA_INICIAL, 30,
+					new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(30), membroDao.listarParaProgramacao(Membro.CLUBE_PADRAO)));
+			dao.salvar(Membro.CLUBE_PADRAO, DATA_INICIAL.plusDays(30), 30,
+					new Schedule(DATA_INICIAL.plusDays(30), DATA_INICIAL.plusDays(60), membroDao.listarParaProgramacao(Membro.CLUBE_PADRAO)));
+			commit();
+			// o período mais recente não altera a versão
+			assertThat(versao.getVersao(Membro.CLUBE_PADRAO), is(0L));
+
+			// mesma programação salva novamente não altera a versão
+			dao.salvar(Membro.CLUBE_PADRAO, DATA_INICIAL, 30,
+					new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(30), membroDao.listarParaProgramacao(Membro.CLUBE_PADRAO)));
+			commit();
+			assertThat(versao.getVersao(Membro.CLUBE_PADRAO), is(0L));
+
+			membroDao.remove(membroDao.listarTodos(Membro.CLUBE_PADRAO).get(0));
+			dao.salvar(Membro.CLUBE_PADRAO, DATA_INICIAL, 30,
+					new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(30), membroDao.listarParaProgramacao(Membro.CLUBE_PADRAO)));
+			assertThat(versao.getVersao(Membro.CLUBE_PADRAO), is(0L));
+			commit();
+			assertThat(versao.getVersao(Membro.CLUBE_PADRAO), is(1L));
+			// os demais clubes mantêm a sua versão
+			assertThat(versao.getVersao("outro clube"), is(0L));
+		} finally {
+			getSession().createQuery("delete from ProgramacaoSalva").executeUpdate();
+			membroDao.removerTodos(Membro.CLUBE_PADRAO);
+			commit();
+		}
+	}
+
+	private static Map<Long, Set<LocalDate>> diasProgramados(List<Membro> membros) {
+		Map<Long, Set<LocalDate>> dias = new HashMap<Long, Set<LocalDate>>();
+		for (Membro membro : membros) {
+			dias.put(membro.getId(), membro.getDiasProgramados());
+		}
+		return dias;
+	}
+
+	private List<Membro> criarMembros() {
+		List<Membro> membros = new ArrayList<Membro>();
+		for (int i = 0; i < 4; i++) {
+			Membro membro = new Membro("Membro " + i, "membro" + i + "@gmail.com");
+			membro.addDisponibilidade(Disponibilidade.values()[i]);
+			membro.addDisponibilidade(Disponibilidade.SEXTA);
+			membroDao.add(membro);
+			membros.add(membro);
+		}
+		return membros;
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		membroDao = new DefaultMembroDao(getSession(), new VersaoMembros());
+		versao = new VersaoProgramacoes();
+		dao = new DefaultProgramacaoDao(getSession(), versao);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (getSession().getTransaction().isActive()) {
+			getSession().getTransaction().rollback();
+		}
+	}
+}
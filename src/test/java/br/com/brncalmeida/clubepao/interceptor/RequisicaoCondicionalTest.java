@@ -0,0 +1,179 @@
+package br.com.brncalmeida.clubepao.interceptor;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.junit.Before;
+import org.junit.Test;
+
+import br.com.brncalmeida.clubepao.controller.MembrosController;
+import br.com.brncalmeida.clubepao.dao.VersaoMembros;
+import br.com.brncalmeida.clubepao.dao.VersaoProgramacoes;
+import br.com.caelum.vraptor.core.InterceptorStack;
+import br.com.caelum.vraptor.resource.DefaultResourceMethod;
+import br.com.caelum.vraptor.resource.ResourceMethod;
+
+public class RequisicaoCondicionalTest {
+
+	private static final String ETAG = "\"abc-2\"";
+
+	private Mockery contexto;
+	private HttpServletRequest request;
+	private HttpServletResponse response;
+	private InterceptorStack stack;
+	private VersaoMembros versao;
+	private VersaoProgramacoes versaoProgramacoes;
+	private ResourceMethod index;
+
+	@Before
+	public void setUp() throws Exception {
+		contexto = new Mockery();
+		request = contexto.mock(HttpServletRequest.class);
+		response = contexto.mock(HttpServletResponse.class);
+		stack = contexto.mock(InterceptorStack.class);
+		versao = new VersaoMembros();
+		versaoProgramacoes = new VersaoProgramacoes();
+		index = DefaultResourceMethod.instanceFor(MembrosController.class, MembrosController.class.getMethod("index"));
+	}
+
+	@Test
+	public void somenteMetodosMarcados() throws Exception {
+		RequisicaoCondicional interceptor = new RequisicaoCondicional(request, response, versao, versaoProgramacoes);
+		assertThat(interceptor.accepts(index), is(true));
+		assertThat(interceptor.accepts(DefaultResourceMethod.instanceFor(MembrosController.class, MembrosController.class.getMethod("remover", long.class))),
+				is(false));
+	}
+
+	@Test
+	public void mesmaVersaoRespondeNaoModificadoSemExecutarOMetodo() {
+		versao.incrementar();
+		requisicao("GET", null, RequisicaoCondicional.etag(versao.getVersao(), versaoProgramacoes.getVersao()));
+		contexto.checking(new Expectations() {
+			{
+				oneOf(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				never(stack).next(with(any(ResourceMethod.class)), with(any(Object.class)));
+			}
+		});
+		new RequisicaoCondicional(request, response, versao, versaoProgramacoes).intercept(stack, index, null);
+		contexto.assertIsSatisfied();
+	}
+
+	@Test
+	public void versaoAlteradaExecutaOMetodo() {
+		String etagAnterior = RequisicaoCondicional.etag(versao.getVersao(), versaoProgramacoes.getVersao());
+		versao.incrementar("andar1");
+		assertThat(RequisicaoCondicional.etag(versao.getVersao(), versaoProgramacoes.getVersao()), not(etagAnterior));
+		requisicao("GET", null, etagAnterior);
+		contexto.checking(new Expectations() {
+			{
+				oneOf(stack).next(index, null);
+			}
+		});
+		new RequisicaoCondicional(request, response, versao, versaoProgramacoes).intercept(stack, index, null);
+		contexto.assertIsSatisfied();
+	}
+
+	@Test
+	public void programacoesSalvasAlteradasMudamOETag() {
+		String etagAnterior = RequisicaoCondicional.etag(versao.getVersao(), versaoProgramacoes.getVersao());
+		versaoProgramacoes.incrementar("andar1");
+		assertThat(RequisicaoCondicional.etag(versao.getVersao(), versaoProgramacoes.getVersao()), not(etagAnterior));
+	}
+
+	@Test
+	public void programacoesSalvasDeOutroClubeNaoMudamOETagDoClube() {
+		String etagAnterior = RequisicaoCondicional.etag(versao.getVersao("andar1"), versaoProgramacoes.getVersao("andar1"));
+		versaoProgramacoes.incrementar("andar2");
+		assertThat(versaoProgramacoes.getVersao("andar1"), is(0L));
+		requisicao("GET", " andar1 ", etagAnterior);
+		contexto.checking(new Expectations() {
+			{
+				oneOf(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				never(stack).next(with(any(ResourceMethod.class)), with(any(Object.class)));
+			}
+		});
+		new RequisicaoCondicional(request, response, versao, versaoProgramacoes).intercept(stack, index, null);
+		contexto.assertIsSatisfied();
+	}
+
+	@Test
+	public void membrosDeOutroClubeNaoMudamOETagDoClube() {
+		String etagAnterior = RequisicaoCondicional.etag(versao.getVersao("andar1"), versaoProgramacoes.getVersao("andar1"));
+		versao.incrementar("andar2");
+		assertThat(versao.getVersao("andar1"), is(0L));
+		requisicao("GET", " andar1 ", etagAnterior);
+		contexto.checking(new Expectations() {
+			{
+				oneOf(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				never(stack).next(with(any(ResourceMethod.class)), with(any(Object.class)));
+			}
+		});
+		new RequisicaoCondicional(request, response, versao, versaoProgramacoes).intercept(stack, index, null);
+		contexto.assertIsSatisfied();
+	}
+
+	@Test
+	public void membrosDoClubeMudamOETagDoClube() {
+		String etagAnterior = RequisicaoCondicional.etag(versao.getVersao("andar1"), versaoProgramacoes.getVersao("andar1"));
+		versao.incrementar("andar1");
+		requisicao("GET", "andar1", etagAnterior);
+		contexto.checking(new Expectations() {
+			{
+				never(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				oneOf(stack).next(index, null);
+			}
+		});
+		new RequisicaoCondicional(request, response, versao, versaoProgramacoes).intercept(stack, index, null);
+		contexto.assertIsSatisfied();
+	}
+
+	@Test
+	public void validacaoDoConteudoDoCliente() {
+		assertThat(RequisicaoCondicional.naoModificado(ETAG, -1, ETAG, 1000), is(true));
+		assertThat(RequisicaoCondicional.naoModificado("\"abc-1\", W/" + ETAG, -1, ETAG, 1000), is(true));
+		assertThat(RequisicaoCondicional.naoModificado("*", -1, ETAG, 1000), is(true));
+		assertThat(RequisicaoCondicional.naoModificado("\"abc-1\"", -1, ETAG, 1000), is(false));
+		// If-Modified-Since somente sem If-None-Match
+		assertThat(RequisicaoCondicional.naoModificado("\"abc-1\"", 5000, ETAG, 1000), is(false));
+		assertThat(RequisicaoCondicional.naoModificado(null, 1000, ETAG, 1000), is(true));
+		assertThat(RequisicaoCondicional.naoModificado(null, 999, ETAG, 1000), is(false));
+		assertThat(RequisicaoCondicional.naoModificado(null, -1, ETAG, 1000), is(false));
+		// alteração no segundo atual: somente o ETag
+		assertThat(RequisicaoCondicional.naoModificado(null, 5000, ETAG, -1), is(false));
+	}
+
+	@Test
+	public void dataDaUltimaAlteracaoSomenteAposOSegundoDaAlteracao() {
+		assertThat(RequisicaoCondicional.dataUltimaAlteracao(1500, 1999), is(-1L));
+		assertThat(RequisicaoCondicional.dataUltimaAlteracao(1500, 2000), is(1000L));
+		assertThat(RequisicaoCondicional.dataUltimaAlteracao(1500, 9000), is(1000L));
+	}
+
+	/**
+	 * requisição original (sem forward) com o ETag informado pelo cliente
+	 */
+	private void requisicao(final String metodo, final String clube, final String ifNoneMatch) {
+		contexto.checking(new Expectations() {
+			{
+				allowing(request).getMethod();
+				will(returnValue(metodo));
+				allowing(request).getParameter("clube");
+				will(returnValue(clube));
+				allowing(request).getAttribute(with(any(String.class)));
+				will(returnValue(null));
+				allowing(request).getHeader("If-None-Match");
+				will(returnValue(ifNoneMatch));
+				allowing(request).getDateHeader("If-Modified-Since");
+				will(returnValue(-1L));
+				allowing(response).setHeader(with(any(String.class)), with(any(String.class)));
+				allowing(response).setDateHeader(with(any(String.class)), with(any(Long.class)));
+			}
+		});
+	}
+}
@@ -0,0 +1,103 @@
+package br.com.brncalmeida.clubepao.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import br.com.brncalmeida.clubepao.dao.MembroDao;
+
+/**
+ * Massa de membros compartilhada pelos testes e benchmarks: populações sintéticas reproduzíveis a partir de uma semente, cópia dos membros e inclusão de
+ * membros na base.
+ *
+ * @author bruno.almeida
+ *
+ */
+public final class MassaMembros {
+
+	public static final long SEMENTE = 20140414L;
+
+	private MassaMembros() {
+	}
+
+	/**
+	 * cria membros (com id, de 1 a qtd) com 1 a 5 disponibilidades aleatórias, porém reproduzíveis a partir da semente
+	 *
+	 * @param qtd
+	 *            qtd de membros
+	 * @param semente
+	 *            semente do gerador aleatório
+	 * @return membros gerados
+	 */
+	public static List<Membro> criarMembros(int qtd, long semente) {
+		Random random = new Random(semente);
+		List<Membro> membros = new ArrayList<Membro>(qtd);
+		for (int i = 0; i < qtd; i++) {
+			Membro membro = new Membro("Membro " + i, "m" + i + "@gmail.com");
+			membro.setId(Long.valueOf(i + 1));
+			int qtdDisponibilidades = 1 + random.nextInt(Disponibilidade.values().length);
+			for (int j = 0; j < qtdDisponibilidades; j++) {
+				membro.addDisponibilidade(Disponibilidade.values()[random.nextInt(Disponibilidade.values().length)]);
+			}
+			membros.add(membro);
+		}
+		return membros;
+	}
+
+	/**
+	 * cópia dos membros ({@link Membro#copiar()}), simulando uma nova leitura da base
+	 *
+	 * @param membros
+	 *            membros a serem copiados
+	 * @return cópias dos membros
+	 */
+	public static List<Membro> copiar(List<Membro> membros) {
+		List<Membro> copia = new ArrayList<Membro>(membros.size());
+		for (Membro membro : membros) {
+			copia.add(membro.copiar());
+		}
+		return copia;
+	}
+
+	/**
+	 * membros do clube com a disponibilidade informada, em ordem de id
+	 *
+	 * @param dao
+	 *            dao dos membros
+	 * @param clube
+	 *            clube dos membros
+	 * @param disponibilidade
+	 *            disponibilidade buscada
+	 * @return membros disponíveis
+	 */
+	public static List<Membro> disponiveis(MembroDao dao, String clube, Disponibilidade disponibilidade) {
+		List<Membro> disponiveis = new ArrayList<Membro>();
+		for (Membro membro : dao.listarTodos(clube)) {
+			if (membro.possuiDisponibilidade(disponibilidade))
+				disponiveis.add(membro);
+		}
+		return disponiveis;
+	}
+
+	/**
+	 * inclui um membro do clube padrão na base
+	 *
+	 * @param dao
+	 *            dao dos membros
+	 * @param nome
+	 *            nome do membro
+	 * @param email
+	 *            e-mail do membro
+	 * @param disponibilidades
+	 *            disponibilidades do membro
+	 * @return membro incluído
+	 */
+	public static Membro adicionar(MembroDao dao, String nome, String email, Disponibilidade... disponibilidades) {
+		Membro membro = new Membro(nome, email);
+		for (Disponibilidade disponibilidade : disponibilidades) {
+			membro.addDisponibilidade(disponibilidade);
+		}
+		dao.add(membro);
+		return membro;
+	}
+}
@@ -0,0 +1,451 @@
+package br.com.brncalmeida.clubepao.model;
+
+import static br.com.brncalmeida.clubepao.model.MassaMembros.copiar;
+import static br.com.brncalmeida.clubepao.model.MassaMembros.criarMembros;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+public class ScheduleTest {
+
+	private static final LocalDate DATA_INICIAL = new LocalDate(2014, 4, 14);
+
+	@Test
+	public void alocadorIndexadoIgualAoSequencial() {
+		for (int qtd : new int[] { 1, 3, 7, 40, 300 }) {
+			Schedule sequencial = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(90), criarMembros(qtd, qtd), new AlocadorSequencial());
+			Schedule indexado = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(90), criarMembros(qtd, qtd), new AlocadorIndexado());
+			assertThat(indexado.getProgramacaoPorMembro(), equalTo(sequencial.getProgramacaoPorMembro()));
+			assertThat(indexado.getProgramacaoSobrecarga(), equalTo(sequencial.getProgramacaoSobrecarga()));
+		}
+	}
+
+	@Test
+	public void alocadorIndexadoConsideraProgramacoesAnteriores() {
+		List<Membro> paraSequencial = criarMembros(20, 1);
+		List<Membro> paraIndexado = criarMembros(20, 1);
+		for (int i = 0; i < 20; i += 3) {
+			paraSequencial.get(i).addDiaProgramado(DATA_INICIAL.minusDays(i + 1));
+			paraIndexado.get(i).addDiaProgramado(DATA_INICIAL.minusDays(i + 1));
+		}
+		Schedule sequencial = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(30), paraSequencial, new AlocadorSequencial());
+		Schedule indexado = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(30), paraIndexado, new AlocadorIndexado());
+		assertThat(indexado.getProgramacaoPorMembro(), equalTo(sequencial.getProgramacaoPorMembro()));
+	}
+
+	@Test
+	public void alocadorIncrementalIgualAoIndexadoAposAlteracoes() {
+		Random random = new Random(7);
+		List<Membro> base = criarMembros(60, 7);
+		AlocadorIncremental incremental = new AlocadorIncremental();
+		long proximoId = 100000;
+		for (int i = 0; i < 40; i++) {
+			switch (random.nextInt(3)) {
+			case 0:
+				Membro novo = new Membro("Novo " + proximoId, "n" + proximoId + "@gmail.com");
+				novo.setId(proximoId++);
+				novo.addDisponibilidade(Disponibilidade.values()[random.nextInt(Disponibilidade.values().length)]);
+				base.add(novo);
+				break;
+			case 1:
+				base.remove(random.nextInt(base.size()));
+				break;
+			default:
+				Membro alterado = base.get(random.nextInt(base.size()));
+				alterado.addDisponibilidade(Disponibilidade.values()[random.nextInt(Disponibilidade.values().length)]);
+			}
+			Schedule indexado = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(60), copiar(base), new AlocadorIndexado());
+			Schedule parcial = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(60), copiar(base), incremental);
+			assertThat(parcial.getProgramacaoPorMembro(), equalTo(indexado.getProgramacaoPorMembro()));
+			assertThat(parcial.getProgramacaoSobrecarga(), equalTo(indexado.getProgramacaoSobrecarga()));
+		}
+	}
+
+	@Test
+	public void alocadorIncrementalRecalculaSomenteDiasAfetados() {
+		List<Membro> base = criarMembros(200, 3);
+		AlocadorIncremental incremental = new AlocadorIncremental();
+		new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(90), copiar(base), incremental);
+		int qtdDias = incremental.getQtdDiasRecalculados();
+
+		// mesmos membros: nada a recalcular
+		new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(90), copiar(base), incremental);
+		assertThat(incremental.getQtdDiasRecalculados(), equalTo(0));
+
+		// membro novo, com programação anterior, só disputa as sextas em que todos já foram programados
+		Membro novo = new Membro("Novo", "novo@gmail.com");
+		novo.setId(Long.MAX_VALUE - 1);
+		novo.addDiaProgramado(DATA_INICIAL.minusDays(1));
+		novo.addDisponibilidade(Disponibilidade.SEXTA);
+		base.add(novo);
+		Schedule parcial = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(90), copiar(base), incremental);
+		assertThat(incremental.getQtdDiasRecalculados(), lessThan(qtdDias));
+
+		Schedule indexado = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(90), copiar(base), new AlocadorIndexado());
+		assertThat(parcial.getProgramacaoPorMembro(), equalTo(indexado.getProgramacaoPorMembro()));
+	}
+
+	@Test
+	public void alocadorFluxoCobreDiasQueOIndexadoDeixaVazios() {
+		// segunda e terça: o indexado programa na segunda o membro menos sobrecarregado, o único disponível na terça
+		LocalDate dataFinal = DATA_INICIAL.plusDays(2);
+		Schedule indexado = new Schedule(DATA_INICIAL, dataFinal, criarMembrosSegundaETerca(), new AlocadorIndexado());
+		Schedule fluxo = new Schedule(DATA_INICIAL, dataFinal, criarMembrosSegundaETerca(), new AlocadorFluxo());
+
+		assertThat(indexado.getProgramacaoPorMembro().get(DATA_INICIAL.plusDays(1).toDate()), equalTo(null));
+		assertThat(fluxo.getProgramacaoPorMembro().get(DATA_INICIAL.toDate()), equalTo("Sobrecarregado"));
+		assertThat(fluxo.getProgramacaoPorMembro().get(DATA_INICIAL.plusDays(1).toDate()), equalTo("Segunda e terça"));
+	}
+
+	@Test
+	public void alocadorFluxoRespeitaDisponibilidadesESemanas() {
+		for (int qtd : new int[] { 1, 3, 7, 40, 300 }) {
+			List<Membro> membros = criarMembros(qtd, qtd);
+			for (int i = 0; i < qtd; i += 4) {
+				membros.get(i).addDiaProgramado(DATA_INICIAL.minusWeeks(i + 1));
+			}
+			Schedule indexado = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(90), copiar(membros), new AlocadorIndexado());
+			Schedule fluxo = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(90), membros, new AlocadorFluxo());
+
+			assertTrue(fluxo.isAlocacaoCompleta());
+			assertTrue(indexado.isAlocacaoCompleta());
+			assertThat(qtdDiasVazios(fluxo), lessThanOrEqualTo(qtdDiasVazios(indexado)));
+			Calendario calendario = fluxo.getCalendario();
+			for (int semana = 0; semana < calendario.getQtdSemanas(); semana++) {
+				Set<Membro> programados = new HashSet<Membro>();
+				for (int dia = calendario.getInicioSemana(semana); dia < calendario.getFimSemana(semana); dia++) {
+					Membro membro = calendario.getMembro(dia);
+					if (membro != null) {
+						assertTrue(programados.add(membro));
+						assertTrue(membro.possuiDisponibilidade(Disponibilidade.getDisponibilidadeById(calendario.getDiaDaSemana(dia))));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void alocadorFluxoSemTempoIgualAoIndexado() {
+		AlocadorFluxo alocador = new AlocadorFluxo(0);
+		Schedule fluxo = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(90), criarMembros(40, 3), alocador);
+		Schedule indexado = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(90), criarMembros(40, 3), new AlocadorIndexado());
+
+		assertThat(fluxo.isAlocacaoCompleta(), is(false));
+		// com tempo suficiente a mesma alocação é concluída
+		assertThat(new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(90), criarMembros(40, 3), new AlocadorFluxo()).isAlocacaoCompleta(), is(true));
+		assertThat(fluxo.getProgramacaoPorMembro(), equalTo(indexado.getProgramacaoPorMembro()));
+	}
+
+	@Test
+	public void alocadorFluxoComMilharesDeMembrosNoTempo() {
+		List<Membro> membros = criarMembros(5000, 11);
+		Schedule fluxo = new Schedule(DATA_INICIAL, DATA_INICIAL.plusYears(1), membros, new AlocadorFluxo());
+
+		assertTrue(fluxo.isAlocacaoCompleta());
+		assertThat(qtdDiasVazios(fluxo), equalTo(0));
+		assertThat(diferencaDeCarga(membros), lessThanOrEqualTo(1));
+	}
+
+	@Test
+	public void estatisticasAcumuladasNaGeracao() {
+		List<Membro> membros = criarMembros(7, 7);
+		Schedule cronograma = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(60), membros);
+
+		int comMembro = 0;
+		int semMembro = 0;
+		for (Disponibilidade disponibilidade : Disponibilidade.values()) {
+			comMembro += cronograma.getQtdDiasComMembro().get(disponibilidade);
+			semMembro += cronograma.getQtdDiasSemMembro().get(disponibilidade);
+			if (cronograma.getQtdDiasSemMembro().get(disponibilidade) > 0)
+				assertTrue(cronograma.getSugestao().getDisponibilidadesAusentes().contains(disponibilidade.toString()));
+		}
+		assertThat(comMembro + semMembro, equalTo(cronograma.getProgramacaoPorMembro().size()));
+		assertThat(semMembro, equalTo(qtdDiasVazios(cronograma)));
+		assertThat(comMembro, equalTo(qtdDiasProgramados(membros)));
+
+		assertThat(cronograma.getEstatisticaCargas().getQtd(), equalTo((long) membros.size()));
+		assertThat(cronograma.getEstatisticaCargas().getSoma(), closeTo(qtdDiasProgramados(membros), 1e-9));
+		assertThat((int) cronograma.getEstatisticaCargas().getMaximo() - (int) cronograma.getEstatisticaCargas().getMinimo(), equalTo(diferencaDeCarga(membros)));
+	}
+
+	@Test
+	public void contagensDaAlocacaoIguaisAosDiasProgramados() {
+		ForkJoinPool pool = new ForkJoinPool(2);
+		AlocadorIncremental incremental = new AlocadorIncremental();
+		try {
+			List<Membro> base = criarMembros(40, 9);
+			for (int i = 0; i < base.size(); i += 3) {
+				base.get(i).addDiaProgramado(DATA_INICIAL.minusDays(i + 1));
+			}
+			Alocador[] alocadores = { new AlocadorSequencial(), new AlocadorIndexado(), new AlocadorFluxo(), new AlocadorParalelo(pool), incremental, incremental };
+			for (Alocador alocador : alocadores) {
+				List<Membro> membros = copiar(base);
+				Schedule cronograma = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(90), membros, alocador);
+				base.remove(base.size() - 1);
+
+				// dias com e sem membro por dia da semana iguais aos do calendário
+				Calendario calendario = cronograma.getCalendario();
+				Map<Disponibilidade, Integer> comMembro = new TreeMap<Disponibilidade, Integer>();
+				Map<Disponibilidade, Integer> semMembro = new TreeMap<Disponibilidade, Integer>();
+				for (Disponibilidade disponibilidade : Disponibilidade.values()) {
+					comMembro.put(disponibilidade, 0);
+					semMembro.put(disponibilidade, 0);
+				}
+				for (int dia = 0; dia < calendario.getQtdDias(); dia++) {
+					Map<Disponibilidade, Integer> qtds = calendario.getMembro(dia) == null ? semMembro : comMembro;
+					Disponibilidade disponibilidade = Disponibilidade.getDisponibilidadeById(calendario.getDiaDaSemana(dia));
+					qtds.put(disponibilidade, qtds.get(disponibilidade) + 1);
+				}
+				assertThat(cronograma.getQtdDiasComMembro(), equalTo(comMembro));
+				assertThat(cronograma.getQtdDiasSemMembro(), equalTo(semMembro));
+
+				// dias de cada membro por dia da semana iguais aos dias programados
+				for (Membro membro : membros) {
+					for (Disponibilidade disponibilidade : Disponibilidade.values()) {
+						int qtd = 0;
+						for (LocalDate dia : membro.getDiasProgramados()) {
+							if (dia.getDayOfWeek() == disponibilidade.getId())
+								qtd++;
+						}
+						assertThat(membro.getQtdDiasProgramados(disponibilidade), equalTo(qtd));
+					}
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void semanasDoCalendarioIguaisAoRangeDeCadaSemana() {
+		// inícios em todos os dias da semana, inclusive domingo, e finais no meio da semana
+		for (int inicio = 0; inicio < 7; inicio++) {
+			for (int qtdDias : new int[] { 0, 1, 6, 13, 45 }) {
+				LocalDate dataInicial = DATA_INICIAL.plusDays(inicio);
+				LocalDate dataFinal = dataInicial.plusDays(qtdDias);
+				List<Semana> semanas = new Periodo(dataInicial, dataFinal).getSemanas();
+
+				List<Map<LocalDate, Membro>> esperadas = new ArrayList<Map<LocalDate, Membro>>();
+				for (LocalDate dia = dataInicial; dia.isBefore(dataFinal);) {
+					LocalDate domingo = dia.plusDays(7 - dia.getDayOfWeek());
+					LocalDate fim = domingo.isAfter(dataFinal) ? dataFinal : domingo;
+					esperadas.add(new Semana(dia, fim).getDias());
+					dia = fim.plusDays(1);
+				}
+
+				assertThat(semanas.size(), equalTo(esperadas.size()));
+				for (int i = 0; i < semanas.size(); i++) {
+					assertThat(new TreeMap<LocalDate, Membro>(semanas.get(i).getDias()), equalTo(new TreeMap<LocalDate, Membro>(esperadas.get(i))));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void cronogramaDoCalendarioIgualAoMapaOrdenado() {
+		Schedule cronograma = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(60), criarMembros(7, 7));
+		Map<Date, String> programacao = cronograma.getProgramacaoPorMembro();
+		Map<Date, String> ordenado = new TreeMap<Date, String>(programacao);
+
+		assertThat(programacao, equalTo(ordenado));
+		assertThat(new ArrayList<Date>(programacao.keySet()), equalTo(new ArrayList<Date>(ordenado.keySet())));
+		for (Date dia : ordenado.keySet()) {
+			assertThat(programacao.containsKey(dia), is(true));
+			assertThat(programacao.get(dia), equalTo(ordenado.get(dia)));
+		}
+		assertThat(programacao.containsKey(DATA_INICIAL.minusDays(1).toDate()), is(false));
+		assertThat(cronograma.getProgramacaoPorId().keySet(), equalTo(cronograma.getCalendario().getIds().keySet()));
+	}
+
+	@Test
+	public void trechoDoCronogramaIgualAoMapaFiltrado() {
+		Schedule cronograma = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(60), criarMembros(7, 7));
+		TreeMap<Date, String> ordenado = new TreeMap<Date, String>(cronograma.getProgramacaoPorMembro());
+
+		// trechos dentro, nas bordas e fora do período, inclusive iniciando em fins de semana
+		for (int inicio = -10; inicio < 70; inicio += 3) {
+			for (int qtdDias : new int[] { 1, 7, 31 }) {
+				LocalDate primeiro = DATA_INICIAL.plusDays(inicio);
+				LocalDate ultimo = primeiro.plusDays(qtdDias - 1);
+				Map<Date, String> trecho = cronograma.getProgramacaoPorMembro(primeiro, ultimo);
+				Map<Date, String> esperado = ordenado.subMap(primeiro.toDate(), true, ultimo.toDate(), true);
+				assertThat(trecho, equalTo(esperado));
+				assertThat(new ArrayList<Date>(trecho.keySet()), equalTo(new ArrayList<Date>(esperado.keySet())));
+				assertThat(trecho.containsKey(primeiro.minusDays(1).toDate()), is(false));
+			}
+		}
+		assertThat(cronograma.getProgramacaoPorMembro(DATA_INICIAL.plusDays(5), DATA_INICIAL).isEmpty(), is(true));
+	}
+
+	@Test
+	public void visoesCalculadasSobDemandaIguaisEntreThreads() throws Exception {
+		final Schedule cronograma = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(60), criarMembros(7, 7));
+		Schedule referencia = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(60), criarMembros(7, 7));
+
+		// primeiro acesso concorrente às visões de uma programação compartilhada
+		ExecutorService threads = Executors.newFixedThreadPool(8);
+		List<Future<Map<Integer, String>>> sobrecargas = new ArrayList<Future<Map<Integer, String>>>();
+		for (int i = 0; i < 8; i++) {
+			sobrecargas.add(threads.submit(new Callable<Map<Integer, String>>() {
+				@Override
+				public Map<Integer, String> call() {
+					cronograma.getSugestao();
+					return cronograma.getProgramacaoSobrecarga();
+				}
+			}));
+		}
+		for (Future<Map<Integer, String>> sobrecarga : sobrecargas) {
+			assertThat(sobrecarga.get(), equalTo(referencia.getProgramacaoSobrecarga()));
+		}
+		threads.shutdown();
+		assertThat(cronograma.getSugestao(), is(cronograma.getSugestao()));
+		assertThat(cronograma.getSugestao().getDisponibilidadesAusentes(), equalTo(referencia.getSugestao().getDisponibilidadesAusentes()));
+		assertThat(cronograma.getEstatisticaCargas().getMedia(), equalTo(referencia.getEstatisticaCargas().getMedia()));
+		assertThat(cronograma.getQtdDiasSemMembro(), equalTo(referencia.getQtdDiasSemMembro()));
+	}
+
+	@Test
+	public void semanaAlteraDiaNoCalendario() {
+		Periodo periodo = new Periodo(DATA_INICIAL, DATA_INICIAL.plusDays(14));
+		Membro membro = criarMembros(1, 1).get(0);
+		Map.Entry<LocalDate, Membro> dia = periodo.getSemanas().get(1).getDias().entrySet().iterator().next();
+		dia.setValue(membro);
+
+		Calendario calendario = periodo.getCalendario();
+		assertThat(calendario.getMembro(calendario.getPosicao(dia.getKey())), equalTo(membro));
+		assertThat(periodo.existeMembro(membro), is(true));
+		assertThat(periodo.getSemanas().get(0).existeMembro(membro), is(false));
+		periodo.resetarProgramacaoMembros();
+		assertThat(periodo.existeMembro(membro), is(false));
+	}
+
+	@Test
+	public void alocadorParaleloEquivalenteAoSequencial() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (LocalDate dataFinal : new LocalDate[] { DATA_INICIAL.plusDays(30), DATA_INICIAL.plusYears(1) }) {
+				for (int qtd : new int[] { 40, 300, 3000 }) {
+					List<Membro> paraSequencial = criarMembros(qtd, qtd);
+					List<Membro> paraParalelo = criarMembros(qtd, qtd);
+					Schedule sequencial = new Schedule(DATA_INICIAL, dataFinal, paraSequencial, new AlocadorSequencial());
+					Schedule paralelo = new Schedule(DATA_INICIAL, dataFinal, paraParalelo, new AlocadorParalelo(pool));
+
+					// mesmos dias cobertos, mesma qtd de programações e carga no máximo tão desequilibrada quanto a sequencial
+					assertThat(qtdDiasVazios(paralelo), equalTo(qtdDiasVazios(sequencial)));
+					assertThat(qtdDiasProgramados(paraParalelo), equalTo(qtdDiasProgramados(paraSequencial)));
+					assertThat(diferencaDeCarga(paraParalelo), lessThanOrEqualTo(diferencaDeCarga(paraSequencial)));
+					Calendario calendario = paralelo.getCalendario();
+					for (int semana = 0; semana < calendario.getQtdSemanas(); semana++) {
+						Set<Membro> programados = new HashSet<Membro>();
+						for (int dia = calendario.getInicioSemana(semana); dia < calendario.getFimSemana(semana); dia++) {
+							Membro membro = calendario.getMembro(dia);
+							if (membro != null) {
+								assertTrue(programados.add(membro));
+								assertTrue(membro.possuiDisponibilidade(Disponibilidade.getDisponibilidadeById(calendario.getDiaDaSemana(dia))));
+							}
+						}
+					}
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void alocadorParaleloReproduzivel() {
+		ForkJoinPool umaThread = new ForkJoinPool(1);
+		ForkJoinPool quatroThreads = new ForkJoinPool(4);
+		try {
+			Schedule primeiro = new Schedule(DATA_INICIAL, DATA_INICIAL.plusYears(1), criarMembros(500, 5), new AlocadorParalelo(umaThread));
+			Schedule segundo = new Schedule(DATA_INICIAL, DATA_INICIAL.plusYears(1), criarMembros(500, 5), new AlocadorParalelo(quatroThreads));
+			assertThat(segundo.getProgramacaoPorMembro(), equalTo(primeiro.getProgramacaoPorMembro()));
+		} finally {
+			umaThread.shutdown();
+			quatroThreads.shutdown();
+		}
+	}
+
+	@Test
+	public void alocadorParaleloComPoucosMembrosIgualAoSequencial() {
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			Schedule sequencial = new Schedule(DATA_INICIAL, DATA_INICIAL.plusYears(1), criarMembros(7, 7), new AlocadorSequencial());
+			Schedule paralelo = new Schedule(DATA_INICIAL, DATA_INICIAL.plusYears(1), criarMembros(7, 7), new AlocadorParalelo(pool));
+			assertThat(paralelo.getProgramacaoPorMembro(), equalTo(sequencial.getProgramacaoPorMembro()));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static int qtdDiasVazios(Schedule cronograma) {
+		int qtd = 0;
+		for (String membro : cronograma.getProgramacaoPorMembro().values()) {
+			if (membro == null)
+				qtd++;
+		}
+		return qtd;
+	}
+
+	/**
+	 * um membro disponível na segunda e na terça e outro somente na segunda, porém com mais programações anteriores
+	 */
+	private static List<Membro> criarMembrosSegundaETerca() {
+		Membro segundaETerca = new Membro("Segunda e terça", "st@gmail.com");
+		segundaETerca.setId(1L);
+		segundaETerca.addDisponibilidade(Disponibilidade.SEGUNDA);
+		segundaETerca.addDisponibilidade(Disponibilidade.TERCA);
+		Membro sobrecarregado = new Membro("Sobrecarregado", "s@gmail.com");
+		sobrecarregado.setId(2L);
+		sobrecarregado.addDisponibilidade(Disponibilidade.SEGUNDA);
+		for (int i = 1; i <= 5; i++) {
+			sobrecarregado.addDiaProgramado(DATA_INICIAL.minusWeeks(i));
+		}
+		List<Membro> membros = new ArrayList<Membro>();
+		membros.add(segundaETerca);
+		membros.add(sobrecarregado);
+		return membros;
+	}
+
+	private static int qtdDiasProgramados(List<Membro> membros) {
+		int qtd = 0;
+		for (Membro membro : membros) {
+			qtd += membro.getQtdDiasProgramados();
+		}
+		return qtd;
+	}
+
+	/**
+	 * diferença entre a maior e a menor carga dos membros
+	 */
+	private static int diferencaDeCarga(List<Membro> membros) {
+		int menor = Integer.MAX_VALUE;
+		int maior = 0;
+		for (Membro membro : membros) {
+			menor = Math.min(menor, membro.getQtdDiasProgramados());
+			maior = Math.max(maior, membro.getQtdDiasProgramados());
+		}
+		return maior - menor;
+	}
+}
@@ -0,0 +1,48 @@
+package br.com.brncalmeida.clubepao.services;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import br.com.brncalmeida.clubepao.model.Disponibilidade;
+import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.model.Schedule;
+
+public class CacheCronogramasTest {
+
+	private static final LocalDate DATA_INICIAL = new LocalDate(2014, 3, 3);
+
+	private CacheCronogramas cache = new CacheCronogramas();
+
+	@Test
+	public void buscaNaoCriaParticao() {
+		assertThat(cache.buscar("andar1", DATA_INICIAL, 30, ModoAlocacao.INCREMENTAL, 1, 0), nullValue());
+		assertThat(cache.getQtdClubes(), is(0));
+		assertThat(cache.getFalhas(), is(1L));
+
+		Membro membro = new Membro("Membro 1", "membro1@gmail.com");
+		membro.addDisponibilidade(Disponibilidade.SEGUNDA);
+		Schedule cronograma = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(30), Arrays.asList(membro));
+		cache.adicionar("andar1", DATA_INICIAL, 30, ModoAlocacao.INCREMENTAL, 1, 0, cronograma);
+		assertThat(cache.getQtdClubes(), is(1));
+		assertThat(cache.buscar("andar1", DATA_INICIAL, 30, ModoAlocacao.INCREMENTAL, 1, 0), sameInstance(cronograma));
+		assertThat(cache.buscar("andar2", DATA_INICIAL, 30, ModoAlocacao.INCREMENTAL, 1, 0), nullValue());
+		assertThat(cache.getQtdClubes(), is(1));
+	}
+
+	@Test
+	public void programacoesSalvasAlteradasInvalidamOCache() {
+		Membro membro = new Membro("Membro 1", "membro1@gmail.com");
+		membro.addDisponibilidade(Disponibilidade.SEGUNDA);
+		Schedule cronograma = new Schedule(DATA_INICIAL, DATA_INICIAL.plusDays(30), Arrays.asList(membro));
+		cache.adicionar("andar1", DATA_INICIAL, 30, ModoAlocacao.INCREMENTAL, 1, 0, cronograma);
+		assertThat(cache.buscar("andar1", DATA_INICIAL, 30, ModoAlocacao.INCREMENTAL, 1, 0), sameInstance(cronograma));
+		assertThat(cache.buscar("andar1", DATA_INICIAL, 30, ModoAlocacao.INCREMENTAL, 1, 1), nullValue());
+	}
+}
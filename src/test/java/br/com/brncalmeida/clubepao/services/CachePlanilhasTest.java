@@ -0,0 +1,182 @@
+package br.com.brncalmeida.clubepao.services;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import br.com.brncalmeida.clubepao.controller.GenericTest;
+import br.com.brncalmeida.clubepao.dao.DefaultMembroDao;
+import br.com.brncalmeida.clubepao.dao.MembroDao;
+import br.com.brncalmeida.clubepao.dao.VersaoMembros;
+import br.com.brncalmeida.clubepao.model.Disponibilidade;
+import br.com.brncalmeida.clubepao.model.MassaMembros;
+import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.services.impl.DefaultExcelFileService;
+
+public class CachePlanilhasTest extends GenericTest {
+
+	private MembroDao dao;
+	private ExcelFileService planilha;
+	private CachePlanilhas cache;
+
+	@Before
+	public void setUp() {
+		VersaoMembros versao = new VersaoMembros();
+		dao = new DefaultMembroDao(getSession(), versao);
+		planilha = new DefaultExcelFileService(dao, getLocalization());
+		cache = new CachePlanilhas(versao);
+	}
+
+	@Test
+	public void planilhaGeradaUmaVezPorVersao() throws Exception {
+		MassaMembros.adicionar(dao, "Membro x", "x@gmail.com", Disponibilidade.SEGUNDA);
+		File gerada = cache.getPlanilhaAtual(planilha, Membro.CLUBE_PADRAO);
+		assertThat(gerada.length(), greaterThan(0L));
+		assertThat(cache.getPlanilhaAtual(planilha, Membro.CLUBE_PADRAO), equalTo(gerada));
+		assertThat(cache.getFalhas(), is(1L));
+		assertThat(cache.getAcertos(), is(1L));
+
+		// alteração nos membros (após o commit): nova planilha, a anterior é removida
+		try {
+			MassaMembros.adicionar(dao, "Membro y", "y@gmail.com", Disponibilidade.SEGUNDA);
+			commit();
+			File nova = cache.getPlanilhaAtual(planilha, Membro.CLUBE_PADRAO);
+			assertThat(nova, not(equalTo(gerada)));
+			assertThat(gerada.exists(), is(false));
+			assertThat(cache.getFalhas(), is(2L));
+		} finally {
+			dao.removerTodos(Membro.CLUBE_PADRAO);
+			commit();
+		}
+	}
+
+	@Test
+	public void downloadEmAndamentoLeAPlanilhaAnterior() throws Exception {
+		MassaMembros.adicionar(dao, "Membro x", "x@gmail.com", Disponibilidade.SEGUNDA);
+		try {
+			commit();
+			File gerada = cache.getPlanilhaAtual(planilha, Membro.CLUBE_PADRAO);
+			long tamanho = gerada.length();
+			FileInputStream download = cache.abrirPlanilhaAtual(planilha, Membro.CLUBE_PADRAO);
+
+			// nova versão durante o download: o arquivo anterior é removido, o download continua com o conteúdo aberto
+			MassaMembros.adicionar(dao, "Membro y", "y@gmail.com", Disponibilidade.SEGUNDA);
+			commit();
+			cache.getPlanilhaAtual(planilha, Membro.CLUBE_PADRAO);
+			assertThat(gerada.exists(), is(false));
+			long lidos = 0;
+			byte[] buffer = new byte[4096];
+			for (int qtd = download.read(buffer); qtd >= 0; qtd = download.read(buffer)) {
+				lidos += qtd;
+			}
+			download.close();
+			assertThat(lidos, is(tamanho));
+		} finally {
+			dao.removerTodos(Membro.CLUBE_PADRAO);
+			commit();
+		}
+	}
+
+	@Test
+	public void alteracaoEmUmClubeNaoGeraNovamenteOsDemais() throws Exception {
+		MassaMembros.adicionar(dao, "Membro x", "x@gmail.com", Disponibilidade.SEGUNDA);
+		try {
+			commit();
+			File gerada = cache.getPlanilhaAtual(planilha, Membro.CLUBE_PADRAO);
+			Membro outroClube = new Membro("Membro y", "y@gmail.com");
+			outroClube.setClube("andar2");
+			outroClube.addDisponibilidade(Disponibilidade.SEGUNDA);
+			dao.add(outroClube);
+			commit();
+
+			assertThat(cache.getPlanilhaAtual(planilha, Membro.CLUBE_PADRAO), equalTo(gerada));
+			assertThat(cache.getPlanilhaAtual(planilha, "andar2"), not(equalTo(gerada)));
+			assertThat(cache.getFalhas(), is(2L));
+			assertThat(cache.getAcertos(), is(1L));
+		} finally {
+			dao.removerTodos(Membro.CLUBE_PADRAO);
+			dao.removerTodos("andar2");
+			commit();
+		}
+	}
+
+	@Test
+	public void geracaoEmUmClubeNaoBloqueiaOsDemais() throws Exception {
+		final CountDownLatch iniciada = new CountDownLatch(1);
+		final CountDownLatch liberada = new CountDownLatch(1);
+		final ExcelFileService lenta = new ExcelFileService() {
+			public ReportExcelService parse(InputStream file, boolean sobrescrever, String clube) {
+				throw new UnsupportedOperationException();
+			}
+
+			public File getPlanilhaExemplo() {
+				throw new UnsupportedOperationException();
+			}
+
+			public void escreverPlanilhaAtual(OutputStream saida, String clube) throws IOException {
+				if ("andar1".equals(clube)) {
+					iniciada.countDown();
+					try {
+						liberada.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				saida.write(1);
+			}
+		};
+		File andar2 = cache.getPlanilhaAtual(lenta, "andar2");
+
+		ExecutorService threads = Executors.newFixedThreadPool(2);
+		try {
+			Future<File> geracao = threads.submit(new Callable<File>() {
+				public File call() throws Exception {
+					return cache.getPlanilhaAtual(lenta, "andar1");
+				}
+			});
+			assertThat(iniciada.await(5, TimeUnit.SECONDS), is(true));
+
+			// a geração do andar1 não bloqueia a planilha pronta nem a geração de outro clube
+			assertThat(threads.submit(new Callable<File>() {
+				public File call() throws Exception {
+					return cache.getPlanilhaAtual(lenta, "andar2");
+				}
+			}).get(5, TimeUnit.SECONDS), equalTo(andar2));
+			assertThat(cache.getPlanilhaAtual(lenta, "andar3").length(), is(1L));
+			assertThat(geracao.isDone(), is(false));
+
+			liberada.countDown();
+			assertThat(geracao.get(5, TimeUnit.SECONDS).length(), is(1L));
+			assertThat(cache.getFalhas(), is(3L));
+			assertThat(cache.getAcertos(), is(1L));
+		} finally {
+			liberada.countDown();
+			threads.shutdown();
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (getSession().getTransaction().isActive()) {
+			getSession().getTransaction().rollback();
+		}
+	}
+}
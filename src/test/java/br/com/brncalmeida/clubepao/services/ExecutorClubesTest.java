@@ -0,0 +1,77 @@
+package br.com.brncalmeida.clubepao.services;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ExecutorClubesTest {
+
+	private ExecutorClubes executor = new ExecutorClubes(1, 5);
+	private final List<String> ordem = Collections.synchronizedList(new ArrayList<String>());
+	private final CountDownLatch liberar = new CountDownLatch(1);
+
+	@Test
+	public void clubesSaoAtendidosEmRodizio() throws Exception {
+		List<Future<String>> futuros = new ArrayList<Future<String>>();
+		// a primeira tarefa ocupa a única thread até a liberação
+		futuros.add(executor.submeter("grande", tarefa("grande 1")));
+		futuros.add(executor.submeter("grande", tarefa("grande 2")));
+		futuros.add(executor.submeter("grande", tarefa("grande 3")));
+		futuros.add(executor.submeter("pequeno", tarefa("pequeno 1")));
+		assertThat(executor.getQtdAguardando(), is(3));
+
+		liberar.countDown();
+		for (Future<String> futuro : futuros) {
+			futuro.get();
+		}
+		assertThat(ordem, contains("grande 1", "pequeno 1", "grande 2", "grande 3"));
+		assertThat(executor.getQtdAguardando(), is(0));
+	}
+
+	@Test(expected = RejectedExecutionException.class)
+	public void filaCheiaRecusaNovasTarefas() {
+		executor.submeter("grande", tarefa("em execução"));
+		for (int i = 0; i < 6; i++) {
+			executor.submeter("clube " + i, tarefa("aguardando " + i));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void erroDaTarefaChegaAoChamador() {
+		liberar.countDown();
+		executor.executar("grande", new Callable<String>() {
+			@Override
+			public String call() {
+				throw new IllegalArgumentException("erro na geração");
+			}
+		});
+	}
+
+	private Callable<String> tarefa(final String nome) {
+		return new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				liberar.await();
+				ordem.add(nome);
+				return nome;
+			}
+		};
+	}
+
+	@After
+	public void tearDown() {
+		liberar.countDown();
+		executor.encerrar();
+	}
+}
@@ -0,0 +1,164 @@
+package br.com.brncalmeida.clubepao.services;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import br.com.brncalmeida.clubepao.controller.GenericTest;
+import br.com.brncalmeida.clubepao.dao.DefaultMembroDao;
+import br.com.brncalmeida.clubepao.dao.MembroDao;
+import br.com.brncalmeida.clubepao.dao.VersaoMembros;
+import br.com.brncalmeida.clubepao.model.Disponibilidade;
+import br.com.brncalmeida.clubepao.model.MassaMembros;
+import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.model.MembroResumo;
+
+public class IndiceMembrosTest extends GenericTest {
+
+	private MembroDao dao;
+	private IndiceMembros indice;
+
+	@Before
+	public void setUp() {
+		VersaoMembros versao = new VersaoMembros();
+		dao = new DefaultMembroDao(getSession(), versao);
+		indice = new IndiceMembros(versao);
+	}
+
+	@Test
+	public void buscaPorPrefixoSemAcentosEPorDisponibilidade() {
+		MassaMembros.adicionar(dao, "José da Silva", "jose@gmail.com", Disponibilidade.SEGUNDA);
+		MassaMembros.adicionar(dao, "Maria Souza", "maria@gmail.com", Disponibilidade.TERCA);
+		MassaMembros.adicionar(dao, "Joana", "silvajoana@gmail.com", Disponibilidade.SEGUNDA, Disponibilidade.TERCA);
+
+		assertThat(nomes(indice.buscar(dao, Membro.CLUBE_PADRAO, "JO", null, 0, 10)), contains("José da Silva", "Joana"));
+		assertThat(nomes(indice.buscar(dao, Membro.CLUBE_PADRAO, "silva", null, 0, 10)), contains("José da Silva", "Joana"));
+		assertThat(nomes(indice.buscar(dao, Membro.CLUBE_PADRAO, "maria@", null, 0, 10)), contains("Maria Souza"));
+		assertThat(nomes(indice.buscar(dao, Membro.CLUBE_PADRAO, " ", Disponibilidade.TERCA, 0, 10)), contains("Maria Souza", "Joana"));
+		assertThat(nomes(indice.buscar(dao, Membro.CLUBE_PADRAO, "jo", Disponibilidade.TERCA, 0, 10)), contains("Joana"));
+		assertThat(indice.buscar(dao, Membro.CLUBE_PADRAO, "pedro", null, 0, 10).getTotal(), is(0));
+	}
+
+	@Test
+	public void paginasSemConsultarABaseAteAProximaEscrita() {
+		try {
+			for (int i = 0; i < 120; i++) {
+				MassaMembros.adicionar(dao, "Membro " + i, "membro" + i + "@gmail.com", Disponibilidade.values()[i % Disponibilidade.values().length]);
+			}
+			commit();
+
+			PaginaMembros primeira = indice.buscar(dao, Membro.CLUBE_PADRAO, null, null, 0, 50);
+			PaginaMembros ultima = indice.buscar(dao, Membro.CLUBE_PADRAO, null, null, 100, 50);
+			assertThat(primeira.getMembros().size(), is(50));
+			assertThat(primeira.isPossuiAnterior(), is(false));
+			assertThat(primeira.isPossuiProxima(), is(true));
+			assertThat(ultima.getMembros().size(), is(20));
+			assertThat(ultima.getTotal(), is(120));
+			assertThat(ultima.getPagina(), is(2));
+			assertThat(ultima.isPossuiProxima(), is(false));
+			assertThat(ultima.getMembros().get(0).getNome(), equalTo("Membro 100"));
+			assertThat(indice.buscar(dao, Membro.CLUBE_PADRAO, null, Disponibilidade.SEXTA, 0, 50).getTotal(), is(24));
+			assertThat(indice.getQtdMontagens(), is(1L));
+
+			// inclusão de um membro: aplicada ao índice na próxima busca após o commit, sem remontá-lo
+			MassaMembros.adicionar(dao, "Membro novo", "novo@gmail.com", Disponibilidade.SEXTA);
+			commit();
+			assertThat(indice.buscar(dao, Membro.CLUBE_PADRAO, null, Disponibilidade.SEXTA, 0, 50).getTotal(), is(25));
+			assertThat(indice.getQtdMontagens(), is(1L));
+			assertThat(indice.getQtdAlteracoes(), is(1L));
+		} finally {
+			dao.removerTodos(Membro.CLUBE_PADRAO);
+			commit();
+		}
+	}
+
+	@Test
+	public void indicesSeparadosPorClube() {
+		MassaMembros.adicionar(dao, "José da Silva", "jose@gmail.com", Disponibilidade.SEGUNDA);
+		Membro outroClube = new Membro("Joana", "joana@gmail.com");
+		outroClube.setClube("andar2");
+		outroClube.addDisponibilidade(Disponibilidade.SEGUNDA);
+		dao.add(outroClube);
+
+		assertThat(nomes(indice.buscar(dao, Membro.CLUBE_PADRAO, "jo", null, 0, 10)), contains("José da Silva"));
+		assertThat(nomes(indice.buscar(dao, "andar2", "jo", null, 0, 10)), contains("Joana"));
+		assertThat(indice.getQtdClubes(), is(2));
+
+		// clube sem membros não mantém índice
+		assertThat(indice.buscar(dao, "andar3", null, null, 0, 10).getTotal(), is(0));
+		assertThat(indice.getQtdClubes(), is(2));
+	}
+
+	@Test
+	public void alteracoesAplicadasSemRemontarEImportacaoRemonta() {
+		try {
+			Membro jose = MassaMembros.adicionar(dao, "José da Silva", "jose@gmail.com", Disponibilidade.SEGUNDA);
+			Membro maria = MassaMembros.adicionar(dao, "Maria Souza", "maria@gmail.com", Disponibilidade.TERCA);
+			commit();
+			assertThat(indice.buscar(dao, Membro.CLUBE_PADRAO, null, null, 0, 10).getTotal(), is(2));
+
+			// alteração: o membro é reindexado na mesma posição
+			jose.removeAllDisponibilidades();
+			jose.addDisponibilidade(Disponibilidade.TERCA);
+			dao.update(jose);
+			commit();
+			assertThat(nomes(indice.buscar(dao, Membro.CLUBE_PADRAO, null, Disponibilidade.TERCA, 0, 10)), contains("José da Silva", "Maria Souza"));
+			assertThat(indice.buscar(dao, Membro.CLUBE_PADRAO, "jose", Disponibilidade.SEGUNDA, 0, 10).getTotal(), is(0));
+
+			// mudança de clube: removido do clube anterior e incluído no novo
+			maria.setClube("andar2");
+			dao.update(maria);
+			commit();
+			assertThat(nomes(indice.buscar(dao, Membro.CLUBE_PADRAO, null, null, 0, 10)), contains("José da Silva"));
+			assertThat(nomes(indice.buscar(dao, "andar2", "maria", null, 0, 10)), contains("Maria Souza"));
+
+			// remoção
+			dao.remove(jose);
+			commit();
+			assertThat(indice.buscar(dao, Membro.CLUBE_PADRAO, "jose", null, 0, 10).getTotal(), is(0));
+			assertThat(indice.getQtdMontagens(), is(2L));
+			assertThat(indice.getQtdAlteracoes(), is(3L));
+
+			// importação (inclusão em lote): o índice é remontado
+			List<Membro> importados = new ArrayList<Membro>();
+			for (int i = 0; i < 3; i++) {
+				Membro membro = new Membro("Importado " + i, "importado" + i + "@gmail.com");
+				membro.setClube("andar2");
+				membro.addDisponibilidade(Disponibilidade.QUARTA);
+				importados.add(membro);
+			}
+			dao.addEmLote(importados);
+			commit();
+			assertThat(indice.buscar(dao, "andar2", null, null, 0, 10).getTotal(), is(4));
+			assertThat(indice.getQtdMontagens(), is(3L));
+		} finally {
+			for (String clube : dao.listarClubes()) {
+				dao.removerTodos(clube);
+			}
+			commit();
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (getSession().getTransaction().isActive()) {
+			getSession().getTransaction().rollback();
+		}
+	}
+
+	private static List<String> nomes(PaginaMembros pagina) {
+		List<String> nomes = new ArrayList<String>();
+		for (MembroResumo membro : pagina.getMembros()) {
+			nomes.add(membro.getNome());
+		}
+		return nomes;
+	}
+}
@@ -0,0 +1,130 @@
+package br.com.brncalmeida.clubepao.services;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import br.com.brncalmeida.clubepao.controller.GenericTest;
+import br.com.brncalmeida.clubepao.dao.DefaultProgramacaoDao;
+import br.com.brncalmeida.clubepao.dao.ProgramacaoDao;
+import br.com.brncalmeida.clubepao.dao.VersaoProgramacoes;
+import br.com.brncalmeida.clubepao.model.MassaMembros;
+import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.model.Schedule;
+
+public class LotesProgramacaoTest extends GenericTest {
+
+	private static final List<LocalDate> DATAS = Arrays.asList(new LocalDate(2014, 4, 14), new LocalDate(2014, 5, 15), new LocalDate(2014, 6, 16));
+
+	private ExecutorClubes executor = new ExecutorClubes(2, 10);
+	private CacheCronogramas cache = new CacheCronogramas();
+	private VersaoProgramacoes versaoProgramacoes = new VersaoProgramacoes();
+	private LotesProgramacao lotes;
+
+	@Before
+	public void setUp() {
+		lotes = new LotesProgramacao(executor, cache, getSession().getSessionFactory(), versaoProgramacoes);
+	}
+
+	@Test
+	public void cadaPeriodoParteDaCargaDoPeriodoAnterior() throws Exception {
+		List<Membro> membros = criarMembros();
+		// datas fora de ordem: o lote gera em ordem cronológica
+		String id = lotes.iniciar(Membro.CLUBE_PADRAO, Arrays.asList(DATAS.get(2), DATAS.get(0), DATAS.get(1)), 30, 0, membros);
+		SituacaoLote situacao = aguardar(id);
+
+		assertThat(situacao.getQtdConcluidas(), is(DATAS.size()));
+		assertThat(situacao.getProximo(), is(DATAS.size()));
+		ProgramacaoDao programacoesSalvas = new DefaultProgramacaoDao(getSession(), versaoProgramacoes);
+		List<Membro> anteriores = membros;
+		for (int i = 0; i < DATAS.size(); i++) {
+			LocalDate data = DATAS.get(i);
+			anteriores = MassaMembros.copiar(anteriores);
+			Schedule esperado = new Schedule(data, data.plusDays(30), anteriores);
+			ProgramacaoLote programacao = situacao.getProgramacoes().get(i);
+			assertThat(programacao.getDataInicial(), equalTo(data.toString()));
+			assertThat(membros(programacao), equalTo((List<String>) new ArrayList<String>(esperado.getProgramacaoPorMembro().values())));
+
+			// cada período gerado fica em cache e salvo
+			assertThat(cache.buscar(Membro.CLUBE_PADRAO, data, 30, ModoAlocacao.INCREMENTAL, 0, versaoProgramacoes.getVersao(Membro.CLUBE_PADRAO)), notNullValue());
+			assertThat(programacoesSalvas.buscar(Membro.CLUBE_PADRAO, data, 30).getDias(), equalTo(esperado.getProgramacaoPorId()));
+		}
+
+		// a geração trabalha sobre cópias, os membros informados não são alterados
+		for (Membro membro : membros) {
+			assertThat(membro.getQtdDiasProgramados(), is(0));
+		}
+	}
+
+	@Test
+	public void situacaoDevolveProgramacoesAPartirDoInicio() throws Exception {
+		String id = lotes.iniciar(Membro.CLUBE_PADRAO, DATAS, 30, 0, criarMembros());
+		aguardar(id);
+
+		SituacaoLote situacao = lotes.situacao(id, 2);
+		assertThat(situacao.getProgramacoes().size(), is(1));
+		assertThat(situacao.getProgramacoes().get(0).getDataInicial(), equalTo(DATAS.get(2).toString()));
+		assertThat(lotes.situacao(id, DATAS.size()).getProgramacoes().size(), is(0));
+	}
+
+	@Test
+	public void loteDesconhecidoOuDescartado() throws Exception {
+		lotes = new LotesProgramacao(executor, new CacheCronogramas(), getSession().getSessionFactory(), versaoProgramacoes, 1);
+		String primeiro = lotes.iniciar(Membro.CLUBE_PADRAO, DATAS, 30, 0, criarMembros());
+		String segundo = lotes.iniciar(Membro.CLUBE_PADRAO, DATAS, 30, 0, criarMembros());
+
+		assertThat(lotes.situacao("inexistente", 0), nullValue());
+		assertThat(lotes.situacao(primeiro, 0), nullValue());
+		assertThat(aguardar(segundo).isConcluido(), is(true));
+	}
+
+	@Test(expected = RejectedExecutionException.class)
+	public void loteMaiorQueAFilaEhRecusado() {
+		List<LocalDate> datas = new ArrayList<LocalDate>();
+		for (int i = 0; i < 20; i++) {
+			datas.add(DATAS.get(0).plusDays(31 * i));
+		}
+		lotes.iniciar(Membro.CLUBE_PADRAO, datas, 30, 0, criarMembros());
+	}
+
+	private SituacaoLote aguardar(String id) throws InterruptedException {
+		SituacaoLote situacao = lotes.situacao(id, 0);
+		for (int i = 0; i < 500 && !situacao.isConcluido(); i++) {
+			Thread.sleep(10);
+			situacao = lotes.situacao(id, 0);
+		}
+		return situacao;
+	}
+
+	private static List<Membro> criarMembros() {
+		return MassaMembros.criarMembros(8, MassaMembros.SEMENTE);
+	}
+
+	private static List<String> membros(ProgramacaoLote programacao) {
+		List<String> membros = new ArrayList<String>();
+		for (ProgramacaoLote.Dia dia : programacao.getDias()) {
+			membros.add(dia.getMembro());
+		}
+		return membros;
+	}
+
+	@After
+	public void tearDown() {
+		executor.encerrar();
+		// remove as programações salvas pelos lotes
+		getSession().createQuery("delete from ProgramacaoSalva").executeUpdate();
+		commit();
+	}
+}
@@ -0,0 +1,142 @@
+package br.com.brncalmeida.clubepao.services.impl;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import br.com.brncalmeida.clubepao.controller.GenericTest;
+import br.com.brncalmeida.clubepao.dao.DefaultMembroDao;
+import br.com.brncalmeida.clubepao.dao.MembroDao;
+import br.com.brncalmeida.clubepao.dao.VersaoMembros;
+import br.com.brncalmeida.clubepao.model.Disponibilidade;
+import br.com.brncalmeida.clubepao.model.MassaMembros;
+import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.services.ExcelFileService.ReportExcelService;
+
+public class DefaultExcelFileServiceTest extends GenericTest {
+	private MembroDao dao;
+	private DefaultExcelFileService service;
+
+	@Test
+	public void importacaoXlsxEmStreaming() throws Exception {
+		ReportExcelService report = service.parse(new ByteArrayInputStream(criarPlanilha(new XSSFWorkbook())), true, null);
+		validarImportacao(report);
+	}
+
+	@Test
+	public void importacaoXlsMantemMesmasRegras() throws Exception {
+		ReportExcelService report = service.parse(new ByteArrayInputStream(criarPlanilha(new HSSFWorkbook())), true, null);
+		validarImportacao(report);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void planilhaXlsxSemSheetMembros() throws Exception {
+		Workbook wb = new XSSFWorkbook();
+		wb.createSheet("Outra").createRow(0).createCell(0).setCellValue("Nome");
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		wb.write(stream);
+		service.parse(new ByteArrayInputStream(stream.toByteArray()), false, null);
+	}
+
+	@Test
+	public void exportacaoEmStreamingPaginaOsMembros() throws Exception {
+		for (int i = 0; i < 1200; i++) {
+			Membro membro = new Membro("Membro " + i, "membro" + i + "@gmail.com");
+			membro.addDisponibilidade(Disponibilidade.values()[i % Disponibilidade.values().length]);
+			dao.add(membro);
+		}
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		service.escreverPlanilhaAtual(stream, Membro.CLUBE_PADRAO);
+
+		Sheet sheet = new XSSFWorkbook(new ByteArrayInputStream(stream.toByteArray())).getSheet("Membros");
+		assertThat(sheet.getLastRowNum(), is(1200));
+		assertThat(sheet.getRow(1200).getCell(0).getStringCellValue(), is("Membro 1199"));
+		assertThat(sheet.getRow(1200).getCell(6).getStringCellValue(), is("X"));
+		assertThat(sheet.getRow(1200).getCell(2).getStringCellValue(), is(""));
+	}
+
+	@Test
+	public void importacaoSobrescreveSomenteOClube() throws Exception {
+		Membro outroClube = new Membro("Membro andar2", "andar2@gmail.com");
+		outroClube.setClube("andar2");
+		outroClube.addDisponibilidade(Disponibilidade.SEGUNDA);
+		dao.add(outroClube);
+		Membro anterior = new Membro("Membro anterior", "anterior@gmail.com");
+		anterior.setClube("andar1");
+		anterior.addDisponibilidade(Disponibilidade.SEGUNDA);
+		dao.add(anterior);
+
+		ReportExcelService report = service.parse(new ByteArrayInputStream(criarPlanilha(new XSSFWorkbook())), true, " andar1 ");
+		assertThat(report.getQtdMembrosIncluidos(), is(2));
+		assertThat(dao.listarTodos("andar1"), hasSize(2));
+		assertThat(dao.listarTodos("andar1").get(0).getClube(), is("andar1"));
+		assertThat(dao.listarTodos("andar2"), contains(outroClube));
+		assertThat(dao.listarTodos(Membro.CLUBE_PADRAO), hasSize(0));
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		service.escreverPlanilhaAtual(stream, "andar2");
+		Sheet sheet = new XSSFWorkbook(new ByteArrayInputStream(stream.toByteArray())).getSheet("Membros");
+		assertThat(sheet.getLastRowNum(), is(1));
+		assertThat(sheet.getRow(1).getCell(0).getStringCellValue(), is("Membro andar2"));
+	}
+
+	private void validarImportacao(ReportExcelService report) {
+		assertThat(report.getQtdMembrosIncluidos(), is(2));
+		assertThat(report.getErros(), hasSize(1));
+		assertThat(report.getErros().get(0), startsWith(getMessage("erro.membro.linha", "2")));
+		assertThat(dao.listarTodos(Membro.CLUBE_PADRAO), hasSize(2));
+
+		Membro membro = MassaMembros.disponiveis(dao, Membro.CLUBE_PADRAO, Disponibilidade.QUARTA).get(0);
+		assertThat(membro.getEmail(), is("membro1@gmail.com"));
+		assertThat(membro.getDisponibilidades(), contains(Disponibilidade.SEGUNDA, Disponibilidade.QUARTA));
+		assertThat(MassaMembros.disponiveis(dao, Membro.CLUBE_PADRAO, Disponibilidade.SEXTA).get(0).getNome(), is("Membro 3"));
+	}
+
+	private byte[] criarPlanilha(Workbook wb) throws Exception {
+		Sheet sheet = wb.createSheet("Membros");
+		linha(sheet, 0, "Nome", "E-mail", "Seg", "Ter", "Qua", "Qui", "Sex");
+		linha(sheet, 1, "Membro 1", "membro1@gmail.com", "x", "", " X ", null, null);
+		// sem e-mail e sem disponibilidade
+		linha(sheet, 2, "Membro 2", null, null, "", null, null, null);
+		linha(sheet, 3, "Membro 3", "membro3@gmail.com", null, null, null, null, "X");
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		wb.write(stream);
+		return stream.toByteArray();
+	}
+
+	private void linha(Sheet sheet, int numero, String... celulas) {
+		Row row = sheet.createRow(numero);
+		for (int i = 0; i < celulas.length; i++) {
+			if (celulas[i] != null) {
+				row.createCell(i).setCellValue(celulas[i]);
+			}
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		dao = new DefaultMembroDao(getSession(), new VersaoMembros());
+		service = new DefaultExcelFileService(dao, getLocalization());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (getSession().getTransaction().isActive()) {
+			getSession().getTransaction().rollback();
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package br.com.brncalmeida.clubepao.utils;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+public class CalendarioFeriadosTest {
+
+	private final CalendarioFeriados calendario = new CalendarioFeriados(de.jollyday.HolidayCalendar.BRAZIL, 2);
+
+	@Test
+	public void rangeIgnoraFinaisDeSemanaEFeriados() {
+		// 18/04/2014 = sexta-feira santa, 21/04/2014 = tiradentes
+		Set<LocalDate> diasUteis = calendario.buscarDiasUteis(new LocalDate(2014, 4, 14), new LocalDate(2014, 4, 23));
+		assertThat(diasUteis, contains(new LocalDate(2014, 4, 14), new LocalDate(2014, 4, 15), new LocalDate(2014, 4, 16), new LocalDate(2014, 4, 17),
+				new LocalDate(2014, 4, 22)));
+	}
+
+	@Test
+	public void rangeEntreAnosUtilizaFeriadosDeCadaAno() {
+		Set<LocalDate> diasUteis = calendario.buscarDiasUteis(new LocalDate(2014, 12, 22), new LocalDate(2015, 1, 6));
+		assertThat(diasUteis, not(hasItem(new LocalDate(2014, 12, 25))));
+		assertThat(diasUteis, not(hasItem(new LocalDate(2015, 1, 1))));
+		assertThat(diasUteis, hasItem(new LocalDate(2014, 12, 31)));
+		assertThat(diasUteis, hasItem(new LocalDate(2015, 1, 5)));
+		assertThat(diasUteis, not(hasItem(new LocalDate(2015, 1, 6))));
+	}
+
+	@Test
+	public void anosDescartadosSaoRecalculados() {
+		for (int ano = 2010; ano <= 2020; ano++) {
+			assertFalse(calendario.isDiaUtil(new LocalDate(ano, 9, 7)));
+		}
+		assertTrue(calendario.isDiaUtil(new LocalDate(2014, 9, 8)));
+		assertThat(calendario.buscarFeriados(2010), hasItem(new LocalDate(2010, 11, 15)));
+	}
+}
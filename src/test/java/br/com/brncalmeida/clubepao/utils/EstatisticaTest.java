@@ -0,0 +1,65 @@
+package br.com.brncalmeida.clubepao.utils;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class EstatisticaTest {
+
+	private static final double PRECISAO = 1e-9;
+
+	@Test
+	public void umaPassadaIgualAoCalculoEmDuasPassadas() {
+		double[] valores = new double[1000];
+		Random random = new Random(7);
+		for (int i = 0; i < valores.length; i++) {
+			valores[i] = random.nextInt(40);
+		}
+		double media = Util.getSomaDosElementos(valores) / valores.length;
+		double somaDosQuadrados = 0;
+		for (double valor : valores) {
+			somaDosQuadrados += (valor - media) * (valor - media);
+		}
+
+		Estatistica estatistica = new Estatistica(valores);
+		assertThat(estatistica.getQtd(), is(1000L));
+		assertThat(estatistica.getMedia(), closeTo(media, PRECISAO));
+		assertThat(estatistica.getVariancia(), closeTo(somaDosQuadrados / (valores.length - 1), PRECISAO));
+		assertThat(Util.getDesvioPadrao(valores), closeTo(Math.sqrt(somaDosQuadrados / (valores.length - 1)), PRECISAO));
+		assertThat(estatistica.getMinimo(), is(0.0));
+		assertThat(estatistica.getMaximo(), is(39.0));
+	}
+
+	@Test
+	public void combinacaoIgualAoAcumuladorUnico() {
+		Estatistica unica = new Estatistica();
+		Estatistica primeira = new Estatistica();
+		Estatistica segunda = new Estatistica();
+		for (int i = 0; i < 500; i++) {
+			double valor = (i * 31) % 17 + 1e6;
+			unica.adicionar(valor);
+			(i < 120 ? primeira : segunda).adicionar(valor);
+		}
+		primeira.adicionar(segunda);
+		primeira.adicionar(new Estatistica());
+
+		assertThat(primeira.getQtd(), is(unica.getQtd()));
+		assertThat(primeira.getMedia(), closeTo(unica.getMedia(), PRECISAO));
+		assertThat(primeira.getVariancia(), closeTo(unica.getVariancia(), PRECISAO));
+		assertThat(primeira.getMinimo(), is(unica.getMinimo()));
+		assertThat(primeira.getMaximo(), is(unica.getMaximo()));
+	}
+
+	@Test
+	public void semValoresSuficientes() {
+		assertTrue(Double.isNaN(new Estatistica().getMedia()));
+		assertTrue(Double.isNaN(new Estatistica().getMinimo()));
+		assertTrue(Double.isNaN(new Estatistica(3).getVariancia()));
+		assertThat(new Estatistica(3).getMedia(), is(3.0));
+	}
+}
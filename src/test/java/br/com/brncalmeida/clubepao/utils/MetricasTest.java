@@ -0,0 +1,99 @@
+package br.com.brncalmeida.clubepao.utils;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import br.com.brncalmeida.clubepao.model.AlocadorIndexado;
+import br.com.brncalmeida.clubepao.model.Disponibilidade;
+import br.com.brncalmeida.clubepao.model.Membro;
+import br.com.brncalmeida.clubepao.model.Schedule;
+
+public class MetricasTest {
+
+	private final Metricas metricas = new Metricas();
+
+	@Test
+	public void histogramaAcumulaFaixasNoFormatoPrometheus() {
+		Histograma histograma = metricas.histograma("teste_segundos", "Duração de teste", "recurso", "Controller.metodo");
+		histograma.registrar(TimeUnit.MILLISECONDS.toNanos(3));
+		histograma.registrar(TimeUnit.MILLISECONDS.toNanos(10));
+		histograma.registrar(TimeUnit.SECONDS.toNanos(30));
+
+		String texto = escrever();
+		assertThat(texto, containsString("# TYPE teste_segundos histogram\n"));
+		assertThat(texto, containsString("teste_segundos_bucket{recurso=\"Controller.metodo\",le=\"0.005\"} 1\n"));
+		// o limite da faixa é inclusivo
+		assertThat(texto, containsString("teste_segundos_bucket{recurso=\"Controller.metodo\",le=\"0.01\"} 2\n"));
+		assertThat(texto, containsString("teste_segundos_bucket{recurso=\"Controller.metodo\",le=\"10\"} 2\n"));
+		assertThat(texto, containsString("teste_segundos_bucket{recurso=\"Controller.metodo\",le=\"+Inf\"} 3\n"));
+		assertThat(texto, containsString("teste_segundos_sum{recurso=\"Controller.metodo\"} 30.013\n"));
+		assertThat(texto, containsString("teste_segundos_count{recurso=\"Controller.metodo\"} 3\n"));
+	}
+
+	@Test
+	public void contadoresEMedidoresPorRotulo() {
+		metricas.contador("teste_total", "Contador de teste", "resultado", "acerto").addAndGet(5);
+		metricas.contador("teste_total", "Contador de teste", "resultado", "falha").incrementAndGet();
+		metricas.contador("teste_total", "Contador de teste", "resultado", "acerto").incrementAndGet();
+		metricas.contador("sem_rotulos_total", "Contador sem rótulos").incrementAndGet();
+		metricas.medir("teste_por_segundo", "Medidor de teste", 1250.5, "formato", "xlsx");
+
+		String texto = escrever();
+		assertThat(texto, containsString("# TYPE teste_total counter\nteste_total{resultado=\"acerto\"} 6\nteste_total{resultado=\"falha\"} 1\n"));
+		assertThat(texto, containsString("\nsem_rotulos_total 1\n"));
+		assertThat(texto, containsString("teste_por_segundo{formato=\"xlsx\"} 1250.5\n"));
+		assertThat(metricas.getMedida("teste_por_segundo", "formato", "xlsx"), equalTo(1250.5));
+	}
+
+	@Test
+	public void valoresDosRotulosSaoEscapados() {
+		metricas.contador("consultas_total", "Consultas", "consulta", "from Membro m where m.nome = \"a\\b\"\n").incrementAndGet();
+		assertThat(escrever(), containsString("consultas_total{consulta=\"from Membro m where m.nome = \\\"a\\\\b\\\"\\n\"} 1\n"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void mesmoNomeComOutroTipoEhRecusado() {
+		metricas.contador("teste", "Contador");
+		metricas.histograma("teste", "Histograma");
+	}
+
+	@Test
+	public void geracaoDeProgramacaoEhMedida() {
+		Metricas compartilhada = Metricas.getInstance();
+		long qtdAntes = compartilhada.histograma("clubepao_programacao_segundos", "", "alocador", "AlocadorIndexado").getQtd();
+		long diasAntes = compartilhada.contador("clubepao_programacao_dias_total", "", "alocador", "AlocadorIndexado").get();
+		long buscasDiasUteisAntes = compartilhada.histograma("clubepao_dias_uteis_segundos", "").getQtd();
+
+		List<Membro> membros = new ArrayList<Membro>();
+		for (int i = 0; i < 3; i++) {
+			Membro membro = new Membro("Membro " + i, "m" + i + "@gmail.com");
+			membro.setId((long) i + 1);
+			membro.addDisponibilidade(Disponibilidade.values()[i]);
+			membros.add(membro);
+		}
+		Schedule cronograma = new Schedule(new LocalDate(2014, 4, 14), new LocalDate(2014, 5, 14), membros, new AlocadorIndexado());
+
+		assertThat(compartilhada.histograma("clubepao_programacao_segundos", "", "alocador", "AlocadorIndexado").getQtd(), is(qtdAntes + 1));
+		assertThat(compartilhada.contador("clubepao_programacao_dias_total", "", "alocador", "AlocadorIndexado").get(), is(diasAntes
+				+ cronograma.getProgramacaoPorMembro().size()));
+		assertThat(compartilhada.contador("clubepao_programacao_membros_total", "", "alocador", "AlocadorIndexado").get(), greaterThan(0L));
+		// os dias úteis do calendário da programação também são medidos
+		assertThat(compartilhada.histograma("clubepao_dias_uteis_segundos", "").getQtd(), greaterThan(buscasDiasUteisAntes));
+	}
+
+	private String escrever() {
+		StringBuilder saida = new StringBuilder();
+		metricas.escrever(saida);
+		return saida.toString();
+	}
+}